@@ -0,0 +1,57 @@
+package com.scrapy.demo.benchmark;
+
+import com.scrapy.demo.service.AnalysisExecutor;
+import com.scrapy.demo.service.TeachingInsightService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 班级总览：读取学生快照并只统计最近两次考试的成绩，与原实现（先排序提取日期、按学生分组后逐个排序）的对比，
+ * 整个年级的学生归入同一班级，每名学生 4 次考试 × 8 门课程
+ * 运行：./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="ClassSnapshotBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class ClassSnapshotBenchmark {
+
+    @Param({"200", "2000"})
+    public int studentCount;
+
+    @Param({"1", "8"})
+    public int parallelism;
+
+    private SyntheticScores data;
+    private String clazz;
+    private TeachingInsightService insightService;
+    private LegacyClassOverview legacy;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = SyntheticScores.generate(studentCount * SyntheticScores.SCORES_PER_STUDENT, 1);
+        clazz = SyntheticScores.className(0);
+        AnalysisExecutor executor = new AnalysisExecutor(parallelism);
+
+        insightService = InsightStubs.insightService(data, executor);
+        legacy = new LegacyClassOverview(executor);
+
+        if (!snapshot().equals(legacy())) {
+            throw new IllegalStateException("快照读取与原实现的班级总览不一致");
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> snapshot() {
+        return insightService.getClassOverview(clazz);
+    }
+
+    @Benchmark
+    public Map<String, Object> legacy() {
+        return legacy.overview(clazz, data.students, data.scores);
+    }
+}
@@ -0,0 +1,118 @@
+package com.scrapy.demo.benchmark;
+
+import com.scrapy.demo.service.CsvSheetReader;
+import com.scrapy.demo.service.CsvSheetWriter;
+import com.scrapy.demo.service.SheetRow;
+import com.scrapy.demo.service.XlsxSheetReader;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 导入格式基准：同一份成绩表分别以 XLSX（POI 事件模型 SAX 解析）与 CSV（通道流式解析）读取，
+ * 只衡量解析与取值（不含数据库），对比两种格式的行吞吐
+ * 运行：./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="ImportFormatBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class ImportFormatBenchmark {
+
+    private static final Set<Integer> NUMERIC_COLUMNS = Set.of(3);
+
+    @Param({"10000", "50000"})
+    public int rowCount;
+
+    private Path xlsx;
+    private Path csv;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        xlsx = Files.createTempFile("import-bench", ".xlsx");
+        csv = Files.createTempFile("import-bench", ".csv");
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(500);
+             OutputStream out = Files.newOutputStream(xlsx)) {
+            workbook.setCompressTempFiles(true);
+            Sheet sheet = workbook.createSheet("成绩信息");
+            writeHeader(sheet.createRow(0));
+            for (int i = 0; i < rowCount; i++) {
+                Row row = sheet.createRow(i + 1);
+                row.createCell(0).setCellValue(studentNumber(i));
+                row.createCell(1).setCellValue(courseName(i));
+                row.createCell(2).setCellValue(examName(i));
+                row.createCell(3).setCellValue(value(i));
+            }
+            workbook.write(out);
+            workbook.dispose();
+        }
+        try (FileChannel channel = FileChannel.open(csv, StandardOpenOption.WRITE);
+             CsvSheetWriter writer = new CsvSheetWriter(channel)) {
+            writer.writeRow("学号", "课程名称", "考试名称", "成绩");
+            for (int i = 0; i < rowCount; i++) {
+                writer.writeRow(studentNumber(i), courseName(i), examName(i), value(i));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(xlsx);
+        Files.deleteIfExists(csv);
+    }
+
+    @Benchmark
+    public void parseXlsx(Blackhole blackhole) throws Exception {
+        XlsxSheetReader.readFirstSheet(xlsx, row -> consume(row, blackhole));
+    }
+
+    @Benchmark
+    public void parseCsv(Blackhole blackhole) throws Exception {
+        try (FileChannel channel = FileChannel.open(csv, StandardOpenOption.READ)) {
+            CsvSheetReader.read(channel, NUMERIC_COLUMNS, row -> consume(row, blackhole));
+        }
+    }
+
+    private static void consume(SheetRow row, Blackhole blackhole) {
+        blackhole.consume(row.getString(0));
+        blackhole.consume(row.getString(1));
+        blackhole.consume(row.getString(2));
+        blackhole.consume(row.getNumber(3));
+    }
+
+    private static void writeHeader(Row header) {
+        String[] headers = {"学号", "课程名称", "考试名称", "成绩"};
+        for (int i = 0; i < headers.length; i++) {
+            header.createCell(i).setCellValue(headers[i]);
+        }
+    }
+
+    private static String studentNumber(int i) {
+        return String.valueOf(2024000000L + i / 8);
+    }
+
+    private static String courseName(int i) {
+        return "课程" + (i % 8);
+    }
+
+    private static String examName(int i) {
+        return "考试" + (i % 4);
+    }
+
+    private static double value(int i) {
+        return 40 + (i * 37 % 61);
+    }
+}
@@ -0,0 +1,125 @@
+package com.scrapy.demo.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scrapy.demo.domain.Score;
+import com.scrapy.demo.domain.StudentSnapshot;
+import com.scrapy.demo.repository.LearningMaterialRepository;
+import com.scrapy.demo.repository.ScoreAggregateRepository;
+import com.scrapy.demo.repository.ScoreRepository;
+import com.scrapy.demo.repository.StudentExamStatsView;
+import com.scrapy.demo.repository.StudentRepository;
+import com.scrapy.demo.repository.StudentSnapshotRepository;
+import com.scrapy.demo.service.AnalysisExecutor;
+import com.scrapy.demo.service.LearningMaterialIndex;
+import com.scrapy.demo.service.LlmReasonCache;
+import com.scrapy.demo.service.LlmReasonService;
+import com.scrapy.demo.service.ScoreAggregateService;
+import com.scrapy.demo.service.StudentSnapshotService;
+import com.scrapy.demo.service.TeachingInsightService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * 基于合成成绩装配教学洞察服务：学生快照在装配时按成绩全量重建一次（相当于写入时已增量维护），
+ * 基准只衡量读取路径
+ */
+final class InsightStubs {
+
+    private record ExamStats(Long studentId, String clazz, LocalDate examDate,
+                             long count, double sum, long passCount) implements StudentExamStatsView {
+
+        @Override
+        public Long getStudentId() {
+            return studentId;
+        }
+
+        @Override
+        public String getClazz() {
+            return clazz;
+        }
+
+        @Override
+        public LocalDate getExamDate() {
+            return examDate;
+        }
+
+        @Override
+        public Long getScoreCount() {
+            return count;
+        }
+
+        @Override
+        public Double getScoreSum() {
+            return sum;
+        }
+
+        @Override
+        public Long getPassCount() {
+            return passCount;
+        }
+    }
+
+    private InsightStubs() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static TeachingInsightService insightService(SyntheticScores data, AnalysisExecutor executor) {
+        StudentRepository studentRepository = RepositoryStubs.of(StudentRepository.class)
+                .on("findByClazz", args -> data.students)
+                .build();
+        ScoreRepository scoreRepository = RepositoryStubs.of(ScoreRepository.class)
+                .on("findWithAssociationsByStudentClazz", args -> data.scores)
+                .on("findWithAssociationsByStudentClazzAndExamDateIn", args -> data.scores.stream()
+                        .filter(score -> ((Collection<LocalDate>) args[1]).contains(examDate(score)))
+                        .toList())
+                .on("summarizeStudentExams", args -> summarizeStudentExams(data.scores))
+                .build();
+        List<StudentSnapshot> snapshots = new ArrayList<>();
+        StudentSnapshotRepository snapshotRepository = RepositoryStubs.of(StudentSnapshotRepository.class)
+                .on("deleteAllInBatch", args -> {
+                    snapshots.clear();
+                    return null;
+                })
+                .on("saveAll", args -> {
+                    snapshots.addAll((Collection<StudentSnapshot>) args[0]);
+                    return snapshots;
+                })
+                .on("findByClazz", args -> snapshots)
+                .build();
+        LearningMaterialRepository materialRepository = RepositoryStubs.of(LearningMaterialRepository.class)
+                .on("findAllByOrderByIdAsc", args -> List.of())
+                .build();
+
+        StudentSnapshotService snapshotService = new StudentSnapshotService(snapshotRepository, scoreRepository);
+        snapshotService.rebuild();
+        return new TeachingInsightService(scoreRepository, studentRepository, new LearningMaterialIndex(materialRepository),
+                new LlmReasonService(new ObjectMapper(), new LlmReasonCache(null, new SimpleMeterRegistry(), 1000, 60, false, 1000), 8), executor, snapshotService,
+                new ScoreAggregateService(RepositoryStubs.of(ScoreAggregateRepository.class).build(), scoreRepository, null));
+    }
+
+    private static List<StudentExamStatsView> summarizeStudentExams(List<Score> scores) {
+        Map<List<Object>, double[]> groups = new LinkedHashMap<>();
+        for (Score score : scores) {
+            List<Object> key = Arrays.asList(score.getStudent().getId(), score.getStudent().getClazz(), examDate(score));
+            double[] stats = groups.computeIfAbsent(key, k -> new double[3]);
+            if (score.getValue() != null) {
+                stats[0]++;
+                stats[1] += score.getValue();
+                stats[2] += score.getValue() >= StudentSnapshot.PASS_LINE ? 1 : 0;
+            }
+        }
+        List<StudentExamStatsView> views = new ArrayList<>(groups.size());
+        groups.forEach((key, stats) -> views.add(new ExamStats((Long) key.get(0), (String) key.get(1),
+                (LocalDate) key.get(2), (long) stats[0], stats[1], (long) stats[2])));
+        return views;
+    }
+
+    private static LocalDate examDate(Score score) {
+        if (score.getExam() != null && score.getExam().getExamDate() != null) {
+            return score.getExam().getExamDate();
+        }
+        return score.getRecordedAt() == null ? null : score.getRecordedAt().toLocalDate();
+    }
+}
@@ -0,0 +1,207 @@
+package com.scrapy.demo.benchmark;
+
+import com.scrapy.demo.domain.Score;
+import com.scrapy.demo.domain.Student;
+import com.scrapy.demo.service.AnalysisExecutor;
+import com.scrapy.demo.service.ScoreStats;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * 班级总览的原实现（引入 ClassSnapshot 之前），仅作 {@link ClassSnapshotBenchmark} 的对照：
+ * 先排序提取班级考试日期，再按学生分组并逐个学生重新提取、排序日期
+ */
+final class LegacyClassOverview {
+
+    private final AnalysisExecutor analysisExecutor;
+
+    LegacyClassOverview(AnalysisExecutor analysisExecutor) {
+        this.analysisExecutor = analysisExecutor;
+    }
+
+    Map<String, Object> overview(String clazz, List<Student> students, List<Score> scores) {
+        List<LocalDate> classDates = extractSortedExamDates(scores);
+        LocalDate latestDate = classDates.isEmpty() ? null : classDates.get(classDates.size() - 1);
+        LocalDate previousDate = classDates.size() > 1 ? classDates.get(classDates.size() - 2) : null;
+
+        // 单遍统计最近两次考试及最近一次考试的分科成绩（开启并行时分片累加后合并）
+        ClassExamStats examStats = analysisExecutor.reduce(scores, ClassExamStats::new,
+                (stats, score) -> stats.accept(score, latestDate, previousDate), ClassExamStats::combine);
+        ScoreStats latestStats = examStats.latest;
+        Map<String, ScoreStats> statsByCourse = examStats.byCourse;
+
+        double classAvg = latestStats.mean();
+        double passRate = latestStats.passRate();
+        double previousAvg = examStats.previous.mean(classAvg);
+        double trendValue = classAvg - previousAvg;
+        String trend = trendValue > 1.0 ? "上升" : (trendValue < -1.0 ? "下降" : "稳定");
+
+        Map<Long, StudentExamSnapshot> snapshots = buildStudentSnapshots(groupByStudent(scores));
+        long riskStudents = students.stream()
+                .filter(st -> {
+                    StudentExamSnapshot snapshot = snapshots.get(st.getId());
+                    return snapshot != null && isRiskStudent(snapshot.currentStats, snapshot.deltaAverage);
+                })
+                .count();
+        double riskRatio = students.isEmpty() ? 0.0 : riskStudents * 100.0 / students.size();
+
+        Map<String, Double> passRateByCourse = new LinkedHashMap<>();
+        statsByCourse.forEach((courseName, stats) -> passRateByCourse.put(courseName, stats.passRate()));
+
+        List<Map<String, Object>> weakSubjects = statsByCourse.entrySet().stream()
+                .sorted(Comparator.comparingDouble(entry -> entry.getValue().mean()))
+                .limit(3)
+                .map(entry -> {
+                    Map<String, Object> item = new LinkedHashMap<>();
+                    item.put("courseName", entry.getKey());
+                    item.put("average", round2(entry.getValue().mean()));
+                    return item;
+                })
+                .toList();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("className", clazz);
+        result.put("studentCount", students.size());
+        result.put("classAverage", round2(classAvg));
+        result.put("overallPassRate", round2(passRate));
+        result.put("trend", trend);
+        result.put("trendValue", round2(trendValue));
+        result.put("riskStudentRatio", round2(riskRatio));
+        result.put("riskStudentCount", riskStudents);
+        result.put("subjectPassRates", passRateByCourse);
+        result.put("weakSubjects", weakSubjects);
+        result.put("summary", List.of(
+                "本班整体平均分 " + round2(classAvg),
+                "成绩趋势：" + trend,
+                "风险学生比例 " + round2(riskRatio) + "%"
+        ));
+        return result;
+    }
+
+    /**
+     * 按学生分组成绩，开启并行时各分片分组后按分片顺序合并
+     */
+    private Map<Long, List<Score>> groupByStudent(List<Score> scores) {
+        return analysisExecutor.reduce(scores, HashMap::new,
+                (groups, score) -> groups.computeIfAbsent(score.getStudent().getId(), id -> new ArrayList<>()).add(score),
+                (left, right) -> {
+                    right.forEach((studentId, list) -> left.merge(studentId, list, (a, b) -> {
+                        a.addAll(b);
+                        return a;
+                    }));
+                    return left;
+                });
+    }
+
+    /**
+     * 逐个学生计算最近两次考试的快照，学生之间相互独立，可按学生分片并行
+     */
+    private Map<Long, StudentExamSnapshot> buildStudentSnapshots(Map<Long, List<Score>> scoreByStudent) {
+        return analysisExecutor.reduce(new ArrayList<>(scoreByStudent.entrySet()), HashMap::new,
+                (snapshots, entry) -> snapshots.put(entry.getKey(), buildStudentExamSnapshot(entry.getValue())),
+                (left, right) -> {
+                    left.putAll(right);
+                    return left;
+                });
+    }
+
+    private StudentExamSnapshot buildStudentExamSnapshot(List<Score> scores) {
+        List<LocalDate> dates = extractSortedExamDates(scores);
+        LocalDate latestDate = dates.isEmpty() ? null : dates.get(dates.size() - 1);
+        LocalDate previousDate = dates.size() > 1 ? dates.get(dates.size() - 2) : null;
+        ScoreStats currentStats = new ScoreStats();
+        ScoreStats previousStats = new ScoreStats();
+        for (Score score : scores) {
+            if (score.getValue() == null) {
+                continue;
+            }
+            LocalDate date = resolveExamDate(score);
+            if (latestDate != null && latestDate.equals(date)) {
+                currentStats.accept(score.getValue());
+            } else if (previousDate != null && previousDate.equals(date)) {
+                previousStats.accept(score.getValue());
+            }
+        }
+        double currentAvg = currentStats.mean();
+        double previousAvg = previousStats.mean(currentAvg);
+        double deltaAvg = currentAvg - previousAvg;
+        return new StudentExamSnapshot(currentStats, currentAvg, previousAvg, deltaAvg);
+    }
+
+    private boolean isRiskStudent(ScoreStats current, double avgDelta) {
+        if (current.isEmpty()) {
+            return false;
+        }
+        return current.failCount() >= 2 || current.mean() < ScoreStats.PASS_LINE || avgDelta < -5;
+    }
+
+    private double round2(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    private LocalDate resolveExamDate(Score score) {
+        if (score == null) {
+            return null;
+        }
+        if (score.getExam() != null && score.getExam().getExamDate() != null) {
+            return score.getExam().getExamDate();
+        }
+        if (score.getRecordedAt() != null) {
+            return score.getRecordedAt().toLocalDate();
+        }
+        return null;
+    }
+
+    private List<LocalDate> extractSortedExamDates(List<Score> scores) {
+        return scores.stream()
+                .map(this::resolveExamDate)
+                .filter(Objects::nonNull)
+                .distinct()
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * 班级最近两次考试的可合并累加器
+     */
+    private final class ClassExamStats {
+        private final ScoreStats latest = new ScoreStats();
+        private final ScoreStats previous = new ScoreStats();
+        private final Map<String, ScoreStats> byCourse = new LinkedHashMap<>();
+
+        private void accept(Score score, LocalDate latestDate, LocalDate previousDate) {
+            if (score.getValue() == null) {
+                return;
+            }
+            LocalDate date = resolveExamDate(score);
+            if (latestDate != null && latestDate.equals(date)) {
+                latest.accept(score.getValue());
+                byCourse.computeIfAbsent(score.getCourse().getName(), name -> new ScoreStats()).accept(score.getValue());
+            } else if (previousDate != null && previousDate.equals(date)) {
+                previous.accept(score.getValue());
+            }
+        }
+
+        private ClassExamStats combine(ClassExamStats other) {
+            latest.combine(other.latest);
+            previous.combine(other.previous);
+            other.byCourse.forEach((courseName, stats) -> byCourse.merge(courseName, stats, ScoreStats::combine));
+            return this;
+        }
+    }
+
+    private static final class StudentExamSnapshot {
+        private final ScoreStats currentStats;
+        private final double currentAverage;
+        private final double previousAverage;
+        private final double deltaAverage;
+
+        private StudentExamSnapshot(ScoreStats currentStats, double currentAverage, double previousAverage, double deltaAverage) {
+            this.currentStats = currentStats;
+            this.currentAverage = currentAverage;
+            this.previousAverage = previousAverage;
+            this.deltaAverage = deltaAverage;
+        }
+    }
+}
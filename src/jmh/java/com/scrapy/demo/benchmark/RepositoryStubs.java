@@ -0,0 +1,48 @@
+package com.scrapy.demo.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 基于动态代理的内存仓库桩，只实现基准测试用到的查询方法，其余方法调用直接报错
+ */
+final class RepositoryStubs<T> {
+
+    private final Class<T> type;
+    private final Map<String, Function<Object[], Object>> handlers = new HashMap<>();
+
+    private RepositoryStubs(Class<T> type) {
+        this.type = type;
+    }
+
+    static <T> RepositoryStubs<T> of(Class<T> type) {
+        return new RepositoryStubs<>(type);
+    }
+
+    RepositoryStubs<T> on(String methodName, Function<Object[], Object> handler) {
+        handlers.put(methodName, handler);
+        return this;
+    }
+
+    T build() {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            switch (method.getName()) {
+                case "toString":
+                    return type.getSimpleName() + "Stub";
+                case "hashCode":
+                    return System.identityHashCode(self);
+                case "equals":
+                    return self == args[0];
+                default:
+                    Function<Object[], Object> handler = handlers.get(method.getName());
+                    if (handler == null) {
+                        throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+                    }
+                    return handler.apply(args == null ? new Object[0] : args);
+            }
+        });
+        return type.cast(proxy);
+    }
+}
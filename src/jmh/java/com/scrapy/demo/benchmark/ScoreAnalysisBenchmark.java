@@ -0,0 +1,167 @@
+package com.scrapy.demo.benchmark;
+
+import com.scrapy.demo.domain.Course;
+import com.scrapy.demo.domain.Exam;
+import com.scrapy.demo.domain.ScoreAggregate;
+import com.scrapy.demo.repository.CourseRepository;
+import com.scrapy.demo.repository.ExamRepository;
+import com.scrapy.demo.repository.ScoreAggregateRepository;
+import com.scrapy.demo.repository.ScoreRepository;
+import com.scrapy.demo.repository.StudentRepository;
+import com.scrapy.demo.service.AnalysisCacheEvictor;
+import com.scrapy.demo.service.AnalysisExecutor;
+import com.scrapy.demo.service.ScoreAggregateService;
+import com.scrapy.demo.service.ScoreAnalysisService;
+import com.scrapy.demo.service.StudentRankingService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.cache.support.NoOpCacheManager;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 成绩分析基准：分析接口读取聚合的开销，以及逐行累积聚合变更（导入/重建路径）的开销
+ * 运行：./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="ScoreAnalysisBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class ScoreAnalysisBenchmark {
+
+    private static final int CLASS_COUNT = 40;
+
+    @Param({"10000", "100000", "1000000"})
+    public int scoreCount;
+
+    @Param({"1", "8"})
+    public int parallelism;
+
+    private SyntheticScores data;
+    private ScoreAggregateService aggregateService;
+    private ScoreAnalysisService analysisService;
+    private StudentRankingService rankingService;
+    private StudentRepository studentRepository;
+    private ScoreRepository scoreRepository;
+    private AnalysisExecutor analysisExecutor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = SyntheticScores.generate(scoreCount, CLASS_COUNT);
+
+        Map<ScoreAggregate.Scope, Map<String, ScoreAggregate>> store = new EnumMap<>(ScoreAggregate.Scope.class);
+        for (ScoreAggregate.Scope scope : ScoreAggregate.Scope.values()) {
+            store.put(scope, new LinkedHashMap<>());
+        }
+        ScoreAggregateRepository aggregateRepository = RepositoryStubs.of(ScoreAggregateRepository.class)
+                .on("findByScopeAndScopeKey", args -> Optional.ofNullable(store.get((ScoreAggregate.Scope) args[0]).get((String) args[1])))
+                .on("findByScope", args -> new ArrayList<>(store.get((ScoreAggregate.Scope) args[0]).values()))
+                .on("findByScopeAndScopeKeyIn", args -> rowsOf(store, args))
+                // 增量写入路径：先补齐缺失行再加锁读取，内存中等同于按键插入空行后查找
+                .on("insertIfAbsent", args -> {
+                    ScoreAggregate.Scope scope = (ScoreAggregate.Scope) args[0];
+                    for (Object key : (Collection<?>) args[1]) {
+                        store.get(scope).computeIfAbsent((String) key, k -> new ScoreAggregate(scope, k));
+                    }
+                    return null;
+                })
+                .on("lockByScopeAndScopeKeyIn", args -> rowsOf(store, args))
+                .on("saveAll", args -> {
+                    for (Object row : (Iterable<?>) args[0]) {
+                        ScoreAggregate aggregate = (ScoreAggregate) row;
+                        store.get(aggregate.getScope()).put(aggregate.getScopeKey(), aggregate);
+                    }
+                    return args[0];
+                })
+                .on("deleteAll", args -> null)
+                .build();
+        scoreRepository = RepositoryStubs.of(ScoreRepository.class).build();
+        studentRepository = RepositoryStubs.of(StudentRepository.class).build();
+        Map<Long, Course> courses = data.courses.stream().collect(Collectors.toMap(Course::getId, c -> c));
+        Map<Long, Exam> exams = data.exams.stream().collect(Collectors.toMap(Exam::getId, e -> e));
+        CourseRepository courseRepository = RepositoryStubs.of(CourseRepository.class)
+                .on("findAllById", args -> idsOf(args[0]).stream().map(courses::get).filter(Objects::nonNull).toList())
+                .build();
+        ExamRepository examRepository = RepositoryStubs.of(ExamRepository.class)
+                .on("findAllById", args -> idsOf(args[0]).stream().map(exams::get).filter(Objects::nonNull).toList())
+                .build();
+
+        aggregateService = new ScoreAggregateService(aggregateRepository, scoreRepository,
+                new AnalysisCacheEvictor(new NoOpCacheManager()));
+        analysisExecutor = new AnalysisExecutor(parallelism);
+        rankingService = new StudentRankingService(aggregateService, scoreRepository, studentRepository, analysisExecutor);
+        analysisService = new ScoreAnalysisService(aggregateService, courseRepository, examRepository, rankingService);
+
+        ScoreAggregateService.Changes changes = aggregateService.changes();
+        data.scores.forEach(changes::add);
+        aggregateService.apply(changes);
+    }
+
+    @Benchmark
+    public Map<String, Object> analyzeAllScores() {
+        return analysisService.analyzeAllScores();
+    }
+
+    @Benchmark
+    public Map<String, Object> analyzeClassScores() {
+        return analysisService.analyzeClassScores(SyntheticScores.className(0));
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> studentRankings() {
+        return analysisService.getStudentRankings();
+    }
+
+    /**
+     * 排行榜小组件：命中排名索引时只组装一页
+     */
+    @Benchmark
+    public StudentRankingService.RankingPage topTenRankings() {
+        return rankingService.getRankings(null, null, 0, 10, StudentRankingService.RankMode.COMPETITION);
+    }
+
+    /**
+     * 索引失效后的首次请求：堆选取前 10 名
+     */
+    @Benchmark
+    public StudentRankingService.RankingPage topTenRankingsCold() {
+        return new StudentRankingService(aggregateService, scoreRepository, studentRepository, analysisExecutor)
+                .getRankings(null, null, 0, 10, StudentRankingService.RankMode.COMPETITION);
+    }
+
+    @Benchmark
+    public Map<String, Double> examAverages() {
+        return analysisService.getExamAverages();
+    }
+
+    @Benchmark
+    public Map<String, Double> passRates() {
+        return analysisService.getPassRateByScore();
+    }
+
+    /**
+     * 逐行累积聚合变更：Excel 导入与全量重建的行级开销
+     */
+    @Benchmark
+    public ScoreAggregateService.Changes aggregateChanges() {
+        ScoreAggregateService.Changes changes = aggregateService.changes();
+        data.scores.forEach(changes::add);
+        return changes;
+    }
+
+    private static List<ScoreAggregate> rowsOf(Map<ScoreAggregate.Scope, Map<String, ScoreAggregate>> store, Object[] args) {
+        Map<String, ScoreAggregate> rows = store.get((ScoreAggregate.Scope) args[0]);
+        return ((Collection<?>) args[1]).stream().map(rows::get).filter(Objects::nonNull).toList();
+    }
+
+    private static List<Long> idsOf(Object iterable) {
+        List<Long> ids = new ArrayList<>();
+        for (Object id : (Iterable<?>) iterable) {
+            ids.add((Long) id);
+        }
+        return ids;
+    }
+}
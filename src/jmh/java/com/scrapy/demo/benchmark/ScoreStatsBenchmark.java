@@ -0,0 +1,76 @@
+package com.scrapy.demo.benchmark;
+
+import com.scrapy.demo.domain.Score;
+import com.scrapy.demo.service.ScoreStats;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 统计内核基准：对比逐项 Stream 统计（多次遍历、装箱分组）与 {@link ScoreStats} 单遍原始类型统计，
+ * 结合 -prof gc 的 gc.alloc.rate.norm 观察每次统计的分配字节数
+ * 运行：./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="ScoreStatsBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class ScoreStatsBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int scoreCount;
+
+    private List<Score> scores;
+    private double[] values;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        scores = SyntheticScores.generate(scoreCount, 1).scores;
+        values = new double[scores.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = scores.get(i).getValue();
+        }
+    }
+
+    /**
+     * 原实现的写法：均值、极值、及格数、分布各自遍历一次
+     */
+    @Benchmark
+    public void streamPerMetric(Blackhole blackhole) {
+        blackhole.consume(scores.stream().mapToDouble(Score::getValue).average().orElse(0.0));
+        blackhole.consume(scores.stream().mapToDouble(Score::getValue).max().orElse(0.0));
+        blackhole.consume(scores.stream().mapToDouble(Score::getValue).min().orElse(0.0));
+        blackhole.consume(scores.stream().filter(score -> score.getValue() >= ScoreStats.PASS_LINE).count());
+        Map<String, Long> distribution = new LinkedHashMap<>();
+        for (String label : ScoreStats.BUCKET_LABELS) {
+            distribution.put(label, 0L);
+        }
+        scores.forEach(score -> distribution.merge(ScoreStats.BUCKET_LABELS[ScoreStats.bucketOf(score.getValue())], 1L, Long::sum));
+        blackhole.consume(distribution);
+    }
+
+    @Benchmark
+    public void singlePassOverScores(Blackhole blackhole) {
+        consume(ScoreStats.ofScores(scores), blackhole);
+    }
+
+    @Benchmark
+    public void singlePassOverArray(Blackhole blackhole) {
+        consume(ScoreStats.of(values), blackhole);
+    }
+
+    private void consume(ScoreStats stats, Blackhole blackhole) {
+        blackhole.consume(stats.mean());
+        blackhole.consume(stats.max());
+        blackhole.consume(stats.min());
+        blackhole.consume(stats.passCount());
+        blackhole.consume(stats.variance());
+        blackhole.consume(stats.histogram());
+    }
+}
@@ -0,0 +1,78 @@
+package com.scrapy.demo.benchmark;
+
+import com.scrapy.demo.domain.Course;
+import com.scrapy.demo.domain.Exam;
+import com.scrapy.demo.domain.Score;
+import com.scrapy.demo.domain.Student;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试用的合成成绩数据：每名学生在每次考试中参加全部课程，分数近似正态分布
+ */
+final class SyntheticScores {
+
+    static final int COURSE_COUNT = 8;
+    static final int EXAM_COUNT = 4;
+    static final int SCORES_PER_STUDENT = COURSE_COUNT * EXAM_COUNT;
+
+    final List<Student> students = new ArrayList<>();
+    final List<Course> courses = new ArrayList<>();
+    final List<Exam> exams = new ArrayList<>();
+    final List<Score> scores = new ArrayList<>();
+
+    private SyntheticScores() {
+    }
+
+    /**
+     * @param scoreCount 成绩总数（向上取整到每名学生的成绩数）
+     * @param classCount 学生平均分配到的班级数
+     */
+    static SyntheticScores generate(int scoreCount, int classCount) {
+        SyntheticScores data = new SyntheticScores();
+        Random random = new Random(42);
+        for (int i = 0; i < COURSE_COUNT; i++) {
+            Course course = new Course();
+            course.setId((long) i + 1);
+            course.setName("课程" + (i + 1));
+            course.setCredit(3.0);
+            course.setTeacherName("教师" + (i + 1));
+            data.courses.add(course);
+        }
+        for (int i = 0; i < EXAM_COUNT; i++) {
+            Exam exam = new Exam("考试" + (i + 1), LocalDate.of(2026, 3, 1).plusMonths(i));
+            exam.setId((long) i + 1);
+            data.exams.add(exam);
+        }
+        int studentCount = Math.max(1, (scoreCount + SCORES_PER_STUDENT - 1) / SCORES_PER_STUDENT);
+        long scoreId = 1;
+        for (int i = 0; i < studentCount; i++) {
+            Student student = new Student(String.format("S%07d", i), "学生" + i, className(i % classCount), "专业");
+            student.setId((long) i + 1);
+            data.students.add(student);
+            double ability = 72 + random.nextGaussian() * 10;
+            for (Exam exam : data.exams) {
+                for (Course course : data.courses) {
+                    if (data.scores.size() >= scoreCount) {
+                        break;
+                    }
+                    double value = Math.max(0, Math.min(100, ability + random.nextGaussian() * 8));
+                    Score score = new Score(student, course, Math.round(value * 10) / 10.0);
+                    score.setId(scoreId++);
+                    score.setExam(exam);
+                    score.setRecordedAt(LocalDateTime.of(exam.getExamDate(), java.time.LocalTime.NOON));
+                    data.scores.add(score);
+                }
+            }
+        }
+        return data;
+    }
+
+    static String className(int index) {
+        return "班级" + (index + 1);
+    }
+}
@@ -0,0 +1,50 @@
+package com.scrapy.demo.benchmark;
+
+import com.scrapy.demo.service.AnalysisExecutor;
+import com.scrapy.demo.service.TeachingInsightService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 教学洞察基准：全部合成成绩归入同一班级（整个年级作为一个班的最坏情况），
+ * 衡量班级总览与学生进退标注随成绩量的扩展性
+ * 运行：./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="TeachingInsightBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class TeachingInsightBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int scoreCount;
+
+    @Param({"1", "8"})
+    public int parallelism;
+
+    private TeachingInsightService insightService;
+    private String clazz;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticScores data = SyntheticScores.generate(scoreCount, 1);
+        clazz = SyntheticScores.className(0);
+
+        insightService = InsightStubs.insightService(data, new AnalysisExecutor(parallelism));
+    }
+
+    @Benchmark
+    public Map<String, Object> classOverview() {
+        return insightService.getClassOverview(clazz);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> classStudentFlags() {
+        return insightService.getClassStudentFlags(clazz);
+    }
+}
@@ -0,0 +1,40 @@
+package com.scrapy.demo.config;
+
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * 分析接口缓存配置
+ * 由 Caffeine 承载（容量与过期时间见 spring.cache.caffeine.spec），缓存在启动时创建，
+ * 以便 actuator 的 cache.gets / cache.puts / cache.evictions 指标按缓存名统计命中率；
+ * 成绩、学生、课程、考试的写入由 {@link com.scrapy.demo.service.AnalysisCacheEvictor} 按维度精确失效
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String ANALYSIS_OVERALL = "analysis-overall";
+    public static final String ANALYSIS_COURSE = "analysis-course";
+    public static final String ANALYSIS_STUDENT = "analysis-student";
+    public static final String ANALYSIS_CLASS = "analysis-class";
+    public static final String ANALYSIS_PASS_RATES = "analysis-pass-rates";
+    public static final String ANALYSIS_EXAM_AVERAGES = "analysis-exam-averages";
+    public static final String ANALYSIS_EXAM_PASS_RATES = "analysis-exam-pass-rates";
+    public static final String INSIGHT_CLASS_OVERVIEW = "insight-class-overview";
+    public static final String INSIGHT_STUDENT_FLAGS = "insight-student-flags";
+
+    public static final List<String> CACHE_NAMES = List.of(
+            ANALYSIS_OVERALL, ANALYSIS_COURSE, ANALYSIS_STUDENT, ANALYSIS_CLASS,
+            ANALYSIS_PASS_RATES, ANALYSIS_EXAM_AVERAGES, ANALYSIS_EXAM_PASS_RATES,
+            INSIGHT_CLASS_OVERVIEW, INSIGHT_STUDENT_FLAGS);
+
+    @Bean
+    public CacheManagerCustomizer<CaffeineCacheManager> analysisCacheNames() {
+        return cacheManager -> cacheManager.setCacheNames(CACHE_NAMES);
+    }
+}
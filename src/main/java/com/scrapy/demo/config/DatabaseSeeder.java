@@ -12,6 +12,8 @@ import com.scrapy.demo.repository.RoleRepository;
 import com.scrapy.demo.repository.StudentRepository;
 import com.scrapy.demo.repository.TeacherRepository;
 import com.scrapy.demo.repository.UserRepository;
+import com.scrapy.demo.service.ScoreAggregateService;
+import com.scrapy.demo.service.StudentSnapshotService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
@@ -40,6 +42,8 @@ public class DatabaseSeeder implements CommandLineRunner {
     private final TeacherRepository teacherRepository;
     private final PasswordEncoder passwordEncoder;
     private final JdbcTemplate jdbcTemplate;
+    private final ScoreAggregateService scoreAggregateService;
+    private final StudentSnapshotService studentSnapshotService;
 
     public DatabaseSeeder(RoleRepository roleRepository,
                           UserRepository userRepository,
@@ -48,7 +52,9 @@ public class DatabaseSeeder implements CommandLineRunner {
                           StudentRepository studentRepository,
                           TeacherRepository teacherRepository,
                           PasswordEncoder passwordEncoder,
-                          JdbcTemplate jdbcTemplate) {
+                          JdbcTemplate jdbcTemplate,
+                          ScoreAggregateService scoreAggregateService,
+                          StudentSnapshotService studentSnapshotService) {
         this.roleRepository = roleRepository;
         this.userRepository = userRepository;
         this.learningMaterialRepository = learningMaterialRepository;
@@ -57,6 +63,8 @@ public class DatabaseSeeder implements CommandLineRunner {
         this.teacherRepository = teacherRepository;
         this.passwordEncoder = passwordEncoder;
         this.jdbcTemplate = jdbcTemplate;
+        this.scoreAggregateService = scoreAggregateService;
+        this.studentSnapshotService = studentSnapshotService;
     }
 
     @Override
@@ -72,6 +80,8 @@ public class DatabaseSeeder implements CommandLineRunner {
         ensureExams();
         ensureTeachers();
         ensureLearningMaterials();
+        ensureScoreAggregates();
+        ensureStudentSnapshots();
     }
 
     private void ensureRole(String roleName) {
@@ -201,6 +211,24 @@ public class DatabaseSeeder implements CommandLineRunner {
         logger.info("Seeded default learning materials");
     }
 
+    /**
+     * 聚合表首次上线时为空，按已有成绩补齐一次
+     */
+    private void ensureScoreAggregates() {
+        if (scoreAggregateService.rebuildIfEmpty()) {
+            logger.info("Seeded score aggregates from existing scores");
+        }
+    }
+
+    /**
+     * 学生快照表首次上线时为空，按已有成绩补齐一次
+     */
+    private void ensureStudentSnapshots() {
+        if (studentSnapshotService.rebuildIfEmpty()) {
+            logger.info("Seeded student snapshots from existing scores");
+        }
+    }
+
     private void ensureTeachers() {
         if (teacherRepository.count() > 0) {
             return;
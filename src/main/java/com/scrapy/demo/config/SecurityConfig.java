@@ -69,6 +69,7 @@ public class SecurityConfig {
                         ).permitAll()
                         .requestMatchers("/api/auth/login", "/api/auth/logout", "/api/auth/register", "/api/auth/me").permitAll()
                         .requestMatchers("/api/admin/**").hasRole("ADMIN")
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.IF_REQUIRED))
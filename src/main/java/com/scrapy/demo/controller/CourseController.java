@@ -23,12 +23,18 @@ public class CourseController {
     }
 
     /**
-     * 获取所有课程列表
+     * 获取课程列表
      * GET /api/courses
+     * 按 id 游标分页（未带 limit 时每页 100 条），teacherName 为筛选条件，下一页地址见 Link 响应头
      */
     @GetMapping
-    public List<Course> list() {
-        return courseService.listAllCourses();
+    public ResponseEntity<List<Course>> list(@RequestParam(required = false) Long after,
+                                             @RequestParam(required = false) Integer limit,
+                                             @RequestParam(required = false) String teacherName) {
+        int size = KeysetPage.limit(limit);
+        KeysetPage<Course> page = KeysetPage.of(
+                courseService.listPage(teacherName, KeysetPage.after(after), size + 1), size, Course::getId);
+        return ResponseEntity.ok().headers(page.headers()).body(page.items());
     }
 
     /**
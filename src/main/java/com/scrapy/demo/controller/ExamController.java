@@ -3,9 +3,11 @@ package com.scrapy.demo.controller;
 import com.scrapy.demo.domain.Exam;
 import com.scrapy.demo.service.ExamService;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -18,9 +20,18 @@ public class ExamController {
         this.examService = examService;
     }
 
+    /**
+     * 按 id 游标分页（未带 limit 时每页 100 条），from、to 按考试日期筛选（含两端）
+     */
     @GetMapping
-    public List<Exam> list() {
-        return examService.listAll();
+    public ResponseEntity<List<Exam>> list(@RequestParam(required = false) Long after,
+                                           @RequestParam(required = false) Integer limit,
+                                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        int size = KeysetPage.limit(limit);
+        KeysetPage<Exam> page = KeysetPage.of(
+                examService.listPage(from, to, KeysetPage.after(after), size + 1), size, Exam::getId);
+        return ResponseEntity.ok().headers(page.headers()).body(page.items());
     }
 
     @GetMapping("/{id}")
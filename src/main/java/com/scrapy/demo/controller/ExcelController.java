@@ -1,14 +1,22 @@
 package com.scrapy.demo.controller;
 
+import com.scrapy.demo.domain.ImportJob;
 import com.scrapy.demo.service.ExcelService;
+import com.scrapy.demo.service.ImportJobService;
+import com.scrapy.demo.service.ImportTemplateService;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Map;
 
 /**
@@ -20,9 +28,14 @@ import java.util.Map;
 public class ExcelController {
 
     private final ExcelService excelService;
+    private final ImportJobService importJobService;
+    private final ImportTemplateService importTemplateService;
 
-    public ExcelController(ExcelService excelService) {
+    public ExcelController(ExcelService excelService, ImportJobService importJobService,
+                           ImportTemplateService importTemplateService) {
         this.excelService = excelService;
+        this.importJobService = importJobService;
+        this.importTemplateService = importTemplateService;
     }
 
     /**
@@ -30,9 +43,7 @@ public class ExcelController {
      * GET /api/excel/export/students
      */
     @GetMapping("/export/students")
-    public ResponseEntity<byte[]> exportStudents() throws Exception {
-        byte[] data = excelService.exportStudents();
-        
+    public ResponseEntity<StreamingResponseBody> exportStudents() {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
         headers.setContentDisposition(
@@ -40,10 +51,12 @@ public class ExcelController {
                         .filename("students.xlsx", StandardCharsets.UTF_8)
                         .build()
         );
-        
+
+        // 在异步线程中边查询边写入响应流，不在内存中生成完整文件
+        StreamingResponseBody body = excelService::exportStudents;
         return ResponseEntity.ok()
                 .headers(headers)
-                .body(data);
+                .body(body);
     }
 
     /**
@@ -51,9 +64,7 @@ public class ExcelController {
      * GET /api/excel/export/scores
      */
     @GetMapping("/export/scores")
-    public ResponseEntity<byte[]> exportScores() throws Exception {
-        byte[] data = excelService.exportScores();
-        
+    public ResponseEntity<StreamingResponseBody> exportScores() {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
         headers.setContentDisposition(
@@ -61,10 +72,12 @@ public class ExcelController {
                         .filename("scores.xlsx", StandardCharsets.UTF_8)
                         .build()
         );
-        
+
+        // 在异步线程中边查询边写入响应流，不在内存中生成完整文件
+        StreamingResponseBody body = excelService::exportScores;
         return ResponseEntity.ok()
                 .headers(headers)
-                .body(data);
+                .body(body);
     }
 
     /**
@@ -111,47 +124,166 @@ public class ExcelController {
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * 导入多工作表成绩（每个工作表格式与单表导入相同，隐藏工作表跳过）
+     * POST /api/excel/import/scores/sheets
+     * 请求体：multipart/form-data，包含 file 字段
+     */
+    @PostMapping("/import/scores/sheets")
+    public ResponseEntity<Map<String, Object>> importScoresAllSheets(
+            @RequestParam("file") MultipartFile file) throws Exception {
+
+        String originalFilename = file.getOriginalFilename();
+        if (originalFilename == null || !originalFilename.toLowerCase().endsWith(".xlsx")) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", "文件格式错误，请上传Excel文件（.xlsx）"
+            ));
+        }
+
+        Map<String, Object> result = excelService.importScoresAllSheets(file);
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * 导出学生信息（CSV）
+     * GET /api/excel/export/students.csv
+     */
+    @GetMapping("/export/students.csv")
+    public ResponseEntity<StreamingResponseBody> exportStudentsCsv() {
+        StreamingResponseBody body = excelService::exportStudentsCsv;
+        return ResponseEntity.ok()
+                .headers(csvAttachment("students.csv"))
+                .body(body);
+    }
+
+    /**
+     * 导出成绩信息（CSV）
+     * GET /api/excel/export/scores.csv
+     */
+    @GetMapping("/export/scores.csv")
+    public ResponseEntity<StreamingResponseBody> exportScoresCsv() {
+        StreamingResponseBody body = excelService::exportScoresCsv;
+        return ResponseEntity.ok()
+                .headers(csvAttachment("scores.csv"))
+                .body(body);
+    }
+
+    /**
+     * 导入学生信息（CSV，UTF-8，列顺序同 Excel）
+     * POST /api/excel/import/students.csv
+     */
+    @PostMapping("/import/students.csv")
+    public ResponseEntity<Map<String, Object>> importStudentsCsv(
+            @RequestParam("file") MultipartFile file) throws Exception {
+        if (!isCsv(file)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "文件格式错误，请上传CSV文件（.csv）"));
+        }
+        return ResponseEntity.ok(excelService.importStudentsCsv(file));
+    }
+
+    /**
+     * 导入成绩信息（CSV，UTF-8，列顺序同 Excel）
+     * POST /api/excel/import/scores.csv
+     */
+    @PostMapping("/import/scores.csv")
+    public ResponseEntity<Map<String, Object>> importScoresCsv(
+            @RequestParam("file") MultipartFile file) throws Exception {
+        if (!isCsv(file)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "文件格式错误，请上传CSV文件（.csv）"));
+        }
+        return ResponseEntity.ok(excelService.importScoresCsv(file));
+    }
+
+    /**
+     * 异步导入成绩信息（大文件）
+     * POST /api/excel/import/scores/jobs
+     * 请求体：multipart/form-data，包含 file 字段；立即返回任务ID，进度通过 GET /api/excel/jobs/{id} 查询
+     */
+    @PostMapping("/import/scores/jobs")
+    public ResponseEntity<Map<String, Object>> submitScoreImportJob(
+            @RequestParam("file") MultipartFile file) throws Exception {
+
+        String originalFilename = file.getOriginalFilename();
+        if (originalFilename == null || !originalFilename.endsWith(".xlsx")) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", "文件格式错误，请上传Excel文件（.xlsx）"
+            ));
+        }
+
+        try {
+            ImportJob job = importJobService.submitScores(file);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/excel/jobs/" + job.getId()))
+                    .body(importJobService.describe(job));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * 查询导入任务进度
+     * GET /api/excel/jobs/{id}
+     */
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<Map<String, Object>> getImportJob(@PathVariable Long id) {
+        return importJobService.find(id)
+                .map(job -> ResponseEntity.ok(importJobService.describe(job)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     /**
      * 获取学生导入模板
      * GET /api/excel/template/students
+     * 模板只含表头，启动时生成；带 ETag，客户端可缓存一天
      */
     @GetMapping("/template/students")
-    public ResponseEntity<byte[]> getStudentTemplate() throws Exception {
-        // 返回一个空的学生导入模板
-        byte[] data = excelService.exportStudents();
-        
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-        headers.setContentDisposition(
-                ContentDisposition.attachment()
-                        .filename("student_template.xlsx", StandardCharsets.UTF_8)
-                        .build()
-        );
-        
-        return ResponseEntity.ok()
-                .headers(headers)
-                .body(data);
+    public ResponseEntity<byte[]> getStudentTemplate() {
+        return templateResponse(importTemplateService.studentTemplate(), "student_template.xlsx",
+                CacheControl.maxAge(Duration.ofDays(1)));
     }
 
     /**
      * 获取成绩导入模板
      * GET /api/excel/template/scores
+     * 模板含课程/考试下拉选项，选项变化时 ETag 随之变化；客户端每次以 If-None-Match 验证，未变化返回 304
      */
     @GetMapping("/template/scores")
-    public ResponseEntity<byte[]> getScoreTemplate() throws Exception {
-        // 返回一个空的成绩导入模板
-        byte[] data = excelService.exportScores();
-        
+    public ResponseEntity<byte[]> getScoreTemplate() {
+        return templateResponse(importTemplateService.scoreTemplate(), "score_template.xlsx",
+                CacheControl.noCache());
+    }
+
+    private static ResponseEntity<byte[]> templateResponse(ImportTemplateService.Template template,
+                                                           String filename, CacheControl cacheControl) {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
         headers.setContentDisposition(
                 ContentDisposition.attachment()
-                        .filename("score_template.xlsx", StandardCharsets.UTF_8)
+                        .filename(filename, StandardCharsets.UTF_8)
                         .build()
         );
-        
+
+        // If-None-Match 命中时由 Spring MVC 直接返回 304，不发送模板内容
         return ResponseEntity.ok()
                 .headers(headers)
-                .body(data);
+                .eTag(template.etag())
+                .cacheControl(cacheControl)
+                .body(template.content());
+    }
+
+    private static boolean isCsv(MultipartFile file) {
+        String originalFilename = file.getOriginalFilename();
+        return originalFilename != null && originalFilename.toLowerCase().endsWith(".csv");
+    }
+
+    private static HttpHeaders csvAttachment(String filename) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(new MediaType("text", "csv", StandardCharsets.UTF_8));
+        headers.setContentDisposition(
+                ContentDisposition.attachment()
+                        .filename(filename, StandardCharsets.UTF_8)
+                        .build()
+        );
+        return headers;
     }
 }
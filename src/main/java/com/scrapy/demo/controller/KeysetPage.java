@@ -0,0 +1,55 @@
+package com.scrapy.demo.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 列表接口的游标分页（?after=&lt;id&gt;&amp;limit=），未带 limit 时每页 DEFAULT_LIMIT 行
+ * 查询按 id 升序取 id &gt; after 的 limit + 1 行，多出的一行只用于判断是否还有下一页；
+ * 响应体仍是数组，下一页地址放在 Link: &lt;...&gt;; rel="next" 与 X-Next-After 响应头中
+ */
+record KeysetPage<T>(List<T> items, Long nextAfter, int limit) {
+
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 1000;
+    static final String NEXT_AFTER_HEADER = "X-Next-After";
+
+    static long after(Long after) {
+        return after == null ? 0L : after;
+    }
+
+    static int limit(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+
+    /**
+     * 由多取一行的查询结果构造分页：超出 limit 时截断，并以本页最后一行的 id 作为下一页游标
+     */
+    static <T> KeysetPage<T> of(List<T> fetched, int limit, Function<T, Long> idOf) {
+        if (fetched.size() <= limit) {
+            return new KeysetPage<>(fetched, null, limit);
+        }
+        List<T> items = fetched.subList(0, limit);
+        return new KeysetPage<>(items, idOf.apply(items.get(limit - 1)), limit);
+    }
+
+    HttpHeaders headers() {
+        HttpHeaders headers = new HttpHeaders();
+        if (nextAfter != null) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("after", nextAfter)
+                    .replaceQueryParam("limit", limit)
+                    .build()
+                    .toUriString();
+            headers.add(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+            headers.add(NEXT_AFTER_HEADER, String.valueOf(nextAfter));
+        }
+        return headers;
+    }
+}
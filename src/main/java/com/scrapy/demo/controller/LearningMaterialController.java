@@ -18,9 +18,20 @@ public class LearningMaterialController {
         this.learningMaterialService = learningMaterialService;
     }
 
+    /**
+     * 按 id 游标分页（未带 limit 时每页 100 条），courseKeyword、type、difficultyTag 为精确匹配
+     */
     @GetMapping
-    public List<LearningMaterial> list() {
-        return learningMaterialService.listAll();
+    public ResponseEntity<List<LearningMaterial>> list(@RequestParam(required = false) Long after,
+                                                       @RequestParam(required = false) Integer limit,
+                                                       @RequestParam(required = false) String courseKeyword,
+                                                       @RequestParam(required = false) String type,
+                                                       @RequestParam(required = false) String difficultyTag) {
+        int size = KeysetPage.limit(limit);
+        KeysetPage<LearningMaterial> page = KeysetPage.of(
+                learningMaterialService.listPage(courseKeyword, type, difficultyTag, KeysetPage.after(after), size + 1),
+                size, LearningMaterial::getId);
+        return ResponseEntity.ok().headers(page.headers()).body(page.items());
     }
 
     @GetMapping("/{id}")
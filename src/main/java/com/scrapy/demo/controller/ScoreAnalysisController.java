@@ -1,9 +1,13 @@
 package com.scrapy.demo.controller;
 
 import com.scrapy.demo.service.LlmReasonService;
+import com.scrapy.demo.service.ScoreAggregateService;
 import com.scrapy.demo.service.ScoreAnalysisService;
+import com.scrapy.demo.service.StudentRankingService;
+import com.scrapy.demo.service.StudentSnapshotService;
 import com.scrapy.demo.service.TeachingInsightService;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Collections;
@@ -18,16 +22,27 @@ import java.util.Map;
 @RequestMapping("/api/analysis")
 public class ScoreAnalysisController {
 
+    private static final int MAX_RANKING_LIMIT = 1000;
+
     private final ScoreAnalysisService scoreAnalysisService;
     private final TeachingInsightService teachingInsightService;
     private final LlmReasonService llmReasonService;
+    private final ScoreAggregateService scoreAggregateService;
+    private final StudentSnapshotService studentSnapshotService;
+    private final StudentRankingService studentRankingService;
 
     public ScoreAnalysisController(ScoreAnalysisService scoreAnalysisService,
                                    TeachingInsightService teachingInsightService,
-                                   LlmReasonService llmReasonService) {
+                                   LlmReasonService llmReasonService,
+                                   ScoreAggregateService scoreAggregateService,
+                                   StudentRankingService studentRankingService,
+                                   StudentSnapshotService studentSnapshotService) {
         this.scoreAnalysisService = scoreAnalysisService;
         this.teachingInsightService = teachingInsightService;
         this.llmReasonService = llmReasonService;
+        this.scoreAggregateService = scoreAggregateService;
+        this.studentRankingService = studentRankingService;
+        this.studentSnapshotService = studentSnapshotService;
     }
 
     /**
@@ -66,6 +81,15 @@ public class ScoreAnalysisController {
         return ResponseEntity.ok(scoreAnalysisService.analyzeClassScores(className));
     }
 
+    /**
+     * 批量获取多个班级的成绩统计
+     * GET /api/analysis/classes?names=a,b,c
+     */
+    @GetMapping("/classes")
+    public ResponseEntity<Map<String, Map<String, Object>>> getClassesAnalysis(@RequestParam List<String> names) {
+        return ResponseEntity.ok(scoreAnalysisService.analyzeClassesScores(names));
+    }
+
     /**
      * 获取各课程的及格率
      * GET /api/analysis/pass-rates
@@ -76,12 +100,22 @@ public class ScoreAnalysisController {
     }
 
     /**
-     * 获取学生排名（按平均分）
-     * GET /api/analysis/rankings
+     * 分页获取学生排名（按平均分），可按班级、课程筛选，总人数见响应头 X-Total-Count
+     * GET /api/analysis/rankings?limit=10&offset=0&clazz=&courseId=&rankMode=competition|dense
      */
     @GetMapping("/rankings")
-    public ResponseEntity<List<Map<String, Object>>> getStudentRankings() {
-        return ResponseEntity.ok(scoreAnalysisService.getStudentRankings());
+    public ResponseEntity<List<Map<String, Object>>> getStudentRankings(
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(required = false) String clazz,
+            @RequestParam(required = false) Long courseId,
+            @RequestParam(defaultValue = "competition") String rankMode) {
+        int pageSize = Math.min(Math.max(limit, 0), MAX_RANKING_LIMIT);
+        StudentRankingService.RankingPage page = studentRankingService.getRankings(
+                clazz, courseId, offset, pageSize, StudentRankingService.RankMode.parse(rankMode));
+        return ResponseEntity.ok()
+                .header("X-Total-Count", String.valueOf(page.total()))
+                .body(page.items());
     }
 
     /**
@@ -133,6 +167,31 @@ public class ScoreAnalysisController {
         }
     }
 
+    /**
+     * 按班级批量生成学习资料推荐，请求体 {"className": "..."}
+     * POST /api/analysis/recommendations/batch
+     */
+    @PostMapping("/recommendations/batch")
+    public ResponseEntity<List<Map<String, Object>>> getClassRecommendations(@RequestBody Map<String, Object> payload) {
+        Object className = payload.get("className");
+        if (className == null || className.toString().isBlank()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(teachingInsightService.getClassRecommendations(className.toString()));
+    }
+
+    /**
+     * 从成绩表全量重建统计聚合与学生快照（外部直接改库后校准用）
+     * POST /api/analysis/aggregates/rebuild
+     */
+    @PostMapping("/aggregates/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> rebuildAggregates() {
+        studentSnapshotService.rebuild();
+        scoreAggregateService.rebuild();
+        return ResponseEntity.ok(scoreAnalysisService.analyzeAllScores());
+    }
+
     @PostMapping("/llm/reason")
     public ResponseEntity<Map<String, String>> reason(@RequestBody Map<String, Object> payload) {
         String reason = llmReasonService.buildRecommendationReason(payload);
@@ -1,12 +1,20 @@
 package com.scrapy.demo.controller;
 
 import com.scrapy.demo.domain.Score;
+import com.scrapy.demo.repository.ScoreView;
+import com.scrapy.demo.service.NormalizedScores;
+import com.scrapy.demo.service.ScoreChangeFeed;
+import com.scrapy.demo.service.ScoreChangeService;
 import com.scrapy.demo.service.ScoreService;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.time.LocalDate;
 
 /**
  * 成绩管理控制器
@@ -16,19 +24,64 @@ import java.util.List;
 @RequestMapping("/api/scores")
 public class ScoreController {
 
+    static final String CHANGE_SEQUENCE_HEADER = "X-Change-Sequence";
+
     private final ScoreService scoreService;
+    private final ScoreChangeService scoreChangeService;
 
-    public ScoreController(ScoreService scoreService) {
+    public ScoreController(ScoreService scoreService, ScoreChangeService scoreChangeService) {
         this.scoreService = scoreService;
+        this.scoreChangeService = scoreChangeService;
     }
 
     /**
-     * 获取所有成绩列表
+     * 获取成绩列表
      * GET /api/scores
+     * format=normalized 时学生、课程、考试只输出一次，行内只含ID；
+     * 按 id 游标分页（未带 limit 时每页 100 条），from、to 按记录日期筛选（含两端），下一页地址见 Link 响应头
      */
     @GetMapping
-    public List<Score> list() {
-        return scoreService.listAllScores();
+    public ResponseEntity<Object> list(@RequestParam(required = false) String format,
+                                       @RequestParam(required = false) Long after,
+                                       @RequestParam(required = false) Integer limit,
+                                       @RequestParam(required = false) String clazz,
+                                       @RequestParam(required = false) Long courseId,
+                                       @RequestParam(required = false) Long examId,
+                                       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        int size = KeysetPage.limit(limit);
+        KeysetPage<ScoreView> page = KeysetPage.of(
+                scoreService.listViewPage(clazz, courseId, examId, from, to, KeysetPage.after(after), size + 1),
+                size, ScoreView::id);
+        return ResponseEntity.ok().headers(page.headers()).body(NormalizedScores.render(page.items(), format));
+    }
+
+    /**
+     * 以 NDJSON 流式导出全部成绩，每行一个与列表接口相同结构的 JSON 对象
+     * GET /api/scores/stream
+     * 响应头 X-Change-Sequence 为抽取开始前的变更序号，之后可从该序号起调用 /changes 增量同步
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> stream() {
+        // 在异步线程中边查询边写入响应流，不在内存中生成完整结果
+        StreamingResponseBody body = scoreService::writeViewsNdjson;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(CHANGE_SEQUENCE_HEADER, String.valueOf(scoreChangeService.latestSequence()))
+                .body(body);
+    }
+
+    /**
+     * 成绩变更增量（长轮询）
+     * GET /api/scores/changes?since=序号&limit=&wait=秒
+     * since 之后已有变更时立即返回，否则最多挂起 wait 秒（默认 30，最大 60，0 表示不等待）
+     */
+    @GetMapping("/changes")
+    public DeferredResult<ScoreChangeFeed> changes(@RequestParam(defaultValue = "0") long since,
+                                                   @RequestParam(required = false) Integer limit,
+                                                   @RequestParam(required = false) Long wait) {
+        return scoreChangeService.poll(since, KeysetPage.limit(limit),
+                wait != null ? wait : ScoreChangeService.DEFAULT_WAIT_SECONDS);
     }
 
     /**
@@ -81,8 +134,9 @@ public class ScoreController {
      * GET /api/scores/student/{studentId}
      */
     @GetMapping("/student/{studentId}")
-    public List<Score> listByStudent(@PathVariable Long studentId) {
-        return scoreService.findByStudentId(studentId);
+    public ResponseEntity<Object> listByStudent(@PathVariable Long studentId,
+                                                @RequestParam(required = false) String format) {
+        return ResponseEntity.ok(NormalizedScores.render(scoreService.findViewsByStudentId(studentId), format));
     }
 
     /**
@@ -90,8 +144,9 @@ public class ScoreController {
      * GET /api/scores/course/{courseId}
      */
     @GetMapping("/course/{courseId}")
-    public List<Score> listByCourse(@PathVariable Long courseId) {
-        return scoreService.findByCourseId(courseId);
+    public ResponseEntity<Object> listByCourse(@PathVariable Long courseId,
+                                               @RequestParam(required = false) String format) {
+        return ResponseEntity.ok(NormalizedScores.render(scoreService.findViewsByCourseId(courseId), format));
     }
 
     /**
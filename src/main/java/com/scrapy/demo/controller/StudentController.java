@@ -23,12 +23,18 @@ public class StudentController {
     }
 
     /**
-     * 获取所有学生列表
+     * 获取学生列表
      * GET /api/students
+     * 按 id 游标分页（未带 limit 时每页 100 条），clazz 为筛选条件，下一页地址见 Link 响应头
      */
     @GetMapping
-    public List<Student> list() {
-        return studentService.listAllStudents();
+    public ResponseEntity<List<Student>> list(@RequestParam(required = false) Long after,
+                                              @RequestParam(required = false) Integer limit,
+                                              @RequestParam(required = false) String clazz) {
+        int size = KeysetPage.limit(limit);
+        KeysetPage<Student> page = KeysetPage.of(
+                studentService.listPage(clazz, KeysetPage.after(after), size + 1), size, Student::getId);
+        return ResponseEntity.ok().headers(page.headers()).body(page.items());
     }
 
     /**
@@ -1,15 +1,17 @@
 ﻿package com.scrapy.demo.controller;
 
-import com.scrapy.demo.domain.Score;
 import com.scrapy.demo.domain.Student;
 import com.scrapy.demo.repository.ScoreRepository;
+import com.scrapy.demo.repository.ScoreView;
 import com.scrapy.demo.repository.StudentRepository;
 import com.scrapy.demo.repository.UserRepository;
+import com.scrapy.demo.service.NormalizedScores;
 import com.scrapy.demo.service.TeachingInsightService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.time.LocalDate;
@@ -54,12 +56,13 @@ public class StudentPortalController {
     }
 
     @GetMapping("/self/scores")
-    public ResponseEntity<List<Score>> getSelfScores(Authentication authentication) {
+    public ResponseEntity<Object> getSelfScores(Authentication authentication,
+                                                @RequestParam(required = false) String format) {
         Student student = resolveStudent(authentication);
         if (student == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(scoreRepository.findByStudentId(student.getId()));
+        return ResponseEntity.ok(NormalizedScores.render(scoreRepository.findViewsByStudentId(student.getId()), format));
     }
 
     @GetMapping("/self/recommendations")
@@ -77,17 +80,17 @@ public class StudentPortalController {
         if (student == null) {
             return ResponseEntity.notFound().build();
         }
-        List<Score> scores = scoreRepository.findByStudentId(student.getId());
-        Map<Long, List<Score>> byExam = scores.stream()
-                .filter(score -> score.getExam() != null)
-                .collect(Collectors.groupingBy(score -> score.getExam().getId()));
+        List<ScoreView> scores = scoreRepository.findViewsByStudentId(student.getId());
+        Map<Long, List<ScoreView>> byExam = scores.stream()
+                .filter(score -> score.examId() != null)
+                .collect(Collectors.groupingBy(ScoreView::examId));
         Map<Long, ExamTrendItem> buckets = new LinkedHashMap<>();
         byExam.forEach((examId, list) -> {
             ExamTrendItem item = new ExamTrendItem();
             item.examId = examId;
-            item.examName = list.get(0).getExam().getName();
-            item.examDate = list.get(0).getExam().getExamDate();
-            item.average = list.stream().mapToDouble(Score::getValue).average().orElse(0.0);
+            item.examName = list.get(0).examName();
+            item.examDate = list.get(0).examDate();
+            item.average = list.stream().mapToDouble(ScoreView::value).average().orElse(0.0);
             buckets.put(examId, item);
         });
         List<Map<String, Object>> result = buckets.values().stream()
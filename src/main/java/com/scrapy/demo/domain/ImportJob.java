@@ -0,0 +1,248 @@
+package com.scrapy.demo.domain;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 异步导入任务
+ * 记录上传文件的落盘位置、处理进度与错误行；每批成绩与进度在同一事务内提交，
+ * 服务重启后可从 lastRow 之后继续处理
+ */
+@Entity
+@Table(name = "import_job", indexes = @Index(name = "idx_import_job_status", columnList = "status"))
+public class ImportJob {
+
+    /**
+     * 最多保存的错误行数，超出部分只计入 errorCount
+     */
+    public static final int MAX_ERROR_ROWS = 1000;
+
+    public enum Type {
+        SCORES
+    }
+
+    public enum Status {
+        PENDING, RUNNING, COMPLETED, FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Type type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status = Status.PENDING;
+
+    @Column(name = "file_name")
+    private String fileName;
+
+    @Column(name = "stored_path", length = 500)
+    private String storedPath;
+
+    @Column(name = "estimated_rows")
+    private Integer estimatedRows;
+
+    @Column(name = "processed_rows", nullable = false)
+    private int processedRows;
+
+    @Column(name = "success_count", nullable = false)
+    private int successCount;
+
+    @Column(name = "error_count", nullable = false)
+    private int errorCount;
+
+    /**
+     * 已提交的最后一个表格行号（含表头，从 1 开始）
+     */
+    @Column(name = "last_row", nullable = false)
+    private int lastRow;
+
+    @Lob
+    @Column(name = "error_rows")
+    private String errorRows;
+
+    @Column(name = "failure_reason", length = 500)
+    private String failureReason;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    public ImportJob() {
+    }
+
+    public ImportJob(Type type, String fileName, String storedPath) {
+        this.type = type;
+        this.fileName = fileName;
+        this.storedPath = storedPath;
+    }
+
+    @PrePersist
+    public void prePersist() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+
+    /**
+     * 记录一批处理结果：lastRow 推进到该批最后一行
+     */
+    public void recordChunk(int lastRow, int successCount, Collection<String> errors) {
+        this.lastRow = lastRow;
+        this.successCount += successCount;
+        this.errorCount += errors.size();
+        this.processedRows += successCount + errors.size();
+        List<String> stored = getErrorRowList();
+        for (String error : errors) {
+            if (stored.size() >= MAX_ERROR_ROWS) {
+                break;
+            }
+            stored.add(error);
+        }
+        this.errorRows = stored.isEmpty() ? null : String.join("\n", stored);
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    public List<String> getErrorRowList() {
+        return errorRows == null || errorRows.isEmpty()
+                ? new ArrayList<>()
+                : new ArrayList<>(Arrays.asList(errorRows.split("\n")));
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getStoredPath() {
+        return storedPath;
+    }
+
+    public void setStoredPath(String storedPath) {
+        this.storedPath = storedPath;
+    }
+
+    public Integer getEstimatedRows() {
+        return estimatedRows;
+    }
+
+    public void setEstimatedRows(Integer estimatedRows) {
+        this.estimatedRows = estimatedRows;
+    }
+
+    public int getProcessedRows() {
+        return processedRows;
+    }
+
+    public void setProcessedRows(int processedRows) {
+        this.processedRows = processedRows;
+    }
+
+    public int getSuccessCount() {
+        return successCount;
+    }
+
+    public void setSuccessCount(int successCount) {
+        this.successCount = successCount;
+    }
+
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    public void setErrorCount(int errorCount) {
+        this.errorCount = errorCount;
+    }
+
+    public int getLastRow() {
+        return lastRow;
+    }
+
+    public void setLastRow(int lastRow) {
+        this.lastRow = lastRow;
+    }
+
+    public String getErrorRows() {
+        return errorRows;
+    }
+
+    public void setErrorRows(String errorRows) {
+        this.errorRows = errorRows;
+    }
+
+    public String getFailureReason() {
+        return failureReason;
+    }
+
+    public void setFailureReason(String failureReason) {
+        this.failureReason = failureReason;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+}
@@ -0,0 +1,81 @@
+package com.scrapy.demo.domain;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * LLM 推荐原因缓存条目
+ * 以量化后的推荐上下文摘要为键保存代理返回的原因，应用重启后仍可直接复用（开启 app.llm.cache.persistent 时写入）；
+ * 过期与超出行数上限的条目由定时任务按写入时间清理
+ */
+@Entity
+@Table(name = "llm_reason_cache",
+        uniqueConstraints = @UniqueConstraint(name = "uk_llm_reason_key", columnNames = "cache_key"),
+        indexes = @Index(name = "idx_llm_reason_created", columnList = "created_at"))
+public class LlmReasonEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * 上下文摘要（SHA-256 十六进制）
+     */
+    @Column(name = "cache_key", nullable = false, length = 64)
+    private String cacheKey;
+
+    @Column(nullable = false, length = 500)
+    private String reason;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public LlmReasonEntry() {
+    }
+
+    public LlmReasonEntry(String cacheKey, String reason) {
+        this.cacheKey = cacheKey;
+        this.reason = reason;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    @PrePersist
+    public void prePersist() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getCacheKey() {
+        return cacheKey;
+    }
+
+    public void setCacheKey(String cacheKey) {
+        this.cacheKey = cacheKey;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -15,12 +15,12 @@ public class Score {
     private Long id;
 
     @NotNull(message = "学生信息不能为空")
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "student_id", nullable = false)
     private Student student;
 
     @NotNull(message = "课程信息不能为空")
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "course_id", nullable = false)
     private Course course;
 
@@ -28,7 +28,7 @@ public class Score {
     @DecimalMin(value = "0", message = "成绩不能为空小于0")
     private Double value;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "exam_id")
     private Exam exam;
 
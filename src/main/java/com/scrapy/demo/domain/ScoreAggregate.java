@@ -0,0 +1,310 @@
+package com.scrapy.demo.domain;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 成绩聚合快照
+ * 按维度（全校/课程/班级/考试/学生）增量维护计数、总和、平方和、及格数与五段分布，
+ * 供成绩分析接口按分组数而非成绩行数作答
+ */
+@Entity
+@Table(name = "score_aggregate",
+        uniqueConstraints = @UniqueConstraint(name = "uk_aggregate_scope_key", columnNames = {"scope", "scope_key"}))
+public class ScoreAggregate {
+
+    public static final double PASS_LINE = 60.0;
+
+    public static final String ALL_KEY = "*";
+
+    /**
+     * 聚合维度；CLASS_COURSE 为班级在某课程某次考试的成绩，键为“班级|课程ID|考试ID”，未关联考试的成绩考试ID记为“-”
+     */
+    public enum Scope {
+        ALL, COURSE, CLASS, EXAM, STUDENT, CLASS_COURSE
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Scope scope;
+
+    @Column(name = "scope_key", nullable = false, length = 100)
+    private String scopeKey;
+
+    @Column(name = "score_count", nullable = false)
+    private long count;
+
+    @Column(name = "score_sum", nullable = false)
+    private double sum;
+
+    @Column(name = "sum_of_squares", nullable = false)
+    private double sumOfSquares;
+
+    @Column(name = "pass_count", nullable = false)
+    private long passCount;
+
+    private Double highest;
+
+    private Double lowest;
+
+    @Column(name = "bucket_0_59", nullable = false)
+    private long bucketFail;
+
+    @Column(name = "bucket_60_69", nullable = false)
+    private long bucket60;
+
+    @Column(name = "bucket_70_79", nullable = false)
+    private long bucket70;
+
+    @Column(name = "bucket_80_89", nullable = false)
+    private long bucket80;
+
+    @Column(name = "bucket_90_100", nullable = false)
+    private long bucket90;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public ScoreAggregate() {
+    }
+
+    public ScoreAggregate(Scope scope, String scopeKey) {
+        this.scope = scope;
+        this.scopeKey = scopeKey;
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void touch() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    /**
+     * 计入（sign = 1）或扣除（sign = -1）一条成绩；最高/最低分仅在计入时扩展，扣除后由调用方重算
+     */
+    public void accept(double value, int sign) {
+        count += sign;
+        sum += sign * value;
+        sumOfSquares += sign * value * value;
+        if (value >= PASS_LINE) {
+            passCount += sign;
+        }
+        switch (bucketOf(value)) {
+            case 0 -> bucketFail += sign;
+            case 1 -> bucket60 += sign;
+            case 2 -> bucket70 += sign;
+            case 3 -> bucket80 += sign;
+            default -> bucket90 += sign;
+        }
+        if (sign > 0) {
+            highest = highest == null ? value : Math.max(highest, value);
+            lowest = lowest == null ? value : Math.min(lowest, value);
+        }
+        if (count <= 0) {
+            clear();
+        }
+    }
+
+    /**
+     * 合并（sign = 1）或扣除（sign = -1）另一个聚合；扣除时同样不处理极值
+     */
+    public void merge(ScoreAggregate other, int sign) {
+        if (other == null || other.count == 0) {
+            return;
+        }
+        count += sign * other.count;
+        sum += sign * other.sum;
+        sumOfSquares += sign * other.sumOfSquares;
+        passCount += sign * other.passCount;
+        bucketFail += sign * other.bucketFail;
+        bucket60 += sign * other.bucket60;
+        bucket70 += sign * other.bucket70;
+        bucket80 += sign * other.bucket80;
+        bucket90 += sign * other.bucket90;
+        if (sign > 0) {
+            highest = highest == null ? other.highest : Math.max(highest, other.highest);
+            lowest = lowest == null ? other.lowest : Math.min(lowest, other.lowest);
+        }
+        if (count <= 0) {
+            clear();
+        }
+    }
+
+    /**
+     * 区间下标：0-59, 60-69, 70-79, 80-89, 90-100
+     */
+    public static int bucketOf(double value) {
+        if (value < 60) {
+            return 0;
+        }
+        if (value < 70) {
+            return 1;
+        }
+        if (value < 80) {
+            return 2;
+        }
+        if (value < 90) {
+            return 3;
+        }
+        return 4;
+    }
+
+    public void clear() {
+        count = 0;
+        sum = 0;
+        sumOfSquares = 0;
+        passCount = 0;
+        highest = null;
+        lowest = null;
+        bucketFail = 0;
+        bucket60 = 0;
+        bucket70 = 0;
+        bucket80 = 0;
+        bucket90 = 0;
+    }
+
+    public double average() {
+        return count == 0 ? 0.0 : sum / count;
+    }
+
+    public double variance() {
+        if (count == 0) {
+            return 0.0;
+        }
+        double mean = sum / count;
+        return Math.max(0.0, sumOfSquares / count - mean * mean);
+    }
+
+    public double passRate() {
+        return count == 0 ? 0.0 : passCount * 100.0 / count;
+    }
+
+    public long[] buckets() {
+        return new long[]{bucketFail, bucket60, bucket70, bucket80, bucket90};
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    public void setScope(Scope scope) {
+        this.scope = scope;
+    }
+
+    public String getScopeKey() {
+        return scopeKey;
+    }
+
+    public void setScopeKey(String scopeKey) {
+        this.scopeKey = scopeKey;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public void setSum(double sum) {
+        this.sum = sum;
+    }
+
+    public double getSumOfSquares() {
+        return sumOfSquares;
+    }
+
+    public void setSumOfSquares(double sumOfSquares) {
+        this.sumOfSquares = sumOfSquares;
+    }
+
+    public long getPassCount() {
+        return passCount;
+    }
+
+    public void setPassCount(long passCount) {
+        this.passCount = passCount;
+    }
+
+    public Double getHighest() {
+        return highest;
+    }
+
+    public void setHighest(Double highest) {
+        this.highest = highest;
+    }
+
+    public Double getLowest() {
+        return lowest;
+    }
+
+    public void setLowest(Double lowest) {
+        this.lowest = lowest;
+    }
+
+    public long getBucketFail() {
+        return bucketFail;
+    }
+
+    public void setBucketFail(long bucketFail) {
+        this.bucketFail = bucketFail;
+    }
+
+    public long getBucket60() {
+        return bucket60;
+    }
+
+    public void setBucket60(long bucket60) {
+        this.bucket60 = bucket60;
+    }
+
+    public long getBucket70() {
+        return bucket70;
+    }
+
+    public void setBucket70(long bucket70) {
+        this.bucket70 = bucket70;
+    }
+
+    public long getBucket80() {
+        return bucket80;
+    }
+
+    public void setBucket80(long bucket80) {
+        this.bucket80 = bucket80;
+    }
+
+    public long getBucket90() {
+        return bucket90;
+    }
+
+    public void setBucket90(long bucket90) {
+        this.bucket90 = bucket90;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,165 @@
+package com.scrapy.demo.domain;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 成绩变更日志
+ * 成绩新增、修改、删除时在同一事务内追加一行，自增ID即变更序号，供下游按序号增量同步；
+ * 不引用成绩表外键，成绩删除后日志仍保留
+ */
+@Entity
+@Table(name = "score_change")
+public class ScoreChange {
+
+    public enum Type {
+        INSERT, UPDATE, DELETE
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "score_id", nullable = false)
+    private Long scoreId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "change_type", nullable = false, length = 8)
+    private Type type;
+
+    @Column(name = "student_id", nullable = false)
+    private Long studentId;
+
+    @Column(name = "course_id", nullable = false)
+    private Long courseId;
+
+    @Column(name = "exam_id")
+    private Long examId;
+
+    /**
+     * 变更前分数，新增时为空
+     */
+    @Column(name = "before_value")
+    private Double beforeValue;
+
+    /**
+     * 变更后分数，删除时为空
+     */
+    @Column(name = "after_value")
+    private Double afterValue;
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+
+    public ScoreChange() {
+    }
+
+    public ScoreChange(Long scoreId, Type type, Long studentId, Long courseId, Long examId,
+                       Double beforeValue, Double afterValue) {
+        this.scoreId = scoreId;
+        this.type = type;
+        this.studentId = studentId;
+        this.courseId = courseId;
+        this.examId = examId;
+        this.beforeValue = beforeValue;
+        this.afterValue = afterValue;
+        this.changedAt = LocalDateTime.now();
+    }
+
+    public static ScoreChange inserted(Score score) {
+        return of(score, Type.INSERT, null, score.getValue());
+    }
+
+    public static ScoreChange updated(Score score, Double beforeValue) {
+        return of(score, Type.UPDATE, beforeValue, score.getValue());
+    }
+
+    public static ScoreChange deleted(Score score) {
+        return of(score, Type.DELETE, score.getValue(), null);
+    }
+
+    private static ScoreChange of(Score score, Type type, Double beforeValue, Double afterValue) {
+        return new ScoreChange(score.getId(), type, score.getStudent().getId(), score.getCourse().getId(),
+                score.getExam() != null ? score.getExam().getId() : null, beforeValue, afterValue);
+    }
+
+    @PrePersist
+    public void prePersist() {
+        if (changedAt == null) {
+            changedAt = LocalDateTime.now();
+        }
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getScoreId() {
+        return scoreId;
+    }
+
+    public void setScoreId(Long scoreId) {
+        this.scoreId = scoreId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public Long getStudentId() {
+        return studentId;
+    }
+
+    public void setStudentId(Long studentId) {
+        this.studentId = studentId;
+    }
+
+    public Long getCourseId() {
+        return courseId;
+    }
+
+    public void setCourseId(Long courseId) {
+        this.courseId = courseId;
+    }
+
+    public Long getExamId() {
+        return examId;
+    }
+
+    public void setExamId(Long examId) {
+        this.examId = examId;
+    }
+
+    public Double getBeforeValue() {
+        return beforeValue;
+    }
+
+    public void setBeforeValue(Double beforeValue) {
+        this.beforeValue = beforeValue;
+    }
+
+    public Double getAfterValue() {
+        return afterValue;
+    }
+
+    public void setAfterValue(Double afterValue) {
+        this.afterValue = afterValue;
+    }
+
+    public LocalDateTime getChangedAt() {
+        return changedAt;
+    }
+
+    public void setChangedAt(LocalDateTime changedAt) {
+        this.changedAt = changedAt;
+    }
+}
@@ -4,7 +4,7 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 
 @Entity
-@Table(name = "student")
+@Table(name = "student", indexes = @Index(name = "idx_student_clazz", columnList = "clazz, id"))
 public class Student {
 
     @Id
@@ -0,0 +1,207 @@
+package com.scrapy.demo.domain;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 学生考试快照
+ * 每名有成绩的学生一行：最近两次考试的平均分、变化、最近一次不及格门数与风险标记，
+ * 在该学生成绩变化的同一事务内刷新，班级学生标记与概览直接读取；
+ * 班内名次不落库（否则一名学生的成绩变化要改写全班的行），读取班级快照时按平均分在内存中计算
+ */
+@Entity
+@Table(name = "student_snapshot",
+        uniqueConstraints = @UniqueConstraint(name = "uk_snapshot_student", columnNames = "student_id"),
+        indexes = @Index(name = "idx_snapshot_clazz", columnList = "clazz"))
+public class StudentSnapshot {
+
+    public static final double PASS_LINE = ScoreAggregate.PASS_LINE;
+
+    /**
+     * 平均分较上次下降超过该分数视为风险
+     */
+    public static final double RISK_DROP = 5.0;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "student_id", nullable = false)
+    private Long studentId;
+
+    @Column(nullable = false)
+    private String clazz;
+
+    @Column(name = "current_exam_date")
+    private LocalDate currentExamDate;
+
+    @Column(name = "previous_exam_date")
+    private LocalDate previousExamDate;
+
+    @Column(name = "current_average", nullable = false)
+    private double currentAverage;
+
+    /**
+     * 上一次考试平均分，没有上一次考试时等于本次
+     */
+    @Column(name = "previous_average", nullable = false)
+    private double previousAverage;
+
+    @Column(name = "score_delta", nullable = false)
+    private double scoreDelta;
+
+    @Column(name = "current_count", nullable = false)
+    private long currentCount;
+
+    @Column(name = "failed_count", nullable = false)
+    private long failedCount;
+
+    @Column(nullable = false)
+    private boolean risk;
+
+    @Transient
+    private int currentRank;
+
+    @Transient
+    private int previousRank;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public StudentSnapshot() {
+    }
+
+    public StudentSnapshot(Long studentId) {
+        this.studentId = studentId;
+    }
+
+    /**
+     * 风险学生：最近一次考试不及格两门及以上、平均分不及格，或平均分较上次下降超过 5 分
+     */
+    public static boolean isRisk(long currentCount, long failedCount, double currentAverage, double scoreDelta) {
+        if (currentCount == 0) {
+            return false;
+        }
+        return failedCount >= 2 || currentAverage < PASS_LINE || scoreDelta < -RISK_DROP;
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void touch() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getStudentId() {
+        return studentId;
+    }
+
+    public void setStudentId(Long studentId) {
+        this.studentId = studentId;
+    }
+
+    public String getClazz() {
+        return clazz;
+    }
+
+    public void setClazz(String clazz) {
+        this.clazz = clazz;
+    }
+
+    public LocalDate getCurrentExamDate() {
+        return currentExamDate;
+    }
+
+    public void setCurrentExamDate(LocalDate currentExamDate) {
+        this.currentExamDate = currentExamDate;
+    }
+
+    public LocalDate getPreviousExamDate() {
+        return previousExamDate;
+    }
+
+    public void setPreviousExamDate(LocalDate previousExamDate) {
+        this.previousExamDate = previousExamDate;
+    }
+
+    public double getCurrentAverage() {
+        return currentAverage;
+    }
+
+    public void setCurrentAverage(double currentAverage) {
+        this.currentAverage = currentAverage;
+    }
+
+    public double getPreviousAverage() {
+        return previousAverage;
+    }
+
+    public void setPreviousAverage(double previousAverage) {
+        this.previousAverage = previousAverage;
+    }
+
+    public double getScoreDelta() {
+        return scoreDelta;
+    }
+
+    public void setScoreDelta(double scoreDelta) {
+        this.scoreDelta = scoreDelta;
+    }
+
+    public long getCurrentCount() {
+        return currentCount;
+    }
+
+    public void setCurrentCount(long currentCount) {
+        this.currentCount = currentCount;
+    }
+
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    public void setFailedCount(long failedCount) {
+        this.failedCount = failedCount;
+    }
+
+    public boolean isRisk() {
+        return risk;
+    }
+
+    public void setRisk(boolean risk) {
+        this.risk = risk;
+    }
+
+    public int getCurrentRank() {
+        return currentRank;
+    }
+
+    public void setCurrentRank(int currentRank) {
+        this.currentRank = currentRank;
+    }
+
+    public int getPreviousRank() {
+        return previousRank;
+    }
+
+    public void setPreviousRank(int previousRank) {
+        this.previousRank = previousRank;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
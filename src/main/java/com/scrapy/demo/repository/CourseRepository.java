@@ -1,8 +1,12 @@
 package com.scrapy.demo.repository;
 
 import com.scrapy.demo.domain.Course;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,8 +17,25 @@ public interface CourseRepository extends JpaRepository<Course, Long> {
      */
     Optional<Course> findByName(String name);
 
+    /**
+     * 按名称批量查找课程
+     */
+    List<Course> findByNameIn(Collection<String> names);
+
     /**
      * 根据教师名称查找课程
      */
     List<Course> findByTeacherName(String teacherName);
+
+    /**
+     * 游标分页：id 大于 after 的下一页，可按教师筛选（命中主键或 idx_course_teacher）
+     */
+    @Query("select c from Course c where c.id > :after and (:teacherName is null or c.teacherName = :teacherName) order by c.id")
+    List<Course> findPage(@Param("after") long after, @Param("teacherName") String teacherName, Pageable page);
+
+    /**
+     * 全部课程名称（按名称排序，用于导入模板下拉选项）
+     */
+    @Query("select distinct c.name from Course c order by c.name")
+    List<String> findAllNames();
 }
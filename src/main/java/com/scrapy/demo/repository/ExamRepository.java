@@ -1,11 +1,33 @@
 package com.scrapy.demo.repository;
 
 import com.scrapy.demo.domain.Exam;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface ExamRepository extends JpaRepository<Exam, Long> {
 
     Optional<Exam> findByName(String name);
+
+    List<Exam> findByNameIn(Collection<String> names);
+
+    /**
+     * 游标分页：id 大于 after 的下一页，可按考试日期区间筛选
+     */
+    @Query("select e from Exam e where e.id > :after and (:from is null or e.examDate >= :from) " +
+            "and (:to is null or e.examDate <= :to) order by e.id")
+    List<Exam> findPage(@Param("after") long after, @Param("from") LocalDate from, @Param("to") LocalDate to,
+                        Pageable page);
+
+    /**
+     * 全部考试名称（最近的考试在前，用于导入模板下拉选项）
+     */
+    @Query("select e.name from Exam e order by e.examDate desc, e.id desc")
+    List<String> findAllNamesByRecency();
 }
@@ -0,0 +1,26 @@
+package com.scrapy.demo.repository;
+
+import com.scrapy.demo.domain.ImportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ImportJobRepository extends JpaRepository<ImportJob, Long> {
+
+    /**
+     * 按状态查找任务（启动时恢复未完成的任务）
+     */
+    List<ImportJob> findByStatusInOrderByIdAsc(Collection<ImportJob.Status> statuses);
+
+    /**
+     * 认领任务：仅当任务仍处于 from 状态时改为处理中，返回更新行数（0 表示已被其他线程或实例认领）
+     */
+    @Modifying
+    @Query("update ImportJob j set j.status = com.scrapy.demo.domain.ImportJob.Status.RUNNING "
+            + "where j.id = :id and j.status = :from")
+    int claim(@Param("id") Long id, @Param("from") ImportJob.Status from);
+}
@@ -1,7 +1,10 @@
 package com.scrapy.demo.repository;
 
 import com.scrapy.demo.domain.LearningMaterial;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
@@ -10,4 +13,15 @@ public interface LearningMaterialRepository extends JpaRepository<LearningMateri
     List<LearningMaterial> findByCourseKeywordContainingIgnoreCaseOrderByIdAsc(String courseKeyword);
 
     List<LearningMaterial> findAllByOrderByIdAsc();
+
+    /**
+     * 游标分页：id 大于 after 的下一页，可按课程关键词、类型、难度精确筛选（均有索引）
+     */
+    @Query("select m from LearningMaterial m where m.id > :after " +
+            "and (:courseKeyword is null or m.courseKeyword = :courseKeyword) " +
+            "and (:type is null or m.type = :type) " +
+            "and (:difficultyTag is null or m.difficultyTag = :difficultyTag) order by m.id")
+    List<LearningMaterial> findPage(@Param("after") long after, @Param("courseKeyword") String courseKeyword,
+                                    @Param("type") String type, @Param("difficultyTag") String difficultyTag,
+                                    Pageable page);
 }
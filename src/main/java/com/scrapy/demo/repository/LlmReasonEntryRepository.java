@@ -0,0 +1,36 @@
+package com.scrapy.demo.repository;
+
+import com.scrapy.demo.domain.LlmReasonEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface LlmReasonEntryRepository extends JpaRepository<LlmReasonEntry, Long> {
+
+    Optional<LlmReasonEntry> findByCacheKey(String cacheKey);
+
+    /**
+     * 批量读取指定时间之后写入的条目（过期条目视为未命中）
+     */
+    List<LlmReasonEntry> findByCacheKeyInAndCreatedAtAfter(Collection<String> cacheKeys, LocalDateTime after);
+
+    /**
+     * 删除指定时间之前写入的条目，返回删除行数
+     */
+    @Modifying
+    @Query("delete from LlmReasonEntry e where e.createdAt < :before")
+    int deleteByCreatedAtBefore(@Param("before") LocalDateTime before);
+
+    /**
+     * 按写入时间从新到旧列出写入时间（配合分页偏移定位保留上限处的时间）
+     */
+    @Query("select e.createdAt from LlmReasonEntry e order by e.createdAt desc")
+    List<LocalDateTime> findCreatedAtNewestFirst(Pageable page);
+}
@@ -0,0 +1,19 @@
+package com.scrapy.demo.repository;
+
+import com.scrapy.demo.domain.ScoreAggregate;
+
+import java.util.List;
+
+/**
+ * 聚合行批量插入
+ * 增量更新前先确保聚合行存在再加锁读取，多个键合并为一条多行 INSERT，避免逐键往返
+ */
+public interface ScoreAggregateBatchRepository {
+
+    /**
+     * 按给定顺序插入缺失的空聚合行，已存在的行不做修改；涉及的行都被当前事务加上写锁，
+     * 并发创建同一键时后到者等待先到者提交后走更新分支，不会触发唯一约束冲突。
+     * 调用方应传入排好序的键（保持各事务的加锁顺序一致），并按块调用以限制单条语句的长度
+     */
+    void insertIfAbsent(ScoreAggregate.Scope scope, List<String> scopeKeys);
+}
@@ -0,0 +1,43 @@
+package com.scrapy.demo.repository;
+
+import com.scrapy.demo.domain.ScoreAggregate;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * {@link ScoreAggregateBatchRepository} 的实现，以原生 SQL 在当前事务内执行
+ */
+class ScoreAggregateBatchRepositoryImpl implements ScoreAggregateBatchRepository {
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO `score_aggregate` (`scope`, `scope_key`, `score_count`, `score_sum`, `sum_of_squares`, "
+            + "`pass_count`, `bucket_0_59`, `bucket_60_69`, `bucket_70_79`, `bucket_80_89`, `bucket_90_100`, `updated_at`) VALUES ";
+
+    private static final String INSERT_SUFFIX = " ON DUPLICATE KEY UPDATE `scope_key` = `scope_key`";
+
+    private final EntityManager entityManager;
+
+    ScoreAggregateBatchRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public void insertIfAbsent(ScoreAggregate.Scope scope, List<String> scopeKeys) {
+        if (scopeKeys.isEmpty()) {
+            return;
+        }
+        StringJoiner values = new StringJoiner(", ", INSERT_PREFIX, INSERT_SUFFIX);
+        for (int i = 0; i < scopeKeys.size(); i++) {
+            values.add("(?" + (2 * i + 1) + ", ?" + (2 * i + 2) + ", 0, 0, 0, 0, 0, 0, 0, 0, 0, CURRENT_TIMESTAMP)");
+        }
+        Query query = entityManager.createNativeQuery(values.toString());
+        for (int i = 0; i < scopeKeys.size(); i++) {
+            query.setParameter(2 * i + 1, scope.name());
+            query.setParameter(2 * i + 2, scopeKeys.get(i));
+        }
+        query.executeUpdate();
+    }
+}
@@ -0,0 +1,43 @@
+package com.scrapy.demo.repository;
+
+import com.scrapy.demo.domain.ScoreAggregate;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface ScoreAggregateRepository extends JpaRepository<ScoreAggregate, Long>, ScoreAggregateBatchRepository {
+
+    /**
+     * 按维度与键查找聚合
+     */
+    Optional<ScoreAggregate> findByScopeAndScopeKey(ScoreAggregate.Scope scope, String scopeKey);
+
+    /**
+     * 查找某一维度下的全部聚合
+     */
+    List<ScoreAggregate> findByScope(ScoreAggregate.Scope scope);
+
+    /**
+     * 批量查找某一维度下的多个聚合
+     */
+    List<ScoreAggregate> findByScopeAndScopeKeyIn(ScoreAggregate.Scope scope, Collection<String> scopeKeys);
+
+    /**
+     * 按键后缀查找某一维度下的聚合（如某次考试的全部班级课程聚合）
+     */
+    List<ScoreAggregate> findByScopeAndScopeKeyEndingWith(ScoreAggregate.Scope scope, String suffix);
+
+    /**
+     * 加写锁读取多个聚合（按键排序加锁；读取的是最新已提交的值）
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from ScoreAggregate a where a.scope = :scope and a.scopeKey in :scopeKeys order by a.scopeKey")
+    List<ScoreAggregate> lockByScopeAndScopeKeyIn(@Param("scope") ScoreAggregate.Scope scope,
+                                                   @Param("scopeKeys") Collection<String> scopeKeys);
+}
@@ -0,0 +1,33 @@
+package com.scrapy.demo.repository;
+
+import com.scrapy.demo.domain.ScoreChange;
+
+import java.util.List;
+
+/**
+ * 成绩批量写入
+ * 绕过逐条 persist（IDENTITY 主键使 Hibernate 无法合并插入），以 JDBC 批处理按块提交
+ */
+public interface ScoreBatchRepository {
+
+    /**
+     * 待写入的一条成绩；id 为空表示新增
+     */
+    record ScoreRow(Long id, Long studentId, Long courseId, Long examId, double value) {
+    }
+
+    /**
+     * 批量新增成绩，每 batchSize 条提交一个批次，返回与 rows 顺序一致的新成绩ID
+     */
+    List<Long> batchInsert(List<ScoreRow> rows, int batchSize);
+
+    /**
+     * 批量按ID更新成绩分数，每 batchSize 条提交一个批次
+     */
+    void batchUpdateValues(List<ScoreRow> rows, int batchSize);
+
+    /**
+     * 批量追加成绩变更日志，每 batchSize 条提交一个批次
+     */
+    void batchInsertChanges(List<ScoreChange> changes, int batchSize);
+}
@@ -0,0 +1,137 @@
+package com.scrapy.demo.repository;
+
+import com.scrapy.demo.domain.ScoreChange;
+import jakarta.persistence.EntityManager;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link ScoreBatchRepository} 的 JDBC 实现，与 JPA 共用当前事务的连接
+ * 写入前先 flush 挂起的实体变更，写入后清空持久化上下文，避免后续读取到过期的成绩实体
+ */
+class ScoreBatchRepositoryImpl implements ScoreBatchRepository {
+
+    // 标识符占位符 {q} 替换为驱动的引号字符（MySQL 为反引号，H2 为双引号），与 Hibernate 的引用方式保持一致
+    private static final String INSERT_SQL =
+            "INSERT INTO {q}score{q} ({q}student_id{q}, {q}course_id{q}, {q}exam_id{q}, {q}value{q}, {q}recorded_at{q}) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_VALUE_SQL =
+            "UPDATE {q}score{q} SET {q}value{q} = ? WHERE {q}id{q} = ?";
+
+    private static final String INSERT_CHANGE_SQL =
+            "INSERT INTO {q}score_change{q} ({q}score_id{q}, {q}change_type{q}, {q}student_id{q}, {q}course_id{q}, " +
+            "{q}exam_id{q}, {q}before_value{q}, {q}after_value{q}, {q}changed_at{q}) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+    private volatile String identifierQuote;
+
+    ScoreBatchRepositoryImpl(JdbcTemplate jdbcTemplate, EntityManager entityManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<Long> batchInsert(List<ScoreRow> rows, int batchSize) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        entityManager.flush();
+        String sql = sql(INSERT_SQL);
+        Timestamp recordedAt = Timestamp.valueOf(LocalDateTime.now());
+        List<Long> ids = new ArrayList<>(rows.size());
+        int size = Math.max(1, batchSize);
+        for (int from = 0; from < rows.size(); from += size) {
+            List<ScoreRow> chunk = rows.subList(from, Math.min(from + size, rows.size()));
+            GeneratedKeyHolder keys = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            ScoreRow row = chunk.get(i);
+                            ps.setLong(1, row.studentId());
+                            ps.setLong(2, row.courseId());
+                            setNullableLong(ps, 3, row.examId());
+                            ps.setDouble(4, row.value());
+                            ps.setTimestamp(5, recordedAt);
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return chunk.size();
+                        }
+                    }, keys);
+            // MySQL 返回 GENERATED_KEY 列，H2 返回 id 列，只取每行唯一的键值
+            keys.getKeyList().forEach(key -> ids.add(((Number) key.values().iterator().next()).longValue()));
+        }
+        entityManager.clear();
+        return ids;
+    }
+
+    @Override
+    public void batchUpdateValues(List<ScoreRow> rows, int batchSize) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        entityManager.flush();
+        jdbcTemplate.batchUpdate(sql(UPDATE_VALUE_SQL), rows, Math.max(1, batchSize), (ps, row) -> {
+            ps.setDouble(1, row.value());
+            ps.setLong(2, row.id());
+        });
+        entityManager.clear();
+    }
+
+    @Override
+    public void batchInsertChanges(List<ScoreChange> changes, int batchSize) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(sql(INSERT_CHANGE_SQL), changes, Math.max(1, batchSize), (ps, change) -> {
+            ps.setLong(1, change.getScoreId());
+            ps.setString(2, change.getType().name());
+            ps.setLong(3, change.getStudentId());
+            ps.setLong(4, change.getCourseId());
+            setNullableLong(ps, 5, change.getExamId());
+            setNullableDouble(ps, 6, change.getBeforeValue());
+            setNullableDouble(ps, 7, change.getAfterValue());
+            ps.setTimestamp(8, Timestamp.valueOf(change.getChangedAt()));
+        });
+    }
+
+    private static void setNullableLong(PreparedStatement ps, int index, Long value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.BIGINT);
+        } else {
+            ps.setLong(index, value);
+        }
+    }
+
+    private static void setNullableDouble(PreparedStatement ps, int index, Double value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.DOUBLE);
+        } else {
+            ps.setDouble(index, value);
+        }
+    }
+
+    private String sql(String template) {
+        String quote = identifierQuote;
+        if (quote == null) {
+            quote = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getIdentifierQuoteString().trim());
+            identifierQuote = quote;
+        }
+        return template.replace("{q}", quote);
+    }
+}
@@ -0,0 +1,22 @@
+package com.scrapy.demo.repository;
+
+import com.scrapy.demo.domain.ScoreChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface ScoreChangeRepository extends JpaRepository<ScoreChange, Long> {
+
+    /**
+     * 序号在 (since, horizon] 内的变更（按序号升序，走主键范围扫描）
+     */
+    List<ScoreChange> findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(long since, long horizon, Pageable page);
+
+    /**
+     * 当前最大变更序号，没有变更时为空
+     */
+    @Query("select max(c.id) from ScoreChange c")
+    Long findMaxId();
+}
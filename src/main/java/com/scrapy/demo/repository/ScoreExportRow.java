@@ -0,0 +1,10 @@
+package com.scrapy.demo.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * 成绩导出行（构造器投影，不加载成绩、学生、课程实体）
+ */
+public record ScoreExportRow(String studentNumber, String studentName, String courseName, String examName,
+                             Double value, LocalDateTime recordedAt) {
+}
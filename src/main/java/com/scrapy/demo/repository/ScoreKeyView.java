@@ -0,0 +1,17 @@
+package com.scrapy.demo.repository;
+
+/**
+ * 成绩的（学生, 课程, 考试）键与当前分数投影，用于批量导入时判断新增或更新
+ */
+public interface ScoreKeyView {
+
+    Long getId();
+
+    Long getStudentId();
+
+    Long getCourseId();
+
+    Long getExamId();
+
+    Double getValue();
+}
@@ -3,12 +3,23 @@ package com.scrapy.demo.repository;
 import com.scrapy.demo.domain.Course;
 import com.scrapy.demo.domain.Score;
 import com.scrapy.demo.domain.Student;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface ScoreRepository extends JpaRepository<Score, Long> {
+public interface ScoreRepository extends JpaRepository<Score, Long>, ScoreBatchRepository {
 
     /**
      * 根据课程ID查找成绩
@@ -25,6 +36,41 @@ public interface ScoreRepository extends JpaRepository<Score, Long> {
      */
     List<Score> findByStudentClazz(String clazz);
 
+    // 学生、课程、考试均为懒加载；需要关联数据的调用方使用以下 EntityGraph 变体，一条 join 查询取回
+
+    /**
+     * 全部成绩连同学生、课程、考试（接口直接返回成绩实体时使用）
+     */
+    @EntityGraph(attributePaths = {"student", "course", "exam"})
+    @Query("select s from Score s")
+    List<Score> findAllWithAssociations();
+
+    @EntityGraph(attributePaths = {"student", "course", "exam"})
+    Optional<Score> findWithAssociationsById(Long id);
+
+    @EntityGraph(attributePaths = {"student", "course", "exam"})
+    List<Score> findWithAssociationsByStudentId(Long studentId);
+
+    @EntityGraph(attributePaths = {"student", "course", "exam"})
+    List<Score> findWithAssociationsByCourseId(Long courseId);
+
+    @EntityGraph(attributePaths = {"student", "course", "exam"})
+    List<Score> findWithAssociationsByStudentClazz(String clazz);
+
+    /**
+     * 某课程的成绩连同学生（删除课程时扣减班级聚合需要学生班级）
+     */
+    @EntityGraph(attributePaths = "student")
+    List<Score> findWithStudentByCourseId(Long courseId);
+
+    /**
+     * 某班级在给定考试日期的成绩连同学生、课程、考试（班级概览只需最近两次考试）
+     */
+    @EntityGraph(attributePaths = {"student", "course", "exam"})
+    @Query("select s from Score s left join s.exam e where s.student.clazz = :clazz and " + EXAM_DATE + " in :dates")
+    List<Score> findWithAssociationsByStudentClazzAndExamDateIn(@Param("clazz") String clazz,
+                                                                @Param("dates") Collection<LocalDate> dates);
+
     /**
      * 根据学生和课程查找成绩
      */
@@ -34,4 +80,196 @@ public interface ScoreRepository extends JpaRepository<Score, Long> {
      * 根据学生/课程/考试查找成绩
      */
     Optional<Score> findByStudentAndCourseAndExam(Student student, Course course, com.scrapy.demo.domain.Exam exam);
+
+    /**
+     * 成绩的考试日期：优先取考试日期，没有考试时取录入日期（需 left join s.exam e）
+     */
+    String EXAM_DATE = "coalesce(e.examDate, cast(s.recordedAt as LocalDate))";
+
+    /**
+     * （班级, 课程, 考试）维度的聚合键，与 ScoreAggregateService.classCourseKey 一致（需 left join s.exam e）
+     */
+    String CLASS_COURSE_KEY =
+            "concat(s.student.clazz, '|', cast(s.course.id as String), '|', coalesce(cast(e.id as String), '-'))";
+
+    /**
+     * 按（学生, 考试日期）分组的统计列
+     */
+    String STUDENT_EXAM_COLUMNS =
+            "s.student.id as studentId, s.student.clazz as clazz, " + EXAM_DATE + " as examDate, " +
+            "count(s.value) as scoreCount, sum(s.value) as scoreSum, " +
+            "sum(case when s.value >= 60 then 1 else 0 end) as passCount ";
+
+    /**
+     * 指定学生按考试日期分组统计
+     */
+    @Query("select " + STUDENT_EXAM_COLUMNS + "from Score s left join s.exam e where s.student.id in :studentIds " +
+            "group by s.student.id, s.student.clazz, " + EXAM_DATE)
+    List<StudentExamStatsView> summarizeStudentExams(@Param("studentIds") Collection<Long> studentIds);
+
+    /**
+     * 全部学生按考试日期分组统计（重建学生快照）
+     */
+    @Query("select " + STUDENT_EXAM_COLUMNS + "from Score s left join s.exam e " +
+            "group by s.student.id, s.student.clazz, " + EXAM_DATE)
+    List<StudentExamStatsView> summarizeStudentExams();
+
+    /**
+     * 统计列：计数、总和、平方和、及格数、极值与五段分布
+     */
+    String STATS_COLUMNS =
+            "count(s) as scoreCount, sum(s.value) as scoreSum, sum(s.value * s.value) as sumOfSquares, " +
+            "sum(case when s.value >= 60 then 1 else 0 end) as passCount, " +
+            "min(s.value) as lowest, max(s.value) as highest, " +
+            "sum(case when s.value < 60 then 1 else 0 end) as bucketFail, " +
+            "sum(case when s.value >= 60 and s.value < 70 then 1 else 0 end) as bucket60, " +
+            "sum(case when s.value >= 70 and s.value < 80 then 1 else 0 end) as bucket70, " +
+            "sum(case when s.value >= 80 and s.value < 90 then 1 else 0 end) as bucket80, " +
+            "sum(case when s.value >= 90 then 1 else 0 end) as bucket90 ";
+
+    /**
+     * 全校成绩统计
+     */
+    @Query("select '*' as groupKey, " + STATS_COLUMNS + "from Score s")
+    ScoreStatsView summarizeAll();
+
+    /**
+     * 按课程分组统计
+     */
+    @Query("select cast(s.course.id as String) as groupKey, " + STATS_COLUMNS +
+            "from Score s group by s.course.id")
+    List<ScoreStatsView> summarizeByCourse();
+
+    /**
+     * 按班级分组统计
+     */
+    @Query("select s.student.clazz as groupKey, " + STATS_COLUMNS +
+            "from Score s group by s.student.clazz")
+    List<ScoreStatsView> summarizeByClazz();
+
+    /**
+     * 按（班级, 课程, 考试）分组统计，未关联考试的成绩归入同班同课程的无考试分组
+     */
+    @Query("select " + CLASS_COURSE_KEY + " as groupKey, " + STATS_COLUMNS +
+            "from Score s left join s.exam e group by s.student.clazz, s.course.id, e.id")
+    List<ScoreStatsView> summarizeByClazzCourseExam();
+
+    /**
+     * 按考试分组统计（忽略未关联考试的成绩）
+     */
+    @Query("select cast(s.exam.id as String) as groupKey, " + STATS_COLUMNS +
+            "from Score s where s.exam is not null group by s.exam.id")
+    List<ScoreStatsView> summarizeByExam();
+
+    /**
+     * 按学生分组统计
+     */
+    @Query("select cast(s.student.id as String) as groupKey, " + STATS_COLUMNS +
+            "from Score s group by s.student.id")
+    List<ScoreStatsView> summarizeByStudent();
+
+    @Query("select cast(s.course.id as String) as groupKey, " + STATS_COLUMNS +
+            "from Score s where s.course.id = :courseId group by s.course.id")
+    Optional<ScoreStatsView> summarizeByCourseId(@Param("courseId") Long courseId);
+
+    @Query("select s.student.clazz as groupKey, " + STATS_COLUMNS +
+            "from Score s where s.student.clazz = :clazz group by s.student.clazz")
+    Optional<ScoreStatsView> summarizeByClazz(@Param("clazz") String clazz);
+
+    @Query("select " + CLASS_COURSE_KEY + " as groupKey, " + STATS_COLUMNS +
+            "from Score s left join s.exam e where s.student.clazz = :clazz and s.course.id = :courseId and e.id = :examId " +
+            "group by s.student.clazz, s.course.id, e.id")
+    Optional<ScoreStatsView> summarizeByClazzCourseExam(@Param("clazz") String clazz, @Param("courseId") Long courseId,
+                                                        @Param("examId") Long examId);
+
+    @Query("select " + CLASS_COURSE_KEY + " as groupKey, " + STATS_COLUMNS +
+            "from Score s left join s.exam e where s.student.clazz = :clazz and s.course.id = :courseId and e.id is null " +
+            "group by s.student.clazz, s.course.id, e.id")
+    Optional<ScoreStatsView> summarizeByClazzCourseWithoutExam(@Param("clazz") String clazz,
+                                                               @Param("courseId") Long courseId);
+
+    @Query("select cast(s.exam.id as String) as groupKey, " + STATS_COLUMNS +
+            "from Score s where s.exam.id = :examId group by s.exam.id")
+    Optional<ScoreStatsView> summarizeByExamId(@Param("examId") Long examId);
+
+    @Query("select cast(s.student.id as String) as groupKey, " + STATS_COLUMNS +
+            "from Score s where s.student.id = :studentId group by s.student.id")
+    Optional<ScoreStatsView> summarizeByStudentId(@Param("studentId") Long studentId);
+
+    /**
+     * 某课程下按学生分组的平均分，可选按班级筛选
+     */
+    @Query("select s.student.id as studentId, avg(s.value) as average from Score s " +
+            "where s.course.id = :courseId and (:clazz is null or s.student.clazz = :clazz) " +
+            "group by s.student.id")
+    List<StudentAverageView> averageByStudentForCourse(@Param("courseId") Long courseId, @Param("clazz") String clazz);
+
+    /**
+     * 成绩列表行的构造器投影：一条 join 查询取回列表所需的列，不创建实体也不参与脏检查
+     */
+    String SCORE_VIEW_SELECT =
+            "select new com.scrapy.demo.repository.ScoreView(s.id, st.id, st.studentNumber, st.name, st.clazz, " +
+            "c.id, c.name, e.id, e.name, e.examDate, s.value, s.recordedAt) " +
+            "from Score s join s.student st join s.course c left join s.exam e ";
+
+    @Query(SCORE_VIEW_SELECT + "order by s.id")
+    List<ScoreView> findAllViews();
+
+    @Query(SCORE_VIEW_SELECT + "where st.id = :studentId order by s.id")
+    List<ScoreView> findViewsByStudentId(@Param("studentId") Long studentId);
+
+    @Query(SCORE_VIEW_SELECT + "where c.id = :courseId order by s.id")
+    List<ScoreView> findViewsByCourseId(@Param("courseId") Long courseId);
+
+    /**
+     * 游标分页：id 大于 after 的下一页；班级、课程、考试、记录时间区间 [from, to) 均为可选筛选，
+     * 分别对应 idx_student_clazz、idx_course_id、idx_exam_id、idx_recorded_at
+     */
+    @Query(SCORE_VIEW_SELECT + "where s.id > :after " +
+            "and (:clazz is null or st.clazz = :clazz) " +
+            "and (:courseId is null or c.id = :courseId) " +
+            "and (:examId is null or e.id = :examId) " +
+            "and (:from is null or s.recordedAt >= :from) " +
+            "and (:to is null or s.recordedAt < :to) order by s.id")
+    List<ScoreView> findViewPage(@Param("after") long after, @Param("clazz") String clazz,
+                                 @Param("courseId") Long courseId, @Param("examId") Long examId,
+                                 @Param("from") LocalDateTime from, @Param("to") LocalDateTime to, Pageable page);
+
+    /**
+     * 按ID顺序流式读取成绩列表行（需在只读事务内消费并关闭）
+     */
+    @Query(SCORE_VIEW_SELECT + "order by s.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<ScoreView> streamViews();
+
+    /**
+     * 按ID顺序流式读取导出所需的成绩列（需在只读事务内消费并关闭）
+     */
+    @Query("select new com.scrapy.demo.repository.ScoreExportRow(st.studentNumber, st.name, c.name, e.name, s.value, s.recordedAt) " +
+            "from Score s join s.student st join s.course c left join s.exam e order by s.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<ScoreExportRow> streamExportRows();
+
+    /**
+     * 某次考试的全部成绩键与分数（删除考试前记录变更日志用）
+     */
+    @Query("select s.id as id, s.student.id as studentId, s.course.id as courseId, s.exam.id as examId, s.value as value " +
+            "from Score s where s.exam.id = :examId")
+    List<ScoreKeyView> findKeysByExamId(@Param("examId") Long examId);
+
+    /**
+     * 某学生全部成绩的键与分数（调班时转移班级维度的聚合）
+     */
+    @Query("select s.id as id, s.student.id as studentId, s.course.id as courseId, s.exam.id as examId, s.value as value " +
+            "from Score s where s.student.id = :studentId")
+    List<ScoreKeyView> findKeysByStudentId(@Param("studentId") Long studentId);
+
+    /**
+     * 按学生/课程/考试ID集合批量查找已有成绩的键与分数（投影，不加载成绩实体）
+     */
+    @Query("select s.id as id, s.student.id as studentId, s.course.id as courseId, s.exam.id as examId, s.value as value " +
+            "from Score s where s.student.id in :studentIds and s.course.id in :courseIds and s.exam.id in :examIds")
+    List<ScoreKeyView> findKeys(@Param("studentIds") Collection<Long> studentIds,
+                                @Param("courseIds") Collection<Long> courseIds,
+                                @Param("examIds") Collection<Long> examIds);
 }
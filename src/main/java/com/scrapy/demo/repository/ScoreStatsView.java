@@ -0,0 +1,33 @@
+package com.scrapy.demo.repository;
+
+/**
+ * 数据库端成绩统计投影
+ * 一行对应一个分组（课程/班级/考试/学生，全校统计时 groupKey 为 "*"），
+ * 由 COUNT/SUM/MIN/MAX 与 SUM(CASE WHEN ...) 在库内聚合得到，无需加载成绩实体
+ */
+public interface ScoreStatsView {
+
+    String getGroupKey();
+
+    Long getScoreCount();
+
+    Double getScoreSum();
+
+    Double getSumOfSquares();
+
+    Long getPassCount();
+
+    Double getLowest();
+
+    Double getHighest();
+
+    Long getBucketFail();
+
+    Long getBucket60();
+
+    Long getBucket70();
+
+    Long getBucket80();
+
+    Long getBucket90();
+}
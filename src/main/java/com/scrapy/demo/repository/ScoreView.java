@@ -0,0 +1,12 @@
+package com.scrapy.demo.repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 成绩列表行（构造器投影，不加载成绩、学生、课程、考试实体）
+ */
+public record ScoreView(Long id, Long studentId, String studentNumber, String studentName, String clazz,
+                        Long courseId, String courseName, Long examId, String examName, LocalDate examDate,
+                        Double value, LocalDateTime recordedAt) {
+}
@@ -0,0 +1,11 @@
+package com.scrapy.demo.repository;
+
+/**
+ * 数据库端按学生分组的平均分投影，用于按课程筛选的排名
+ */
+public interface StudentAverageView {
+
+    Long getStudentId();
+
+    Double getAverage();
+}
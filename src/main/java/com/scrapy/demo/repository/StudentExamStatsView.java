@@ -0,0 +1,22 @@
+package com.scrapy.demo.repository;
+
+import java.time.LocalDate;
+
+/**
+ * 数据库端按（学生, 考试日期）分组的统计投影，用于刷新学生考试快照
+ * 考试日期优先取考试日期，没有考试时取录入日期
+ */
+public interface StudentExamStatsView {
+
+    Long getStudentId();
+
+    String getClazz();
+
+    LocalDate getExamDate();
+
+    Long getScoreCount();
+
+    Double getScoreSum();
+
+    Long getPassCount();
+}
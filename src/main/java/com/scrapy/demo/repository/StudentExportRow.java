@@ -0,0 +1,7 @@
+package com.scrapy.demo.repository;
+
+/**
+ * 学生导出行（构造器投影，不加载学生实体）
+ */
+public record StudentExportRow(String studentNumber, String name, String clazz, String major) {
+}
@@ -1,10 +1,18 @@
 package com.scrapy.demo.repository;
 
 import com.scrapy.demo.domain.Student;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface StudentRepository extends JpaRepository<Student, Long> {
 
@@ -13,11 +21,36 @@ public interface StudentRepository extends JpaRepository<Student, Long> {
      */
     Optional<Student> findByStudentNumber(String studentNumber);
 
+    /**
+     * 按学号批量查找学生
+     */
+    List<Student> findByStudentNumberIn(Collection<String> studentNumbers);
+
     /**
      * 根据班级查找学生
      */
     List<Student> findByClazz(String clazz);
 
+    /**
+     * 游标分页：id 大于 after 的下一页，可按班级筛选（命中主键或 idx_student_clazz）
+     */
+    @Query("select s from Student s where s.id > :after and (:clazz is null or s.clazz = :clazz) order by s.id")
+    List<Student> findPage(@Param("after") long after, @Param("clazz") String clazz, Pageable page);
+
+    /**
+     * 查询班级内学生ID（命中 idx_student_clazz 覆盖索引）
+     */
+    @Query("select s.id from Student s where s.clazz = :clazz")
+    List<Long> findIdsByClazz(@Param("clazz") String clazz);
+
+    /**
+     * 按ID顺序流式读取导出所需的学生列（需在只读事务内消费并关闭）
+     */
+    @Query("select new com.scrapy.demo.repository.StudentExportRow(s.studentNumber, s.name, s.clazz, s.major) " +
+            "from Student s order by s.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<StudentExportRow> streamExportRows();
+
     /**
      * 根据专业查找学生
      */
@@ -0,0 +1,17 @@
+package com.scrapy.demo.repository;
+
+import java.util.SortedMap;
+
+/**
+ * 学生快照行批量插入
+ * 刷新快照前先确保行存在再加锁读取，多名学生合并为一条多行 INSERT，避免逐个学生往返
+ */
+public interface StudentSnapshotBatchRepository {
+
+    /**
+     * 按学生ID顺序为没有快照的学生插入空快照行（学生ID -> 班级），已存在的行不做修改；
+     * 涉及的行都被当前事务加上写锁，同一学生的首次成绩并发写入时后到者等待先到者提交，不会触发唯一约束冲突。
+     * 调用方应按块调用以限制单条语句的长度
+     */
+    void insertIfAbsent(SortedMap<Long, String> clazzByStudent);
+}
@@ -0,0 +1,44 @@
+package com.scrapy.demo.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.StringJoiner;
+
+/**
+ * {@link StudentSnapshotBatchRepository} 的实现，以原生 SQL 在当前事务内执行
+ */
+class StudentSnapshotBatchRepositoryImpl implements StudentSnapshotBatchRepository {
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO `student_snapshot` (`student_id`, `clazz`, `current_average`, `previous_average`, "
+            + "`score_delta`, `current_count`, `failed_count`, `risk`, `updated_at`) VALUES ";
+
+    private static final String INSERT_SUFFIX = " ON DUPLICATE KEY UPDATE `student_id` = `student_id`";
+
+    private final EntityManager entityManager;
+
+    StudentSnapshotBatchRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public void insertIfAbsent(SortedMap<Long, String> clazzByStudent) {
+        if (clazzByStudent.isEmpty()) {
+            return;
+        }
+        StringJoiner values = new StringJoiner(", ", INSERT_PREFIX, INSERT_SUFFIX);
+        for (int i = 0; i < clazzByStudent.size(); i++) {
+            values.add("(?" + (2 * i + 1) + ", ?" + (2 * i + 2) + ", 0, 0, 0, 0, 0, FALSE, CURRENT_TIMESTAMP)");
+        }
+        Query query = entityManager.createNativeQuery(values.toString());
+        int position = 1;
+        for (Map.Entry<Long, String> entry : clazzByStudent.entrySet()) {
+            query.setParameter(position++, entry.getKey());
+            query.setParameter(position++, entry.getValue());
+        }
+        query.executeUpdate();
+    }
+}
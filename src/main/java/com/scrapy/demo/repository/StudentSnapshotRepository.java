@@ -0,0 +1,34 @@
+package com.scrapy.demo.repository;
+
+import com.scrapy.demo.domain.StudentSnapshot;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface StudentSnapshotRepository extends JpaRepository<StudentSnapshot, Long>, StudentSnapshotBatchRepository {
+
+    Optional<StudentSnapshot> findByStudentId(Long studentId);
+
+    /**
+     * 批量查找多名学生的快照
+     */
+    List<StudentSnapshot> findByStudentIdIn(Collection<Long> studentIds);
+
+    /**
+     * 班级全部学生的快照
+     */
+    List<StudentSnapshot> findByClazz(String clazz);
+
+    /**
+     * 加写锁读取多名学生的快照（按学生ID排序加锁；读取的是最新已提交的值）
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from StudentSnapshot s where s.studentId in :studentIds order by s.studentId")
+    List<StudentSnapshot> lockByStudentIdIn(@Param("studentIds") Collection<Long> studentIds);
+}
@@ -0,0 +1,121 @@
+package com.scrapy.demo.service;
+
+import com.scrapy.demo.config.CacheConfig;
+import com.scrapy.demo.domain.ScoreAggregate.Scope;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 分析缓存失效
+ * 按成绩变更涉及的课程/班级/考试/学生只清除对应条目；写入时立即清除一次，
+ * 处于事务中时在事务结束后再清除一次，避免并发读者在提交前把旧数据重新放入缓存
+ */
+@Service
+public class AnalysisCacheEvictor {
+
+    private final CacheManager cacheManager;
+
+    public AnalysisCacheEvictor(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * 成绩变更：keysByScope 为各维度受影响的聚合键
+     */
+    public void scoresChanged(Map<Scope, Set<String>> keysByScope) {
+        runNowAndAfterCompletion(() -> keysByScope.forEach(this::evictScope));
+    }
+
+    /**
+     * 班级成员或学生信息变化（新增、改名、调班、删除学生）
+     */
+    public void classesChanged(Collection<String> classNames) {
+        runNowAndAfterCompletion(() -> classNames.stream().filter(Objects::nonNull).forEach(this::evictClass));
+    }
+
+    /**
+     * 课程名称变化：及格率按课程名展示，班级洞察按课程名分科
+     */
+    public void coursesChanged() {
+        runNowAndAfterCompletion(() -> {
+            clear(CacheConfig.ANALYSIS_PASS_RATES);
+            clearInsights();
+        });
+    }
+
+    /**
+     * 考试名称或日期变化：考试趋势按考试展示，班级洞察按考试日期区分最近两次考试
+     */
+    public void examsChanged() {
+        runNowAndAfterCompletion(() -> {
+            clear(CacheConfig.ANALYSIS_EXAM_AVERAGES);
+            clear(CacheConfig.ANALYSIS_EXAM_PASS_RATES);
+            clearInsights();
+        });
+    }
+
+    public void evictAll() {
+        runNowAndAfterCompletion(() -> CacheConfig.CACHE_NAMES.forEach(this::clear));
+    }
+
+    private void evictScope(Scope scope, Set<String> keys) {
+        switch (scope) {
+            case ALL -> clear(CacheConfig.ANALYSIS_OVERALL);
+            case COURSE -> {
+                clear(CacheConfig.ANALYSIS_PASS_RATES);
+                keys.forEach(key -> evict(CacheConfig.ANALYSIS_COURSE, Long.valueOf(key)));
+            }
+            case CLASS -> keys.forEach(this::evictClass);
+            case EXAM -> {
+                clear(CacheConfig.ANALYSIS_EXAM_AVERAGES);
+                clear(CacheConfig.ANALYSIS_EXAM_PASS_RATES);
+            }
+            case STUDENT -> keys.forEach(key -> evict(CacheConfig.ANALYSIS_STUDENT, Long.valueOf(key)));
+        }
+    }
+
+    private void evictClass(String clazz) {
+        evict(CacheConfig.ANALYSIS_CLASS, clazz);
+        evict(CacheConfig.INSIGHT_CLASS_OVERVIEW, clazz);
+        evict(CacheConfig.INSIGHT_STUDENT_FLAGS, clazz);
+    }
+
+    private void clearInsights() {
+        clear(CacheConfig.INSIGHT_CLASS_OVERVIEW);
+        clear(CacheConfig.INSIGHT_STUDENT_FLAGS);
+    }
+
+    private void evict(String cacheName, Object key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.evict(key);
+        }
+    }
+
+    private void clear(String cacheName) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    private void runNowAndAfterCompletion(Runnable eviction) {
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    eviction.run();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.scrapy.demo.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * 成绩分析并行执行器
+ * app.analysis.parallelism 大于 1 时，把集合按下标区间切分到专用 ForkJoinPool 中分别累加，再两两合并累加器；
+ * 默认为 1，在调用线程中顺序执行。数据量低于切分阈值时同样顺序执行，避免小班级承担调度开销
+ */
+@Service
+public class AnalysisExecutor {
+
+    static final int MIN_CHUNK_SIZE = 2048;
+
+    private final int parallelism;
+    private final ForkJoinPool pool;
+
+    public AnalysisExecutor(@Value("${app.analysis.parallelism:1}") int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        this.pool = this.parallelism > 1 ? new ForkJoinPool(this.parallelism) : null;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * 可合并的归约：每个分片用 supplier 新建累加器并用 accumulator 逐项累加，按分片顺序用 combiner 合并
+     */
+    public <T, A> A reduce(List<T> items, Supplier<A> supplier, BiConsumer<A, T> accumulator, BinaryOperator<A> combiner) {
+        if (!shouldSplit(items.size())) {
+            return accumulate(items, 0, items.size(), supplier, accumulator);
+        }
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, items.size() / (parallelism * 4));
+        return pool.invoke(new ReduceTask<>(items, 0, items.size(), chunkSize, supplier, accumulator, combiner));
+    }
+
+    /**
+     * 原地排序，数据量足够大时在专用线程池内并行归并排序
+     */
+    @SuppressWarnings("unchecked")
+    public <T> void sort(List<T> items, Comparator<? super T> comparator) {
+        if (!shouldSplit(items.size())) {
+            items.sort(comparator);
+            return;
+        }
+        T[] array = (T[]) items.toArray();
+        pool.submit(() -> Arrays.parallelSort(array, comparator)).join();
+        for (int i = 0; i < array.length; i++) {
+            items.set(i, array[i]);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    private boolean shouldSplit(int size) {
+        return pool != null && size >= MIN_CHUNK_SIZE * 2;
+    }
+
+    private static <T, A> A accumulate(List<T> items, int from, int to, Supplier<A> supplier, BiConsumer<A, T> accumulator) {
+        A result = supplier.get();
+        for (int i = from; i < to; i++) {
+            accumulator.accept(result, items.get(i));
+        }
+        return result;
+    }
+
+    private static final class ReduceTask<T, A> extends RecursiveTask<A> {
+        private final List<T> items;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+        private final Supplier<A> supplier;
+        private final BiConsumer<A, T> accumulator;
+        private final BinaryOperator<A> combiner;
+
+        private ReduceTask(List<T> items, int from, int to, int chunkSize,
+                           Supplier<A> supplier, BiConsumer<A, T> accumulator, BinaryOperator<A> combiner) {
+            this.items = items;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+            this.supplier = supplier;
+            this.accumulator = accumulator;
+            this.combiner = combiner;
+        }
+
+        @Override
+        protected A compute() {
+            if (to - from <= chunkSize) {
+                return accumulate(items, from, to, supplier, accumulator);
+            }
+            int mid = (from + to) >>> 1;
+            ReduceTask<T, A> left = new ReduceTask<>(items, from, mid, chunkSize, supplier, accumulator, combiner);
+            ReduceTask<T, A> right = new ReduceTask<>(items, mid, to, chunkSize, supplier, accumulator, combiner);
+            left.fork();
+            A rightResult = right.compute();
+            return combiner.apply(left.join(), rightResult);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.scrapy.demo.service;
+
+import com.scrapy.demo.domain.Score;
+import com.scrapy.demo.domain.Student;
+import com.scrapy.demo.domain.StudentSnapshot;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * 班级成绩快照
+ * 单遍遍历班级成绩，每条成绩只解析一次考试日期，同时累加：班级按考试日期的统计与分科统计、
+ * 每名学生最近两次考试的统计。各累加器只保留所需的日期槽位，与成绩顺序无关，
+ * 因此无需排序，也可按分片累加后合并（并行模式）
+ */
+final class ClassSnapshot {
+
+    private final Map<LocalDate, DateStats> byDate = new HashMap<>();
+    private final Map<Long, StudentTrack> byStudent = new HashMap<>();
+
+    static ClassSnapshot of(List<Score> scores, AnalysisExecutor executor) {
+        return executor.reduce(scores, ClassSnapshot::new, ClassSnapshot::accept, ClassSnapshot::combine);
+    }
+
+    /**
+     * 成绩的考试日期：优先取考试日期，没有考试时取录入日期
+     */
+    static LocalDate resolveExamDate(Score score) {
+        if (score == null) {
+            return null;
+        }
+        if (score.getExam() != null && score.getExam().getExamDate() != null) {
+            return score.getExam().getExamDate();
+        }
+        if (score.getRecordedAt() != null) {
+            return score.getRecordedAt().toLocalDate();
+        }
+        return null;
+    }
+
+    private void accept(Score score) {
+        Student student = score.getStudent();
+        StudentTrack track = byStudent.computeIfAbsent(student.getId(), id -> new StudentTrack(student));
+        LocalDate date = resolveExamDate(score);
+        if (date == null) {
+            return;
+        }
+        DateStats dateStats = byDate.computeIfAbsent(date, d -> new DateStats());
+        ScoreStats studentStats = track.slot(date);
+        Double value = score.getValue();
+        if (value == null) {
+            return;
+        }
+        dateStats.all.accept(value);
+        dateStats.byCourse.computeIfAbsent(score.getCourse().getName(), name -> new ScoreStats()).accept(value);
+        if (studentStats != null) {
+            studentStats.accept(value);
+        }
+    }
+
+    private ClassSnapshot combine(ClassSnapshot other) {
+        other.byDate.forEach((date, stats) -> byDate.merge(date, stats, DateStats::combine));
+        other.byStudent.forEach((studentId, track) -> byStudent.merge(studentId, track, StudentTrack::combine));
+        return this;
+    }
+
+    /**
+     * 班级最近一次考试日期的统计，没有考试时为空统计
+     */
+    DateStats latest() {
+        return dateAt(0);
+    }
+
+    /**
+     * 班级倒数第二次考试日期的统计，不存在时为空统计
+     */
+    DateStats previous() {
+        return dateAt(1);
+    }
+
+    private DateStats dateAt(int fromLatest) {
+        LocalDate first = null;
+        LocalDate second = null;
+        for (LocalDate date : byDate.keySet()) {
+            if (first == null || date.isAfter(first)) {
+                second = first;
+                first = date;
+            } else if (second == null || date.isAfter(second)) {
+                second = date;
+            }
+        }
+        LocalDate date = fromLatest == 0 ? first : second;
+        return date == null ? new DateStats() : byDate.get(date);
+    }
+
+    /**
+     * 有成绩的学生（按学生ID）
+     */
+    Map<Long, StudentTrack> students() {
+        return byStudent;
+    }
+
+    StudentTrack student(Long studentId) {
+        return byStudent.get(studentId);
+    }
+
+    /**
+     * 某一考试日期的班级统计与分科统计（分科按首次出现的顺序）
+     */
+    static final class DateStats {
+        final ScoreStats all = new ScoreStats();
+        final Map<String, ScoreStats> byCourse = new LinkedHashMap<>();
+
+        private DateStats combine(DateStats other) {
+            all.combine(other.all);
+            other.byCourse.forEach((courseName, stats) -> byCourse.merge(courseName, stats, ScoreStats::combine));
+            return this;
+        }
+    }
+
+    /**
+     * 单个学生最近两次考试日期的统计
+     */
+    static final class StudentTrack {
+        final Student student;
+        private LocalDate latestDate;
+        private ScoreStats latestStats;
+        private LocalDate previousDate;
+        private ScoreStats previousStats;
+
+        private StudentTrack(Student student) {
+            this.student = student;
+        }
+
+        /**
+         * 返回该日期对应的统计槽位；比已有两个日期都早时返回 null（不计入）
+         */
+        private ScoreStats slot(LocalDate date) {
+            if (date.equals(latestDate)) {
+                return latestStats;
+            }
+            if (latestDate == null || date.isAfter(latestDate)) {
+                previousDate = latestDate;
+                previousStats = latestStats;
+                latestDate = date;
+                latestStats = new ScoreStats();
+                return latestStats;
+            }
+            if (date.equals(previousDate)) {
+                return previousStats;
+            }
+            if (previousDate == null || date.isAfter(previousDate)) {
+                previousDate = date;
+                previousStats = new ScoreStats();
+                return previousStats;
+            }
+            return null;
+        }
+
+        private StudentTrack combine(StudentTrack other) {
+            if (other.previousDate != null) {
+                merge(other.previousDate, other.previousStats);
+            }
+            if (other.latestDate != null) {
+                merge(other.latestDate, other.latestStats);
+            }
+            return this;
+        }
+
+        private void merge(LocalDate date, ScoreStats stats) {
+            ScoreStats slot = slot(date);
+            if (slot != null) {
+                slot.combine(stats);
+            }
+        }
+
+        ScoreStats currentStats() {
+            return latestStats != null ? latestStats : new ScoreStats();
+        }
+
+        double currentAverage() {
+            return currentStats().mean();
+        }
+
+        /**
+         * 上一次考试平均分，没有上一次考试时等于本次
+         */
+        double previousAverage() {
+            double current = currentAverage();
+            return previousStats != null ? previousStats.mean(current) : current;
+        }
+
+        double deltaAverage() {
+            return currentAverage() - previousAverage();
+        }
+
+        /**
+         * 风险学生，规则见 {@link StudentSnapshot#isRisk(long, long, double, double)}
+         */
+        boolean isRisk() {
+            ScoreStats current = currentStats();
+            return StudentSnapshot.isRisk(current.count(), current.failCount(), current.mean(), deltaAverage());
+        }
+    }
+}
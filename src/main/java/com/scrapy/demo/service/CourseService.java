@@ -1,11 +1,17 @@
 package com.scrapy.demo.service;
 
 import com.scrapy.demo.domain.Course;
+import com.scrapy.demo.domain.ScoreChange;
 import com.scrapy.demo.repository.CourseRepository;
+import com.scrapy.demo.repository.ScoreRepository;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 课程服务
@@ -15,9 +21,21 @@ import java.util.List;
 public class CourseService {
 
     private final CourseRepository courseRepository;
+    private final ScoreRepository scoreRepository;
+    private final ScoreAggregateService aggregateService;
+    private final AnalysisCacheEvictor cacheEvictor;
+    private final ScoreChangeService changeService;
+    private final StudentSnapshotService snapshotService;
 
-    public CourseService(CourseRepository courseRepository) {
+    public CourseService(CourseRepository courseRepository, ScoreRepository scoreRepository,
+                         ScoreAggregateService aggregateService, AnalysisCacheEvictor cacheEvictor,
+                         ScoreChangeService changeService, StudentSnapshotService snapshotService) {
         this.courseRepository = courseRepository;
+        this.scoreRepository = scoreRepository;
+        this.aggregateService = aggregateService;
+        this.cacheEvictor = cacheEvictor;
+        this.changeService = changeService;
+        this.snapshotService = snapshotService;
     }
 
     /**
@@ -27,6 +45,13 @@ public class CourseService {
         return courseRepository.findAll();
     }
 
+    /**
+     * 游标分页查询课程，teacherName 为空时不筛选
+     */
+    public List<Course> listPage(String teacherName, long after, int limit) {
+        return courseRepository.findPage(after, teacherName, PageRequest.ofSize(limit));
+    }
+
     /**
      * 根据ID查找课程
      */
@@ -68,7 +93,9 @@ public class CourseService {
         existing.setName(course.getName());
         existing.setCredit(course.getCredit());
         existing.setTeacherName(course.getTeacherName());
-        return courseRepository.save(existing);
+        Course saved = courseRepository.save(existing);
+        cacheEvictor.coursesChanged();
+        return saved;
     }
 
     /**
@@ -80,7 +107,20 @@ public class CourseService {
         if (course == null) {
             return false;
         }
+        // 成绩随课程级联删除，先记下其贡献以便扣除聚合，并记录删除变更
+        ScoreAggregateService.Changes changes = aggregateService.changes();
+        List<ScoreChange> deleted = new ArrayList<>();
+        Set<Long> studentIds = new HashSet<>();
+        scoreRepository.findWithStudentByCourseId(id).forEach(score -> {
+            changes.remove(ScoreAggregateService.Contribution.of(score));
+            deleted.add(ScoreChange.deleted(score));
+            studentIds.add(score.getStudent().getId());
+        });
         courseRepository.delete(course);
+        courseRepository.flush();
+        aggregateService.apply(changes);
+        changeService.recordAll(deleted);
+        snapshotService.refresh(studentIds);
         return true;
     }
 }
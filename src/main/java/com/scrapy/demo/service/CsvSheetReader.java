@@ -0,0 +1,157 @@
+package com.scrapy.demo.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * CSV 流式读取（RFC 4180，UTF-8，可带 BOM）
+ * 从通道按 64KB 块读入复用的字节/字符缓冲区，逐字符状态机切分字段，不按行构造中间字符串；
+ * 解析结果与 XLSX 共用 {@link SheetRow}，numericColumns 中可解析为数字的单元格转为 Double，
+ * 使两种格式走同一套校验规则
+ */
+public final class CsvSheetReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Set<Integer> numericColumns;
+    private final Consumer<SheetRow> handler;
+    private final StringBuilder field = new StringBuilder();
+
+    private List<Object> cells = new ArrayList<>();
+    private int rowCount;
+    private boolean inQuotes;
+    private boolean quoteInQuotes;
+    private boolean rowStarted;
+    private boolean firstChar = true;
+
+    private CsvSheetReader(Set<Integer> numericColumns, Consumer<SheetRow> handler) {
+        this.numericColumns = numericColumns;
+        this.handler = handler;
+    }
+
+    /**
+     * 逐行读取；rowNum 为从 1 开始的记录序号（空行计入序号但不回调），与文本编辑器中的行号一致
+     */
+    public static void read(ReadableByteChannel channel, Set<Integer> numericColumns,
+                            Consumer<SheetRow> handler) throws IOException {
+        new CsvSheetReader(numericColumns, handler).parse(channel);
+    }
+
+    private void parse(ReadableByteChannel channel) throws IOException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+        CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+        boolean eof = false;
+        while (!eof) {
+            eof = channel.read(bytes) < 0;
+            bytes.flip();
+            decoder.decode(bytes, chars, eof);
+            if (eof) {
+                decoder.flush(chars);
+            }
+            bytes.compact();
+            chars.flip();
+            consume(chars);
+            chars.clear();
+        }
+        if (rowStarted || field.length() > 0 || !cells.isEmpty()) {
+            endRow();
+        }
+    }
+
+    private void consume(CharBuffer chars) {
+        while (chars.hasRemaining()) {
+            char c = chars.get();
+            if (firstChar) {
+                firstChar = false;
+                if (c == '\uFEFF') {
+                    continue;
+                }
+            }
+            if (inQuotes) {
+                if (quoteInQuotes) {
+                    quoteInQuotes = false;
+                    if (c == '"') {
+                        field.append('"');
+                        continue;
+                    }
+                    inQuotes = false;
+                    // 引号字段结束，按普通字符继续处理分隔符
+                } else if (c == '"') {
+                    quoteInQuotes = true;
+                    continue;
+                } else {
+                    field.append(c);
+                    continue;
+                }
+            }
+            switch (c) {
+                case ',' -> endField();
+                case '\n' -> endRow();
+                case '\r' -> {
+                }
+                case '"' -> {
+                    if (field.length() == 0) {
+                        inQuotes = true;
+                        rowStarted = true;
+                    } else {
+                        field.append(c);
+                    }
+                }
+                default -> {
+                    field.append(c);
+                    rowStarted = true;
+                }
+            }
+        }
+    }
+
+    private void endField() {
+        int column = cells.size();
+        String text = field.toString();
+        field.setLength(0);
+        rowStarted = true;
+        if (text.isEmpty()) {
+            cells.add(null);
+        } else if (numericColumns.contains(column)) {
+            cells.add(parseNumber(text));
+        } else {
+            cells.add(text);
+        }
+    }
+
+    private void endRow() {
+        rowCount++;
+        if (inQuotes && quoteInQuotes) {
+            inQuotes = false;
+            quoteInQuotes = false;
+        }
+        if (!rowStarted && field.length() == 0 && cells.isEmpty()) {
+            return; // 空行
+        }
+        endField();
+        handler.accept(new SheetRow(rowCount, Collections.unmodifiableList(cells)));
+        cells = new ArrayList<>();
+        rowStarted = false;
+    }
+
+    private static Object parseNumber(String text) {
+        try {
+            return Double.valueOf(text.trim());
+        } catch (NumberFormatException e) {
+            return text;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.scrapy.demo.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * CSV 流式写出（RFC 4180，UTF-8 带 BOM，便于 Excel 直接打开中文）
+ * 字段写入复用的字符缓冲区，满后编码到字节缓冲区并写入通道；close 只刷出缓冲区，不关闭通道
+ */
+public final class CsvSheetWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+    private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE * 3);
+
+    public CsvSheetWriter(WritableByteChannel channel) throws IOException {
+        this.channel = channel;
+        append("\uFEFF");
+    }
+
+    /**
+     * 写出一行；null 写为空字段，整数值的 Double 去掉小数部分
+     */
+    public void writeRow(Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                append(",");
+            }
+            writeField(values[i]);
+        }
+        append("\r\n");
+    }
+
+    @Override
+    public void close() throws IOException {
+        drain(true);
+    }
+
+    private void writeField(Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Double number) {
+            double d = number;
+            append(d == Math.rint(d) && !Double.isInfinite(d) ? String.valueOf((long) d) : String.valueOf(d));
+            return;
+        }
+        String text = value.toString();
+        if (!needsQuoting(text)) {
+            append(text);
+            return;
+        }
+        append("\"");
+        int from = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '"') {
+                append(text.subSequence(from, i + 1));
+                append("\"");
+                from = i + 1;
+            }
+        }
+        append(text.subSequence(from, text.length()));
+        append("\"");
+    }
+
+    private static boolean needsQuoting(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void append(CharSequence text) throws IOException {
+        int offset = 0;
+        while (offset < text.length()) {
+            if (!chars.hasRemaining()) {
+                drain(false);
+            }
+            int length = Math.min(chars.remaining(), text.length() - offset);
+            chars.append(text, offset, offset + length);
+            offset += length;
+        }
+    }
+
+    private void drain(boolean endOfInput) throws IOException {
+        chars.flip();
+        CoderResult result;
+        do {
+            result = encoder.encode(chars, bytes, endOfInput);
+            if (result.isError()) {
+                result.throwException();
+            }
+            writeBytes();
+        } while (result.isOverflow());
+        if (endOfInput) {
+            encoder.flush(bytes);
+            writeBytes();
+            encoder.reset();
+        }
+        chars.compact();
+    }
+
+    private void writeBytes() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
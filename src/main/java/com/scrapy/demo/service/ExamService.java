@@ -1,24 +1,47 @@
 package com.scrapy.demo.service;
 
 import com.scrapy.demo.domain.Exam;
+import com.scrapy.demo.domain.ScoreChange;
 import com.scrapy.demo.repository.ExamRepository;
+import com.scrapy.demo.repository.ScoreKeyView;
+import com.scrapy.demo.repository.ScoreRepository;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Objects;
 
 @Service
 public class ExamService {
 
     private final ExamRepository examRepository;
+    private final ScoreAggregateService aggregateService;
+    private final AnalysisCacheEvictor cacheEvictor;
+    private final ScoreRepository scoreRepository;
+    private final ScoreChangeService changeService;
+    private final StudentSnapshotService snapshotService;
 
-    public ExamService(ExamRepository examRepository) {
+    public ExamService(ExamRepository examRepository, ScoreAggregateService aggregateService,
+                       AnalysisCacheEvictor cacheEvictor, ScoreRepository scoreRepository,
+                       ScoreChangeService changeService, StudentSnapshotService snapshotService) {
         this.examRepository = examRepository;
+        this.aggregateService = aggregateService;
+        this.cacheEvictor = cacheEvictor;
+        this.scoreRepository = scoreRepository;
+        this.changeService = changeService;
+        this.snapshotService = snapshotService;
     }
 
     public List<Exam> listAll() {
         return examRepository.findAll();
     }
 
+    public List<Exam> listPage(LocalDate from, LocalDate to, long after, int limit) {
+        return examRepository.findPage(after, from, to, PageRequest.ofSize(limit));
+    }
+
     public Exam findById(Long id) {
         return examRepository.findById(id).orElse(null);
     }
@@ -27,26 +50,50 @@ public class ExamService {
         return examRepository.save(exam);
     }
 
+    @Transactional
     public Exam update(Long id, Exam payload) {
         Exam existing = examRepository.findById(id).orElse(null);
         if (existing == null) {
             return null;
         }
+        LocalDate oldDate = existing.getExamDate();
         if (payload.getName() != null) {
             existing.setName(payload.getName());
         }
         if (payload.getExamDate() != null) {
             existing.setExamDate(payload.getExamDate());
         }
-        return examRepository.save(existing);
+        Exam saved = examRepository.save(existing);
+        // 考试日期决定学生快照中的本次/上次考试
+        if (!Objects.equals(oldDate, saved.getExamDate())) {
+            snapshotService.refresh(studentIdsOf(scoreRepository.findKeysByExamId(id)));
+        }
+        cacheEvictor.examsChanged();
+        return saved;
     }
 
+    @Transactional
     public boolean delete(Long id) {
         Exam existing = examRepository.findById(id).orElse(null);
         if (existing == null) {
             return false;
         }
+        // 成绩的考试关联将被置空，记为成绩修改
+        List<ScoreKeyView> keys = scoreRepository.findKeysByExamId(id);
+        List<ScoreChange> detached = keys.stream()
+                .map(key -> new ScoreChange(key.getId(), ScoreChange.Type.UPDATE, key.getStudentId(), key.getCourseId(),
+                        null, key.getValue(), key.getValue()))
+                .toList();
         examRepository.delete(existing);
+        // 该考试的聚合随之失效
+        aggregateService.discardExam(id);
+        changeService.recordAll(detached);
+        snapshotService.refresh(studentIdsOf(keys));
+        cacheEvictor.examsChanged();
         return true;
     }
+
+    private List<Long> studentIdsOf(List<ScoreKeyView> keys) {
+        return keys.stream().map(ScoreKeyView::getStudentId).distinct().toList();
+    }
 }
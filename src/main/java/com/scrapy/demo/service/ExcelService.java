@@ -3,20 +3,41 @@ package com.scrapy.demo.service;
 import com.scrapy.demo.domain.Course;
 import com.scrapy.demo.domain.Exam;
 import com.scrapy.demo.domain.Score;
+import com.scrapy.demo.domain.ScoreChange;
 import com.scrapy.demo.domain.Student;
 import com.scrapy.demo.repository.CourseRepository;
 import com.scrapy.demo.repository.ExamRepository;
+import com.scrapy.demo.repository.ScoreBatchRepository;
+import com.scrapy.demo.repository.ScoreExportRow;
+import com.scrapy.demo.repository.ScoreKeyView;
 import com.scrapy.demo.repository.ScoreRepository;
+import com.scrapy.demo.repository.StudentExportRow;
 import com.scrapy.demo.repository.StudentRepository;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Excel导入导出服务
@@ -25,164 +46,230 @@ import java.util.*;
 @Service
 public class ExcelService {
 
+    private static final int IN_CHUNK_SIZE = 500;
+    private static final int ROW_WINDOW = 500;
+
+    private static final String[] STUDENT_HEADERS = {"学号", "姓名", "班级", "专业"};
+    private static final int[] STUDENT_COLUMN_WIDTHS = {15, 12, 16, 24};
+    private static final String[] SCORE_HEADERS = {"学号", "学生姓名", "课程名称", "考试名称", "成绩", "记录时间"};
+    private static final int[] SCORE_COLUMN_WIDTHS = {15, 12, 20, 20, 8, 26};
+    private static final Set<Integer> SCORE_NUMERIC_COLUMNS = Set.of(3);
+    /**
+     * 多工作表导入时解析与写入之间的队列容量（批），限制已解析未写入的行数
+     */
+    private static final int SHEET_QUEUE_CAPACITY = 8;
+
     private final StudentRepository studentRepository;
     private final CourseRepository courseRepository;
     private final ExamRepository examRepository;
     private final ScoreRepository scoreRepository;
+    private final ScoreAggregateService aggregateService;
+    private final AnalysisCacheEvictor cacheEvictor;
+    private final ScoreChangeService changeService;
+    private final StudentSnapshotService snapshotService;
+    private final int batchSize;
 
     public ExcelService(StudentRepository studentRepository, CourseRepository courseRepository, 
-                       ExamRepository examRepository, ScoreRepository scoreRepository) {
+                       ExamRepository examRepository, ScoreRepository scoreRepository,
+                       ScoreAggregateService aggregateService, AnalysisCacheEvictor cacheEvictor,
+                       ScoreChangeService changeService, StudentSnapshotService snapshotService,
+                       @Value("${app.import.batch-size:1000}") int batchSize) {
         this.studentRepository = studentRepository;
         this.courseRepository = courseRepository;
         this.examRepository = examRepository;
         this.scoreRepository = scoreRepository;
+        this.aggregateService = aggregateService;
+        this.cacheEvictor = cacheEvictor;
+        this.changeService = changeService;
+        this.snapshotService = snapshotService;
+        this.batchSize = batchSize;
     }
 
     /**
      * 导出学生信息到Excel
      */
+    @Transactional(readOnly = true)
     public byte[] exportStudents() throws Exception {
-        Workbook workbook = new XSSFWorkbook();
-        Sheet sheet = workbook.createSheet("学生信息");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportStudents(out);
+        return out.toByteArray();
+    }
 
-        // 创建表头
-        Row headerRow = sheet.createRow(0);
-        String[] headers = {"学号", "姓名", "班级", "专业"};
-        for (int i = 0; i < headers.length; i++) {
-            Cell cell = headerRow.createCell(i);
-            cell.setCellValue(headers[i]);
-            CellStyle style = workbook.createCellStyle();
-            Font font = workbook.createFont();
-            font.setBold(true);
-            style.setFont(font);
-            cell.setCellStyle(style);
+    /**
+     * 导出学生信息到输出流
+     * SXSSF 只在内存中保留最近 ROW_WINDOW 行，其余行写入临时文件；学生以投影行按游标分批读取，不进入持久化上下文
+     */
+    @Transactional(readOnly = true)
+    public void exportStudents(OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_WINDOW);
+        try (Stream<StudentExportRow> students = studentRepository.streamExportRows()) {
+            Sheet sheet = createExportSheet(workbook, "学生信息", STUDENT_HEADERS, STUDENT_COLUMN_WIDTHS);
+            int[] rowNum = {1};
+            students.forEach(student -> {
+                Row row = sheet.createRow(rowNum[0]++);
+                row.createCell(0).setCellValue(student.studentNumber());
+                row.createCell(1).setCellValue(student.name());
+                row.createCell(2).setCellValue(student.clazz());
+                row.createCell(3).setCellValue(student.major());
+            });
+            workbook.write(out);
+        } finally {
+            workbook.close();
+            workbook.dispose();
         }
+    }
 
-        // 填充数据
-        List<Student> students = studentRepository.findAll();
-        int rowNum = 1;
-        for (Student student : students) {
-            Row row = sheet.createRow(rowNum++);
-            row.createCell(0).setCellValue(student.getStudentNumber());
-            row.createCell(1).setCellValue(student.getName());
-            row.createCell(2).setCellValue(student.getClazz());
-            row.createCell(3).setCellValue(student.getMajor());
-        }
+    /**
+     * 导出成绩信息到Excel
+     */
+    @Transactional(readOnly = true)
+    public byte[] exportScores() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportScores(out);
+        return out.toByteArray();
+    }
 
-        // 调整列宽
-        for (int i = 0; i < headers.length; i++) {
-            sheet.autoSizeColumn(i);
+    /**
+     * 导出成绩信息到输出流
+     * 成绩以投影行按游标分批读取，不进入持久化上下文
+     */
+    @Transactional(readOnly = true)
+    public void exportScores(OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_WINDOW);
+        try (Stream<ScoreExportRow> scores = scoreRepository.streamExportRows()) {
+            Sheet sheet = createExportSheet(workbook, "成绩信息", SCORE_HEADERS, SCORE_COLUMN_WIDTHS);
+            int[] rowNum = {1};
+            scores.forEach(score -> {
+                Row row = sheet.createRow(rowNum[0]++);
+                row.createCell(0).setCellValue(score.studentNumber());
+                row.createCell(1).setCellValue(score.studentName());
+                row.createCell(2).setCellValue(score.courseName());
+                row.createCell(3).setCellValue(score.examName() != null ? score.examName() : "");
+                row.createCell(4).setCellValue(score.value());
+                row.createCell(5).setCellValue(score.recordedAt() != null ?
+                        score.recordedAt().toString() : "");
+            });
+            workbook.write(out);
+        } finally {
+            workbook.close();
+            workbook.dispose();
         }
+    }
 
-        // 转换为字节数组
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        workbook.write(out);
-        workbook.close();
+    /**
+     * 导出学生信息为 CSV（投影行流式读取，与 Excel 导出相同）
+     */
+    @Transactional(readOnly = true)
+    public void exportStudentsCsv(OutputStream out) throws IOException {
+        try (Stream<StudentExportRow> students = studentRepository.streamExportRows();
+             CsvSheetWriter writer = new CsvSheetWriter(Channels.newChannel(out))) {
+            writer.writeRow((Object[]) STUDENT_HEADERS);
+            for (Iterator<StudentExportRow> it = students.iterator(); it.hasNext(); ) {
+                StudentExportRow student = it.next();
+                writer.writeRow(student.studentNumber(), student.name(), student.clazz(), student.major());
+            }
+        }
+    }
 
-        return out.toByteArray();
+    /**
+     * 导出成绩信息为 CSV
+     */
+    @Transactional(readOnly = true)
+    public void exportScoresCsv(OutputStream out) throws IOException {
+        try (Stream<ScoreExportRow> scores = scoreRepository.streamExportRows();
+             CsvSheetWriter writer = new CsvSheetWriter(Channels.newChannel(out))) {
+            writer.writeRow((Object[]) SCORE_HEADERS);
+            for (Iterator<ScoreExportRow> it = scores.iterator(); it.hasNext(); ) {
+                ScoreExportRow score = it.next();
+                writer.writeRow(score.studentNumber(), score.studentName(), score.courseName(),
+                        score.examName() != null ? score.examName() : "", score.value(),
+                        score.recordedAt() != null ? score.recordedAt().toString() : "");
+            }
+        }
     }
 
     /**
-     * 导出成绩信息到Excel
+     * 创建带加粗表头和固定列宽（字符数）的导出工作表
+     * 不使用 autoSizeColumn：它需要逐格测量字体，且流式窗口外的行已不在内存中
      */
-    public byte[] exportScores() throws Exception {
-        Workbook workbook = new XSSFWorkbook();
-        Sheet sheet = workbook.createSheet("成绩信息");
+    private Sheet createExportSheet(SXSSFWorkbook workbook, String name, String[] headers, int[] columnWidths) {
+        Sheet sheet = workbook.createSheet(name);
+        CellStyle style = workbook.createCellStyle();
+        Font font = workbook.createFont();
+        font.setBold(true);
+        style.setFont(font);
 
-        // 创建表头
         Row headerRow = sheet.createRow(0);
-        String[] headers = {"学号", "学生姓名", "课程名称", "考试名称", "成绩", "记录时间"};
         for (int i = 0; i < headers.length; i++) {
             Cell cell = headerRow.createCell(i);
             cell.setCellValue(headers[i]);
-            CellStyle style = workbook.createCellStyle();
-            Font font = workbook.createFont();
-            font.setBold(true);
-            style.setFont(font);
             cell.setCellStyle(style);
+            sheet.setColumnWidth(i, columnWidths[i] * 256);
         }
-
-        // 填充数据
-        List<Score> scores = scoreRepository.findAll();
-        int rowNum = 1;
-        for (Score score : scores) {
-            Row row = sheet.createRow(rowNum++);
-            row.createCell(0).setCellValue(score.getStudent().getStudentNumber());
-            row.createCell(1).setCellValue(score.getStudent().getName());
-            row.createCell(2).setCellValue(score.getCourse().getName());
-            row.createCell(3).setCellValue(score.getExam() != null ? score.getExam().getName() : "");
-            row.createCell(4).setCellValue(score.getValue());
-            row.createCell(5).setCellValue(score.getRecordedAt() != null ? 
-                    score.getRecordedAt().toString() : "");
-        }
-
-        // 调整列宽
-        for (int i = 0; i < headers.length; i++) {
-            sheet.autoSizeColumn(i);
-        }
-
-        // 转换为字节数组
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        workbook.write(out);
-        workbook.close();
-
-        return out.toByteArray();
+        return sheet;
     }
 
     /**
      * 导入学生信息
-     * Excel格式：学号、姓名、班级、专业
+     * Excel格式：学号、姓名、班级、专业；按行流式解析
      */
     @Transactional
     public Map<String, Object> importStudents(MultipartFile file) throws Exception {
+        return importStudentRows(handler -> readFirstSheet(file, handler));
+    }
+
+    /**
+     * 从 CSV 导入学生信息，列顺序与 Excel 相同
+     */
+    @Transactional
+    public Map<String, Object> importStudentsCsv(MultipartFile file) throws Exception {
+        return importStudentRows(handler -> readCsv(file, Set.of(), handler));
+    }
+
+    private Map<String, Object> importStudentRows(RowSource source) throws Exception {
         Map<String, Object> result = new LinkedHashMap<>();
         List<String> successMessages = new ArrayList<>();
         List<String> errorMessages = new ArrayList<>();
+        Set<String> importedClasses = new HashSet<>();
+
+        source.read(row -> {
+            int rowNum = row.rowNum();
+            if (rowNum == 1) return; // 跳过表头
+
+            try {
+                // 读取单元格数据
+                String studentNumber = row.getString(0);
+                String name = row.getString(1);
+                String clazz = row.getString(2);
+                String major = row.getString(3);
+
+                // 数据验证
+                if (studentNumber == null || studentNumber.isEmpty()) {
+                    errorMessages.add(String.format("第 %d 行：学号不能为空", rowNum));
+                    return;
+                }
+                if (name == null || name.isEmpty()) {
+                    errorMessages.add(String.format("第 %d 行：姓名不能为空", rowNum));
+                    return;
+                }
 
-        try (InputStream is = file.getInputStream()) {
-            Workbook workbook = new XSSFWorkbook(is);
-            Sheet sheet = workbook.getSheetAt(0);
-
-            int rowNum = 0;
-            for (Row row : sheet) {
-                rowNum++;
-                if (rowNum == 1) continue; // 跳过表头
-
-                try {
-                    // 读取单元格数据
-                    String studentNumber = getCellStringValue(row.getCell(0));
-                    String name = getCellStringValue(row.getCell(1));
-                    String clazz = getCellStringValue(row.getCell(2));
-                    String major = getCellStringValue(row.getCell(3));
-
-                    // 数据验证
-                    if (studentNumber == null || studentNumber.isEmpty()) {
-                        errorMessages.add(String.format("第 %d 行：学号不能为空", rowNum));
-                        continue;
-                    }
-                    if (name == null || name.isEmpty()) {
-                        errorMessages.add(String.format("第 %d 行：姓名不能为空", rowNum));
-                        continue;
-                    }
-
-                    // 检查是否已存在
-                    if (studentRepository.findByStudentNumber(studentNumber).isPresent()) {
-                        errorMessages.add(String.format("第 %d 行：学号已存在：%s", rowNum, studentNumber));
-                        continue;
-                    }
+                // 检查是否已存在
+                if (studentRepository.findByStudentNumber(studentNumber).isPresent()) {
+                    errorMessages.add(String.format("第 %d 行：学号已存在：%s", rowNum, studentNumber));
+                    return;
+                }
 
-                    // 创建并保存学生
-                    Student student = new Student(studentNumber, name, clazz, major);
-                    studentRepository.save(student);
-                    successMessages.add(String.format("第 %d 行：学生 %s 导入成功", rowNum, name));
+                // 创建并保存学生
+                Student student = new Student(studentNumber, name, clazz, major);
+                studentRepository.save(student);
+                importedClasses.add(clazz);
+                successMessages.add(String.format("第 %d 行：学生 %s 导入成功", rowNum, name));
 
-                } catch (Exception e) {
-                    errorMessages.add(String.format("第 %d 行：处理失败 - %s", rowNum, e.getMessage()));
-                }
+            } catch (Exception e) {
+                errorMessages.add(String.format("第 %d 行：处理失败 - %s", rowNum, e.getMessage()));
             }
-
-            workbook.close();
-        }
+        });
+        cacheEvictor.classesChanged(importedClasses);
 
         result.put("total", successMessages.size() + errorMessages.size());
         result.put("successCount", successMessages.size());
@@ -196,133 +283,401 @@ public class ExcelService {
     /**
      * 导入成绩信息
      * Excel格式：学号、课程名称、考试名称、成绩
+     * 边流式解析校验边按批写入：每 batchSize 行用 IN 查询加载学生/课程/考试与已有成绩，再以 JDBC 批处理写入
      */
     @Transactional
     public Map<String, Object> importScores(MultipartFile file) throws Exception {
-        Map<String, Object> result = new LinkedHashMap<>();
-        List<String> successMessages = new ArrayList<>();
-        List<String> errorMessages = new ArrayList<>();
+        return importScoreSheet(handler -> readFirstSheet(file, handler));
+    }
 
-        try (InputStream is = file.getInputStream()) {
-            Workbook workbook = new XSSFWorkbook(is);
-            Sheet sheet = workbook.getSheetAt(0);
+    /**
+     * 从 CSV 导入成绩信息，列顺序与 Excel 相同；成绩列按数值解析，校验与写入逻辑与 Excel 共用
+     */
+    @Transactional
+    public Map<String, Object> importScoresCsv(MultipartFile file) throws Exception {
+        return importScoreSheet(handler -> readCsv(file, SCORE_NUMERIC_COLUMNS, handler));
+    }
 
-            int rowNum = 0;
-            for (Row row : sheet) {
-                rowNum++;
-                if (rowNum == 1) continue; // 跳过表头
+    /**
+     * 导入多工作表成绩（如每个班级一个工作表），隐藏工作表跳过
+     * 各工作表在虚拟线程上并发解析校验，按批放入有界队列；调用线程作为唯一写入方在本事务内串行写库，
+     * 总耗时接近最大工作表的解析时间加上写入时间。结果信息以工作表名标注来源
+     */
+    @Transactional
+    public Map<String, Object> importScoresAllSheets(MultipartFile file) throws Exception {
+        Path temp = copyToTemp(file);
+        try {
+            XlsxSheetReader.Sheets sheets = XlsxSheetReader.openSheets(temp);
+            List<SheetResult> results = new ArrayList<>();
+            for (int i = 0; i < sheets.size(); i++) {
+                results.add(new SheetResult(sheets.name(i), new ArrayList<>(), new ArrayList<>()));
+            }
 
+            BlockingQueue<SheetChunk> queue = new ArrayBlockingQueue<>(SHEET_QUEUE_CAPACITY);
+            try (ExecutorService parsers = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < sheets.size(); i++) {
+                    int index = i;
+                    parsers.submit(() -> {
+                        parseSheet(sheets, index, queue);
+                        return null;
+                    });
+                }
                 try {
-                    // 读取单元格数据
-                    String studentNumber = getCellStringValue(row.getCell(0));
-                    String courseName = getCellStringValue(row.getCell(1));
-                    String examName = getCellStringValue(row.getCell(2));
-                    Double scoreValue = getCellDoubleValue(row.getCell(3));
-
-                    // 数据验证
-                    if (studentNumber == null || studentNumber.isEmpty()) {
-                        errorMessages.add(String.format("第 %d 行：学号不能为空", rowNum));
-                        continue;
-                    }
-                    if (courseName == null || courseName.isEmpty()) {
-                        errorMessages.add(String.format("第 %d 行：课程名称不能为空", rowNum));
-                        continue;
-                    }
-                    if (examName == null || examName.isEmpty()) {
-                        errorMessages.add(String.format("第 %d 行：考试名称不能为空", rowNum));
-                        continue;
-                    }
-                    if (scoreValue == null || scoreValue < 0 || scoreValue > 100) {
-                        errorMessages.add(String.format("第 %d 行：成绩必须为0-100之间的数值", rowNum));
-                        continue;
+                    int finished = 0;
+                    while (finished < sheets.size()) {
+                        SheetChunk chunk = queue.take();
+                        writeChunk(chunk, results.get(chunk.sheet()));
+                        if (chunk.last()) {
+                            finished++;
+                        }
                     }
+                } catch (Exception e) {
+                    // 写入失败时中断仍在解析的工作表，避免其阻塞在队列上
+                    parsers.shutdownNow();
+                    throw e;
+                }
+            }
 
-                    // 查找学生和课程
-                    Student student = studentRepository.findByStudentNumber(studentNumber)
-                            .orElse(null);
-                    if (student == null) {
-                        errorMessages.add(String.format("第 %d 行：学生不存在：%s", rowNum, studentNumber));
-                        continue;
-                    }
+            Map<String, Object> result = new LinkedHashMap<>();
+            List<String> successMessages = new ArrayList<>();
+            List<String> errorMessages = new ArrayList<>();
+            List<Map<String, Object>> sheetSummaries = new ArrayList<>();
+            for (SheetResult sheet : results) {
+                successMessages.addAll(sheet.successMessages());
+                errorMessages.addAll(sheet.errorMessages());
+                Map<String, Object> summary = new LinkedHashMap<>();
+                summary.put("sheet", sheet.name());
+                summary.put("successCount", sheet.successMessages().size());
+                summary.put("errorCount", sheet.errorMessages().size());
+                sheetSummaries.add(summary);
+            }
+            result.put("total", successMessages.size() + errorMessages.size());
+            result.put("successCount", successMessages.size());
+            result.put("errorCount", errorMessages.size());
+            result.put("sheets", sheetSummaries);
+            result.put("successMessages", successMessages);
+            result.put("errorMessages", errorMessages);
+            return result;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
 
-                    Course course = courseRepository.findByName(courseName)
-                            .orElse(null);
-                    if (course == null) {
-                        errorMessages.add(String.format("第 %d 行：课程不存在：%s", rowNum, courseName));
-                        continue;
-                    }
+    /**
+     * 在虚拟线程上解析并校验一个工作表，每累计 batchSize 行放入一批；最后一批标记 last，读取失败时附带原因
+     */
+    private void parseSheet(XlsxSheetReader.Sheets sheets, int index, BlockingQueue<SheetChunk> queue)
+            throws InterruptedException {
+        List<ScoreSheetRow> rows = new ArrayList<>();
+        SortedMap<Integer, String> errors = new TreeMap<>();
+        String failure = null;
+        try {
+            sheets.read(index, row -> {
+                if (row.rowNum() == 1) return; // 跳过表头
+                ScoreSheetRow parsed = parseScoreRow(row, errors);
+                if (parsed != null) {
+                    rows.add(parsed);
+                }
+                if (rows.size() + errors.size() >= batchSize) {
+                    enqueue(queue, new SheetChunk(index, new ArrayList<>(rows), new TreeMap<>(errors), null, false));
+                    rows.clear();
+                    errors.clear();
+                }
+            });
+        } catch (Exception e) {
+            failure = e.getMessage();
+        }
+        queue.put(new SheetChunk(index, rows, errors, failure, true));
+    }
 
-                    Exam exam = examRepository.findByName(examName).orElse(null);
-                    if (exam == null) {
-                        errorMessages.add(String.format("第 %d 行：考试不存在：%s", rowNum, examName));
-                        continue;
-                    }
+    private static void enqueue(BlockingQueue<SheetChunk> queue, SheetChunk chunk) {
+        try {
+            queue.put(chunk);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("导入已取消", e);
+        }
+    }
 
-                    // 检查是否已存在该学生/课程/考试成绩
-                    Optional<Score> existingScore = scoreRepository.findByStudentAndCourseAndExam(student, course, exam);
-                    if (existingScore.isPresent()) {
-                        // 更新现有成绩
-                        Score score = existingScore.get();
-                        score.setValue(scoreValue);
-                        scoreRepository.save(score);
-                        successMessages.add(String.format("第 %d 行：成绩 %s-%s-%s 已更新", rowNum, 
-                                student.getName(), courseName, examName));
-                    } else {
-                        // 创建新成绩
-                        Score score = new Score();
-                        score.setStudent(student);
-                        score.setCourse(course);
-                        score.setExam(exam);
-                        score.setValue(scoreValue);
-                        scoreRepository.save(score);
-                        successMessages.add(String.format("第 %d 行：成绩 %s-%s-%s 导入成功", rowNum, 
-                                student.getName(), courseName, examName));
-                    }
+    /**
+     * 写入一批工作表数据，并把结果信息加上工作表名前缀
+     */
+    private void writeChunk(SheetChunk chunk, SheetResult sheet) {
+        List<String> successMessages = new ArrayList<>();
+        importScoreRows(chunk.rows(), successMessages, chunk.errors());
+        String prefix = "[" + sheet.name() + "] ";
+        successMessages.forEach(message -> sheet.successMessages().add(prefix + message));
+        chunk.errors().values().forEach(message -> sheet.errorMessages().add(prefix + message));
+        if (chunk.failure() != null) {
+            sheet.errorMessages().add(prefix + "读取失败 - " + chunk.failure());
+        }
+    }
 
-                } catch (Exception e) {
-                    errorMessages.add(String.format("第 %d 行：处理失败 - %s", rowNum, e.getMessage()));
-                }
+    private Map<String, Object> importScoreSheet(RowSource source) throws Exception {
+        Map<String, Object> result = new LinkedHashMap<>();
+        List<String> successMessages = new ArrayList<>();
+        // 按行号排序，保证错误信息与表格行顺序一致
+        SortedMap<Integer, String> errorMessages = new TreeMap<>();
+
+        // 每累计 batchSize 行写入一批，内存中只保留当前一批的行
+        List<ScoreSheetRow> rows = new ArrayList<>();
+        source.read(row -> {
+            if (row.rowNum() == 1) return; // 跳过表头
+            ScoreSheetRow parsed = parseScoreRow(row, errorMessages);
+            if (parsed != null) {
+                rows.add(parsed);
             }
-
-            workbook.close();
-        }
+            if (rows.size() >= batchSize) {
+                importScoreRows(rows, successMessages, errorMessages);
+                rows.clear();
+            }
+        });
+        importScoreRows(rows, successMessages, errorMessages);
 
         result.put("total", successMessages.size() + errorMessages.size());
         result.put("successCount", successMessages.size());
         result.put("errorCount", errorMessages.size());
         result.put("successMessages", successMessages);
-        result.put("errorMessages", errorMessages);
+        result.put("errorMessages", new ArrayList<>(errorMessages.values()));
 
         return result;
     }
 
     /**
-     * 获取单元格字符串值
+     * 写入一批已通过校验的成绩行
+     * 用 IN 查询一次性加载学生/课程/考试与已有成绩，新增与变更分别按批次 JDBC 写入；
+     * 每行的结果追加到 successMessages，无法解析的行按行号写入 errorMessages
      */
-    private String getCellStringValue(Cell cell) {
-        if (cell == null) {
-            return null;
+    @Transactional
+    public void importScoreRows(List<ScoreSheetRow> rows, List<String> successMessages,
+                                Map<Integer, String> errorMessages) {
+        // 预加载表格中出现的学生、课程、考试
+        Map<String, Student> studentsByNumber = new HashMap<>();
+        findInChunks(rows.stream().map(ScoreSheetRow::studentNumber).collect(Collectors.toSet()),
+                studentRepository::findByStudentNumberIn)
+                .forEach(student -> studentsByNumber.put(student.getStudentNumber(), student));
+        Map<String, Course> coursesByName = new HashMap<>();
+        findInChunks(rows.stream().map(ScoreSheetRow::courseName).collect(Collectors.toSet()),
+                courseRepository::findByNameIn)
+                .forEach(course -> coursesByName.merge(course.getName(), course, ExcelService::lowerId));
+        Map<String, Exam> examsByName = new HashMap<>();
+        findInChunks(rows.stream().map(ScoreSheetRow::examName).collect(Collectors.toSet()),
+                examRepository::findByNameIn)
+                .forEach(exam -> examsByName.merge(exam.getName(), exam, ExcelService::lowerId));
+
+        // 解析为成绩键；同一键在表中重复出现时以最后一行为准
+        List<ResolvedScore> resolved = new ArrayList<>();
+        Map<ScoreKey, ResolvedScore> latestByKey = new LinkedHashMap<>();
+        for (ScoreSheetRow row : rows) {
+            Student student = studentsByNumber.get(row.studentNumber());
+            if (student == null) {
+                errorMessages.put(row.rowNum(), String.format("第 %d 行：学生不存在：%s", row.rowNum(), row.studentNumber()));
+                continue;
+            }
+            Course course = coursesByName.get(row.courseName());
+            if (course == null) {
+                errorMessages.put(row.rowNum(), String.format("第 %d 行：课程不存在：%s", row.rowNum(), row.courseName()));
+                continue;
+            }
+            Exam exam = examsByName.get(row.examName());
+            if (exam == null) {
+                errorMessages.put(row.rowNum(), String.format("第 %d 行：考试不存在：%s", row.rowNum(), row.examName()));
+                continue;
+            }
+            ResolvedScore score = new ResolvedScore(row, student, new ScoreKey(student.getId(), course.getId(), exam.getId()));
+            resolved.add(score);
+            latestByKey.put(score.key(), score);
         }
-        switch (cell.getCellType()) {
-            case STRING:
-                return cell.getStringCellValue();
-            case NUMERIC:
-                return String.valueOf((long) cell.getNumericCellValue());
-            default:
-                return null;
+
+        // 一次查询已有成绩（按学生分块），重复数据取最小ID，与单条查询时的行为一致
+        Map<ScoreKey, ScoreKeyView> existing = new HashMap<>();
+        if (!latestByKey.isEmpty()) {
+            Set<Long> courseIds = new HashSet<>();
+            Set<Long> examIds = new HashSet<>();
+            Set<Long> studentIds = new HashSet<>();
+            latestByKey.keySet().forEach(key -> {
+                studentIds.add(key.studentId());
+                courseIds.add(key.courseId());
+                examIds.add(key.examId());
+            });
+            findInChunks(studentIds, ids -> scoreRepository.findKeys(ids, courseIds, examIds)).forEach(view -> {
+                ScoreKey key = new ScoreKey(view.getStudentId(), view.getCourseId(), view.getExamId());
+                if (latestByKey.containsKey(key)) {
+                    existing.merge(key, view, (a, b) -> a.getId() <= b.getId() ? a : b);
+                }
+            });
+        }
+
+        List<ScoreBatchRepository.ScoreRow> inserts = new ArrayList<>();
+        List<ScoreBatchRepository.ScoreRow> updates = new ArrayList<>();
+        List<ScoreChange> updateChanges = new ArrayList<>();
+        ScoreAggregateService.Changes aggregateChanges = aggregateService.changes();
+        Set<ScoreKey> seen = new HashSet<>();
+        for (ResolvedScore score : resolved) {
+            ScoreSheetRow row = score.row();
+            boolean exists = existing.containsKey(score.key()) || !seen.add(score.key());
+            successMessages.add(String.format(exists ? "第 %d 行：成绩 %s-%s-%s 已更新" : "第 %d 行：成绩 %s-%s-%s 导入成功",
+                    row.rowNum(), score.student().getName(), row.courseName(), row.examName()));
+        }
+        for (ResolvedScore score : latestByKey.values()) {
+            ScoreKey key = score.key();
+            double value = score.row().value();
+            ScoreAggregateService.Contribution after = new ScoreAggregateService.Contribution(
+                    key.studentId(), score.student().getClazz(), key.courseId(), key.examId(), value);
+            ScoreKeyView current = existing.get(key);
+            if (current == null) {
+                inserts.add(new ScoreBatchRepository.ScoreRow(null, key.studentId(), key.courseId(), key.examId(), value));
+                aggregateChanges.add(after);
+            } else if (current.getValue() == null || current.getValue() != value) {
+                updates.add(new ScoreBatchRepository.ScoreRow(current.getId(), key.studentId(), key.courseId(), key.examId(), value));
+                updateChanges.add(new ScoreChange(current.getId(), ScoreChange.Type.UPDATE, key.studentId(), key.courseId(),
+                        key.examId(), current.getValue(), value));
+                aggregateChanges.replace(new ScoreAggregateService.Contribution(key.studentId(), score.student().getClazz(),
+                        key.courseId(), key.examId(), current.getValue()), after);
+            }
+        }
+
+        List<Long> insertedIds = scoreRepository.batchInsert(inserts, batchSize);
+        scoreRepository.batchUpdateValues(updates, batchSize);
+        aggregateService.apply(aggregateChanges);
+
+        List<ScoreChange> changes = new ArrayList<>(inserts.size() + updateChanges.size());
+        for (int i = 0; i < inserts.size(); i++) {
+            ScoreBatchRepository.ScoreRow row = inserts.get(i);
+            changes.add(new ScoreChange(insertedIds.get(i), ScoreChange.Type.INSERT, row.studentId(), row.courseId(),
+                    row.examId(), null, row.value()));
         }
+        changes.addAll(updateChanges);
+        changeService.recordAll(changes);
+        snapshotService.refresh(changes.stream().map(ScoreChange::getStudentId).collect(Collectors.toSet()));
     }
 
     /**
-     * 获取单元格数值
+     * 读取并校验成绩表的一行数据，校验失败时写入 errorMessages 并返回 null
      */
-    private Double getCellDoubleValue(Cell cell) {
-        if (cell == null) {
+    static ScoreSheetRow parseScoreRow(SheetRow row, Map<Integer, String> errorMessages) {
+        int rowNum = row.rowNum();
+        try {
+            String studentNumber = row.getString(0);
+            String courseName = row.getString(1);
+            String examName = row.getString(2);
+            Double scoreValue = row.getNumber(3);
+
+            String error = validateScoreRow(rowNum, studentNumber, courseName, examName, scoreValue);
+            if (error != null) {
+                errorMessages.put(rowNum, error);
+                return null;
+            }
+            return new ScoreSheetRow(rowNum, studentNumber, courseName, examName, scoreValue);
+        } catch (Exception e) {
+            errorMessages.put(rowNum, String.format("第 %d 行：处理失败 - %s", rowNum, e.getMessage()));
             return null;
         }
-        if (cell.getCellType() == CellType.NUMERIC) {
-            return cell.getNumericCellValue();
+    }
+
+    /**
+     * 校验一行成绩数据，返回错误信息；通过时返回 null
+     */
+    private static String validateScoreRow(int rowNum, String studentNumber, String courseName, String examName, Double scoreValue) {
+        if (studentNumber == null || studentNumber.isEmpty()) {
+            return String.format("第 %d 行：学号不能为空", rowNum);
+        }
+        if (courseName == null || courseName.isEmpty()) {
+            return String.format("第 %d 行：课程名称不能为空", rowNum);
+        }
+        if (examName == null || examName.isEmpty()) {
+            return String.format("第 %d 行：考试名称不能为空", rowNum);
+        }
+        if (scoreValue == null || scoreValue < 0 || scoreValue > 100) {
+            return String.format("第 %d 行：成绩必须为0-100之间的数值", rowNum);
         }
         return null;
     }
+
+    /**
+     * 分块执行 IN 查询，避免超长参数列表
+     */
+    private static <K, V> List<V> findInChunks(Collection<K> keys, Function<List<K>, List<V>> finder) {
+        List<K> all = new ArrayList<>(keys);
+        List<V> found = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += IN_CHUNK_SIZE) {
+            found.addAll(finder.apply(all.subList(from, Math.min(from + IN_CHUNK_SIZE, all.size()))));
+        }
+        return found;
+    }
+
+    private static Course lowerId(Course a, Course b) {
+        return a.getId() <= b.getId() ? a : b;
+    }
+
+    private static Exam lowerId(Exam a, Exam b) {
+        return a.getId() <= b.getId() ? a : b;
+    }
+
+    /**
+     * 流式读取上传文件的第一个工作表
+     * 先落盘为临时文件再按只读方式打开，避免把整个压缩包解压进内存
+     */
+    private void readFirstSheet(MultipartFile file, Consumer<SheetRow> handler) throws Exception {
+        Path temp = copyToTemp(file);
+        try {
+            XlsxSheetReader.readFirstSheet(temp, handler);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static Path copyToTemp(MultipartFile file) throws IOException {
+        Path temp = Files.createTempFile("excel-import-", ".xlsx");
+        try (InputStream is = file.getInputStream()) {
+            Files.copy(is, temp, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return temp;
+    }
+
+    /**
+     * 流式读取上传的 CSV 文件
+     */
+    private void readCsv(MultipartFile file, Set<Integer> numericColumns, Consumer<SheetRow> handler) throws Exception {
+        try (ReadableByteChannel channel = Channels.newChannel(file.getInputStream())) {
+            CsvSheetReader.read(channel, numericColumns, handler);
+        }
+    }
+
+    /**
+     * 导入文件的行来源（Excel 或 CSV）
+     */
+    @FunctionalInterface
+    private interface RowSource {
+        void read(Consumer<SheetRow> handler) throws Exception;
+    }
+
+    /**
+     * 通过校验的成绩表数据行
+     */
+    public record ScoreSheetRow(int rowNum, String studentNumber, String courseName, String examName, double value) {
+    }
+
+    /**
+     * 成绩唯一键（学生, 课程, 考试）
+     */
+    private record ScoreKey(Long studentId, Long courseId, Long examId) {
+    }
+
+    private record ResolvedScore(ScoreSheetRow row, Student student, ScoreKey key) {
+    }
+
+    /**
+     * 解析线程交给写入方的一批工作表数据
+     */
+    private record SheetChunk(int sheet, List<ScoreSheetRow> rows, SortedMap<Integer, String> errors,
+                              String failure, boolean last) {
+    }
+
+    private record SheetResult(String name, List<String> successMessages, List<String> errorMessages) {
+    }
+
 }
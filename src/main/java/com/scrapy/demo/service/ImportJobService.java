@@ -0,0 +1,281 @@
+package com.scrapy.demo.service;
+
+import com.scrapy.demo.domain.ImportJob;
+import com.scrapy.demo.repository.ImportJobRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步导入任务服务
+ * 上传文件落盘后立即返回任务ID，由有界线程池逐行流式解析，每 batchSize 行提交一次
+ * （成绩写入与任务进度同一事务），服务重启后从最后提交的行继续处理未完成的任务。
+ * 上传文件保存在 app.import.job-dir（默认位于应用数据目录下，不使用会被清理的系统临时目录）。
+ * 等待中的任务通过条件更新认领，只会被处理一次；处理中的任务没有心跳，启动时一律视为上次中断的任务接着处理，
+ * 因此同一数据库只能由一个实例运行导入任务
+ */
+@Service
+public class ImportJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportJobService.class);
+
+    private final ImportJobRepository jobRepository;
+    private final ExcelService excelService;
+    private final TransactionTemplate transactionTemplate;
+    private final Path jobDir;
+    private final int batchSize;
+    private final ThreadPoolExecutor executor;
+
+    public ImportJobService(ImportJobRepository jobRepository, ExcelService excelService,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${app.import.job-dir:${app.data-dir:data}/import-jobs}") String jobDir,
+                            @Value("${app.import.job-threads:2}") int threads,
+                            @Value("${app.import.job-queue-capacity:20}") int queueCapacity,
+                            @Value("${app.import.batch-size:1000}") int batchSize) {
+        this.jobRepository = jobRepository;
+        this.excelService = excelService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jobDir = prepareJobDir(Paths.get(jobDir));
+        this.batchSize = Math.max(1, batchSize);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "import-job-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * 启动时创建并检查上传文件目录，不可写时直接启动失败，而不是等到第一次上传
+     */
+    private static Path prepareJobDir(Path dir) {
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new IllegalStateException("无法创建导入文件目录 " + dir.toAbsolutePath() + "（app.import.job-dir）", e);
+        }
+        if (!Files.isWritable(dir)) {
+            throw new IllegalStateException("导入文件目录不可写：" + dir.toAbsolutePath() + "（app.import.job-dir）");
+        }
+        return dir;
+    }
+
+    /**
+     * 提交成绩导入任务：保存上传文件并登记任务，返回时任务已进入队列
+     * 队列已满时抛出 IllegalStateException
+     */
+    public ImportJob submitScores(MultipartFile file) throws IOException {
+        Path stored = Files.createTempFile(jobDir, "scores-", ".xlsx");
+        try (InputStream is = file.getInputStream()) {
+            Files.copy(is, stored, StandardCopyOption.REPLACE_EXISTING);
+        }
+        ImportJob job = jobRepository.save(new ImportJob(ImportJob.Type.SCORES,
+                file.getOriginalFilename(), stored.toString()));
+        try {
+            executor.execute(() -> run(job.getId(), ImportJob.Status.PENDING));
+        } catch (RejectedExecutionException e) {
+            jobRepository.delete(job);
+            Files.deleteIfExists(stored);
+            throw new IllegalStateException("导入任务过多，请稍后重试");
+        }
+        return job;
+    }
+
+    public Optional<ImportJob> find(Long id) {
+        return jobRepository.findById(id);
+    }
+
+    /**
+     * 任务状态视图
+     */
+    public Map<String, Object> describe(ImportJob job) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("jobId", job.getId());
+        result.put("type", job.getType());
+        result.put("status", job.getStatus());
+        result.put("fileName", job.getFileName());
+        result.put("estimatedRows", job.getEstimatedRows());
+        result.put("processedRows", job.getProcessedRows());
+        result.put("progress", progressOf(job));
+        result.put("successCount", job.getSuccessCount());
+        result.put("errorCount", job.getErrorCount());
+        result.put("errorRows", job.getErrorRowList());
+        result.put("failureReason", job.getFailureReason());
+        result.put("createdAt", job.getCreatedAt());
+        result.put("startedAt", job.getStartedAt());
+        result.put("finishedAt", job.getFinishedAt());
+        return result;
+    }
+
+    /**
+     * 启动后恢复上次未完成的任务（等待中或处理中），已提交的行不会重复处理；
+     * 上传文件已丢失的任务直接标记为失败
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinishedJobs() {
+        List<ImportJob> unfinished = jobRepository.findByStatusInOrderByIdAsc(
+                List.of(ImportJob.Status.PENDING, ImportJob.Status.RUNNING));
+        for (ImportJob job : unfinished) {
+            if (!storedFileExists(job)) {
+                logger.warn("导入任务 {} 的上传文件 {} 已不存在，标记为失败", job.getId(), job.getStoredPath());
+                fail(job, "服务重启后上传文件已不存在（" + job.getStoredPath() + "），请重新上传");
+                continue;
+            }
+            logger.info("恢复导入任务 {}，从第 {} 行之后继续", job.getId(), job.getLastRow());
+            ImportJob.Status observed = job.getStatus();
+            try {
+                executor.execute(() -> run(job.getId(), observed));
+            } catch (RejectedExecutionException e) {
+                fail(job, "服务重启后任务队列已满，请重新上传");
+            }
+        }
+    }
+
+    /**
+     * 执行任务：先把任务从 expected 状态认领为处理中（已被认领或已结束时直接返回），
+     * 再跳过已提交的行，其余行按 batchSize 分批写入
+     */
+    void run(Long jobId, ImportJob.Status expected) {
+        Integer claimed = transactionTemplate.execute(status -> jobRepository.claim(jobId, expected));
+        if (claimed == null || claimed == 0) {
+            return;
+        }
+        ImportJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null) {
+            return;
+        }
+        if (!storedFileExists(job)) {
+            fail(job, "上传文件已不存在，请重新上传");
+            return;
+        }
+        Path file = Paths.get(job.getStoredPath());
+
+        if (job.getStartedAt() == null) {
+            job.setStartedAt(LocalDateTime.now());
+        }
+        job = jobRepository.save(job);
+
+        ChunkWriter writer = new ChunkWriter(job);
+        int resumeAfter = job.getLastRow();
+        try {
+            XlsxSheetReader.readFirstSheet(file, writer::estimate, row -> {
+                if (row.rowNum() == 1 || row.rowNum() <= resumeAfter) return; // 跳过表头与已提交的行
+                writer.accept(row);
+            });
+            writer.flush();
+            ImportJob finished = writer.job;
+            finished.setStatus(ImportJob.Status.COMPLETED);
+            finished.setFinishedAt(LocalDateTime.now());
+            jobRepository.save(finished);
+            Files.deleteIfExists(file);
+        } catch (Exception e) {
+            logger.warn("导入任务 {} 失败", jobId, e);
+            fail(writer.job, "处理失败 - " + e.getMessage());
+            deleteQuietly(file);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // 处理中的任务已按批提交，重启后从 lastRow 继续
+        executor.shutdownNow();
+    }
+
+    private void fail(ImportJob job, String reason) {
+        job.setStatus(ImportJob.Status.FAILED);
+        job.setFailureReason(reason.length() > 500 ? reason.substring(0, 500) : reason);
+        job.setFinishedAt(LocalDateTime.now());
+        jobRepository.save(job);
+    }
+
+    private static boolean storedFileExists(ImportJob job) {
+        return job.getStoredPath() != null && Files.exists(Paths.get(job.getStoredPath()));
+    }
+
+    private static Integer progressOf(ImportJob job) {
+        if (job.getStatus() == ImportJob.Status.COMPLETED) {
+            return 100;
+        }
+        Integer estimated = job.getEstimatedRows();
+        if (estimated == null || estimated <= 0) {
+            return null;
+        }
+        return Math.min(99, (int) (job.getLastRow() * 100L / estimated));
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("删除导入文件失败：{}", file, e);
+        }
+    }
+
+    /**
+     * 按批累积解析后的行；每批在独立事务中写入成绩并推进任务进度
+     */
+    private final class ChunkWriter {
+
+        private ImportJob job;
+        private final List<ExcelService.ScoreSheetRow> rows = new ArrayList<>();
+        private final SortedMap<Integer, String> errors = new TreeMap<>();
+        private int pendingRows;
+        private int lastRow;
+
+        ChunkWriter(ImportJob job) {
+            this.job = job;
+            this.lastRow = job.getLastRow();
+        }
+
+        void estimate(int lastRowHint) {
+            if (job.getEstimatedRows() == null && lastRowHint > 0) {
+                job.setEstimatedRows(lastRowHint);
+            }
+        }
+
+        void accept(SheetRow row) {
+            ExcelService.ScoreSheetRow parsed = ExcelService.parseScoreRow(row, errors);
+            if (parsed != null) {
+                rows.add(parsed);
+            }
+            lastRow = row.rowNum();
+            if (++pendingRows >= batchSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            List<String> successMessages = new ArrayList<>();
+            job = transactionTemplate.execute(status -> {
+                excelService.importScoreRows(rows, successMessages, errors);
+                job.recordChunk(lastRow, successMessages.size(), errors.values());
+                return jobRepository.save(job);
+            });
+            rows.clear();
+            errors.clear();
+            pendingRows = 0;
+        }
+    }
+}
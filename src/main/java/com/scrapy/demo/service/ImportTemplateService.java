@@ -0,0 +1,186 @@
+package com.scrapy.demo.service;
+
+import com.scrapy.demo.repository.CourseRepository;
+import com.scrapy.demo.repository.ExamRepository;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellRangeAddressList;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * 导入模板服务
+ * 模板只含表头（成绩模板附带课程/考试下拉与 0-100 分数校验），生成后缓存字节；
+ * ETag 由布局版本与下拉选项计算，多实例与重启后保持一致；
+ * 学生模板启动时生成一次，成绩模板仅在课程或考试名称列表变化时重建，从不读取成绩表
+ */
+@Service
+public class ImportTemplateService {
+
+    private static final String[] STUDENT_HEADERS = {"学号", "姓名", "班级", "专业"};
+    private static final int[] STUDENT_COLUMN_WIDTHS = {15, 12, 16, 24};
+    private static final String[] SCORE_HEADERS = {"学号", "课程名称", "考试名称", "成绩"};
+    private static final int[] SCORE_COLUMN_WIDTHS = {15, 20, 20, 8};
+    private static final String OPTIONS_SHEET = "选项";
+    /**
+     * 模板布局版本，修改表头或校验规则时递增，使客户端缓存的 ETag 失效
+     */
+    private static final String LAYOUT_VERSION = "v1";
+
+    /**
+     * 缓存的模板文件
+     */
+    public record Template(byte[] content, String etag) {
+    }
+
+    private record ScoreTemplate(String fingerprint, Template template) {
+    }
+
+    private final CourseRepository courseRepository;
+    private final ExamRepository examRepository;
+    private final Template studentTemplate;
+    private volatile ScoreTemplate scoreTemplate;
+
+    public ImportTemplateService(CourseRepository courseRepository, ExamRepository examRepository) {
+        this.courseRepository = courseRepository;
+        this.examRepository = examRepository;
+        this.studentTemplate = buildStudentTemplate();
+    }
+
+    /**
+     * 启动后预先生成成绩模板
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        scoreTemplate();
+    }
+
+    public Template studentTemplate() {
+        return studentTemplate;
+    }
+
+    /**
+     * 成绩模板：每次只查询课程/考试名称计算指纹，指纹未变时直接返回缓存
+     */
+    public Template scoreTemplate() {
+        List<String> courses = courseRepository.findAllNames();
+        List<String> exams = new ArrayList<>(new LinkedHashSet<>(examRepository.findAllNamesByRecency()));
+        String fingerprint = fingerprint(courses, exams);
+        ScoreTemplate cached = scoreTemplate;
+        if (cached != null && cached.fingerprint().equals(fingerprint)) {
+            return cached.template();
+        }
+        synchronized (this) {
+            cached = scoreTemplate;
+            if (cached == null || !cached.fingerprint().equals(fingerprint)) {
+                cached = new ScoreTemplate(fingerprint, buildScoreTemplate(fingerprint, courses, exams));
+                scoreTemplate = cached;
+            }
+            return cached.template();
+        }
+    }
+
+    private static Template buildStudentTemplate() {
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = createHeaderSheet(workbook, "学生信息", STUDENT_HEADERS, STUDENT_COLUMN_WIDTHS);
+            // 学号按文本输入，避免前导零被 Excel 去掉
+            CellStyle text = workbook.createCellStyle();
+            text.setDataFormat(workbook.createDataFormat().getFormat("@"));
+            sheet.setDefaultColumnStyle(0, text);
+            return toTemplate(workbook, DigestUtils.md5DigestAsHex(("student-" + LAYOUT_VERSION).getBytes(StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Template buildScoreTemplate(String fingerprint, List<String> courses, List<String> exams) {
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = createHeaderSheet(workbook, "成绩信息", SCORE_HEADERS, SCORE_COLUMN_WIDTHS);
+            CellStyle text = workbook.createCellStyle();
+            text.setDataFormat(workbook.createDataFormat().getFormat("@"));
+            sheet.setDefaultColumnStyle(0, text);
+
+            // 下拉选项放在隐藏工作表中，不受内联列表 255 字符的限制；导入只读取第一个工作表
+            Sheet options = workbook.createSheet(OPTIONS_SHEET);
+            writeOptions(options, 0, "课程名称", courses);
+            writeOptions(options, 1, "考试名称", exams);
+            workbook.setSheetHidden(workbook.getSheetIndex(options), true);
+
+            DataValidationHelper helper = sheet.getDataValidationHelper();
+            int lastRow = SpreadsheetVersion.EXCEL2007.getLastRowIndex();
+            addListValidation(sheet, helper, 1, "A", courses.size(), lastRow);
+            addListValidation(sheet, helper, 2, "B", exams.size(), lastRow);
+            DataValidation scoreRange = helper.createValidation(
+                    helper.createDecimalConstraint(DataValidationConstraint.OperatorType.BETWEEN, "0", "100"),
+                    new CellRangeAddressList(1, lastRow, 3, 3));
+            scoreRange.setShowErrorBox(true);
+            scoreRange.createErrorBox("成绩无效", "成绩必须为0-100之间的数值");
+            sheet.addValidationData(scoreRange);
+            return toTemplate(workbook, fingerprint);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Sheet createHeaderSheet(Workbook workbook, String name, String[] headers, int[] columnWidths) {
+        Sheet sheet = workbook.createSheet(name);
+        CellStyle style = workbook.createCellStyle();
+        Font font = workbook.createFont();
+        font.setBold(true);
+        style.setFont(font);
+
+        Row headerRow = sheet.createRow(0);
+        for (int i = 0; i < headers.length; i++) {
+            Cell cell = headerRow.createCell(i);
+            cell.setCellValue(headers[i]);
+            cell.setCellStyle(style);
+            sheet.setColumnWidth(i, columnWidths[i] * 256);
+        }
+        sheet.createFreezePane(0, 1);
+        return sheet;
+    }
+
+    private static void writeOptions(Sheet options, int column, String header, List<String> values) {
+        for (int i = 0; i <= values.size(); i++) {
+            Row row = options.getRow(i) != null ? options.getRow(i) : options.createRow(i);
+            row.createCell(column).setCellValue(i == 0 ? header : values.get(i - 1));
+        }
+    }
+
+    private static void addListValidation(Sheet sheet, DataValidationHelper helper, int column,
+                                          String optionColumn, int optionCount, int lastRow) {
+        if (optionCount == 0) {
+            return;
+        }
+        String formula = String.format("'%s'!$%s$2:$%s$%d", OPTIONS_SHEET, optionColumn, optionColumn, optionCount + 1);
+        DataValidation validation = helper.createValidation(helper.createFormulaListConstraint(formula),
+                new CellRangeAddressList(1, lastRow, column, column));
+        // XSSF 中 true 表示显示下拉箭头（与 HSSF 含义相反）
+        validation.setSuppressDropDownArrow(true);
+        validation.setShowErrorBox(true);
+        validation.createErrorBox("选项无效", "请从下拉列表中选择");
+        sheet.addValidationData(validation);
+    }
+
+    private static Template toTemplate(Workbook workbook, String etag) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        workbook.write(out);
+        return new Template(out.toByteArray(), etag);
+    }
+
+    private static String fingerprint(List<String> courses, List<String> exams) {
+        String joined = "score-" + LAYOUT_VERSION + "\u0000" + String.join("\n", courses) + "\u0000" + String.join("\n", exams);
+        return DigestUtils.md5DigestAsHex(joined.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,71 @@
+package com.scrapy.demo.service;
+
+import com.scrapy.demo.domain.LearningMaterial;
+import com.scrapy.demo.repository.LearningMaterialRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 学习资料内存索引
+ * 首次使用时一次加载全部资料（按ID排序），按课程名查找的结果在同一份索引内缓存；
+ * 资料增删改后递增版本号，下次读取时重新加载，避免推荐时逐门课程执行 LIKE '%课程%' 全表扫描
+ */
+@Service
+public class LearningMaterialIndex {
+
+    /**
+     * 没有匹配资料时的兜底条数（取ID最小的几条）
+     */
+    static final int FALLBACK_SIZE = 2;
+
+    private record Index(long version, List<LearningMaterial> materials, Map<String, List<LearningMaterial>> byCourse) {
+    }
+
+    private final LearningMaterialRepository learningMaterialRepository;
+    private final AtomicLong version = new AtomicLong();
+    private volatile Index index;
+
+    public LearningMaterialIndex(LearningMaterialRepository learningMaterialRepository) {
+        this.learningMaterialRepository = learningMaterialRepository;
+    }
+
+    /**
+     * 课程关键词包含该课程名（忽略大小写）的资料，按ID排序；没有匹配时返回兜底资料
+     */
+    public List<LearningMaterial> forCourse(String courseName) {
+        Index current = current();
+        String name = courseName == null ? "" : courseName.toLowerCase(Locale.ROOT);
+        return current.byCourse.computeIfAbsent(name, key -> {
+            List<LearningMaterial> matched = current.materials.stream()
+                    .filter(material -> material.getCourseKeyword() != null
+                            && material.getCourseKeyword().toLowerCase(Locale.ROOT).contains(key))
+                    .toList();
+            return matched.isEmpty() ? current.materials.stream().limit(FALLBACK_SIZE).toList() : matched;
+        });
+    }
+
+    /**
+     * 资料已变更，下次读取时重新加载（须在变更落库后调用）
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * 加载期间发生变更时，新索引记下的是加载前的版本号，下次读取会再次加载
+     */
+    private Index current() {
+        Index current = index;
+        long expected = version.get();
+        if (current == null || current.version != expected) {
+            current = new Index(expected, learningMaterialRepository.findAllByOrderByIdAsc(), new ConcurrentHashMap<>());
+            index = current;
+        }
+        return current;
+    }
+}
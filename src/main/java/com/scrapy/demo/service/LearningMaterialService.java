@@ -2,6 +2,7 @@
 
 import com.scrapy.demo.domain.LearningMaterial;
 import com.scrapy.demo.repository.LearningMaterialRepository;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -10,21 +11,30 @@ import java.util.List;
 public class LearningMaterialService {
 
     private final LearningMaterialRepository learningMaterialRepository;
+    private final LearningMaterialIndex materialIndex;
 
-    public LearningMaterialService(LearningMaterialRepository learningMaterialRepository) {
+    public LearningMaterialService(LearningMaterialRepository learningMaterialRepository,
+                                   LearningMaterialIndex materialIndex) {
         this.learningMaterialRepository = learningMaterialRepository;
+        this.materialIndex = materialIndex;
     }
 
     public List<LearningMaterial> listAll() {
         return learningMaterialRepository.findAllByOrderByIdAsc();
     }
 
+    public List<LearningMaterial> listPage(String courseKeyword, String type, String difficultyTag, long after, int limit) {
+        return learningMaterialRepository.findPage(after, courseKeyword, type, difficultyTag, PageRequest.ofSize(limit));
+    }
+
     public LearningMaterial findById(Long id) {
         return learningMaterialRepository.findById(id).orElse(null);
     }
 
     public LearningMaterial save(LearningMaterial material) {
-        return learningMaterialRepository.save(material);
+        LearningMaterial saved = learningMaterialRepository.save(material);
+        materialIndex.invalidate();
+        return saved;
     }
 
     public LearningMaterial update(Long id, LearningMaterial payload) {
@@ -47,7 +57,9 @@ public class LearningMaterialService {
         if (payload.getDifficultyTag() != null) {
             existing.setDifficultyTag(payload.getDifficultyTag());
         }
-        return learningMaterialRepository.save(existing);
+        LearningMaterial saved = learningMaterialRepository.save(existing);
+        materialIndex.invalidate();
+        return saved;
     }
 
     public boolean delete(Long id) {
@@ -56,6 +68,7 @@ public class LearningMaterialService {
             return false;
         }
         learningMaterialRepository.delete(existing);
+        materialIndex.invalidate();
         return true;
     }
 }
@@ -0,0 +1,219 @@
+package com.scrapy.demo.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.scrapy.demo.domain.LlmReasonEntry;
+import com.scrapy.demo.repository.LlmReasonEntryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LLM 推荐原因缓存
+ * 同一课程、趋势、分数段、与班均差距段（及提示词）的上下文得到的原因基本相同，
+ * 以量化后上下文的摘要为键缓存代理返回的原因：内存中按容量与过期时间淘汰；
+ * 开启 app.llm.cache.persistent 时同时写入 llm_reason_cache 表，内存未命中时从表中回填，重启后仍可复用；
+ * 表中过期的条目与超出 app.llm.cache.max-rows 的最旧条目由定时任务删除。
+ * 指标：llm.reason.cache.requests（result=hit/store/miss，可算命中率）、llm.reason.proxy（代理调用耗时）、
+ * llm.reason.proxy.saved（命中时按代理平均耗时估算节省的时间）
+ */
+@Service
+public class LlmReasonCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmReasonCache.class);
+
+    /**
+     * 分数按 5 分一段、与班均差距按 5 分一段量化
+     */
+    static final double SCORE_BAND = 5.0;
+    static final double GAP_BAND = 5.0;
+
+    private static final int MAX_REASON_LENGTH = 500;
+
+    private final LlmReasonEntryRepository repository;
+    private final boolean persistent;
+    private final long maxRows;
+    private final Duration ttl;
+    private final Cache<String, String> cache;
+    private final Counter memoryHits;
+    private final Counter storeHits;
+    private final Counter misses;
+    private final Timer proxyTimer;
+    private final Counter savedMillis;
+
+    public LlmReasonCache(LlmReasonEntryRepository repository,
+                          MeterRegistry meterRegistry,
+                          @Value("${app.llm.cache.max-size:10000}") long maxSize,
+                          @Value("${app.llm.cache.ttl-minutes:1440}") long ttlMinutes,
+                          @Value("${app.llm.cache.persistent:false}") boolean persistent,
+                          @Value("${app.llm.cache.max-rows:100000}") long maxRows) {
+        this.repository = repository;
+        this.persistent = persistent;
+        this.maxRows = maxRows;
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+        this.memoryHits = requests(meterRegistry, "hit");
+        this.storeHits = requests(meterRegistry, "store");
+        this.misses = requests(meterRegistry, "miss");
+        this.proxyTimer = Timer.builder("llm.reason.proxy")
+                .description("LLM 代理调用耗时")
+                .register(meterRegistry);
+        this.savedMillis = Counter.builder("llm.reason.proxy.saved")
+                .description("缓存命中时按代理平均耗时估算节省的时间")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("llm.reason.cache.requests")
+                .description("推荐原因缓存查询次数")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 上下文的缓存键：课程名（去空白、小写）、趋势、分数段、差距段与提示词拼接后取 SHA-256
+     */
+    public static String keyOf(Map<String, Object> context, Object prompt) {
+        String course = String.valueOf(context.getOrDefault("course", "")).trim().toLowerCase(Locale.ROOT);
+        String trend = String.valueOf(context.getOrDefault("trend", "稳定"));
+        String normalized = String.join("|", course, trend,
+                band(context.get("score"), SCORE_BAND, true),
+                band(context.get("differenceWithClassAvg"), GAP_BAND, false),
+                prompt == null ? "" : String.valueOf(prompt));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(normalized.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * 分数向下取整到段，差距四舍五入到最近的段（使 ±2 分以内的差距都落在 0 段）
+     */
+    private static String band(Object value, double width, boolean floor) {
+        if (!(value instanceof Number number)) {
+            return "-";
+        }
+        double scaled = number.doubleValue() / width;
+        return String.valueOf((long) (floor ? Math.floor(scaled) : Math.round(scaled)));
+    }
+
+    /**
+     * 批量查找，返回命中的键与原因；内存未命中的键在开启持久化时一次从表中回填
+     */
+    public Map<String, String> getAll(Collection<String> keys) {
+        Map<String, String> found = new HashMap<>();
+        Set<String> missing = new LinkedHashSet<>();
+        for (String key : keys) {
+            String reason = cache.getIfPresent(key);
+            if (reason != null) {
+                found.put(key, reason);
+                memoryHits.increment();
+                recordSaved();
+            } else {
+                missing.add(key);
+            }
+        }
+        if (persistent && !missing.isEmpty()) {
+            for (LlmReasonEntry entry : loadStored(missing)) {
+                if (missing.remove(entry.getCacheKey())) {
+                    cache.put(entry.getCacheKey(), entry.getReason());
+                    found.put(entry.getCacheKey(), entry.getReason());
+                    storeHits.increment();
+                    recordSaved();
+                }
+            }
+        }
+        misses.increment(missing.size());
+        return found;
+    }
+
+    /**
+     * 保存代理返回的原因（可在调用线程之外执行）
+     */
+    public void put(String key, String reason) {
+        put(key, reason, true);
+    }
+
+    /**
+     * 保存代理返回的原因；store 为 false 时只放入内存（如调用方自定义提示词的结果，不写入表）
+     */
+    public void put(String key, String reason, boolean store) {
+        cache.put(key, reason);
+        if (!store || !persistent || reason.length() > MAX_REASON_LENGTH) {
+            return;
+        }
+        try {
+            LlmReasonEntry entry = repository.findByCacheKey(key).orElseGet(() -> new LlmReasonEntry(key, reason));
+            entry.setReason(reason);
+            entry.setCreatedAt(LocalDateTime.now());
+            repository.save(entry);
+        } catch (DataAccessException ex) {
+            // 并发写入同一键时唯一约束冲突，内存中已有结果，忽略
+            logger.debug("Skip persisting llm reason {}: {}", key, ex.getMessage());
+        }
+    }
+
+    /**
+     * 定时清理表中的条目：先删除超过过期时间的，再只保留最新的 max-rows 行（同一写入时间的行一并保留）
+     */
+    @Scheduled(fixedDelayString = "${app.llm.cache.purge-interval-minutes:60}",
+            initialDelayString = "${app.llm.cache.purge-interval-minutes:60}", timeUnit = TimeUnit.MINUTES)
+    @Transactional
+    public void purge() {
+        if (!persistent) {
+            return;
+        }
+        int expired = repository.deleteByCreatedAtBefore(LocalDateTime.now().minus(ttl));
+        int overflow = 0;
+        if (maxRows > 0 && repository.count() > maxRows) {
+            List<LocalDateTime> oldestKept = repository.findCreatedAtNewestFirst(PageRequest.of((int) maxRows - 1, 1));
+            if (!oldestKept.isEmpty()) {
+                overflow = repository.deleteByCreatedAtBefore(oldestKept.get(0));
+            }
+        }
+        if (expired + overflow > 0) {
+            logger.info("Purged {} expired and {} overflow llm reasons", expired, overflow);
+        }
+    }
+
+    public void recordProxyLatency(long nanos) {
+        proxyTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private List<LlmReasonEntry> loadStored(Collection<String> keys) {
+        try {
+            return repository.findByCacheKeyInAndCreatedAtAfter(keys, LocalDateTime.now().minus(ttl));
+        } catch (DataAccessException ex) {
+            logger.warn("Failed to load llm reasons from store: {}", ex.getMessage());
+            return List.of();
+        }
+    }
+
+    private void recordSaved() {
+        if (proxyTimer.count() > 0) {
+            savedMillis.increment(proxyTimer.mean(TimeUnit.MILLISECONDS));
+        }
+    }
+}
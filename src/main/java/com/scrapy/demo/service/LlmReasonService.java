@@ -2,6 +2,7 @@ package com.scrapy.demo.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -10,13 +11,35 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * 推荐原因生成：调用 python 代理的 LLM 接口，失败、超时或未启用时返回规则模板文本
+ * 全局共用一个 HttpClient（连接池复用，优先 HTTP/2 多路复用）；批量生成时每条请求各占一个虚拟线程并发发出，
+ * 整批共享一个截止时间，超时未返回的条目取模板文本；同时发往代理的请求数（跨所有批次）不超过 app.llm.max-concurrency，
+ * 截止前等不到许可的条目不再调用代理；代理返回的原因按量化后的上下文缓存（见 {@link LlmReasonCache}），
+ * 同一批内相同键只调用一次代理
+ */
 @Service
 public class LlmReasonService {
 
     private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
+    private final ExecutorService reasonExecutor;
+    private final LlmReasonCache reasonCache;
+    private final Semaphore proxyPermits;
 
     @Value("${app.llm.enabled:false}")
     private boolean llmEnabled;
@@ -27,20 +50,110 @@ public class LlmReasonService {
     @Value("${app.llm.prompt:请根据以下数据产出一句中文推荐理由。}")
     private String llmPrompt;
 
-    public LlmReasonService(ObjectMapper objectMapper) {
+    @Value("${app.llm.request-timeout-ms:8000}")
+    private long requestTimeoutMs;
+
+    @Value("${app.llm.batch-deadline-ms:10000}")
+    private long batchDeadlineMs;
+
+    public LlmReasonService(ObjectMapper objectMapper, LlmReasonCache reasonCache,
+                            @Value("${app.llm.max-concurrency:8}") int maxConcurrency) {
         this.objectMapper = objectMapper;
+        this.reasonCache = reasonCache;
+        this.proxyPermits = new Semaphore(Math.max(1, maxConcurrency));
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.reasonExecutor = Executors.newVirtualThreadPerTaskExecutor();
     }
 
     public String buildRecommendationReason(Map<String, Object> context) {
-        String fallback = fallbackReason(context);
+        return buildRecommendationReasons(List.of(context)).get(0);
+    }
+
+    /**
+     * 批量生成推荐原因，结果与 contexts 一一对应；整批最多等待 app.llm.batch-deadline-ms
+     */
+    public List<String> buildRecommendationReasons(List<Map<String, Object>> contexts) {
         if (!llmEnabled || llmProxyUrl == null || llmProxyUrl.isBlank()) {
-            return fallback;
+            return contexts.stream().map(this::fallbackReason).toList();
+        }
+        List<String> keys = contexts.stream().map(context -> LlmReasonCache.keyOf(context, promptOf(context))).toList();
+        Map<String, String> cached = reasonCache.getAll(new LinkedHashSet<>(keys));
+
+        // 同一键只调用一次代理
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchDeadlineMs);
+        Map<String, Future<String>> futures = new LinkedHashMap<>();
+        for (int i = 0; i < contexts.size(); i++) {
+            String key = keys.get(i);
+            if (!cached.containsKey(key) && !futures.containsKey(key)) {
+                Map<String, Object> context = contexts.get(i);
+                futures.put(key, reasonExecutor.submit(() -> requestAndCache(key, context, deadline)));
+            }
         }
+        List<String> reasons = new ArrayList<>(contexts.size());
+        for (int i = 0; i < contexts.size(); i++) {
+            String reason = cached.get(keys.get(i));
+            if (reason == null) {
+                reason = await(futures.get(keys.get(i)), deadline);
+            }
+            reasons.add(reason != null ? reason : fallbackReason(contexts.get(i)));
+        }
+        return reasons;
+    }
+
+    /**
+     * 等到截止时间为止；超时的调用不取消，在单次请求超时内返回的结果仍会写入缓存供下次使用
+     */
+    private static String await(Future<String> future, long deadline) {
         try {
-            HttpClient client = HttpClient.newBuilder()
-                    .connectTimeout(Duration.ofSeconds(5))
-                    .build();
+            return future.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException ex) {
+            // 超时或调用失败时使用模板文本
+        }
+        return null;
+    }
+
+    /**
+     * 取得代理调用许可后发出请求；截止时间前取不到许可时放弃，由调用方使用模板文本
+     */
+    private String requestAndCache(String key, Map<String, Object> context, long deadline) throws InterruptedException {
+        if (!proxyPermits.tryAcquire(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+            return null;
+        }
+        try {
+            long start = System.nanoTime();
+            String reason = requestReason(context);
+            if (reason != null) {
+                reasonCache.recordProxyLatency(System.nanoTime() - start);
+                // 自定义提示词的结果只缓存在内存，不写入表
+                reasonCache.put(key, reason, context.get("promptOverride") == null);
+            }
+            return reason;
+        } finally {
+            proxyPermits.release();
+        }
+    }
+
+    private Object promptOf(Map<String, Object> context) {
+        Object override = context.get("promptOverride");
+        return override == null ? llmPrompt : override;
+    }
 
+    @PreDestroy
+    public void shutdown() {
+        reasonExecutor.shutdownNow();
+        httpClient.shutdownNow();
+    }
+
+    /**
+     * 单次代理调用，返回 null 表示应使用模板文本
+     */
+    private String requestReason(Map<String, Object> context) {
+        try {
             Map<String, Object> payload = new HashMap<>();
             payload.put("studentId", context.get("studentId"));
             payload.put("course", context.get("course"));
@@ -48,28 +161,30 @@ public class LlmReasonService {
             payload.put("score", context.get("score"));
             payload.put("classAvg", context.get("classAvg"));
             payload.put("differenceWithClassAvg", context.get("differenceWithClassAvg"));
-            Object override = context.get("promptOverride");
-            payload.put("promptOverride", override == null ? llmPrompt : override);
+            payload.put("promptOverride", promptOf(context));
 
             HttpRequest request = HttpRequest.newBuilder()
                     .uri(URI.create(llmProxyUrl))
-                    .timeout(Duration.ofSeconds(8))
+                    .timeout(Duration.ofMillis(requestTimeoutMs))
                     .header("Content-Type", "application/json")
                     .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(payload)))
                     .build();
 
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
             if (response.statusCode() < 200 || response.statusCode() >= 300) {
-                return fallback;
+                return null;
             }
             JsonNode root = objectMapper.readTree(response.body());
             JsonNode reasonNode = root.path("reason");
             if (reasonNode.isMissingNode() || reasonNode.asText().isBlank()) {
-                return fallback;
+                return null;
             }
             return reasonNode.asText().trim();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
         } catch (Exception ex) {
-            return fallback;
+            return null;
         }
     }
 
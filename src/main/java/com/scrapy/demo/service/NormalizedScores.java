@@ -0,0 +1,59 @@
+package com.scrapy.demo.service;
+
+import com.scrapy.demo.repository.ScoreView;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 规范化的成绩列表：学生、课程、考试按ID各输出一次，成绩行只保留ID与分数
+ * 同一课程/学生在多行中重复出现时，响应体明显小于逐行展开的 ScoreView 列表
+ */
+public record NormalizedScores(Map<Long, StudentEntry> students, Map<Long, CourseEntry> courses,
+                               Map<Long, ExamEntry> exams, List<Row> rows) {
+
+    /**
+     * 列表接口 format 参数取此值时返回规范化结构
+     */
+    public static final String FORMAT = "normalized";
+
+    public record StudentEntry(String studentNumber, String name, String clazz) {
+    }
+
+    public record CourseEntry(String name) {
+    }
+
+    public record ExamEntry(String name, LocalDate examDate) {
+    }
+
+    public record Row(Long id, Long studentId, Long courseId, Long examId, Double value, LocalDateTime recordedAt) {
+    }
+
+    public static NormalizedScores of(List<ScoreView> views) {
+        Map<Long, StudentEntry> students = new LinkedHashMap<>();
+        Map<Long, CourseEntry> courses = new LinkedHashMap<>();
+        Map<Long, ExamEntry> exams = new LinkedHashMap<>();
+        List<Row> rows = new ArrayList<>(views.size());
+        for (ScoreView view : views) {
+            students.computeIfAbsent(view.studentId(),
+                    id -> new StudentEntry(view.studentNumber(), view.studentName(), view.clazz()));
+            courses.computeIfAbsent(view.courseId(), id -> new CourseEntry(view.courseName()));
+            if (view.examId() != null) {
+                exams.computeIfAbsent(view.examId(), id -> new ExamEntry(view.examName(), view.examDate()));
+            }
+            rows.add(new Row(view.id(), view.studentId(), view.courseId(), view.examId(), view.value(), view.recordedAt()));
+        }
+        return new NormalizedScores(students, courses, exams, rows);
+    }
+
+    /**
+     * 按 format 参数选择响应结构：normalized 返回规范化结构，其余返回 ScoreView 列表
+     */
+    public static Object render(List<ScoreView> views, String format) {
+        return FORMAT.equalsIgnoreCase(format) ? of(views) : views;
+    }
+}
@@ -0,0 +1,474 @@
+package com.scrapy.demo.service;
+
+import com.scrapy.demo.domain.Score;
+import com.scrapy.demo.domain.ScoreAggregate;
+import com.scrapy.demo.domain.ScoreAggregate.Scope;
+import com.scrapy.demo.repository.ScoreAggregateRepository;
+import com.scrapy.demo.repository.ScoreKeyView;
+import com.scrapy.demo.repository.ScoreRepository;
+import com.scrapy.demo.repository.ScoreStatsView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 成绩聚合维护服务
+ * 在成绩新增/修改/删除的同一事务内增量更新全校、课程、班级、考试、学生与班级课程考试各维度的聚合，
+ * 分析接口直接读取聚合行，避免每次请求全表扫描成绩
+ */
+@Service
+public class ScoreAggregateService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScoreAggregateService.class);
+
+    private static final int KEY_BATCH_SIZE = 500;
+
+    /**
+     * 班级课程维度中未关联考试的成绩使用的考试占位
+     */
+    static final String NO_EXAM_KEY = "-";
+
+    private final ScoreAggregateRepository aggregateRepository;
+    private final ScoreRepository scoreRepository;
+    private final AnalysisCacheEvictor cacheEvictor;
+    private final AtomicLong version = new AtomicLong();
+
+    public ScoreAggregateService(ScoreAggregateRepository aggregateRepository, ScoreRepository scoreRepository,
+                                 AnalysisCacheEvictor cacheEvictor) {
+        this.aggregateRepository = aggregateRepository;
+        this.scoreRepository = scoreRepository;
+        this.cacheEvictor = cacheEvictor;
+    }
+
+    /**
+     * 一条成绩对各维度聚合的贡献；需在修改成绩前捕获，以便扣除旧值
+     */
+    public record Contribution(Long studentId, String clazz, Long courseId, Long examId, Double value) {
+
+        public static Contribution of(Score score) {
+            if (score == null) {
+                return null;
+            }
+            return new Contribution(
+                    score.getStudent() == null ? null : score.getStudent().getId(),
+                    score.getStudent() == null ? null : score.getStudent().getClazz(),
+                    score.getCourse() == null ? null : score.getCourse().getId(),
+                    score.getExam() == null ? null : score.getExam().getId(),
+                    score.getValue());
+        }
+    }
+
+    /**
+     * 一批待应用的聚合变更，按（维度, 键）合并，应用时每个维度只查询一次
+     */
+    public static final class Changes {
+
+        private final Map<Scope, Map<String, Delta>> deltas = new EnumMap<>(Scope.class);
+
+        public Changes add(Score score) {
+            return add(Contribution.of(score));
+        }
+
+        public Changes add(Contribution contribution) {
+            return collect(contribution, false);
+        }
+
+        public Changes remove(Contribution contribution) {
+            return collect(contribution, true);
+        }
+
+        /**
+         * 以修改后的成绩替换修改前的贡献；维度键与分数均未变化时不产生变更
+         */
+        public Changes replace(Contribution before, Score after) {
+            return replace(before, Contribution.of(after));
+        }
+
+        public Changes replace(Contribution before, Contribution after) {
+            if (Objects.equals(before, after)) {
+                return this;
+            }
+            remove(before);
+            return add(after);
+        }
+
+        /**
+         * 将一个已有聚合整体从一个键转移到另一个键（如学生调班）
+         */
+        public Changes transfer(Scope scope, String fromKey, String toKey, ScoreAggregate source) {
+            if (source == null || source.getCount() == 0 || Objects.equals(fromKey, toKey)) {
+                return this;
+            }
+            if (fromKey != null) {
+                delta(scope, fromKey).removed.merge(source, 1);
+            }
+            if (toKey != null) {
+                delta(scope, toKey).added.merge(source, 1);
+            }
+            return this;
+        }
+
+        /**
+         * 学生调班：把一条成绩在班级课程维度的贡献从原班级转到新班级
+         */
+        public Changes moveClassCourse(Contribution contribution, String newClazz) {
+            if (contribution == null || contribution.value() == null || Objects.equals(contribution.clazz(), newClazz)) {
+                return this;
+            }
+            double value = contribution.value();
+            accept(Scope.CLASS_COURSE, classCourseKey(contribution.clazz(), contribution.courseId(), contribution.examId()),
+                    value, true);
+            accept(Scope.CLASS_COURSE, classCourseKey(newClazz, contribution.courseId(), contribution.examId()),
+                    value, false);
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return deltas.isEmpty();
+        }
+
+        /**
+         * 各维度受影响的键
+         */
+        public Map<Scope, Set<String>> keys() {
+            Map<Scope, Set<String>> keys = new EnumMap<>(Scope.class);
+            deltas.forEach((scope, byKey) -> keys.put(scope, new LinkedHashSet<>(byKey.keySet())));
+            return keys;
+        }
+
+        private Changes collect(Contribution contribution, boolean removal) {
+            if (contribution == null || contribution.value() == null) {
+                return this;
+            }
+            double value = contribution.value();
+            accept(Scope.ALL, ScoreAggregate.ALL_KEY, value, removal);
+            accept(Scope.COURSE, keyOf(contribution.courseId()), value, removal);
+            accept(Scope.CLASS, contribution.clazz(), value, removal);
+            accept(Scope.EXAM, keyOf(contribution.examId()), value, removal);
+            accept(Scope.STUDENT, keyOf(contribution.studentId()), value, removal);
+            accept(Scope.CLASS_COURSE, classCourseKey(contribution.clazz(), contribution.courseId(), contribution.examId()),
+                    value, removal);
+            return this;
+        }
+
+        private void accept(Scope scope, String key, double value, boolean removal) {
+            if (key == null || key.isBlank()) {
+                return;
+            }
+            Delta delta = delta(scope, key);
+            (removal ? delta.removed : delta.added).accept(value, 1);
+        }
+
+        private Delta delta(Scope scope, String key) {
+            return deltas.computeIfAbsent(scope, s -> new LinkedHashMap<>())
+                    .computeIfAbsent(key, k -> new Delta());
+        }
+    }
+
+    private static final class Delta {
+        private final ScoreAggregate added = new ScoreAggregate();
+        private final ScoreAggregate removed = new ScoreAggregate();
+    }
+
+    public Changes changes() {
+        return new Changes();
+    }
+
+    /**
+     * 聚合版本号，任何聚合写入时递增（事务提交后再递增一次），供派生的只读索引判断是否失效
+     */
+    public long version() {
+        return version.get();
+    }
+
+    @Transactional
+    public void recordCreated(Score score) {
+        apply(changes().add(score));
+    }
+
+    @Transactional
+    public void recordUpdated(Contribution before, Score after) {
+        apply(changes().replace(before, after));
+    }
+
+    @Transactional
+    public void recordDeleted(Contribution before) {
+        apply(changes().remove(before));
+    }
+
+    /**
+     * 学生调班：把学生维度的聚合整体从旧班级转入新班级，并逐条转移其成绩的班级课程聚合，须在学生班级已落库后调用
+     */
+    @Transactional
+    public void moveStudentClass(Long studentId, String oldClazz, String newClazz) {
+        if (studentId == null || Objects.equals(oldClazz, newClazz)) {
+            return;
+        }
+        Changes changes = changes();
+        aggregateRepository.findByScopeAndScopeKey(Scope.STUDENT, keyOf(studentId))
+                .ifPresent(source -> changes.transfer(Scope.CLASS, oldClazz, newClazz, source));
+        for (ScoreKeyView key : scoreRepository.findKeysByStudentId(studentId)) {
+            changes.moveClassCourse(new Contribution(studentId, oldClazz, key.getCourseId(), key.getExamId(),
+                    key.getValue()), newClazz);
+        }
+        apply(changes);
+    }
+
+    /**
+     * 丢弃某一维度的聚合（如考试被删除、成绩的考试关联被置空）
+     */
+    @Transactional
+    public void discard(Scope scope, String key) {
+        aggregateRepository.findByScopeAndScopeKey(scope, key).ifPresent(aggregateRepository::delete);
+        markChanged();
+        cacheEvictor.scoresChanged(Map.of(scope, Set.of(key)));
+    }
+
+    /**
+     * 丢弃某次考试的聚合及其班级课程聚合（考试被删除，成绩的考试关联被置空），
+     * 这些成绩随之并入同班同课程的无考试聚合
+     */
+    @Transactional
+    public void discardExam(Long examId) {
+        String key = keyOf(examId);
+        Set<String> classCourseKeys = new LinkedHashSet<>();
+        Changes detached = changes();
+        aggregateRepository.findByScopeAndScopeKeyEndingWith(Scope.CLASS_COURSE, "|" + key).forEach(row -> {
+            String scopeKey = row.getScopeKey();
+            classCourseKeys.add(scopeKey);
+            detached.transfer(Scope.CLASS_COURSE, null,
+                    scopeKey.substring(0, scopeKey.lastIndexOf('|') + 1) + NO_EXAM_KEY, row);
+            aggregateRepository.delete(row);
+        });
+        discard(Scope.EXAM, key);
+        if (!classCourseKeys.isEmpty()) {
+            cacheEvictor.scoresChanged(Map.of(Scope.CLASS_COURSE, classCourseKeys));
+        }
+        apply(detached);
+    }
+
+    /**
+     * 在当前事务内应用一批变更
+     * 先确保每个键都有聚合行，再加写锁读取最新值并在其上合并增量，锁持有到事务结束；
+     * 并发写入同一聚合的事务因此串行执行，不会相互覆盖
+     */
+    @Transactional
+    public void apply(Changes changes) {
+        if (changes == null || changes.isEmpty()) {
+            return;
+        }
+        markChanged();
+        cacheEvictor.scoresChanged(changes.keys());
+        // 维度按枚举顺序、键按字典序加锁，并发事务以相同顺序取锁，不会互相死锁
+        changes.deltas.forEach((scope, byKey) -> {
+            Map<String, ScoreAggregate> existing = lockRows(scope, new TreeSet<>(byKey.keySet()));
+            List<ScoreAggregate> toSave = new ArrayList<>();
+            List<ScoreAggregate> toDelete = new ArrayList<>();
+            byKey.forEach((key, delta) -> {
+                ScoreAggregate row = existing.getOrDefault(key, new ScoreAggregate(scope, key));
+                row.merge(delta.added, 1);
+                boolean statsStale = delta.removed.getCount() > 0 && row.getCount() > 0
+                        && (row.getHighest() == null || row.getLowest() == null
+                        || delta.removed.getHighest() >= row.getHighest()
+                        || delta.removed.getLowest() <= row.getLowest());
+                row.merge(delta.removed, -1);
+                if (statsStale && row.getCount() > 0) {
+                    refresh(row);
+                }
+                if (row.getCount() <= 0) {
+                    if (row.getId() != null) {
+                        toDelete.add(row);
+                    }
+                    return;
+                }
+                toSave.add(row);
+            });
+            aggregateRepository.deleteAll(toDelete);
+            aggregateRepository.saveAll(toSave);
+        });
+    }
+
+    /**
+     * 按维度读取单个聚合
+     */
+    public Optional<ScoreAggregate> find(Scope scope, String key) {
+        if (key == null) {
+            return Optional.empty();
+        }
+        return aggregateRepository.findByScopeAndScopeKey(scope, key);
+    }
+
+    /**
+     * 批量读取某维度下多个键的聚合（分批 IN 查询）
+     */
+    public Map<String, ScoreAggregate> findAll(Scope scope, Collection<String> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return loadExisting(scope, new LinkedHashSet<>(keys));
+    }
+
+    /**
+     * 读取某维度下全部聚合
+     */
+    public List<ScoreAggregate> findAll(Scope scope) {
+        return aggregateRepository.findByScope(scope);
+    }
+
+    /**
+     * 从成绩表全量重建聚合（用于首次上线或外部直接改库后的校准）
+     * 各维度均由库内 GROUP BY 统计得到，只传输分组行
+     */
+    @Transactional
+    public void rebuild() {
+        markChanged();
+        cacheEvictor.evictAll();
+        aggregateRepository.deleteAllInBatch();
+        List<ScoreAggregate> rows = new ArrayList<>();
+        ScoreStatsView all = scoreRepository.summarizeAll();
+        if (all != null && all.getScoreCount() != null && all.getScoreCount() > 0) {
+            rows.add(toAggregate(Scope.ALL, ScoreAggregate.ALL_KEY, all));
+        }
+        collect(rows, Scope.COURSE, scoreRepository.summarizeByCourse());
+        collect(rows, Scope.CLASS, scoreRepository.summarizeByClazz());
+        collect(rows, Scope.EXAM, scoreRepository.summarizeByExam());
+        collect(rows, Scope.STUDENT, scoreRepository.summarizeByStudent());
+        collect(rows, Scope.CLASS_COURSE, scoreRepository.summarizeByClazzCourseExam());
+        aggregateRepository.saveAll(rows);
+        logger.info("Rebuilt {} score aggregates", rows.size());
+    }
+
+    /**
+     * 聚合表为空而成绩表有数据时重建，返回是否执行了重建
+     */
+    @Transactional
+    public boolean rebuildIfEmpty() {
+        if (aggregateRepository.count() > 0 || scoreRepository.count() == 0) {
+            return false;
+        }
+        rebuild();
+        return true;
+    }
+
+    /**
+     * 立即递增版本号；处于事务中时在事务结束后再递增一次，
+     * 避免并发读者在提交前按旧数据重建索引并记在新版本号下
+     */
+    private void markChanged() {
+        version.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    version.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    /**
+     * 按键的顺序分块：每块一条多行 INSERT 补齐缺失行，再加写锁读取该块
+     */
+    private Map<String, ScoreAggregate> lockRows(Scope scope, SortedSet<String> keys) {
+        Map<String, ScoreAggregate> result = new HashMap<>();
+        List<String> keyList = new ArrayList<>(keys);
+        for (int from = 0; from < keyList.size(); from += KEY_BATCH_SIZE) {
+            List<String> chunk = keyList.subList(from, Math.min(from + KEY_BATCH_SIZE, keyList.size()));
+            aggregateRepository.insertIfAbsent(scope, chunk);
+            aggregateRepository.lockByScopeAndScopeKeyIn(scope, chunk)
+                    .forEach(row -> result.put(row.getScopeKey(), row));
+        }
+        return result;
+    }
+
+    private Map<String, ScoreAggregate> loadExisting(Scope scope, Set<String> keys) {
+        Map<String, ScoreAggregate> result = new HashMap<>();
+        List<String> keyList = new ArrayList<>(keys);
+        for (int from = 0; from < keyList.size(); from += KEY_BATCH_SIZE) {
+            List<String> chunk = keyList.subList(from, Math.min(from + KEY_BATCH_SIZE, keyList.size()));
+            aggregateRepository.findByScopeAndScopeKeyIn(scope, chunk)
+                    .forEach(row -> result.put(row.getScopeKey(), row));
+        }
+        return result;
+    }
+
+    private void collect(List<ScoreAggregate> rows, Scope scope, List<ScoreStatsView> views) {
+        for (ScoreStatsView view : views) {
+            if (view.getGroupKey() != null && !view.getGroupKey().isBlank()) {
+                rows.add(toAggregate(scope, view.getGroupKey(), view));
+            }
+        }
+    }
+
+    /**
+     * 扣除的成绩触及极值时，从库内重新取该分组的最高/最低分；
+     * 计数与分布仍以加锁后的增量结果为准，不被可能早于锁的统计快照覆盖
+     */
+    private void refresh(ScoreAggregate row) {
+        String key = row.getScopeKey();
+        ScoreStatsView view = switch (row.getScope()) {
+            case ALL -> scoreRepository.summarizeAll();
+            case COURSE -> scoreRepository.summarizeByCourseId(Long.valueOf(key)).orElse(null);
+            case CLASS -> scoreRepository.summarizeByClazz(key).orElse(null);
+            case EXAM -> scoreRepository.summarizeByExamId(Long.valueOf(key)).orElse(null);
+            case STUDENT -> scoreRepository.summarizeByStudentId(Long.valueOf(key)).orElse(null);
+            case CLASS_COURSE -> {
+                int examSeparator = key.lastIndexOf('|');
+                int courseSeparator = key.lastIndexOf('|', examSeparator - 1);
+                String clazz = key.substring(0, courseSeparator);
+                Long courseId = Long.valueOf(key.substring(courseSeparator + 1, examSeparator));
+                String exam = key.substring(examSeparator + 1);
+                yield (NO_EXAM_KEY.equals(exam)
+                        ? scoreRepository.summarizeByClazzCourseWithoutExam(clazz, courseId)
+                        : scoreRepository.summarizeByClazzCourseExam(clazz, courseId, Long.valueOf(exam))).orElse(null);
+            }
+        };
+        row.setHighest(view == null ? null : view.getHighest());
+        row.setLowest(view == null ? null : view.getLowest());
+    }
+
+    private ScoreAggregate toAggregate(Scope scope, String key, ScoreStatsView view) {
+        ScoreAggregate row = new ScoreAggregate(scope, key);
+        assign(row, view);
+        return row;
+    }
+
+    private void assign(ScoreAggregate row, ScoreStatsView view) {
+        row.setCount(orZero(view.getScoreCount()));
+        row.setSum(view.getScoreSum() == null ? 0.0 : view.getScoreSum());
+        row.setSumOfSquares(view.getSumOfSquares() == null ? 0.0 : view.getSumOfSquares());
+        row.setPassCount(orZero(view.getPassCount()));
+        row.setHighest(view.getHighest());
+        row.setLowest(view.getLowest());
+        row.setBucketFail(orZero(view.getBucketFail()));
+        row.setBucket60(orZero(view.getBucket60()));
+        row.setBucket70(orZero(view.getBucket70()));
+        row.setBucket80(orZero(view.getBucket80()));
+        row.setBucket90(orZero(view.getBucket90()));
+    }
+
+    private long orZero(Long value) {
+        return value == null ? 0L : value;
+    }
+
+    public static String keyOf(Long id) {
+        return id == null ? null : String.valueOf(id);
+    }
+
+    /**
+     * 班级课程维度的键：班级|课程ID|考试ID，未关联考试时考试ID记为 NO_EXAM_KEY；
+     * 班级或课程为空时为 null（不计入该维度）
+     */
+    public static String classCourseKey(String clazz, Long courseId, Long examId) {
+        if (clazz == null || clazz.isBlank() || courseId == null) {
+            return null;
+        }
+        return clazz + "|" + courseId + "|" + (examId == null ? NO_EXAM_KEY : examId);
+    }
+}
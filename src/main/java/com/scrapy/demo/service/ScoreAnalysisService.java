@@ -1,8 +1,13 @@
 package com.scrapy.demo.service;
 
+import com.scrapy.demo.config.CacheConfig;
+import com.scrapy.demo.domain.Course;
 import com.scrapy.demo.domain.Exam;
-import com.scrapy.demo.domain.Score;
-import com.scrapy.demo.repository.ScoreRepository;
+import com.scrapy.demo.domain.ScoreAggregate;
+import com.scrapy.demo.domain.ScoreAggregate.Scope;
+import com.scrapy.demo.repository.CourseRepository;
+import com.scrapy.demo.repository.ExamRepository;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -11,49 +16,60 @@ import java.time.LocalDate;
 /**
  * 成绩统计与分析服务
  * 支持平均分、最高分、最低分、及格率、成绩分布、成绩趋势等统计功能
+ * 统计结果读取由 {@link ScoreAggregateService} 增量维护的聚合，耗时与分组数成正比而非成绩行数；
+ * 各接口结果按参数缓存，成绩写入时由 {@link AnalysisCacheEvictor} 按维度失效
  */
 @Service
 public class ScoreAnalysisService {
 
-    private final ScoreRepository scoreRepository;
-
-    public ScoreAnalysisService(ScoreRepository scoreRepository) {
-        this.scoreRepository = scoreRepository;
+    private final ScoreAggregateService aggregateService;
+    private final CourseRepository courseRepository;
+    private final ExamRepository examRepository;
+    private final StudentRankingService rankingService;
+
+    public ScoreAnalysisService(ScoreAggregateService aggregateService,
+                                CourseRepository courseRepository,
+                                ExamRepository examRepository,
+                                StudentRankingService rankingService) {
+        this.aggregateService = aggregateService;
+        this.courseRepository = courseRepository;
+        this.examRepository = examRepository;
+        this.rankingService = rankingService;
     }
 
     /**
      * 获取某课程的所有成绩统计
      */
+    @Cacheable(CacheConfig.ANALYSIS_COURSE)
     public Map<String, Object> analyzeCourseScores(Long courseId) {
-        List<Score> scores = scoreRepository.findByCourseId(courseId);
-        return analyzeScores(scores, "课程成绩");
+        return analyzeAggregate(aggregateService.find(Scope.COURSE, ScoreAggregateService.keyOf(courseId)), "课程成绩");
     }
 
     /**
      * 获取某学生的所有成绩统计
      */
+    @Cacheable(CacheConfig.ANALYSIS_STUDENT)
     public Map<String, Object> analyzeStudentScores(Long studentId) {
-        List<Score> scores = scoreRepository.findByStudentId(studentId);
-        return analyzeScores(scores, "学生成绩");
+        return analyzeAggregate(aggregateService.find(Scope.STUDENT, ScoreAggregateService.keyOf(studentId)), "学生成绩");
     }
 
     /**
      * 获取整体成绩统计
      */
+    @Cacheable(CacheConfig.ANALYSIS_OVERALL)
     public Map<String, Object> analyzeAllScores() {
-        List<Score> scores = scoreRepository.findAll();
-        return analyzeScores(scores, "整体成绩");
+        return analyzeAggregate(aggregateService.find(Scope.ALL, ScoreAggregate.ALL_KEY), "整体成绩");
     }
 
     /**
-     * 核心分析方法 - 执行成绩统计
+     * 核心分析方法 - 将聚合转换为统计结果
      */
-    private Map<String, Object> analyzeScores(List<Score> scores, String label) {
+    private Map<String, Object> analyzeAggregate(Optional<ScoreAggregate> aggregate, String label) {
         Map<String, Object> result = new LinkedHashMap<>();
         result.put("label", label);
-        result.put("totalCount", scores.size());
 
-        if (scores.isEmpty()) {
+        if (aggregate.isEmpty() || aggregate.get().getCount() == 0) {
+            result.put("totalCount", 0);
             result.put("average", 0.0);
             result.put("highest", 0.0);
             result.put("lowest", 0.0);
@@ -62,27 +78,15 @@ public class ScoreAnalysisService {
             return result;
         }
 
-        // 提取所有成绩值
-        List<Double> values = scores.stream()
-                .map(Score::getValue)
-                .toList();
-
-        // 计算统计指标
-        double average = values.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
-        double highest = values.stream().mapToDouble(Double::doubleValue).max().orElse(0.0);
-        double lowest = values.stream().mapToDouble(Double::doubleValue).min().orElse(0.0);
-
-        // 计算及格率（及格分数线：60分）
-        long passCount = values.stream().filter(v -> v >= 60).count();
-        double passRate = (double) passCount / scores.size() * 100;
-
-        result.put("average", Math.round(average * 100) / 100.0);
-        result.put("highest", highest);
-        result.put("lowest", lowest);
-        result.put("passRate", Math.round(passRate * 100) / 100.0);
+        ScoreAggregate stats = aggregate.get();
+        result.put("totalCount", (int) stats.getCount());
+        result.put("average", round2(stats.average()));
+        result.put("highest", stats.getHighest() == null ? 0.0 : stats.getHighest());
+        result.put("lowest", stats.getLowest() == null ? 0.0 : stats.getLowest());
+        result.put("passRate", round2(stats.passRate()));
 
         // 成绩分布
-        result.put("distribution", getScoreDistribution(values));
+        result.put("distribution", getScoreDistribution(stats.buckets()));
 
         return result;
     }
@@ -91,130 +95,87 @@ public class ScoreAnalysisService {
      * 获取成绩分布（区间统计）
      * 区间：0-59, 60-69, 70-79, 80-89, 90-100
      */
-    private Map<String, Integer> getScoreDistribution(List<Double> scores) {
-        Map<String, Integer> distribution = new LinkedHashMap<>();
-        distribution.put("0-59", 0);
-        distribution.put("60-69", 0);
-        distribution.put("70-79", 0);
-        distribution.put("80-89", 0);
-        distribution.put("90-100", 0);
-
-        for (Double score : scores) {
-            if (score < 60) {
-                distribution.put("0-59", distribution.get("0-59") + 1);
-            } else if (score < 70) {
-                distribution.put("60-69", distribution.get("60-69") + 1);
-            } else if (score < 80) {
-                distribution.put("70-79", distribution.get("70-79") + 1);
-            } else if (score < 90) {
-                distribution.put("80-89", distribution.get("80-89") + 1);
-            } else {
-                distribution.put("90-100", distribution.get("90-100") + 1);
-            }
-        }
-
-        return distribution;
+    private Map<String, Integer> getScoreDistribution(long[] buckets) {
+        return ScoreStats.distribution(buckets);
     }
 
     /**
      * 获取空分布
      */
     private Map<String, Integer> getEmptyDistribution() {
-        Map<String, Integer> distribution = new LinkedHashMap<>();
-        distribution.put("0-59", 0);
-        distribution.put("60-69", 0);
-        distribution.put("70-79", 0);
-        distribution.put("80-89", 0);
-        distribution.put("90-100", 0);
-        return distribution;
+        return ScoreStats.distribution(null);
     }
 
     /**
      * 按班级获取成绩统计
      */
+    @Cacheable(CacheConfig.ANALYSIS_CLASS)
     public Map<String, Object> analyzeClassScores(String clazz) {
-        // 获取该班级所有学生的成绩
-        List<Score> scores = scoreRepository.findAll().stream()
-                .filter(score -> score.getStudent() != null && 
-                        clazz.equals(score.getStudent().getClazz()))
-                .toList();
-        return analyzeScores(scores, "班级 " + clazz + " 成绩");
+        return analyzeAggregate(aggregateService.find(Scope.CLASS, clazz), "班级 " + clazz + " 成绩");
+    }
+
+    /**
+     * 批量获取多个班级的成绩统计，一次查询取回全部班级聚合，按请求顺序返回
+     */
+    public Map<String, Map<String, Object>> analyzeClassesScores(Collection<String> classNames) {
+        Set<String> names = new LinkedHashSet<>();
+        for (String name : classNames) {
+            if (name != null && !name.isBlank()) {
+                names.add(name.trim());
+            }
+        }
+        Map<String, ScoreAggregate> statsByClass = aggregateService.findAll(Scope.CLASS, names);
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        for (String name : names) {
+            result.put(name, analyzeAggregate(Optional.ofNullable(statsByClass.get(name)), "班级 " + name + " 成绩"));
+        }
+        return result;
     }
 
     /**
      * 获取及格分数率统计
      */
+    @Cacheable(CacheConfig.ANALYSIS_PASS_RATES)
     public Map<String, Double> getPassRateByScore() {
         Map<String, Double> passRates = new LinkedHashMap<>();
-        List<Score> allScores = scoreRepository.findAll();
+        List<ScoreAggregate> courseStats = aggregateService.findAll(Scope.COURSE);
 
-        if (allScores.isEmpty()) {
+        if (courseStats.isEmpty()) {
             return passRates;
         }
 
-        // 按课程分组
-        Map<Long, List<Score>> groupedByCourse = new LinkedHashMap<>();
-        for (Score score : allScores) {
-            groupedByCourse.computeIfAbsent(score.getCourse().getId(), k -> new ArrayList<>())
-                    .add(score);
+        Map<Long, ScoreAggregate> byCourse = new TreeMap<>();
+        for (ScoreAggregate stats : courseStats) {
+            byCourse.put(Long.valueOf(stats.getScopeKey()), stats);
+        }
+        Map<Long, String> courseNames = new HashMap<>();
+        for (Course course : courseRepository.findAllById(byCourse.keySet())) {
+            courseNames.put(course.getId(), course.getName());
         }
 
-        // 计算每门课程的及格率
-        groupedByCourse.forEach((courseId, courseScores) -> {
-            long passCount = courseScores.stream()
-                    .filter(s -> s.getValue() >= 60)
-                    .count();
-            double passRate = (double) passCount / courseScores.size() * 100;
-            String courseName = courseScores.get(0).getCourse() == null
-                    ? ("课程ID:" + courseId)
-                    : courseScores.get(0).getCourse().getName();
-            passRates.put(courseName, Math.round(passRate * 100) / 100.0);
+        // 每门课程的及格率
+        byCourse.forEach((courseId, stats) -> {
+            String courseName = courseNames.getOrDefault(courseId, "课程ID:" + courseId);
+            passRates.put(courseName, round2(stats.passRate()));
         });
 
         return passRates;
     }
 
     /**
-     * 获取学生排名（按平均分）
+     * 获取全校学生排名（按平均分，同分并列）
+     * 分页、按班级/课程筛选见 {@link StudentRankingService#getRankings}
      */
     public List<Map<String, Object>> getStudentRankings() {
-        List<Score> allScores = scoreRepository.findAll();
-        Map<Long, List<Double>> studentScores = new LinkedHashMap<>();
-
-        // 按学生分组成绩
-        for (Score score : allScores) {
-            Long studentId = score.getStudent().getId();
-            studentScores.computeIfAbsent(studentId, k -> new ArrayList<>())
-                    .add(score.getValue());
-        }
-
-        // 计算平均分并排序
-        List<Map<String, Object>> rankings = new ArrayList<>();
-        studentScores.forEach((studentId, scores) -> {
-            double average = scores.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
-            Map<String, Object> entry = new HashMap<>();
-            entry.put("studentId", studentId);
-            entry.put("averageScore", Math.round(average * 100) / 100.0);
-            rankings.add(entry);
-        });
-
-        // 按平均分降序排列
-        rankings.sort((a, b) -> Double.compare((Double) b.get("averageScore"), 
-                                                (Double) a.get("averageScore")));
-        
-        // 添加排名
-        for (int i = 0; i < rankings.size(); i++) {
-            rankings.get(i).put("rank", i + 1);
-        }
-
-        return rankings;
+        return rankingService.getRankings(null, null, 0, Integer.MAX_VALUE, StudentRankingService.RankMode.COMPETITION).items();
     }
 
     /**
      * 获取各考试平均分（按考试日期排序）
      */
+    @Cacheable(CacheConfig.ANALYSIS_EXAM_AVERAGES)
     public Map<String, Double> getExamAverages() {
-        List<ExamBucket> buckets = buildExamBuckets(scoreRepository.findAll());
+        List<ExamBucket> buckets = buildExamBuckets();
         Map<String, Double> result = new LinkedHashMap<>();
         for (ExamBucket bucket : buckets) {
             result.put(bucket.label(), round2(bucket.average()));
@@ -225,8 +186,9 @@ public class ScoreAnalysisService {
     /**
      * 获取各考试及格率（按考试日期排序）
      */
+    @Cacheable(CacheConfig.ANALYSIS_EXAM_PASS_RATES)
     public Map<String, Double> getExamPassRates() {
-        List<ExamBucket> buckets = buildExamBuckets(scoreRepository.findAll());
+        List<ExamBucket> buckets = buildExamBuckets();
         Map<String, Double> result = new LinkedHashMap<>();
         for (ExamBucket bucket : buckets) {
             result.put(bucket.label(), round2(bucket.passRate()));
@@ -234,17 +196,17 @@ public class ScoreAnalysisService {
         return result;
     }
 
-    private List<ExamBucket> buildExamBuckets(List<Score> scores) {
-        Map<Long, ExamBucket> map = new LinkedHashMap<>();
-        for (Score score : scores) {
-            Exam exam = score.getExam();
-            if (exam == null) {
-                continue;
+    private List<ExamBucket> buildExamBuckets() {
+        Map<Long, ScoreAggregate> statsByExam = new HashMap<>();
+        for (ScoreAggregate stats : aggregateService.findAll(Scope.EXAM)) {
+            if (stats.getCount() > 0) {
+                statsByExam.put(Long.valueOf(stats.getScopeKey()), stats);
             }
-            ExamBucket bucket = map.computeIfAbsent(exam.getId(), id -> new ExamBucket(exam));
-            bucket.accept(score.getValue());
         }
-        List<ExamBucket> buckets = new ArrayList<>(map.values());
+        List<ExamBucket> buckets = new ArrayList<>();
+        for (Exam exam : examRepository.findAllById(statsByExam.keySet())) {
+            buckets.add(new ExamBucket(exam, statsByExam.get(exam.getId())));
+        }
         buckets.sort(Comparator
                 .comparing((ExamBucket bucket) -> bucket.examDate, Comparator.nullsLast(Comparator.naturalOrder()))
                 .thenComparing(bucket -> bucket.examName == null ? "" : bucket.examName));
@@ -259,33 +221,21 @@ public class ScoreAnalysisService {
         private final Long examId;
         private final String examName;
         private final LocalDate examDate;
-        private double sum;
-        private int count;
-        private int passCount;
+        private final ScoreAggregate stats;
 
-        private ExamBucket(Exam exam) {
+        private ExamBucket(Exam exam, ScoreAggregate stats) {
             this.examId = exam.getId();
             this.examName = exam.getName();
             this.examDate = exam.getExamDate();
-        }
-
-        private void accept(Double value) {
-            if (value == null) {
-                return;
-            }
-            sum += value;
-            count++;
-            if (value >= 60) {
-                passCount++;
-            }
+            this.stats = stats;
         }
 
         private double average() {
-            return count == 0 ? 0.0 : sum / count;
+            return stats.average();
         }
 
         private double passRate() {
-            return count == 0 ? 0.0 : passCount * 100.0 / count;
+            return stats.passRate();
         }
 
         private String label() {
@@ -0,0 +1,17 @@
+package com.scrapy.demo.service;
+
+import com.scrapy.demo.domain.ScoreChange;
+
+import java.util.List;
+
+/**
+ * 成绩变更增量
+ * next 为下次请求应传入的 since（本批最后一条的序号，没有变更时等于请求的 since）；
+ * hasMore 为 true 时还有未返回的变更，可立即继续请求
+ */
+public record ScoreChangeFeed(List<ScoreChange> changes, long next, boolean hasMore) {
+
+    static ScoreChangeFeed empty(long since) {
+        return new ScoreChangeFeed(List.of(), since, false);
+    }
+}
@@ -0,0 +1,199 @@
+package com.scrapy.demo.service;
+
+import com.scrapy.demo.domain.ScoreChange;
+import com.scrapy.demo.repository.ScoreChangeRepository;
+import com.scrapy.demo.repository.ScoreRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 成绩变更日志服务
+ * 成绩写入方在同一事务内追加变更，下游按序号增量拉取；
+ * 没有新变更时请求挂起（长轮询），本实例有事务提交变更后立即唤醒，否则到期返回空结果。
+ * 序号在插入时分配、提交时才可见，并发事务可能晚于更大的序号提交；为此记录仍未结束的写入事务，
+ * 读取与 latestSequence 只提供安全水位（未结束事务可能拿到的最小序号之前）内的变更，
+ * 消费方按 next 继续拉取不会遗漏晚提交的序号。写入事务登记在本实例内存中，要求变更只由单实例写入
+ */
+@Service
+public class ScoreChangeService {
+
+    public static final long DEFAULT_WAIT_SECONDS = 30;
+    static final long MAX_WAIT_SECONDS = 60;
+    private static final int BATCH_SIZE = 1000;
+
+    private record Waiter(long since, int limit, DeferredResult<ScoreChangeFeed> result) {
+    }
+
+    private final ScoreChangeRepository changeRepository;
+    private final ScoreRepository scoreRepository;
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    /**
+     * 未结束的写入事务 -> 登记时已提交的最大序号（该事务插入的序号都大于它）
+     */
+    private final Map<Object, Long> writers = new ConcurrentHashMap<>();
+    /**
+     * 绑定到当前事务的登记标记的资源键
+     */
+    private final Object writerKey = new Object();
+
+    public ScoreChangeService(ScoreChangeRepository changeRepository, ScoreRepository scoreRepository) {
+        this.changeRepository = changeRepository;
+        this.scoreRepository = scoreRepository;
+    }
+
+    /**
+     * 追加一条变更（须在写成绩的事务内调用）
+     */
+    public void record(ScoreChange change) {
+        boolean tracked = trackWriter();
+        changeRepository.save(change);
+        if (!tracked) {
+            wakeWaiters();
+        }
+    }
+
+    /**
+     * 以 JDBC 批处理追加多条变更（导入、级联删除等批量写入）
+     */
+    public void recordAll(List<ScoreChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        boolean tracked = trackWriter();
+        scoreRepository.batchInsertChanges(changes, BATCH_SIZE);
+        if (!tracked) {
+            wakeWaiters();
+        }
+    }
+
+    /**
+     * 当前安全水位，没有变更时为 0：水位及之前的序号都已提交（或已回滚），
+     * 先取水位再做全量抽取，之后从该序号起增量同步不会遗漏
+     */
+    public long latestSequence() {
+        return horizon();
+    }
+
+    /**
+     * 序号大于 since 且不超过安全水位的至多 limit 条变更
+     */
+    public ScoreChangeFeed fetch(long since, int limit) {
+        long horizon = horizon();
+        if (horizon <= since) {
+            return ScoreChangeFeed.empty(since);
+        }
+        List<ScoreChange> changes = changeRepository.findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(
+                since, horizon, PageRequest.ofSize(limit + 1));
+        boolean hasMore = changes.size() > limit;
+        if (hasMore) {
+            changes = changes.subList(0, limit);
+        }
+        long next = changes.isEmpty() ? since : changes.get(changes.size() - 1).getId();
+        return new ScoreChangeFeed(changes, next, hasMore);
+    }
+
+    /**
+     * 长轮询：已有变更时立即返回，否则最多等待 waitSeconds 秒
+     * 先登记等待者再查询，查询与提交通知之间的变更不会被漏掉
+     */
+    public DeferredResult<ScoreChangeFeed> poll(long since, int limit, long waitSeconds) {
+        long wait = Math.clamp(waitSeconds, 0, MAX_WAIT_SECONDS);
+        DeferredResult<ScoreChangeFeed> result = new DeferredResult<>(
+                TimeUnit.SECONDS.toMillis(Math.max(wait, 1)), () -> ScoreChangeFeed.empty(since));
+        if (wait == 0) {
+            result.setResult(fetch(since, limit));
+            return result;
+        }
+        Waiter waiter = new Waiter(since, limit, result);
+        waiters.add(waiter);
+        result.onCompletion(() -> waiters.remove(waiter));
+        ScoreChangeFeed feed = fetch(since, limit);
+        if (!feed.changes().isEmpty()) {
+            result.setResult(feed);
+        }
+        return result;
+    }
+
+    /**
+     * 安全水位：先取已提交的最大序号，再与其他未结束写入事务登记的下界取较小值。
+     * 取最大序号之后才登记的事务，插入的序号必然大于该最大序号；当前事务自己的变更对自己可见，不受限制
+     */
+    private long horizon() {
+        Long max = changeRepository.findMaxId();
+        long horizon = max != null ? max : 0L;
+        Object own = TransactionSynchronizationManager.getResource(writerKey);
+        for (Map.Entry<Object, Long> writer : writers.entrySet()) {
+            if (writer.getKey() != own) {
+                horizon = Math.min(horizon, writer.getValue());
+            }
+        }
+        return horizon;
+    }
+
+    /**
+     * 在插入变更前登记当前事务（每个事务只登记一次），事务结束（提交或回滚）后注销并唤醒等待者；
+     * 不在事务中时插入立即可见，返回 false 由调用方在插入后唤醒
+     */
+    private boolean trackWriter() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return false;
+        }
+        if (TransactionSynchronizationManager.hasResource(writerKey)) {
+            return true;
+        }
+        Object marker = new Object();
+        Long max = changeRepository.findMaxId();
+        writers.put(marker, max != null ? max : 0L);
+        TransactionSynchronizationManager.bindResource(writerKey, marker);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(writerKey);
+                writers.remove(marker);
+                wakeWaiters();
+            }
+        });
+        return true;
+    }
+
+    /**
+     * 在虚拟线程中为全部等待者重新查询，不占用提交事务的请求线程；仍无新变更的等待者继续等待
+     */
+    void wakeWaiters() {
+        if (waiters.isEmpty()) {
+            return;
+        }
+        List<Waiter> woken = new ArrayList<>();
+        for (Waiter waiter = waiters.poll(); waiter != null; waiter = waiters.poll()) {
+            woken.add(waiter);
+        }
+        Thread.startVirtualThread(() -> {
+            for (Waiter waiter : woken) {
+                if (waiter.result().isSetOrExpired()) {
+                    continue;
+                }
+                try {
+                    ScoreChangeFeed feed = fetch(waiter.since(), waiter.limit());
+                    if (feed.changes().isEmpty()) {
+                        waiters.add(waiter);
+                    } else {
+                        waiter.result().setResult(feed);
+                    }
+                } catch (RuntimeException e) {
+                    waiter.result().setErrorResult(e);
+                }
+            }
+        });
+    }
+}
@@ -1,17 +1,29 @@
 package com.scrapy.demo.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.scrapy.demo.domain.Score;
+import com.scrapy.demo.domain.ScoreChange;
 import com.scrapy.demo.domain.ScoreHistory;
 import com.scrapy.demo.repository.ScoreHistoryRepository;
 import com.scrapy.demo.repository.ScoreRepository;
+import com.scrapy.demo.repository.ScoreView;
 import com.scrapy.demo.repository.StudentRepository;
 import com.scrapy.demo.repository.CourseRepository;
 import com.scrapy.demo.repository.ExamRepository;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
+import java.util.stream.Stream;
 
 /**
  * 成绩服务
@@ -20,48 +32,108 @@ import java.util.Objects;
 @Service
 public class ScoreService {
 
+    private static final int NDJSON_FLUSH_ROWS = 1000;
+
     private final ScoreRepository scoreRepository;
     private final ScoreHistoryRepository historyRepository;
     private final StudentRepository studentRepository;
     private final CourseRepository courseRepository;
     private final ExamRepository examRepository;
+    private final ScoreAggregateService aggregateService;
+    private final ScoreChangeService changeService;
+    private final StudentSnapshotService snapshotService;
+    private final ObjectWriter viewWriter;
 
     public ScoreService(ScoreRepository scoreRepository, ScoreHistoryRepository historyRepository,
                         StudentRepository studentRepository, CourseRepository courseRepository,
-                        ExamRepository examRepository) {
+                        ExamRepository examRepository, ScoreAggregateService aggregateService,
+                        ScoreChangeService changeService, StudentSnapshotService snapshotService,
+                        ObjectMapper objectMapper) {
         this.scoreRepository = scoreRepository;
         this.historyRepository = historyRepository;
         this.studentRepository = studentRepository;
         this.courseRepository = courseRepository;
         this.examRepository = examRepository;
+        this.aggregateService = aggregateService;
+        this.changeService = changeService;
+        this.snapshotService = snapshotService;
+        // 逐行写入时不在每行后刷新，由 writeViewsNdjson 按批刷新
+        this.viewWriter = objectMapper.writerFor(ScoreView.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
     /**
      * 获取所有成绩
      */
     public List<Score> listAllScores() {
-        return scoreRepository.findAll();
+        return scoreRepository.findAllWithAssociations();
     }
 
     /**
      * 根据ID查找成绩
      */
     public Score findById(Long id) {
-        return scoreRepository.findById(id).orElse(null);
+        return scoreRepository.findWithAssociationsById(id).orElse(null);
     }
 
     /**
      * 根据学生ID查找成绩
      */
     public List<Score> findByStudentId(Long studentId) {
-        return scoreRepository.findByStudentId(studentId);
+        return scoreRepository.findWithAssociationsByStudentId(studentId);
     }
 
     /**
      * 根据课程ID查找成绩
      */
     public List<Score> findByCourseId(Long courseId) {
-        return scoreRepository.findByCourseId(courseId);
+        return scoreRepository.findWithAssociationsByCourseId(courseId);
+    }
+
+    /**
+     * 成绩列表（投影行，用于列表接口）
+     */
+    public List<ScoreView> listAllViews() {
+        return scoreRepository.findAllViews();
+    }
+
+    /**
+     * 以 NDJSON（每行一个成绩列表行）写出全部成绩
+     * 投影行按游标分批读取，不进入持久化上下文，内存占用与成绩总数无关；
+     * 首行与之后每 NDJSON_FLUSH_ROWS 行刷新一次，使客户端尽早收到数据
+     */
+    @Transactional(readOnly = true)
+    public void writeViewsNdjson(OutputStream out) throws IOException {
+        try (Stream<ScoreView> views = scoreRepository.streamViews();
+             JsonGenerator generator = viewWriter.createGenerator(out)) {
+            int count = 0;
+            for (Iterator<ScoreView> it = views.iterator(); it.hasNext(); ) {
+                viewWriter.writeValue(generator, it.next());
+                generator.writeRaw('\n');
+                if (++count % NDJSON_FLUSH_ROWS == 1) {
+                    generator.flush();
+                }
+            }
+        }
+    }
+
+    public List<ScoreView> findViewsByStudentId(Long studentId) {
+        return scoreRepository.findViewsByStudentId(studentId);
+    }
+
+    public List<ScoreView> findViewsByCourseId(Long courseId) {
+        return scoreRepository.findViewsByCourseId(courseId);
+    }
+
+    /**
+     * 游标分页查询成绩列表行；筛选条件为空时不筛选，日期区间按记录时间 [from, to] 含两端日期
+     */
+    public List<ScoreView> listViewPage(String clazz, Long courseId, Long examId, LocalDate from, LocalDate to,
+                                        long after, int limit) {
+        return scoreRepository.findViewPage(after, clazz, courseId, examId,
+                from == null ? null : from.atStartOfDay(),
+                to == null ? null : to.plusDays(1).atStartOfDay(),
+                PageRequest.ofSize(limit));
     }
 
     /**
@@ -74,9 +146,9 @@ public class ScoreService {
             if (score.getStudent().getId() == null) {
                 studentRepository.saveAndFlush(score.getStudent());
             } else {
-                // ensure exists in DB
-                studentRepository.findById(score.getStudent().getId())
-                        .orElseThrow(() -> new IllegalArgumentException("Student does not exist: " + score.getStudent().getId()));
+                // ensure exists in DB; use the managed entity so the class is known for aggregation
+                score.setStudent(studentRepository.findById(score.getStudent().getId())
+                        .orElseThrow(() -> new IllegalArgumentException("Student does not exist: " + score.getStudent().getId())));
             }
         }
 
@@ -99,7 +171,11 @@ public class ScoreService {
             }
         }
 
-        return scoreRepository.save(score);
+        Score saved = scoreRepository.save(score);
+        aggregateService.recordCreated(saved);
+        changeService.record(ScoreChange.inserted(saved));
+        snapshotService.refresh(saved.getStudent().getId());
+        return saved;
     }
 
     /**
@@ -117,8 +193,9 @@ public class ScoreService {
      */
     @Transactional
     public Score updateScore(Long scoreId, Score payload) {
-        Score existing = scoreRepository.findById(scoreId)
+        Score existing = scoreRepository.findWithAssociationsById(scoreId)
                 .orElseThrow(() -> new IllegalArgumentException("成绩不存在：" + scoreId));
+        ScoreAggregateService.Contribution before = ScoreAggregateService.Contribution.of(existing);
 
         if (payload != null) {
             if (payload.getStudent() != null) {
@@ -163,6 +240,11 @@ public class ScoreService {
 
         Score saved = scoreRepository.save(existing);
         scoreRepository.flush();
+        aggregateService.recordUpdated(before, saved);
+        if (!before.equals(ScoreAggregateService.Contribution.of(saved))) {
+            changeService.record(ScoreChange.updated(saved, oldValue));
+            snapshotService.refresh(before.studentId(), saved.getStudent().getId());
+        }
 
         if (newValue != null && !Objects.equals(oldValue, newValue)) {
             ScoreHistory history = new ScoreHistory(saved, oldValue, newValue);
@@ -181,7 +263,11 @@ public class ScoreService {
         if (score == null) {
             return false;
         }
+        ScoreAggregateService.Contribution before = ScoreAggregateService.Contribution.of(score);
         scoreRepository.delete(score);
+        aggregateService.recordDeleted(before);
+        changeService.record(ScoreChange.deleted(score));
+        snapshotService.refresh(before.studentId());
         return true;
     }
 }
@@ -0,0 +1,231 @@
+package com.scrapy.demo.service;
+
+import com.scrapy.demo.domain.Score;
+import com.scrapy.demo.domain.ScoreAggregate;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.DoubleConsumer;
+
+/**
+ * 单遍成绩统计累加器
+ * 一次循环得到计数、均值、极值、方差、及格数与五段分布，全程使用原始类型，不装箱；
+ * 需要分位数时以 0.1 分精度额外计数，仍为单遍
+ */
+public final class ScoreStats implements DoubleConsumer {
+
+    public static final double PASS_LINE = ScoreAggregate.PASS_LINE;
+
+    /**
+     * 成绩分布区间：0-59, 60-69, 70-79, 80-89, 90-100
+     */
+    public static final String[] BUCKET_LABELS = {"0-59", "60-69", "70-79", "80-89", "90-100"};
+
+    private static final int PERCENTILE_BINS = 1001;
+
+    private long count;
+    private double sum;
+    private double sumOfSquares;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private long passCount;
+    private final int[] histogram = new int[BUCKET_LABELS.length];
+    private final int[] percentileBins;
+
+    public ScoreStats() {
+        this(false);
+    }
+
+    /**
+     * @param trackPercentiles 是否记录 0.1 分精度的计数以支持 {@link #percentile(double)}
+     */
+    public ScoreStats(boolean trackPercentiles) {
+        this.percentileBins = trackPercentiles ? new int[PERCENTILE_BINS] : null;
+    }
+
+    public static ScoreStats of(double[] values) {
+        return of(values, 0, values.length);
+    }
+
+    public static ScoreStats of(double[] values, int from, int to) {
+        ScoreStats stats = new ScoreStats();
+        for (int i = from; i < to; i++) {
+            stats.accept(values[i]);
+        }
+        return stats;
+    }
+
+    /**
+     * 统计成绩实体的分数，忽略空值
+     */
+    public static ScoreStats ofScores(Collection<Score> scores) {
+        ScoreStats stats = new ScoreStats();
+        for (Score score : scores) {
+            Double value = score.getValue();
+            if (value != null) {
+                stats.accept(value);
+            }
+        }
+        return stats;
+    }
+
+    @Override
+    public void accept(double value) {
+        count++;
+        sum += value;
+        sumOfSquares += value * value;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+        if (value >= PASS_LINE) {
+            passCount++;
+        }
+        histogram[bucketOf(value)]++;
+        if (percentileBins != null) {
+            percentileBins[binOf(value)]++;
+        }
+    }
+
+    /**
+     * 合并另一个累加器（用于分片并行统计）
+     */
+    public ScoreStats combine(ScoreStats other) {
+        count += other.count;
+        sum += other.sum;
+        sumOfSquares += other.sumOfSquares;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        passCount += other.passCount;
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] += other.histogram[i];
+        }
+        if (percentileBins != null && other.percentileBins != null) {
+            for (int i = 0; i < PERCENTILE_BINS; i++) {
+                percentileBins[i] += other.percentileBins[i];
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 区间下标，与聚合表的五段分布保持一致
+     */
+    public static int bucketOf(double value) {
+        return ScoreAggregate.bucketOf(value);
+    }
+
+    /**
+     * 按区间标签组装分布
+     */
+    public static Map<String, Integer> distribution(long[] buckets) {
+        Map<String, Integer> distribution = new LinkedHashMap<>();
+        for (int i = 0; i < BUCKET_LABELS.length; i++) {
+            distribution.put(BUCKET_LABELS[i], buckets == null ? 0 : (int) buckets[i]);
+        }
+        return distribution;
+    }
+
+    public Map<String, Integer> distribution() {
+        Map<String, Integer> distribution = new LinkedHashMap<>();
+        for (int i = 0; i < BUCKET_LABELS.length; i++) {
+            distribution.put(BUCKET_LABELS[i], histogram[i]);
+        }
+        return distribution;
+    }
+
+    /**
+     * 分位数（p 取 0-100），以 0.1 分为精度；需以 trackPercentiles 构造
+     */
+    public double percentile(double p) {
+        if (percentileBins == null) {
+            throw new IllegalStateException("未开启分位数统计");
+        }
+        if (count == 0) {
+            return 0.0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100.0, Math.max(0.0, p)) / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < PERCENTILE_BINS; i++) {
+            seen += percentileBins[i];
+            if (seen >= rank) {
+                return i / 10.0;
+            }
+        }
+        return max;
+    }
+
+    private static int binOf(double value) {
+        int bin = (int) Math.round(value * 10);
+        return Math.max(0, Math.min(PERCENTILE_BINS - 1, bin));
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public double sum() {
+        return sum;
+    }
+
+    public double sumOfSquares() {
+        return sumOfSquares;
+    }
+
+    /**
+     * 均值；无数据时返回 fallback
+     */
+    public double mean(double fallback) {
+        return count == 0 ? fallback : sum / count;
+    }
+
+    public double mean() {
+        return mean(0.0);
+    }
+
+    public double min() {
+        return count == 0 ? 0.0 : min;
+    }
+
+    public double max() {
+        return count == 0 ? 0.0 : max;
+    }
+
+    /**
+     * 总体方差
+     */
+    public double variance() {
+        if (count == 0) {
+            return 0.0;
+        }
+        double mean = sum / count;
+        return Math.max(0.0, sumOfSquares / count - mean * mean);
+    }
+
+    public double standardDeviation() {
+        return Math.sqrt(variance());
+    }
+
+    public long passCount() {
+        return passCount;
+    }
+
+    public long failCount() {
+        return count - passCount;
+    }
+
+    public double passRate() {
+        return count == 0 ? 0.0 : passCount * 100.0 / count;
+    }
+
+    public int[] histogram() {
+        return histogram.clone();
+    }
+}
@@ -0,0 +1,35 @@
+package com.scrapy.demo.service;
+
+import java.util.List;
+
+/**
+ * 导入文件解析出的一行数据（XLSX 与 CSV 共用）
+ * 单元格值为 String（文本）或 Double（数值），其余类型及空单元格为 null
+ */
+public record SheetRow(int rowNum, List<Object> cells) {
+
+    /**
+     * 与 DOM 读取一致：文本原样返回，数值按整数转为文本（如学号）
+     */
+    public String getString(int column) {
+        Object value = cell(column);
+        if (value instanceof String text) {
+            return text;
+        }
+        if (value instanceof Double number) {
+            return String.valueOf(number.longValue());
+        }
+        return null;
+    }
+
+    /**
+     * 与 DOM 读取一致：只接受数值单元格
+     */
+    public Double getNumber(int column) {
+        return cell(column) instanceof Double number ? number : null;
+    }
+
+    private Object cell(int column) {
+        return column < cells.size() ? cells.get(column) : null;
+    }
+}
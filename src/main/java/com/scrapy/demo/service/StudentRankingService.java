@@ -0,0 +1,196 @@
+package com.scrapy.demo.service;
+
+import com.scrapy.demo.domain.ScoreAggregate;
+import com.scrapy.demo.domain.ScoreAggregate.Scope;
+import com.scrapy.demo.repository.ScoreRepository;
+import com.scrapy.demo.repository.StudentAverageView;
+import com.scrapy.demo.repository.StudentRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 学生排名服务
+ * 按（班级, 课程）维护排名索引，索引记下生成时的聚合版本号，成绩写入使版本号变化后于下次读取时重建；
+ * 只取前 K 名时用容量为 K 的堆选取而不全量排序；同分按竞争排名（1,2,2,4）或密集排名（1,2,2,3）处理
+ */
+@Service
+public class StudentRankingService {
+
+    private static final int MAX_CACHED_INDEXES = 256;
+
+    /**
+     * 前 K 名不足总人数的该比例时使用堆选取，否则全量排序
+     */
+    private static final int PARTIAL_SELECT_RATIO = 4;
+
+    private static final Comparator<RankEntry> ORDER = Comparator
+            .comparingDouble(RankEntry::average).reversed()
+            .thenComparingLong(RankEntry::studentId);
+
+    /**
+     * 同分名次规则
+     */
+    public enum RankMode {
+        COMPETITION, DENSE;
+
+        public static RankMode parse(String value) {
+            return "dense".equalsIgnoreCase(value) ? DENSE : COMPETITION;
+        }
+    }
+
+    /**
+     * 一页排名及参与排名的总人数
+     */
+    public record RankingPage(int total, List<Map<String, Object>> items) {
+    }
+
+    private record RankEntry(long studentId, double average) {
+    }
+
+    private final ScoreAggregateService aggregateService;
+    private final ScoreRepository scoreRepository;
+    private final StudentRepository studentRepository;
+    private final AnalysisExecutor analysisExecutor;
+    private final Map<String, RankIndex> indexes = new ConcurrentHashMap<>();
+
+    public StudentRankingService(ScoreAggregateService aggregateService,
+                                 ScoreRepository scoreRepository,
+                                 StudentRepository studentRepository,
+                                 AnalysisExecutor analysisExecutor) {
+        this.aggregateService = aggregateService;
+        this.scoreRepository = scoreRepository;
+        this.studentRepository = studentRepository;
+        this.analysisExecutor = analysisExecutor;
+    }
+
+    /**
+     * 按平均分降序分页获取排名
+     *
+     * @param clazz    班级，为空表示全校
+     * @param courseId 课程，为空表示按全部课程平均分
+     */
+    public RankingPage getRankings(String clazz, Long courseId, int offset, int limit, RankMode mode) {
+        String normalizedClazz = clazz == null || clazz.isBlank() ? null : clazz.trim();
+        int from = Math.max(0, offset);
+        int size = Math.max(0, limit);
+        int window = (int) Math.min((long) from + size, Integer.MAX_VALUE);
+        String key = (normalizedClazz == null ? "" : normalizedClazz) + "|" + (courseId == null ? "" : courseId);
+
+        long version = aggregateService.version();
+        RankIndex index = indexes.get(key);
+        if (index == null || index.version != version || !index.covers(window)) {
+            index = build(normalizedClazz, courseId, window, version);
+            if (indexes.size() >= MAX_CACHED_INDEXES) {
+                indexes.clear();
+            }
+            indexes.put(key, index);
+        }
+        return new RankingPage(index.total, index.page(from, size, mode == null ? RankMode.COMPETITION : mode));
+    }
+
+    private RankIndex build(String clazz, Long courseId, int window, long version) {
+        List<RankEntry> entries = loadEntries(clazz, courseId);
+        int total = entries.size();
+        if (window < total / PARTIAL_SELECT_RATIO) {
+            return new RankIndex(version, total, selectTop(entries, window));
+        }
+        analysisExecutor.sort(entries, ORDER);
+        return new RankIndex(version, total, entries);
+    }
+
+    /**
+     * 容量为 k 的堆：堆顶为当前入选者中最差的一名，新条目优于堆顶时替换
+     */
+    private List<RankEntry> selectTop(List<RankEntry> entries, int k) {
+        if (k == 0) {
+            return new ArrayList<>();
+        }
+        PriorityQueue<RankEntry> heap = new PriorityQueue<>(k, ORDER.reversed());
+        for (RankEntry entry : entries) {
+            if (heap.size() < k) {
+                heap.offer(entry);
+            } else if (ORDER.compare(entry, heap.peek()) < 0) {
+                heap.poll();
+                heap.offer(entry);
+            }
+        }
+        List<RankEntry> top = new ArrayList<>(heap);
+        top.sort(ORDER);
+        return top;
+    }
+
+    private List<RankEntry> loadEntries(String clazz, Long courseId) {
+        List<RankEntry> entries = new ArrayList<>();
+        if (courseId != null) {
+            for (StudentAverageView view : scoreRepository.averageByStudentForCourse(courseId, clazz)) {
+                if (view.getStudentId() != null && view.getAverage() != null) {
+                    entries.add(new RankEntry(view.getStudentId(), round2(view.getAverage())));
+                }
+            }
+            return entries;
+        }
+        Collection<ScoreAggregate> studentStats;
+        if (clazz != null) {
+            List<String> keys = studentRepository.findIdsByClazz(clazz).stream()
+                    .map(ScoreAggregateService::keyOf)
+                    .toList();
+            studentStats = aggregateService.findAll(Scope.STUDENT, keys).values();
+        } else {
+            studentStats = aggregateService.findAll(Scope.STUDENT);
+        }
+        for (ScoreAggregate stats : studentStats) {
+            if (stats.getCount() > 0) {
+                entries.add(new RankEntry(Long.parseLong(stats.getScopeKey()), round2(stats.average())));
+            }
+        }
+        return entries;
+    }
+
+    private static double round2(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    /**
+     * 排名索引：按名次排好的前缀（全量排序时即全部学生）及预先算好的两种名次
+     */
+    private static final class RankIndex {
+        private final long version;
+        private final int total;
+        private final List<RankEntry> ranked;
+        private final int[] competitionRanks;
+        private final int[] denseRanks;
+
+        private RankIndex(long version, int total, List<RankEntry> ranked) {
+            this.version = version;
+            this.total = total;
+            this.ranked = ranked;
+            this.competitionRanks = new int[ranked.size()];
+            this.denseRanks = new int[ranked.size()];
+            for (int i = 0; i < ranked.size(); i++) {
+                boolean tie = i > 0 && ranked.get(i).average() == ranked.get(i - 1).average();
+                competitionRanks[i] = tie ? competitionRanks[i - 1] : i + 1;
+                denseRanks[i] = tie ? denseRanks[i - 1] : (i == 0 ? 1 : denseRanks[i - 1] + 1);
+            }
+        }
+
+        private boolean covers(int window) {
+            return ranked.size() == total || window <= ranked.size();
+        }
+
+        private List<Map<String, Object>> page(int offset, int limit, RankMode mode) {
+            int end = (int) Math.min((long) offset + limit, ranked.size());
+            List<Map<String, Object>> items = new ArrayList<>(Math.max(0, end - offset));
+            for (int i = offset; i < end; i++) {
+                RankEntry entry = ranked.get(i);
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("rank", mode == RankMode.DENSE ? denseRanks[i] : competitionRanks[i]);
+                item.put("studentId", entry.studentId());
+                item.put("averageScore", entry.average());
+                items.add(item);
+            }
+            return items;
+        }
+    }
+}
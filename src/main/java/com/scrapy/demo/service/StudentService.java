@@ -1,10 +1,16 @@
 package com.scrapy.demo.service;
 
+import com.scrapy.demo.domain.ScoreChange;
 import com.scrapy.demo.domain.Student;
+import com.scrapy.demo.repository.ScoreRepository;
 import com.scrapy.demo.repository.StudentRepository;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -15,9 +21,21 @@ import java.util.List;
 public class StudentService {
 
     private final StudentRepository studentRepository;
+    private final ScoreRepository scoreRepository;
+    private final ScoreAggregateService aggregateService;
+    private final AnalysisCacheEvictor cacheEvictor;
+    private final ScoreChangeService changeService;
+    private final StudentSnapshotService snapshotService;
 
-    public StudentService(StudentRepository studentRepository) {
+    public StudentService(StudentRepository studentRepository, ScoreRepository scoreRepository,
+                          ScoreAggregateService aggregateService, AnalysisCacheEvictor cacheEvictor,
+                          ScoreChangeService changeService, StudentSnapshotService snapshotService) {
         this.studentRepository = studentRepository;
+        this.scoreRepository = scoreRepository;
+        this.aggregateService = aggregateService;
+        this.cacheEvictor = cacheEvictor;
+        this.changeService = changeService;
+        this.snapshotService = snapshotService;
     }
 
     /**
@@ -27,6 +45,13 @@ public class StudentService {
         return studentRepository.findAll();
     }
 
+    /**
+     * 游标分页查询学生，clazz 为空时不筛选
+     */
+    public List<Student> listPage(String clazz, long after, int limit) {
+        return studentRepository.findPage(after, clazz, PageRequest.ofSize(limit));
+    }
+
     /**
      * 根据ID查找学生
      */
@@ -53,7 +78,9 @@ public class StudentService {
      */
     @Transactional
     public Student save(Student student) {
-        return studentRepository.save(student);
+        Student saved = studentRepository.save(student);
+        cacheEvictor.classesChanged(Collections.singletonList(saved.getClazz()));
+        return saved;
     }
 
     /**
@@ -65,10 +92,15 @@ public class StudentService {
         if (existingStudent == null) {
             return null;
         }
+        String oldClazz = existingStudent.getClazz();
         existingStudent.setName(student.getName());
         existingStudent.setClazz(student.getClazz());
         existingStudent.setMajor(student.getMajor());
-        return studentRepository.save(existingStudent);
+        Student saved = studentRepository.saveAndFlush(existingStudent);
+        aggregateService.moveStudentClass(saved.getId(), oldClazz, saved.getClazz());
+        snapshotService.moveStudentClass(saved.getId(), oldClazz, saved.getClazz());
+        cacheEvictor.classesChanged(Arrays.asList(oldClazz, saved.getClazz()));
+        return saved;
     }
 
     /**
@@ -80,7 +112,19 @@ public class StudentService {
         if (student == null) {
             return false;
         }
+        // 成绩随学生级联删除，先记下其贡献以便扣除聚合，并记录删除变更
+        ScoreAggregateService.Changes changes = aggregateService.changes();
+        List<ScoreChange> deleted = new ArrayList<>();
+        scoreRepository.findByStudentId(id).forEach(score -> {
+            changes.remove(ScoreAggregateService.Contribution.of(score));
+            deleted.add(ScoreChange.deleted(score));
+        });
         studentRepository.delete(student);
+        studentRepository.flush();
+        aggregateService.apply(changes);
+        changeService.recordAll(deleted);
+        snapshotService.refresh(id);
+        cacheEvictor.classesChanged(Collections.singletonList(student.getClazz()));
         return true;
     }
 
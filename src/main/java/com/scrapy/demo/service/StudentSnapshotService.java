@@ -0,0 +1,208 @@
+package com.scrapy.demo.service;
+
+import com.scrapy.demo.domain.StudentSnapshot;
+import com.scrapy.demo.repository.ScoreRepository;
+import com.scrapy.demo.repository.StudentExamStatsView;
+import com.scrapy.demo.repository.StudentSnapshotRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+
+/**
+ * 学生考试快照维护服务
+ * 在成绩新增/修改/删除的同一事务内，按受影响的学生从库内按考试日期分组统计，只刷新这些学生的快照行
+ * （按学生ID顺序插入缺失行并加写锁，并发写入同一学生时串行，不同学生互不阻塞）；
+ * 班内名次不落库，读取班级快照时在内存中排名；班级学生标记与概览读取快照行，不再逐次从成绩明细重算
+ */
+@Service
+public class StudentSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StudentSnapshotService.class);
+
+    private static final int KEY_BATCH_SIZE = 500;
+
+    private final StudentSnapshotRepository snapshotRepository;
+    private final ScoreRepository scoreRepository;
+
+    public StudentSnapshotService(StudentSnapshotRepository snapshotRepository, ScoreRepository scoreRepository) {
+        this.snapshotRepository = snapshotRepository;
+        this.scoreRepository = scoreRepository;
+    }
+
+    @Transactional
+    public void refresh(Long... studentIds) {
+        refresh(Arrays.asList(studentIds));
+    }
+
+    /**
+     * 刷新指定学生的快照（须在成绩写入之后、同一事务内调用）；学生已没有成绩时删除其快照
+     */
+    @Transactional
+    public void refresh(Collection<Long> studentIds) {
+        List<Long> ids = studentIds.stream().filter(Objects::nonNull).distinct().sorted().toList();
+        if (ids.isEmpty()) {
+            return;
+        }
+        for (int from = 0; from < ids.size(); from += KEY_BATCH_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + KEY_BATCH_SIZE, ids.size()));
+            Map<Long, StudentSnapshot> existing = lockRows(chunk, summarize(chunk));
+            // 加锁后重新统计，包含等锁期间并发事务已提交的同一学生成绩
+            Map<Long, List<StudentExamStatsView>> statsByStudent = summarize(chunk);
+            List<StudentSnapshot> toSave = new ArrayList<>();
+            List<StudentSnapshot> toDelete = new ArrayList<>();
+            for (Long studentId : chunk) {
+                StudentSnapshot row = existing.get(studentId);
+                List<StudentExamStatsView> stats = statsByStudent.get(studentId);
+                if (stats == null) {
+                    if (row != null) {
+                        toDelete.add(row);
+                    }
+                    continue;
+                }
+                if (row == null) {
+                    row = new StudentSnapshot(studentId);
+                }
+                assign(row, stats);
+                toSave.add(row);
+            }
+            snapshotRepository.deleteAll(toDelete);
+            snapshotRepository.saveAll(toSave);
+        }
+    }
+
+    /**
+     * 学生调班：快照随学生转入新班级（名次读取时按新班级计算）
+     */
+    @Transactional
+    public void moveStudentClass(Long studentId, String oldClazz, String newClazz) {
+        if (studentId == null || Objects.equals(oldClazz, newClazz)) {
+            return;
+        }
+        snapshotRepository.lockByStudentIdIn(List.of(studentId)).forEach(row -> row.setClazz(newClazz));
+    }
+
+    /**
+     * 班级全部学生的快照，并按本次/上次平均分计算班内名次
+     */
+    public List<StudentSnapshot> findByClazz(String clazz) {
+        List<StudentSnapshot> rows = snapshotRepository.findByClazz(clazz);
+        rank(rows);
+        return rows;
+    }
+
+    /**
+     * 从成绩表全量重建快照（用于首次上线或外部直接改库后的校准）
+     */
+    @Transactional
+    public void rebuild() {
+        snapshotRepository.deleteAllInBatch();
+        Map<Long, List<StudentExamStatsView>> statsByStudent = scoreRepository.summarizeStudentExams().stream()
+                .collect(Collectors.groupingBy(StudentExamStatsView::getStudentId));
+        List<StudentSnapshot> rows = new ArrayList<>(statsByStudent.size());
+        statsByStudent.forEach((studentId, stats) -> {
+            StudentSnapshot row = new StudentSnapshot(studentId);
+            assign(row, stats);
+            rows.add(row);
+        });
+        snapshotRepository.saveAll(rows);
+        logger.info("Rebuilt {} student snapshots", rows.size());
+    }
+
+    /**
+     * 快照表为空而成绩表有数据时重建，返回是否执行了重建
+     */
+    @Transactional
+    public boolean rebuildIfEmpty() {
+        if (snapshotRepository.count() > 0 || scoreRepository.count() == 0) {
+            return false;
+        }
+        rebuild();
+        return true;
+    }
+
+    /**
+     * 由该学生按考试日期分组的统计取最近两次考试填充快照（名次读取时由 rank 计算）
+     */
+    private static void assign(StudentSnapshot row, List<StudentExamStatsView> stats) {
+        StudentExamStatsView current = null;
+        StudentExamStatsView previous = null;
+        for (StudentExamStatsView view : stats) {
+            if (view.getExamDate() == null) {
+                continue;
+            }
+            if (current == null || view.getExamDate().isAfter(current.getExamDate())) {
+                previous = current;
+                current = view;
+            } else if (previous == null || view.getExamDate().isAfter(previous.getExamDate())) {
+                previous = view;
+            }
+        }
+        long currentCount = current == null ? 0L : orZero(current.getScoreCount());
+        long failedCount = current == null ? 0L : currentCount - orZero(current.getPassCount());
+        double currentAverage = mean(current, 0.0);
+        double previousAverage = mean(previous, currentAverage);
+        double scoreDelta = currentAverage - previousAverage;
+
+        row.setClazz(stats.get(0).getClazz());
+        row.setCurrentExamDate(current == null ? null : current.getExamDate());
+        row.setPreviousExamDate(previous == null ? null : previous.getExamDate());
+        row.setCurrentCount(currentCount);
+        row.setFailedCount(failedCount);
+        row.setCurrentAverage(currentAverage);
+        row.setPreviousAverage(previousAverage);
+        row.setScoreDelta(scoreDelta);
+        row.setRisk(StudentSnapshot.isRisk(currentCount, failedCount, currentAverage, scoreDelta));
+    }
+
+    private static double mean(StudentExamStatsView view, double fallback) {
+        if (view == null || orZero(view.getScoreCount()) == 0 || view.getScoreSum() == null) {
+            return fallback;
+        }
+        return view.getScoreSum() / view.getScoreCount();
+    }
+
+    private static long orZero(Long value) {
+        return value == null ? 0L : value;
+    }
+
+    private Map<Long, List<StudentExamStatsView>> summarize(List<Long> studentIds) {
+        return scoreRepository.summarizeStudentExams(studentIds).stream()
+                .collect(Collectors.groupingBy(StudentExamStatsView::getStudentId));
+    }
+
+    /**
+     * 为有成绩的学生以一条多行 INSERT 插入缺失的快照行，再按学生ID顺序加写锁读取
+     */
+    private Map<Long, StudentSnapshot> lockRows(List<Long> studentIds,
+                                                Map<Long, List<StudentExamStatsView>> statsByStudent) {
+        SortedMap<Long, String> clazzByStudent = new TreeMap<>();
+        statsByStudent.forEach((studentId, stats) -> clazzByStudent.put(studentId, stats.get(0).getClazz()));
+        snapshotRepository.insertIfAbsent(clazzByStudent);
+        return snapshotRepository.lockByStudentIdIn(studentIds).stream()
+                .collect(Collectors.toMap(StudentSnapshot::getStudentId, row -> row));
+    }
+
+    /**
+     * 班内按本次/上次平均分从高到低排名，同分按学生ID
+     */
+    private static void rank(List<StudentSnapshot> rows) {
+        assignRanks(rows, StudentSnapshot::getCurrentAverage, StudentSnapshot::setCurrentRank);
+        assignRanks(rows, StudentSnapshot::getPreviousAverage, StudentSnapshot::setPreviousRank);
+    }
+
+    private static void assignRanks(List<StudentSnapshot> rows, ToDoubleFunction<StudentSnapshot> average,
+                                    ObjIntConsumer<StudentSnapshot> setter) {
+        List<StudentSnapshot> sorted = rows.stream()
+                .sorted(Comparator.comparingDouble(average).reversed().thenComparing(StudentSnapshot::getStudentId))
+                .toList();
+        for (int i = 0; i < sorted.size(); i++) {
+            setter.accept(sorted.get(i), i + 1);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.scrapy.demo.service;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * XLSX 流式读取
+ * 基于 POI 事件模型（XSSFReader + SAX）逐行解析工作表 XML，不构建 XSSFWorkbook，
+ * 内存占用只与共享字符串表和当前行有关，与行数无关
+ */
+public final class XlsxSheetReader {
+
+    private static final String RELATIONSHIPS_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    private XlsxSheetReader() {
+    }
+
+    /**
+     * 逐行读取第一个工作表；rowNum 为从 1 开始的已出现行序号（与遍历 XSSFSheet 的计数一致）
+     */
+    public static void readFirstSheet(Path file, Consumer<SheetRow> handler) throws Exception {
+        readFirstSheet(file, lastRow -> {
+        }, handler);
+    }
+
+    /**
+     * 逐行读取第一个工作表，并在数据行之前通过 lastRowHint 报告 &lt;dimension&gt; 声明的最后行号（若有），
+     * 用于估算总行数
+     */
+    public static void readFirstSheet(Path file, IntConsumer lastRowHint, Consumer<SheetRow> handler) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable sharedStrings = new ReadOnlySharedStringsTable(pkg, false);
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return;
+            }
+            try (InputStream sheet = sheets.next()) {
+                parseSheet(sheet, sharedStrings, lastRowHint, handler);
+            }
+        }
+    }
+
+    /**
+     * 打开工作簿用于逐个读取工作表：共享字符串表与工作表清单只解析一次，隐藏工作表（如模板的下拉选项表）不在清单中
+     */
+    public static Sheets openSheets(Path file) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable sharedStrings = new ReadOnlySharedStringsTable(pkg, false);
+            List<SheetRef> refs = new ArrayList<>();
+            try (InputStream workbook = reader.getWorkbookData()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new DefaultHandler() {
+                    @Override
+                    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                        String state = attributes.getValue("state");
+                        if ("sheet".equals(localName) && (state == null || "visible".equals(state))) {
+                            refs.add(new SheetRef(attributes.getValue("name"), attributes.getValue(RELATIONSHIPS_NS, "id")));
+                        }
+                    }
+                });
+                parser.parse(new InputSource(workbook));
+            }
+            return new Sheets(file, sharedStrings, List.copyOf(refs));
+        }
+    }
+
+    private static void parseSheet(InputStream sheet, ReadOnlySharedStringsTable sharedStrings,
+                                   IntConsumer lastRowHint, Consumer<SheetRow> handler) throws Exception {
+        XMLReader parser = XMLHelper.newXMLReader();
+        parser.setContentHandler(new SheetHandler(sharedStrings, lastRowHint, handler));
+        parser.parse(new InputSource(sheet));
+    }
+
+    private record SheetRef(String name, String relId) {
+    }
+
+    /**
+     * 已打开的工作簿：可见工作表清单与共享字符串表（只读，可在多个线程间共享）
+     */
+    public static final class Sheets {
+
+        private final Path file;
+        private final ReadOnlySharedStringsTable sharedStrings;
+        private final List<SheetRef> refs;
+
+        private Sheets(Path file, ReadOnlySharedStringsTable sharedStrings, List<SheetRef> refs) {
+            this.file = file;
+            this.sharedStrings = sharedStrings;
+            this.refs = refs;
+        }
+
+        public int size() {
+            return refs.size();
+        }
+
+        public String name(int index) {
+            return refs.get(index).name();
+        }
+
+        /**
+         * 逐行读取第 index 个可见工作表；每次调用单独打开文件包，不同工作表可在多个线程中同时读取
+         */
+        public void read(int index, Consumer<SheetRow> handler) throws Exception {
+            try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ);
+                 InputStream sheet = new XSSFReader(pkg).getSheet(refs.get(index).relId())) {
+                parseSheet(sheet, sharedStrings, lastRow -> {
+                }, handler);
+            }
+        }
+    }
+
+    /**
+     * 工作表 XML 处理：&lt;row&gt; 内的 &lt;c t="s|inlineStr|str|n|b|e"&gt; 按类型还原单元格值
+     */
+    private static final class SheetHandler extends DefaultHandler {
+
+        private final ReadOnlySharedStringsTable sharedStrings;
+        private final IntConsumer lastRowHint;
+        private final Consumer<SheetRow> handler;
+        private final StringBuilder text = new StringBuilder();
+
+        private List<Object> cells;
+        private int rowCount;
+        private int column;
+        private String cellType;
+        private boolean collecting;
+
+        SheetHandler(ReadOnlySharedStringsTable sharedStrings, IntConsumer lastRowHint, Consumer<SheetRow> handler) {
+            this.sharedStrings = sharedStrings;
+            this.lastRowHint = lastRowHint;
+            this.handler = handler;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "dimension" -> {
+                    String ref = attributes.getValue("ref");
+                    if (ref != null) {
+                        lastRowHint.accept(rowIndex(ref.substring(ref.indexOf(':') + 1)));
+                    }
+                }
+                case "row" -> {
+                    cells = new ArrayList<>();
+                    column = -1;
+                }
+                case "c" -> {
+                    String ref = attributes.getValue("r");
+                    column = ref != null ? columnIndex(ref) : column + 1;
+                    cellType = attributes.getValue("t");
+                    text.setLength(0);
+                }
+                case "v", "t" -> collecting = true;
+                default -> {
+                }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (collecting) {
+                text.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+                case "v", "t" -> collecting = false;
+                case "c" -> {
+                    Object value = cellValue();
+                    if (value != null) {
+                        while (cells.size() < column) {
+                            cells.add(null);
+                        }
+                        cells.add(value);
+                    }
+                }
+                case "row" -> handler.accept(new SheetRow(++rowCount, Collections.unmodifiableList(cells)));
+                default -> {
+                }
+            }
+        }
+
+        private Object cellValue() {
+            String raw = text.toString();
+            if (cellType == null || "n".equals(cellType)) {
+                return raw.isEmpty() ? null : Double.valueOf(raw);
+            }
+            return switch (cellType) {
+                case "s" -> sharedStrings.getItemAt(Integer.parseInt(raw.trim())).getString();
+                case "inlineStr", "str" -> raw;
+                default -> null;
+            };
+        }
+
+        private static int rowIndex(String ref) {
+            int digits = 0;
+            for (int i = 0; i < ref.length(); i++) {
+                char c = ref.charAt(i);
+                if (c >= '0' && c <= '9') {
+                    digits = digits * 10 + (c - '0');
+                }
+            }
+            return digits;
+        }
+
+        private static int columnIndex(String ref) {
+            int index = 0;
+            for (int i = 0; i < ref.length(); i++) {
+                char c = ref.charAt(i);
+                if (c < 'A' || c > 'Z') {
+                    break;
+                }
+                index = index * 26 + (c - 'A' + 1);
+            }
+            return index - 1;
+        }
+    }
+}
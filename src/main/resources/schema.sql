@@ -12,7 +12,8 @@ CREATE TABLE IF NOT EXISTS `student` (
     `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     `updated_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     INDEX idx_student_number (student_number),
-    INDEX idx_name (name)
+    INDEX idx_name (name),
+    INDEX idx_student_clazz (clazz, id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
 -- 课程表
@@ -23,7 +24,8 @@ CREATE TABLE IF NOT EXISTS `course` (
     `teacher_name` VARCHAR(50) NOT NULL,
     `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     `updated_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
-    INDEX idx_name (name)
+    INDEX idx_name (name),
+    INDEX idx_course_teacher (teacher_name)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
 -- 教师表
@@ -91,7 +93,8 @@ CREATE TABLE IF NOT EXISTS `score` (
     INDEX idx_student_id (student_id),
     INDEX idx_course_id (course_id),
     INDEX idx_exam_id (exam_id),
-    INDEX idx_value (value)
+    INDEX idx_value (value),
+    INDEX idx_recorded_at (recorded_at)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
 -- 成绩历史表
@@ -108,6 +111,20 @@ CREATE TABLE IF NOT EXISTS `score_history` (
     INDEX idx_modified_at (modified_at)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- 成绩变更日志表（成绩新增/修改/删除时同事务追加，自增ID即变更序号，供增量同步）
+CREATE TABLE IF NOT EXISTS `score_change` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
+    `score_id` BIGINT NOT NULL,
+    `change_type` VARCHAR(8) NOT NULL,
+    `student_id` BIGINT NOT NULL,
+    `course_id` BIGINT NOT NULL,
+    `exam_id` BIGINT NULL,
+    `before_value` DECIMAL(5,2) NULL,
+    `after_value` DECIMAL(5,2) NULL,
+    `changed_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_score_change_score (score_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
 -- 学习资料表
 CREATE TABLE IF NOT EXISTS `learning_material` (
     `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
@@ -122,3 +139,71 @@ CREATE TABLE IF NOT EXISTS `learning_material` (
     INDEX idx_type (type),
     INDEX idx_difficulty (difficulty_tag)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- 成绩聚合表（按全校/课程/班级/考试/学生维度增量维护）
+CREATE TABLE IF NOT EXISTS `score_aggregate` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
+    `scope` VARCHAR(16) NOT NULL,
+    `scope_key` VARCHAR(100) NOT NULL,
+    `score_count` BIGINT NOT NULL DEFAULT 0,
+    `score_sum` DOUBLE NOT NULL DEFAULT 0,
+    `sum_of_squares` DOUBLE NOT NULL DEFAULT 0,
+    `pass_count` BIGINT NOT NULL DEFAULT 0,
+    `highest` DOUBLE NULL,
+    `lowest` DOUBLE NULL,
+    `bucket_0_59` BIGINT NOT NULL DEFAULT 0,
+    `bucket_60_69` BIGINT NOT NULL DEFAULT 0,
+    `bucket_70_79` BIGINT NOT NULL DEFAULT 0,
+    `bucket_80_89` BIGINT NOT NULL DEFAULT 0,
+    `bucket_90_100` BIGINT NOT NULL DEFAULT 0,
+    `updated_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE KEY `uk_aggregate_scope_key` (`scope`, `scope_key`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- 学生考试快照表（每名学生最近两次考试的平均分与风险标记，随成绩变更增量刷新；班内名次读取时计算，不落库）
+CREATE TABLE IF NOT EXISTS `student_snapshot` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
+    `student_id` BIGINT NOT NULL,
+    `clazz` VARCHAR(50) NOT NULL,
+    `current_exam_date` DATE NULL,
+    `previous_exam_date` DATE NULL,
+    `current_average` DOUBLE NOT NULL DEFAULT 0,
+    `previous_average` DOUBLE NOT NULL DEFAULT 0,
+    `score_delta` DOUBLE NOT NULL DEFAULT 0,
+    `current_count` BIGINT NOT NULL DEFAULT 0,
+    `failed_count` BIGINT NOT NULL DEFAULT 0,
+    `risk` BOOLEAN NOT NULL DEFAULT FALSE,
+    `updated_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE KEY `uk_snapshot_student` (`student_id`),
+    INDEX idx_snapshot_clazz (clazz)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- LLM 推荐原因缓存表（按量化后的推荐上下文摘要保存代理返回的原因，重启后仍可复用；过期与超出上限的行定时清理）
+CREATE TABLE IF NOT EXISTS `llm_reason_cache` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
+    `cache_key` VARCHAR(64) NOT NULL,
+    `reason` VARCHAR(500) NOT NULL,
+    `created_at` DATETIME NOT NULL,
+    UNIQUE KEY `uk_llm_reason_key` (`cache_key`),
+    INDEX idx_llm_reason_created (created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- 异步导入任务表（进度与成绩按批在同一事务提交，重启后从 last_row 继续）
+CREATE TABLE IF NOT EXISTS `import_job` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
+    `type` VARCHAR(16) NOT NULL,
+    `status` VARCHAR(16) NOT NULL,
+    `file_name` VARCHAR(255),
+    `stored_path` VARCHAR(500),
+    `estimated_rows` INT NULL,
+    `processed_rows` INT NOT NULL DEFAULT 0,
+    `success_count` INT NOT NULL DEFAULT 0,
+    `error_count` INT NOT NULL DEFAULT 0,
+    `last_row` INT NOT NULL DEFAULT 0,
+    `error_rows` LONGTEXT NULL,
+    `failure_reason` VARCHAR(500),
+    `created_at` DATETIME NOT NULL,
+    `started_at` DATETIME NULL,
+    `finished_at` DATETIME NULL,
+    INDEX idx_import_job_status (status)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
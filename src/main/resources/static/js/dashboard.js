@@ -8,6 +8,9 @@ import {
   expandColors as expandColorsInternal
 } from './utils.js';
 
+const LIST_PAGE_LIMIT = 1000;
+const SCORE_PAGE_LIMIT = 100;
+
 const state = {
   baseUrl: 'http://localhost:8080',
   auth: null,
@@ -17,6 +20,7 @@ const state = {
   courses: [],
   exams: [],
   scores: [],
+  scoresNextAfter: null,
   materials: [],
   teaching: {
     overview: null,
@@ -53,6 +57,7 @@ document.addEventListener('DOMContentLoaded', () => {
     coursesTableBody: document.getElementById('coursesTableBody'),
     examsTableBody: document.getElementById('examsTableBody'),
     scoresTableBody: document.getElementById('scoresTableBody'),
+    scoresLoadMore: document.getElementById('scoresLoadMore'),
     scoreStudentSelect: document.getElementById('scoreStudentSelect'),
     scoreCourseSelect: document.getElementById('scoreCourseSelect'),
     scoreIdInput: document.getElementById('scoreIdInput'),
@@ -122,11 +127,12 @@ function bindUI() {
   elements.examFormReset?.addEventListener('click', clearExamForm);
   elements.materialFormReset?.addEventListener('click', clearMaterialForm);
   elements.scoreFormReset?.addEventListener('click', clearScoreForm);
+  elements.scoresLoadMore?.addEventListener('click', loadMoreScores);
   elements.studentExcelForm?.addEventListener('submit', event => {
     handleExcelImport(event, '/api/excel/import/students', '学生导入');
   });
   elements.scoreExcelForm?.addEventListener('submit', event => {
-    handleExcelImport(event, '/api/excel/import/scores', '成绩导入');
+    handleScoreImportJob(event);
   });
   document.querySelectorAll('.excel-actions button[data-endpoint]').forEach(button => {
     button.addEventListener('click', () => handleExport(button));
@@ -205,8 +211,7 @@ async function refreshAll(options = {}) {
 
 async function refreshMaterials() {
   try {
-    const response = await authenticatedFetch(makeApiUrl('/api/materials'));
-    state.materials = await response.json();
+    state.materials = await fetchAllPages('/api/materials');
     renderMaterialModule();
     return null;
   } catch (error) {
@@ -594,12 +599,83 @@ function normalizeListPayload(payload) {
   return [];
 }
 
+// 规范化成绩列表（学生/课程/考试查找表 + 精简行）展开为表格所需的扁平行
+function expandScores(table) {
+  if (Array.isArray(table)) {
+    return table;
+  }
+  const students = table?.students || {};
+  const courses = table?.courses || {};
+  const exams = table?.exams || {};
+  return (table?.rows || []).map(row => {
+    const student = students[row.studentId] || {};
+    const course = courses[row.courseId] || {};
+    const exam = row.examId != null ? exams[row.examId] || {} : {};
+    return {
+      id: row.id,
+      studentId: row.studentId,
+      studentNumber: student.studentNumber,
+      studentName: student.name,
+      clazz: student.clazz,
+      courseId: row.courseId,
+      courseName: course.name,
+      examId: row.examId,
+      examName: exam.name,
+      examDate: exam.examDate,
+      value: row.value,
+      recordedAt: row.recordedAt
+    };
+  });
+}
+
+// 列表接口按 id 游标分页，沿 X-Next-After 响应头读完全部页（下拉框与前端筛选需要完整数据）
+async function fetchAllPages(path) {
+  const items = [];
+  let after = null;
+  do {
+    const separator = path.includes('?') ? '&' : '?';
+    const query = `limit=${LIST_PAGE_LIMIT}` + (after != null ? `&after=${after}` : '');
+    const response = await authenticatedFetch(makeApiUrl(path + separator + query));
+    items.push(...await response.json());
+    after = response.headers.get('X-Next-After');
+  } while (after);
+  return items;
+}
+
+// 成绩表按页懒加载，nextAfter 为空表示已到最后一页
+async function fetchScorePage(after) {
+  const query = `format=normalized&limit=${SCORE_PAGE_LIMIT}` + (after != null ? `&after=${after}` : '');
+  const response = await authenticatedFetch(makeApiUrl('/api/scores?' + query));
+  const rows = expandScores(await response.json());
+  return { rows, nextAfter: response.headers.get('X-Next-After') };
+}
+
+async function loadMoreScores() {
+  if (state.scoresNextAfter == null) {
+    return;
+  }
+  if (elements.scoresLoadMore) {
+    elements.scoresLoadMore.disabled = true;
+  }
+  try {
+    const page = await fetchScorePage(state.scoresNextAfter);
+    state.scores = state.scores.concat(page.rows);
+    state.scoresNextAfter = page.nextAfter;
+    renderScoreModule();
+  } catch (error) {
+    showStatusMessage('成绩加载失败：' + error.message, 'error');
+    if (elements.scoresLoadMore) {
+      elements.scoresLoadMore.disabled = false;
+    }
+  }
+}
+
 async function refreshModules() {
   const results = await Promise.allSettled([
-    authenticatedFetch(makeApiUrl('/api/students')).then(res => res.json()),
-    authenticatedFetch(makeApiUrl('/api/courses')).then(res => res.json()),
-    authenticatedFetch(makeApiUrl('/api/exams')).then(res => res.json()),
-    authenticatedFetch(makeApiUrl('/api/scores')).then(res => res.json())
+    fetchAllPages('/api/students'),
+    fetchAllPages('/api/courses'),
+    fetchAllPages('/api/exams'),
+    fetchScorePage(null)
   ]);
 
   const [studentsResult, coursesResult, examsResult, scoresResult] = results;
@@ -620,9 +696,11 @@ async function refreshModules() {
   }
 
   if (scoresResult.status === 'fulfilled') {
-    state.scores = scoresResult.value;
+    state.scores = scoresResult.value.rows;
+    state.scoresNextAfter = scoresResult.value.nextAfter;
   } else {
     state.scores = [];
+    state.scoresNextAfter = null;
     errors.push('成绩模块加载失败');
   }
 
@@ -859,9 +937,9 @@ function renderScoreModule() {
   } else {
     state.scores.forEach(score => {
       const tr = document.createElement('tr');
-      const studentName = score.student ? `${score.student.name || '--'} ${score.student.studentNumber ? `(${score.student.studentNumber})` : ''}`.trim() : '--';
-      const courseName = score.course ? score.course.name || '--' : '--';
-      const examName = score.exam ? score.exam.name || '--' : '--';
+      const studentName = score.studentId ? `${score.studentName || '--'} ${score.studentNumber ? `(${score.studentNumber})` : ''}`.trim() : '--';
+      const courseName = score.courseName || '--';
+      const examName = score.examName || '--';
       tr.innerHTML = `<td>${score.id || '--'}</td><td>${studentName}</td><td>${courseName}</td><td>${examName}</td><td>${formatMetric(score.value, 1)}</td>`;
       const actionTd = document.createElement('td');
       actionTd.className = 'text-end';
@@ -875,6 +953,10 @@ function renderScoreModule() {
     });
   }
   elements.scoresTableBody.appendChild(fragment);
+  if (elements.scoresLoadMore) {
+    elements.scoresLoadMore.hidden = state.scoresNextAfter == null;
+    elements.scoresLoadMore.disabled = false;
+  }
   populateScoreSelectors();
 }
 
@@ -883,14 +965,14 @@ function fillScoreForm(score) {
     return;
   }
   elements.scoreIdInput.value = score.id || '';
-  if (score.student?.id) {
-    elements.scoreStudentSelect.value = score.student.id;
+  if (score.studentId) {
+    elements.scoreStudentSelect.value = score.studentId;
   }
-  if (score.course?.id) {
-    elements.scoreCourseSelect.value = score.course.id;
+  if (score.courseId) {
+    elements.scoreCourseSelect.value = score.courseId;
   }
-  if (score.exam?.id && elements.scoreExamSelect) {
-    elements.scoreExamSelect.value = score.exam.id;
+  if (score.examId && elements.scoreExamSelect) {
+    elements.scoreExamSelect.value = score.examId;
   }
   elements.scoreValueInput.value = score.value ?? '';
 }
@@ -1230,6 +1312,57 @@ async function handleExcelImport(event, endpoint, label) {
   }
 }
 
+async function handleScoreImportJob(event) {
+  event.preventDefault();
+  const form = event.target;
+  const fileInput = form.querySelector('input[type="file"]');
+  const file = fileInput?.files?.[0];
+  if (!file) {
+    showStatusMessage('请先选择文件', 'warning');
+    return;
+  }
+  const formData = new FormData();
+  formData.append('file', file);
+  try {
+    const response = await authenticatedFetch(makeApiUrl('/api/excel/import/scores/jobs'), {
+      method: 'POST',
+      body: formData
+    });
+    let job = await response.json();
+    showStatusMessage('成绩导入已提交，任务 #' + job.jobId, 'info');
+    // 轮询任务进度，页面关闭后任务仍会在服务端继续执行
+    while (job.status === 'PENDING' || job.status === 'RUNNING') {
+      if (elements.excelStatus) {
+        const progress = job.progress != null ? `${job.progress}%` : `${job.processedRows ?? 0} 行`;
+        elements.excelStatus.textContent = `成绩导入进行中（任务 #${job.jobId}）：${progress}`;
+      }
+      await new Promise(resolve => setTimeout(resolve, 1000));
+      const poll = await authenticatedFetch(makeApiUrl(`/api/excel/jobs/${job.jobId}`));
+      job = await poll.json();
+    }
+    if (job.status === 'FAILED') {
+      throw new Error(job.failureReason || '导入任务失败');
+    }
+    const errorRows = (job.errorRows || []).join('; ');
+    let summary = `成绩导入完成：${job.successCount ?? 0} 成功，${job.errorCount ?? 0} 失败。`;
+    if (errorRows) {
+      summary += ` 失败项：${errorRows}。`;
+    }
+    if (elements.excelStatus) {
+      elements.excelStatus.textContent = summary;
+    }
+    showStatusMessage('成绩导入结束', 'success');
+    await refreshAll({ skipStatusMessage: true });
+  } catch (error) {
+    if (elements.excelStatus) {
+      elements.excelStatus.textContent = `成绩导入失败：${error.message}`;
+    }
+    showStatusMessage(error.message, 'error');
+  } finally {
+    form.reset();
+  }
+}
+
 async function handleExport(button) {
   const endpoint = button.dataset.endpoint;
   const filename = button.dataset.filename || 'export.xlsx';
@@ -71,8 +71,8 @@ function renderScores(scores) {
   }
   scores.forEach(score => {
     const tr = document.createElement('tr');
-    const courseName = score.course?.name || '--';
-    const examName = score.exam?.name || '--';
+    const courseName = score.courseName || '--';
+    const examName = score.examName || '--';
     const recordedAt = score.recordedAt || '--';
     tr.innerHTML = `
       <td>${courseName}</td>
@@ -0,0 +1,99 @@
+package com.scrapy.demo.controller;
+
+import com.scrapy.demo.domain.Course;
+import com.scrapy.demo.domain.Exam;
+import com.scrapy.demo.repository.CourseRepository;
+import com.scrapy.demo.repository.ExamRepository;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.time.LocalDate;
+
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Excel控制器测试
+ * 测试导入模板的下载与缓存校验
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Transactional
+@WithMockUser(username = "testuser", roles = {"ADMIN"})
+class ExcelControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private ExamRepository examRepository;
+
+    @Test
+    void testStudentTemplateNotModified() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/excel/template/students"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=86400"))
+                .andReturn();
+        String etag = result.getResponse().getHeader(HttpHeaders.ETAG);
+
+        try (Workbook workbook = new XSSFWorkbook(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+            Sheet sheet = workbook.getSheetAt(0);
+            assertEquals("学号", sheet.getRow(0).getCell(0).getStringCellValue());
+            assertEquals(0, sheet.getLastRowNum());
+        }
+
+        mockMvc.perform(get("/api/excel/template/students").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void testScoreTemplateOptionsAndEtag() throws Exception {
+        courseRepository.save(new Course("模板测试课程", 2.0, "李老师"));
+        examRepository.save(new Exam("模板测试考试", LocalDate.of(2099, 1, 1)));
+
+        MvcResult first = mockMvc.perform(get("/api/excel/template/scores"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                .andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+
+        try (Workbook workbook = new XSSFWorkbook(new ByteArrayInputStream(first.getResponse().getContentAsByteArray()))) {
+            Sheet sheet = workbook.getSheetAt(0);
+            assertEquals(0, sheet.getLastRowNum());
+            assertEquals(3, sheet.getDataValidations().size());
+            Sheet options = workbook.getSheet("选项");
+            assertNotNull(options);
+            assertTrue(workbook.isSheetHidden(workbook.getSheetIndex(options)));
+            // 考试按日期倒序，最近的考试排在第一项
+            assertEquals("模板测试考试", options.getRow(1).getCell(1).getStringCellValue());
+        }
+
+        mockMvc.perform(get("/api/excel/template/scores").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        courseRepository.save(new Course("模板测试课程二", 2.0, "李老师"));
+        mockMvc.perform(get("/api/excel/template/scores").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(etag)));
+    }
+}
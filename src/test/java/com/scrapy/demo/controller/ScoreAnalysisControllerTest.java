@@ -110,6 +110,14 @@ class ScoreAnalysisControllerTest {
                 .andExpect(jsonPath("$.totalCount", greaterThanOrEqualTo(0)));
     }
 
+    @Test
+    void testGetClassesAnalysis() throws Exception {
+        mockMvc.perform(get("/api/analysis/classes").param("names", "计算机1班,计算机2班"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['计算机1班'].totalCount", is(1)))
+                .andExpect(jsonPath("$['计算机2班'].totalCount", is(0)));
+    }
+
     @Test
     void testGetPassRates() throws Exception {
         mockMvc.perform(get("/api/analysis/pass-rates"))
@@ -126,4 +134,18 @@ class ScoreAnalysisControllerTest {
                 .andExpect(jsonPath("$[0].averageScore", notNullValue()))
                 .andExpect(jsonPath("$[0].rank", notNullValue()));
     }
+
+    @Test
+    void testGetStudentRankingsPage() throws Exception {
+        mockMvc.perform(get("/api/analysis/rankings")
+                        .param("limit", "1")
+                        .param("clazz", "计算机1班")
+                        .param("courseId", String.valueOf(course1.getId()))
+                        .param("rankMode", "dense"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "1"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].studentId").value(student1.getId()))
+                .andExpect(jsonPath("$[0].rank").value(1));
+    }
 }
@@ -4,6 +4,7 @@ import com.scrapy.demo.domain.Course;
 import com.scrapy.demo.domain.Score;
 import com.scrapy.demo.domain.Student;
 import com.scrapy.demo.service.CourseService;
+import com.scrapy.demo.service.ScoreChangeService;
 import com.scrapy.demo.service.ScoreService;
 import com.scrapy.demo.service.StudentService;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,10 +16,13 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.time.LocalDate;
+
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.hamcrest.Matchers.*;
@@ -46,6 +50,9 @@ class ScoreControllerTest {
     @Autowired
     private CourseService courseService;
 
+    @Autowired
+    private ScoreChangeService scoreChangeService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -87,6 +94,74 @@ class ScoreControllerTest {
                 .andExpect(jsonPath("$[0].value", notNullValue()));
     }
 
+    @Test
+    void testListScoresNormalized() throws Exception {
+        Score saved = scoreService.saveScore(testScore);
+
+        mockMvc.perform(get("/api/scores/student/{studentId}", testStudent.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].studentName", is(testStudent.getName())))
+                .andExpect(jsonPath("$[0].courseName", is(testCourse.getName())));
+
+        mockMvc.perform(get("/api/scores/student/{studentId}", testStudent.getId()).param("format", "normalized"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rows", hasSize(1)))
+                .andExpect(jsonPath("$.rows[0].id", is(saved.getId().intValue())))
+                .andExpect(jsonPath("$.rows[0].courseId", is(testCourse.getId().intValue())))
+                .andExpect(jsonPath("$.courses." + testCourse.getId() + ".name", is(testCourse.getName())))
+                .andExpect(jsonPath("$.students." + testStudent.getId() + ".studentNumber", is(testStudent.getStudentNumber())));
+    }
+
+    @Test
+    void testListScoresKeysetFilter() throws Exception {
+        Score first = scoreService.saveScore(testScore);
+        Course other = new Course();
+        other.setName("线性代数");
+        other.setCredit(3.0);
+        other.setTeacherName("王教授");
+        other = courseService.save(other);
+        Score second = new Score();
+        second.setStudent(testStudent);
+        second.setCourse(other);
+        second.setValue(90.0);
+        second = scoreService.saveScore(second);
+
+        mockMvc.perform(get("/api/scores").param("clazz", testStudent.getClazz()).param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id", is(first.getId().intValue())))
+                .andExpect(header().string("X-Next-After", String.valueOf(first.getId())));
+
+        mockMvc.perform(get("/api/scores").param("courseId", String.valueOf(other.getId()))
+                        .param("from", LocalDate.now().toString()).param("to", LocalDate.now().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id", is(second.getId().intValue())))
+                .andExpect(header().doesNotExist("X-Next-After"));
+
+        mockMvc.perform(get("/api/scores").param("courseId", String.valueOf(other.getId()))
+                        .param("from", LocalDate.now().plusDays(1).toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    void testScoreChanges() throws Exception {
+        long since = scoreChangeService.latestSequence();
+        Score saved = scoreService.saveScore(testScore);
+
+        MvcResult result = mockMvc.perform(get("/api/scores/changes").param("since", String.valueOf(since)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes", hasSize(1)))
+                .andExpect(jsonPath("$.changes[0].type", is("INSERT")))
+                .andExpect(jsonPath("$.changes[0].scoreId", is(saved.getId().intValue())))
+                .andExpect(jsonPath("$.changes[0].afterValue", is(85.5)))
+                .andExpect(jsonPath("$.hasMore", is(false)));
+    }
+
     @Test
     void testGetScoreById() throws Exception {
         Score saved = scoreService.saveScore(testScore);
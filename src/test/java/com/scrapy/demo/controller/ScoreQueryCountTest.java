@@ -0,0 +1,145 @@
+package com.scrapy.demo.controller;
+
+import com.scrapy.demo.domain.Course;
+import com.scrapy.demo.domain.Exam;
+import com.scrapy.demo.domain.Score;
+import com.scrapy.demo.domain.Student;
+import com.scrapy.demo.repository.CourseRepository;
+import com.scrapy.demo.repository.ExamRepository;
+import com.scrapy.demo.repository.StudentRepository;
+import com.scrapy.demo.service.ScoreService;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 成绩查询语句数测试
+ * 用 Hibernate 统计验证各接口执行的 SQL 语句数不随数据量增长（无 N+1 查询）
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Transactional
+@WithMockUser(username = "testuser", roles = {"ADMIN"})
+class ScoreQueryCountTest {
+
+    private static final String CLAZZ = "语句数测试班";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private ExamRepository examRepository;
+
+    @Autowired
+    private ScoreService scoreService;
+
+    private final AtomicInteger sequence = new AtomicInteger();
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        statistics.setStatisticsEnabled(false);
+    }
+
+    @Test
+    void testStatementCountIndependentOfDataSize() throws Exception {
+        Student student = newStudent();
+        Course course = courseRepository.save(new Course("语句数测试课程", 3.0, "赵老师"));
+        List<String> urls = List.of(
+                "/api/scores",
+                "/api/scores/student/" + student.getId(),
+                "/api/scores/course/" + course.getId(),
+                "/api/analysis/classroom/" + CLAZZ + "/overview",
+                "/api/analysis/classroom/" + CLAZZ + "/student-flags"
+        );
+
+        addScores(student, course, 2);
+        Map<String, Long> small = countStatements(urls);
+
+        addScores(student, course, 8);
+        Map<String, Long> large = countStatements(urls);
+
+        assertEquals(small, large);
+        // 成绩列表连同学生、课程、考试只需一条 join 查询
+        assertEquals(1L, large.get("/api/scores"));
+    }
+
+    /**
+     * 为 student 新增 n 门课程/考试的成绩，并为 course 新增 n 名同班学生的成绩，
+     * 使每个接口涉及的学生、课程、考试数量都随 n 增长
+     */
+    private void addScores(Student student, Course course, int n) {
+        for (int i = 0; i < n; i++) {
+            int seq = sequence.incrementAndGet();
+            Course other = courseRepository.save(new Course("语句数测试课程" + seq, 2.0, "钱老师"));
+            Exam exam = examRepository.save(new Exam("语句数测试考试" + seq, LocalDate.of(2024, 1, 1).plusDays(seq)));
+            saveScore(student, other, exam, 60.0 + seq);
+            saveScore(newStudent(), course, exam, 70.0 + seq);
+        }
+    }
+
+    private Student newStudent() {
+        int seq = sequence.incrementAndGet();
+        return studentRepository.save(new Student("QC" + seq, "学生" + seq, CLAZZ, "计算机科学与技术"));
+    }
+
+    private void saveScore(Student student, Course course, Exam exam, double value) {
+        Score score = new Score(student, course, value);
+        score.setExam(exam);
+        scoreService.saveScore(score);
+    }
+
+    private Map<String, Long> countStatements(List<String> urls) throws Exception {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (String url : urls) {
+            // 清空持久化上下文与分析缓存，使每次请求都真实访问数据库
+            entityManager.flush();
+            entityManager.clear();
+            cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+            statistics.clear();
+            mockMvc.perform(get(url)).andExpect(status().isOk());
+            counts.put(url, statistics.getPrepareStatementCount());
+        }
+        return counts;
+    }
+}
@@ -8,6 +8,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
@@ -19,6 +20,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.hamcrest.Matchers.*;
 
 /**
  * 学生控制器测试
@@ -60,6 +62,46 @@ class StudentControllerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    @WithMockUser(username = "testuser", roles = "STUDENT")
+    void testListStudentsKeysetPage() throws Exception {
+        Student first = studentService.save(new Student("2024101", "分页一", "分页测试班", "软件工程"));
+        Student second = studentService.save(new Student("2024102", "分页二", "分页测试班", "软件工程"));
+        Student third = studentService.save(new Student("2024103", "分页三", "分页测试班", "软件工程"));
+        studentService.save(new Student("2024104", "其他班", "其他测试班", "软件工程"));
+
+        mockMvc.perform(get("/api/students").param("clazz", "分页测试班").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id", is(first.getId().intValue())))
+                .andExpect(jsonPath("$[1].id", is(second.getId().intValue())))
+                .andExpect(header().string("X-Next-After", String.valueOf(second.getId())))
+                .andExpect(header().string(HttpHeaders.LINK, allOf(
+                        containsString("after=" + second.getId()), containsString("limit=2"), endsWith("; rel=\"next\""))));
+
+        mockMvc.perform(get("/api/students").param("clazz", "分页测试班").param("limit", "2")
+                        .param("after", String.valueOf(second.getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id", is(third.getId().intValue())))
+                .andExpect(header().doesNotExist(HttpHeaders.LINK));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser", roles = "STUDENT")
+    void testListStudentsWithoutParamsReturnsDefaultPage() throws Exception {
+        for (int i = 0; i <= KeysetPage.DEFAULT_LIMIT; i++) {
+            studentService.save(new Student("2025" + (1000 + i), "默认分页" + i, "默认分页测试班", "软件工程"));
+        }
+
+        mockMvc.perform(get("/api/students"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(KeysetPage.DEFAULT_LIMIT)))
+                .andExpect(header().exists(KeysetPage.NEXT_AFTER_HEADER))
+                .andExpect(header().string(HttpHeaders.LINK, allOf(
+                        containsString("limit=" + KeysetPage.DEFAULT_LIMIT), endsWith("; rel=\"next\""))));
+    }
+
     @Test
     @WithMockUser(username = "testuser", roles = "STUDENT")
     void testGetStudentById() throws Exception {
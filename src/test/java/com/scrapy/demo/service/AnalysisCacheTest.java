@@ -0,0 +1,152 @@
+package com.scrapy.demo.service;
+
+import com.scrapy.demo.config.CacheConfig;
+import com.scrapy.demo.domain.Course;
+import com.scrapy.demo.domain.Score;
+import com.scrapy.demo.domain.Student;
+import com.scrapy.demo.repository.CourseRepository;
+import com.scrapy.demo.repository.ScoreRepository;
+import com.scrapy.demo.repository.StudentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分析缓存测试
+ * 验证重复请求命中缓存，成绩写入只失效受影响的课程/班级/学生条目
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class AnalysisCacheTest {
+
+    @Autowired
+    private ScoreAnalysisService scoreAnalysisService;
+
+    @Autowired
+    private TeachingInsightService teachingInsightService;
+
+    @Autowired
+    private ScoreService scoreService;
+
+    @Autowired
+    private CourseService courseService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ScoreRepository scoreRepository;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    private Student student1;
+    private Student student2;
+    private Course math;
+    private Course english;
+
+    @BeforeEach
+    void setUp() {
+        scoreRepository.deleteAll();
+        studentRepository.deleteAll();
+        courseRepository.deleteAll();
+        CacheConfig.CACHE_NAMES.forEach(name -> cacheManager.getCache(name).clear());
+
+        student1 = studentRepository.save(new Student("C001", "张三", "一班", "数学"));
+        student2 = studentRepository.save(new Student("C002", "李四", "二班", "数学"));
+        math = createCourse("高等数学");
+        english = createCourse("大学英语");
+
+        scoreService.saveScore(new Score(student1, math, 80.0));
+        scoreService.saveScore(new Score(student2, english, 70.0));
+    }
+
+    @Test
+    void testRepeatedRequestsHitCache() {
+        Map<String, Object> first = scoreAnalysisService.analyzeAllScores();
+        Map<String, Object> second = scoreAnalysisService.analyzeAllScores();
+
+        assertSame(first, second);
+        assertNotNull(cache(CacheConfig.ANALYSIS_OVERALL).get(SimpleKey.EMPTY));
+    }
+
+    @Test
+    void testCacheMetricsRegistered() {
+        scoreAnalysisService.analyzeAllScores();
+        scoreAnalysisService.analyzeAllScores();
+
+        assertNotNull(meterRegistry.find("cache.gets")
+                .tags("cache", CacheConfig.ANALYSIS_OVERALL, "result", "hit")
+                .functionCounter());
+        assertNotNull(meterRegistry.find("cache.gets")
+                .tags("cache", CacheConfig.ANALYSIS_OVERALL, "result", "miss")
+                .functionCounter());
+    }
+
+    @Test
+    void testScoreWriteEvictsOnlyAffectedEntries() {
+        scoreAnalysisService.analyzeCourseScores(math.getId());
+        scoreAnalysisService.analyzeCourseScores(english.getId());
+        scoreAnalysisService.analyzeClassScores("一班");
+        scoreAnalysisService.analyzeClassScores("二班");
+        teachingInsightService.getClassOverview("一班");
+        teachingInsightService.getClassOverview("二班");
+
+        Long scoreId = scoreRepository.findByStudentId(student1.getId()).get(0).getId();
+        scoreService.updateScoreValue(scoreId, 50.0);
+
+        assertNull(cache(CacheConfig.ANALYSIS_COURSE).get(math.getId()));
+        assertNull(cache(CacheConfig.ANALYSIS_CLASS).get("一班"));
+        assertNull(cache(CacheConfig.INSIGHT_CLASS_OVERVIEW).get("一班"));
+        assertNotNull(cache(CacheConfig.ANALYSIS_COURSE).get(english.getId()));
+        assertNotNull(cache(CacheConfig.ANALYSIS_CLASS).get("二班"));
+        assertNotNull(cache(CacheConfig.INSIGHT_CLASS_OVERVIEW).get("二班"));
+
+        Map<String, Object> refreshed = scoreAnalysisService.analyzeCourseScores(math.getId());
+        assertEquals(50.0, refreshed.get("average"));
+    }
+
+    @Test
+    void testCourseRenameEvictsPassRates() {
+        Map<String, Double> before = scoreAnalysisService.getPassRateByScore();
+        assertTrue(before.containsKey("高等数学"));
+
+        Course renamed = new Course();
+        renamed.setName("数学分析");
+        renamed.setCredit(math.getCredit());
+        renamed.setTeacherName(math.getTeacherName());
+        courseService.update(math.getId(), renamed);
+
+        assertTrue(scoreAnalysisService.getPassRateByScore().containsKey("数学分析"));
+    }
+
+    private Cache cache(String name) {
+        return cacheManager.getCache(name);
+    }
+
+    private Course createCourse(String name) {
+        Course course = new Course();
+        course.setName(name);
+        course.setCredit(3.0);
+        course.setTeacherName("教师");
+        return courseRepository.save(course);
+    }
+}
@@ -0,0 +1,83 @@
+package com.scrapy.demo.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 成绩分析并行执行器测试
+ * 验证并行归约、并行排序与顺序执行结果一致
+ */
+class AnalysisExecutorTest {
+
+    private final AnalysisExecutor sequential = new AnalysisExecutor(1);
+    private final AnalysisExecutor parallel = new AnalysisExecutor(4);
+
+    @AfterEach
+    void tearDown() {
+        parallel.shutdown();
+    }
+
+    @Test
+    void testParallelReduceMatchesSequential() {
+        List<Double> values = randomScores(50_000);
+
+        ScoreStats expected = sequential.reduce(values, ScoreStats::new, ScoreStats::accept, ScoreStats::combine);
+        ScoreStats actual = parallel.reduce(values, ScoreStats::new, ScoreStats::accept, ScoreStats::combine);
+
+        assertEquals(expected.count(), actual.count());
+        assertEquals(expected.mean(), actual.mean(), 1e-9);
+        assertEquals(expected.variance(), actual.variance(), 1e-6);
+        assertEquals(expected.min(), actual.min());
+        assertEquals(expected.max(), actual.max());
+        assertArrayEquals(expected.histogram(), actual.histogram());
+    }
+
+    @Test
+    void testParallelReduceKeepsEncounterOrder() {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            items.add(i);
+        }
+
+        List<Integer> copied = parallel.reduce(items, ArrayList::new, List::add, (left, right) -> {
+            left.addAll(right);
+            return left;
+        });
+
+        assertEquals(items, copied);
+    }
+
+    @Test
+    void testParallelSortIsStable() {
+        List<int[]> items = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            items.add(new int[]{random.nextInt(100), i});
+        }
+        List<int[]> expected = new ArrayList<>(items);
+        Comparator<int[]> byKey = Comparator.comparingInt(item -> item[0]);
+
+        sequential.sort(expected, byKey);
+        parallel.sort(items, byKey);
+
+        for (int i = 0; i < items.size(); i++) {
+            assertArrayEquals(expected.get(i), items.get(i));
+        }
+    }
+
+    private List<Double> randomScores(int count) {
+        Random random = new Random(42);
+        List<Double> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(Math.max(0, Math.min(100, 72 + random.nextGaussian() * 12)));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,128 @@
+package com.scrapy.demo.service;
+
+import com.scrapy.demo.domain.Course;
+import com.scrapy.demo.domain.Exam;
+import com.scrapy.demo.domain.Score;
+import com.scrapy.demo.domain.Student;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 班级成绩快照测试
+ * 测试单遍累加的班级/分科/学生统计与成绩顺序、分片合并无关
+ */
+class ClassSnapshotTest {
+
+    private static final Course MATH = course(1L, "数学");
+    private static final Course CHINESE = course(2L, "语文");
+    private static final Exam MARCH = exam(1L, LocalDate.of(2026, 3, 1));
+    private static final Exam APRIL = exam(2L, LocalDate.of(2026, 4, 1));
+    private static final Exam MAY = exam(3L, LocalDate.of(2026, 5, 1));
+
+    private long scoreId;
+
+    @Test
+    void testLatestTwoExamsPerClassAndStudent() {
+        Student alice = student(1L, "甲");
+        Student bob = student(2L, "乙");
+        List<Score> scores = new ArrayList<>(List.of(
+                score(alice, MATH, MAY, 50.0),
+                score(bob, MATH, MARCH, 40.0),
+                score(alice, MATH, MARCH, 80.0),
+                score(alice, CHINESE, MAY, 55.0),
+                score(bob, CHINESE, MAY, 95.0),
+                score(alice, MATH, APRIL, 90.0),
+                score(bob, MATH, MAY, 85.0),
+                score(alice, CHINESE, APRIL, 70.0)
+        ));
+        // 没有考试的成绩按录入日期归入四月
+        Score unscheduled = score(bob, CHINESE, null, 60.0);
+        unscheduled.setRecordedAt(LocalDateTime.of(2026, 4, 1, 9, 0));
+        scores.add(unscheduled);
+
+        ClassSnapshot snapshot = ClassSnapshot.of(scores, new AnalysisExecutor(1));
+
+        ClassSnapshot.DateStats latest = snapshot.latest();
+        assertEquals(4, latest.all.count());
+        assertEquals(71.25, latest.all.mean(), 1e-9);
+        assertEquals(List.of("数学", "语文"), new ArrayList<>(latest.byCourse.keySet()));
+        assertEquals(67.5, latest.byCourse.get("数学").mean(), 1e-9);
+        assertEquals(3, snapshot.previous().all.count());
+
+        ClassSnapshot.StudentTrack a = snapshot.student(alice.getId());
+        assertEquals(52.5, a.currentAverage(), 1e-9);
+        assertEquals(80.0, a.previousAverage(), 1e-9);
+        assertTrue(a.isRisk());
+
+        ClassSnapshot.StudentTrack b = snapshot.student(bob.getId());
+        assertEquals(90.0, b.currentAverage(), 1e-9);
+        // 三月的成绩早于最近两次考试，不计入
+        assertEquals(60.0, b.previousAverage(), 1e-9);
+        assertFalse(b.isRisk());
+        assertSame(bob, b.student);
+    }
+
+    @Test
+    void testOrderAndChunkingIndependent() {
+        List<Score> scores = new ArrayList<>();
+        Random random = new Random(7);
+        for (long id = 1; id <= 300; id++) {
+            Student student = student(id, "学生" + id);
+            for (Exam exam : List.of(MARCH, APRIL, MAY)) {
+                for (Course course : List.of(MATH, CHINESE)) {
+                    for (int i = 0; i < 4; i++) {
+                        scores.add(score(student, course, exam, (double) random.nextInt(101)));
+                    }
+                }
+            }
+        }
+        ClassSnapshot sequential = ClassSnapshot.of(scores, new AnalysisExecutor(1));
+        Collections.shuffle(scores, random);
+        ClassSnapshot parallel = ClassSnapshot.of(scores, new AnalysisExecutor(4));
+
+        assertEquals(sequential.latest().all.count(), parallel.latest().all.count());
+        assertEquals(sequential.latest().all.mean(), parallel.latest().all.mean(), 1e-9);
+        assertEquals(sequential.previous().all.mean(), parallel.previous().all.mean(), 1e-9);
+        assertEquals(sequential.latest().byCourse.keySet(), parallel.latest().byCourse.keySet());
+        assertEquals(sequential.students().keySet(), parallel.students().keySet());
+        sequential.students().forEach((studentId, track) -> {
+            ClassSnapshot.StudentTrack other = parallel.student(studentId);
+            assertEquals(track.currentAverage(), other.currentAverage(), 1e-9);
+            assertEquals(track.previousAverage(), other.previousAverage(), 1e-9);
+            assertEquals(track.isRisk(), other.isRisk());
+        });
+    }
+
+    private Score score(Student student, Course course, Exam exam, double value) {
+        Score score = new Score(student, course, value);
+        score.setId(++scoreId);
+        score.setExam(exam);
+        if (exam != null) {
+            score.setRecordedAt(exam.getExamDate().atStartOfDay());
+        }
+        return score;
+    }
+
+    private static Student student(long id, String name) {
+        Student student = new Student("S" + id, name, "快照测试班", "软件工程");
+        student.setId(id);
+        return student;
+    }
+
+    private static Course course(long id, String name) {
+        Course course = new Course(name, 3.0, "教师");
+        course.setId(id);
+        return course;
+    }
+
+    private static Exam exam(long id, LocalDate date) {
+        Exam exam = new Exam("考试" + id, date);
+        exam.setId(id);
+        return exam;
+    }
+}
@@ -0,0 +1,77 @@
+package com.scrapy.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CSV 流式读写测试
+ * 验证引号转义、字段内换行、BOM、空行及跨缓冲区边界的多字节字符
+ */
+class CsvSheetReaderTest {
+
+    @Test
+    void testParseQuotedFieldsAndNumericColumns() throws Exception {
+        String csv = "\uFEFF学号,课程名称,考试名称,成绩\r\n"
+                + "2024001,\"高等数学, 上\",期中考试,85.5\r\n"
+                + "\r\n"
+                + "007,\"含\"\"引号\"\"\n换行\",,abc\n"
+                + "2024003,大学英语,期末考试,90";
+
+        List<SheetRow> rows = read(csv.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(4, rows.size());
+        assertEquals("学号", rows.get(0).getString(0));
+        assertEquals(1, rows.get(0).rowNum());
+
+        assertEquals("高等数学, 上", rows.get(1).getString(1));
+        assertEquals(85.5, rows.get(1).getNumber(3));
+
+        SheetRow quoted = rows.get(2);
+        assertEquals(4, quoted.rowNum());
+        assertEquals("007", quoted.getString(0));
+        assertEquals("含\"引号\"\n换行", quoted.getString(1));
+        assertNull(quoted.getString(2));
+        assertNull(quoted.getNumber(3));
+
+        assertEquals(90.0, rows.get(3).getNumber(3));
+        assertEquals("2024003", rows.get(3).getString(0));
+    }
+
+    @Test
+    void testWriterRoundTripAcrossBufferBoundaries() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CsvSheetWriter writer = new CsvSheetWriter(Channels.newChannel(out))) {
+            writer.writeRow("学号", "学生姓名", "课程名称", "成绩");
+            for (int i = 0; i < 20000; i++) {
+                writer.writeRow(String.valueOf(2024000 + i), "学生" + i, i % 7 == 0 ? "数学,\"提高\"班" : "高等数学",
+                        i % 2 == 0 ? (double) (i % 101) : 60.5);
+            }
+        }
+
+        List<SheetRow> rows = read(out.toByteArray());
+
+        assertEquals(20001, rows.size());
+        for (int i = 0; i < 20000; i++) {
+            SheetRow row = rows.get(i + 1);
+            assertEquals(String.valueOf(2024000 + i), row.getString(0));
+            assertEquals("学生" + i, row.getString(1));
+            assertEquals(i % 7 == 0 ? "数学,\"提高\"班" : "高等数学", row.getString(2));
+            assertEquals(i % 2 == 0 ? (double) (i % 101) : 60.5, row.getNumber(3));
+        }
+    }
+
+    private List<SheetRow> read(byte[] data) throws Exception {
+        List<SheetRow> rows = new ArrayList<>();
+        CsvSheetReader.read(Channels.newChannel(new ByteArrayInputStream(data)), Set.of(3), rows::add);
+        return rows;
+    }
+}
@@ -1,23 +1,32 @@
 package com.scrapy.demo.service;
 
 import com.scrapy.demo.domain.Course;
+import com.scrapy.demo.domain.Exam;
+import com.scrapy.demo.domain.ScoreAggregate;
+import com.scrapy.demo.domain.ScoreChange;
 import com.scrapy.demo.domain.Score;
 import com.scrapy.demo.domain.Student;
 import com.scrapy.demo.repository.CourseRepository;
+import com.scrapy.demo.repository.ExamRepository;
 import com.scrapy.demo.repository.ScoreRepository;
 import com.scrapy.demo.repository.StudentRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.engine.spi.SessionImplementor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -44,6 +53,21 @@ class ExcelServiceTest {
     @Autowired
     private ScoreRepository scoreRepository;
 
+    @Autowired
+    private ExamRepository examRepository;
+
+    @Autowired
+    private ScoreService scoreService;
+
+    @Autowired
+    private ScoreAggregateService aggregateService;
+
+    @Autowired
+    private ScoreChangeService changeService;
+
+    @Autowired
+    private EntityManager entityManager;
+
     @BeforeEach
     void setUp() {
         studentRepository.deleteAll();
@@ -96,6 +120,60 @@ class ExcelServiceTest {
         assertTrue(data.length > 0);
     }
 
+    @Test
+    void testExportScoresStreamsAllRows() throws Exception {
+        Course course = new Course();
+        course.setName("高等数学");
+        course.setCredit(4.0);
+        course.setTeacherName("王教授");
+        courseRepository.save(course);
+        Exam exam = examRepository.save(new Exam("期中考试", LocalDate.of(2024, 11, 1)));
+        // 超过 SXSSF 行窗口，验证已刷出到临时文件的行也被完整写出
+        for (int i = 0; i < 600; i++) {
+            Student student = studentRepository.save(new Student(String.valueOf(2024000 + i), "学生" + i, "计算机1班", "计算机科学与技术"));
+            Score score = new Score(student, course, (double) (i % 101));
+            score.setExam(i % 2 == 0 ? exam : null);
+            scoreRepository.save(score);
+        }
+
+        java.nio.file.Path file = java.nio.file.Files.createTempFile("scores-export", ".xlsx");
+        try {
+            try (java.io.OutputStream out = java.nio.file.Files.newOutputStream(file)) {
+                excelService.exportScores(out);
+            }
+            List<SheetRow> rows = new java.util.ArrayList<>();
+            XlsxSheetReader.readFirstSheet(file, rows::add);
+
+            assertEquals(601, rows.size());
+            assertEquals("考试名称", rows.get(0).getString(3));
+            assertEquals("2024000", rows.get(1).getString(0));
+            assertEquals("期中考试", rows.get(1).getString(3));
+            assertEquals("", rows.get(2).getString(3));
+            assertEquals("学生599", rows.get(600).getString(1));
+            assertEquals(599 % 101, rows.get(600).getNumber(4));
+        } finally {
+            java.nio.file.Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void testExportStudentsCsvUsesProjection() throws Exception {
+        studentRepository.save(new Student("2024001", "张三", "计算机1班", "计算机科学与技术"));
+        studentRepository.save(new Student("2024002", "李四", "计算机2班", "软件工程"));
+        entityManager.flush();
+        entityManager.clear();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        excelService.exportStudentsCsv(out);
+
+        String csv = out.toString(java.nio.charset.StandardCharsets.UTF_8);
+        assertTrue(csv.contains("2024001,张三,计算机1班,计算机科学与技术"), csv);
+        assertTrue(csv.contains("2024002,李四,计算机2班,软件工程"), csv);
+        // 导出行不进入持久化上下文，内存占用与学生总数无关
+        assertEquals(0, entityManager.unwrap(SessionImplementor.class)
+                .getPersistenceContext().getNumberOfManagedEntities());
+    }
+
     @Test
     void testExportStudentsEmpty() throws Exception {
         // 不创建学生，直接导出
@@ -283,6 +361,205 @@ class ExcelServiceTest {
         assertEquals(85.5, scores.get(0).getValue());
     }
 
+    @Test
+    void testImportScoresBatchInsertAndUpdate() throws Exception {
+        Student student1 = studentRepository.save(new Student("2024001", "张三", "计算机1班", "计算机科学与技术"));
+        Student student2 = studentRepository.save(new Student("2024002", "李四", "计算机1班", "计算机科学与技术"));
+
+        Course course = new Course();
+        course.setName("高等数学");
+        course.setCredit(4.0);
+        course.setTeacherName("王教授");
+        courseRepository.save(course);
+        Exam exam = examRepository.save(new Exam("期中考试", LocalDate.of(2024, 11, 1)));
+
+        // 已有成绩，导入后应被更新而不是重复插入
+        Score existing = new Score(student1, course, 60.0);
+        existing.setExam(exam);
+        scoreService.saveScore(existing);
+
+        org.apache.poi.ss.usermodel.Workbook workbook = new org.apache.poi.xssf.usermodel.XSSFWorkbook();
+        org.apache.poi.ss.usermodel.Sheet sheet = workbook.createSheet("成绩信息");
+        Object[][] rows = {
+                {"学号", "课程名称", "考试名称", "成绩"},
+                {"2024001", "高等数学", "期中考试", 90.0},
+                {"2024002", "高等数学", "期中考试", 70.0},
+                {"2024999", "高等数学", "期中考试", 80.0},
+                {"2024002", "高等数学", "期中考试", 75.0}
+        };
+        for (int i = 0; i < rows.length; i++) {
+            org.apache.poi.ss.usermodel.Row row = sheet.createRow(i);
+            for (int j = 0; j < rows[i].length; j++) {
+                if (rows[i][j] instanceof Double value) {
+                    row.createCell(j).setCellValue(value);
+                } else {
+                    row.createCell(j).setCellValue((String) rows[i][j]);
+                }
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        workbook.write(out);
+        workbook.close();
+
+        MultipartFile file = new MockMultipartFile(
+            "file",
+            "scores.xlsx",
+            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+            out.toByteArray()
+        );
+
+        long since = changeService.latestSequence();
+        Map<String, Object> result = excelService.importScores(file);
+
+        assertEquals(3, result.get("successCount"));
+        assertEquals(1, result.get("errorCount"));
+        assertEquals(List.of("第 4 行：学生不存在：2024999"), result.get("errorMessages"));
+        @SuppressWarnings("unchecked")
+        List<String> successMessages = (List<String>) result.get("successMessages");
+        assertTrue(successMessages.get(0).contains("已更新"));
+        assertTrue(successMessages.get(1).contains("导入成功"));
+        assertTrue(successMessages.get(2).contains("已更新"));
+
+        // 同一键以表中最后一行为准
+        List<Score> scores = scoreRepository.findAll();
+        assertEquals(2, scores.size());
+        assertEquals(90.0, scoreRepository.findByStudentId(student1.getId()).get(0).getValue());
+        assertEquals(75.0, scoreRepository.findByStudentId(student2.getId()).get(0).getValue());
+
+        ScoreAggregate courseAggregate = aggregateService
+                .find(ScoreAggregate.Scope.COURSE, String.valueOf(course.getId())).orElseThrow();
+        assertEquals(2, courseAggregate.getCount());
+        assertEquals(165.0, courseAggregate.getSum(), 1e-9);
+
+        // 批量写入同样记录变更日志，新增行带回生成的成绩ID
+        List<ScoreChange> changes = changeService.fetch(since, 10).changes();
+        assertEquals(2, changes.size());
+        assertEquals(ScoreChange.Type.INSERT, changes.get(0).getType());
+        assertEquals(scoreRepository.findByStudentId(student2.getId()).get(0).getId(), changes.get(0).getScoreId());
+        assertEquals(75.0, changes.get(0).getAfterValue());
+        assertEquals(ScoreChange.Type.UPDATE, changes.get(1).getType());
+        assertEquals(existing.getId(), changes.get(1).getScoreId());
+        assertEquals(60.0, changes.get(1).getBeforeValue());
+        assertEquals(90.0, changes.get(1).getAfterValue());
+    }
+
+    @Test
+    void testImportScoresAllSheets() throws Exception {
+        Student student1 = studentRepository.save(new Student("2024001", "张三", "计算机1班", "计算机科学与技术"));
+        Student student2 = studentRepository.save(new Student("2024101", "王五", "计算机2班", "计算机科学与技术"));
+        Course course = new Course();
+        course.setName("高等数学");
+        course.setCredit(4.0);
+        course.setTeacherName("王教授");
+        courseRepository.save(course);
+        examRepository.save(new Exam("期中考试", LocalDate.of(2024, 11, 1)));
+
+        org.apache.poi.xssf.usermodel.XSSFWorkbook workbook = new org.apache.poi.xssf.usermodel.XSSFWorkbook();
+        Object[][][] sheets = {
+                {{"学号", "课程名称", "考试名称", "成绩"}, {"2024001", "高等数学", "期中考试", 88.0}},
+                {{"课程名称"}, {"高等数学"}},
+                {{"学号", "课程名称", "考试名称", "成绩"}, {"2024101", "高等数学", "期中考试", 76.0},
+                        {"2024999", "高等数学", "期中考试", 60.0}}
+        };
+        String[] names = {"计算机1班", "选项", "计算机2班"};
+        for (int s = 0; s < sheets.length; s++) {
+            org.apache.poi.ss.usermodel.Sheet sheet = workbook.createSheet(names[s]);
+            for (int i = 0; i < sheets[s].length; i++) {
+                org.apache.poi.ss.usermodel.Row row = sheet.createRow(i);
+                for (int j = 0; j < sheets[s][i].length; j++) {
+                    if (sheets[s][i][j] instanceof Double value) {
+                        row.createCell(j).setCellValue(value);
+                    } else {
+                        row.createCell(j).setCellValue((String) sheets[s][i][j]);
+                    }
+                }
+            }
+        }
+        // 隐藏的选项表不参与导入
+        workbook.setSheetHidden(1, true);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        workbook.write(out);
+        workbook.close();
+
+        MultipartFile file = new MockMultipartFile("file", "scores.xlsx",
+                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", out.toByteArray());
+
+        Map<String, Object> result = excelService.importScoresAllSheets(file);
+
+        assertEquals(2, result.get("successCount"));
+        assertEquals(List.of("[计算机2班] 第 3 行：学生不存在：2024999"), result.get("errorMessages"));
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> summaries = (List<Map<String, Object>>) result.get("sheets");
+        assertEquals(2, summaries.size());
+        assertEquals("计算机1班", summaries.get(0).get("sheet"));
+        assertEquals(1, summaries.get(1).get("errorCount"));
+        assertEquals(88.0, scoreRepository.findByStudentId(student1.getId()).get(0).getValue());
+        assertEquals(76.0, scoreRepository.findByStudentId(student2.getId()).get(0).getValue());
+    }
+
+    @Test
+    void testImportScoresCsvSharesValidation() throws Exception {
+        Student student = studentRepository.save(new Student("2024001", "张三", "计算机1班", "计算机科学与技术"));
+        Course course = new Course();
+        course.setName("高等数学");
+        course.setCredit(4.0);
+        course.setTeacherName("王教授");
+        courseRepository.save(course);
+        examRepository.save(new Exam("期中考试", LocalDate.of(2024, 11, 1)));
+
+        String csv = "学号,课程名称,考试名称,成绩\n"
+                + "2024001,高等数学,期中考试,88\n"
+                + "2024001,高等数学,期中考试,150\n";
+        MultipartFile file = new MockMultipartFile("file", "scores.csv", "text/csv",
+                csv.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+
+        Map<String, Object> result = excelService.importScoresCsv(file);
+
+        assertEquals(1, result.get("successCount"));
+        assertEquals(List.of("第 3 行：成绩必须为0-100之间的数值"), result.get("errorMessages"));
+        assertEquals(88.0, scoreRepository.findByStudentId(student.getId()).get(0).getValue());
+    }
+
+    @Test
+    void testImportScoresCsvWritesInBatches() throws Exception {
+        Student student1 = studentRepository.save(new Student("2024001", "张三", "计算机1班", "计算机科学与技术"));
+        Student student2 = studentRepository.save(new Student("2024002", "李四", "计算机1班", "计算机科学与技术"));
+        Course course = courseRepository.save(new Course("高等数学", 4.0, "王教授"));
+        examRepository.save(new Exam("期中考试", LocalDate.of(2024, 11, 1)));
+
+        // 每 2 行写入一批；同一键跨批出现时后一批按已有成绩更新
+        String csv = "学号,课程名称,考试名称,成绩\n"
+                + "2024001,高等数学,期中考试,60\n"
+                + "2024999,高等数学,期中考试,70\n"
+                + "2024002,高等数学,期中考试,80\n"
+                + "2024001,高等数学,期中考试,90\n"
+                + "2024002,高等数学,期中考试,150\n";
+        MultipartFile file = new MockMultipartFile("file", "scores.csv", "text/csv",
+                csv.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        ExcelService target = AopTestUtils.getTargetObject(excelService);
+        Object batchSize = ReflectionTestUtils.getField(target, "batchSize");
+        ReflectionTestUtils.setField(target, "batchSize", 2);
+        Map<String, Object> result;
+        try {
+            result = excelService.importScoresCsv(file);
+        } finally {
+            ReflectionTestUtils.setField(target, "batchSize", batchSize);
+        }
+
+        assertEquals(3, result.get("successCount"));
+        assertEquals(List.of("第 3 行：学生不存在：2024999", "第 6 行：成绩必须为0-100之间的数值"),
+                result.get("errorMessages"));
+        @SuppressWarnings("unchecked")
+        List<String> successMessages = (List<String>) result.get("successMessages");
+        assertTrue(successMessages.get(2).contains("已更新"));
+        assertEquals(90.0, scoreRepository.findByStudentId(student1.getId()).get(0).getValue());
+        assertEquals(80.0, scoreRepository.findByStudentId(student2.getId()).get(0).getValue());
+        ScoreAggregate courseAggregate = aggregateService
+                .find(ScoreAggregate.Scope.COURSE, String.valueOf(course.getId())).orElseThrow();
+        assertEquals(2, courseAggregate.getCount());
+        assertEquals(170.0, courseAggregate.getSum(), 1e-9);
+    }
+
     @Test
     void testImportScoresInvalidScore() throws Exception {
         // 创建测试学生和课程
@@ -0,0 +1,207 @@
+package com.scrapy.demo.service;
+
+import com.scrapy.demo.domain.Course;
+import com.scrapy.demo.domain.Exam;
+import com.scrapy.demo.domain.ImportJob;
+import com.scrapy.demo.domain.ScoreAggregate;
+import com.scrapy.demo.domain.Student;
+import com.scrapy.demo.repository.CourseRepository;
+import com.scrapy.demo.repository.ExamRepository;
+import com.scrapy.demo.repository.ImportJobRepository;
+import com.scrapy.demo.repository.ScoreRepository;
+import com.scrapy.demo.repository.StudentRepository;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 异步导入任务测试
+ * 任务在独立线程和事务中执行，因此本测试不开启测试事务，数据在结束后清理
+ */
+@SpringBootTest(properties = "app.import.batch-size=2")
+@ActiveProfiles("test")
+class ImportJobServiceTest {
+
+    @Autowired
+    private ImportJobService importJobService;
+
+    @Autowired
+    private ImportJobRepository jobRepository;
+
+    @Autowired
+    private ScoreRepository scoreRepository;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private ExamRepository examRepository;
+
+    @Autowired
+    private ScoreAggregateService aggregateService;
+
+    private Course course;
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        for (int i = 1; i <= 4; i++) {
+            studentRepository.save(new Student("J00" + i, "学生" + i, "一班", "数学"));
+        }
+        course = new Course();
+        course.setName("高等数学");
+        course.setCredit(4.0);
+        course.setTeacherName("王教授");
+        course = courseRepository.save(course);
+        examRepository.save(new Exam("期末考试", LocalDate.of(2024, 12, 20)));
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jobRepository.deleteAll();
+        scoreRepository.deleteAll();
+        studentRepository.deleteAll();
+        courseRepository.deleteAll();
+        examRepository.deleteAll();
+        aggregateService.rebuild();
+    }
+
+    @Test
+    void testSubmittedJobCommitsInChunksAndReportsProgress() throws Exception {
+        byte[] sheet = scoreSheet(
+                new Object[]{"J001", "高等数学", "期末考试", 90.0},
+                new Object[]{"J002", "高等数学", "期末考试", 80.0},
+                new Object[]{"J999", "高等数学", "期末考试", 70.0},
+                new Object[]{"J003", "高等数学", "期末考试", 150.0},
+                new Object[]{"J004", "高等数学", "期末考试", 60.0});
+
+        ImportJob submitted = importJobService.submitScores(new MockMultipartFile("file", "scores.xlsx",
+                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", sheet));
+        ImportJob job = awaitFinished(submitted.getId());
+
+        assertEquals(ImportJob.Status.COMPLETED, job.getStatus());
+        assertEquals(5, job.getProcessedRows());
+        assertEquals(3, job.getSuccessCount());
+        assertEquals(2, job.getErrorCount());
+        assertEquals(6, job.getLastRow());
+        assertEquals(6, job.getEstimatedRows());
+        assertEquals(2, job.getErrorRowList().size());
+        assertTrue(job.getErrorRowList().get(0).startsWith("第 4 行"));
+        assertEquals(100, importJobService.describe(job).get("progress"));
+        assertFalse(Files.exists(Path.of(job.getStoredPath())));
+
+        assertEquals(3, scoreRepository.count());
+        ScoreAggregate courseAggregate = aggregateService
+                .find(ScoreAggregate.Scope.COURSE, String.valueOf(course.getId())).orElseThrow();
+        assertEquals(3, courseAggregate.getCount());
+        assertEquals(230.0, courseAggregate.getSum(), 1e-9);
+    }
+
+    @Test
+    void testInterruptedJobResumesAfterLastCommittedRow() throws Exception {
+        Path stored = Files.createTempFile("scores-resume", ".xlsx");
+        Files.write(stored, scoreSheet(
+                new Object[]{"J001", "高等数学", "期末考试", 90.0},
+                new Object[]{"J002", "高等数学", "期末考试", 80.0},
+                new Object[]{"J003", "高等数学", "期末考试", 70.0}));
+
+        // 模拟重启前已提交到第 3 行（前两条数据行）的任务：这两行不应再次写入
+        ImportJob interrupted = new ImportJob(ImportJob.Type.SCORES, "scores.xlsx", stored.toString());
+        interrupted.setStatus(ImportJob.Status.RUNNING);
+        interrupted.setLastRow(3);
+        interrupted.setProcessedRows(2);
+        interrupted.setSuccessCount(2);
+        interrupted = jobRepository.save(interrupted);
+
+        importJobService.resumeUnfinishedJobs();
+        ImportJob job = awaitFinished(interrupted.getId());
+
+        assertEquals(ImportJob.Status.COMPLETED, job.getStatus());
+        assertEquals(3, job.getProcessedRows());
+        assertEquals(3, job.getSuccessCount());
+        assertEquals(1, scoreRepository.count());
+        assertEquals(70.0, scoreRepository.findAll().get(0).getValue());
+    }
+
+    @Test
+    void testMissingFileFailsJob() throws Exception {
+        ImportJob orphan = jobRepository.save(new ImportJob(ImportJob.Type.SCORES, "lost.xlsx", "/nonexistent/lost.xlsx"));
+
+        importJobService.resumeUnfinishedJobs();
+        ImportJob job = jobRepository.findById(orphan.getId()).orElseThrow();
+
+        assertEquals(ImportJob.Status.FAILED, job.getStatus());
+        assertTrue(job.getFailureReason().contains("/nonexistent/lost.xlsx"), job.getFailureReason());
+        assertNotNull(job.getFinishedAt());
+    }
+
+    @Test
+    void testPendingJobClaimedOnlyOnce() throws Exception {
+        Path stored = Files.createTempFile("scores-claim", ".xlsx");
+        Files.write(stored, scoreSheet(
+                new Object[]{"J001", "高等数学", "期末考试", 90.0},
+                new Object[]{"J002", "高等数学", "期末考试", 80.0}));
+        ImportJob pending = jobRepository.save(new ImportJob(ImportJob.Type.SCORES, "scores.xlsx", stored.toString()));
+
+        importJobService.run(pending.getId(), ImportJob.Status.PENDING);
+        // 任务已不处于等待状态，再次执行（如启动恢复与提交线程同时拿到该任务）时认领失败，直接返回
+        importJobService.run(pending.getId(), ImportJob.Status.PENDING);
+
+        assertEquals(ImportJob.Status.COMPLETED, jobRepository.findById(pending.getId()).orElseThrow().getStatus());
+        assertEquals(2, scoreRepository.count());
+    }
+
+    private ImportJob awaitFinished(Long jobId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            ImportJob job = jobRepository.findById(jobId).orElseThrow();
+            if (job.isFinished()) {
+                return job;
+            }
+            Thread.sleep(50);
+        }
+        fail("导入任务未在超时时间内结束");
+        return null;
+    }
+
+    private byte[] scoreSheet(Object[]... rows) throws Exception {
+        try (Workbook workbook = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            Sheet sheet = workbook.createSheet("成绩信息");
+            Row header = sheet.createRow(0);
+            String[] headers = {"学号", "课程名称", "考试名称", "成绩"};
+            for (int i = 0; i < headers.length; i++) {
+                header.createCell(i).setCellValue(headers[i]);
+            }
+            for (int r = 0; r < rows.length; r++) {
+                Row row = sheet.createRow(r + 1);
+                for (int c = 0; c < rows[r].length; c++) {
+                    if (rows[r][c] instanceof Double value) {
+                        row.createCell(c).setCellValue(value);
+                    } else {
+                        row.createCell(c).setCellValue((String) rows[r][c]);
+                    }
+                }
+            }
+            workbook.write(out);
+            return out.toByteArray();
+        }
+    }
+}
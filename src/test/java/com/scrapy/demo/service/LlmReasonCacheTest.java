@@ -0,0 +1,93 @@
+package com.scrapy.demo.service;
+
+import com.scrapy.demo.domain.LlmReasonEntry;
+import com.scrapy.demo.repository.LlmReasonEntryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LLM 推荐原因缓存测试
+ * 测试缓存键的量化规则、开启持久化后新实例（相当于重启）从表中回填，以及表的定时清理
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class LlmReasonCacheTest {
+
+    @Autowired
+    private LlmReasonEntryRepository repository;
+
+    @Test
+    void testKeyQuantization() {
+        String key = LlmReasonCache.keyOf(Map.of("course", "数学", "trend", "下降", "score", 60.0,
+                "differenceWithClassAvg", -12.6), "提示");
+
+        assertEquals(64, key.length());
+        assertEquals(key, LlmReasonCache.keyOf(Map.of("course", "数学", "trend", "下降", "score", 64.9,
+                "differenceWithClassAvg", -14.0), "提示"));
+        assertNotEquals(key, LlmReasonCache.keyOf(Map.of("course", "数学", "trend", "下降", "score", 65.0,
+                "differenceWithClassAvg", -12.6), "提示"));
+        assertNotEquals(key, LlmReasonCache.keyOf(Map.of("course", "数学", "trend", "稳定", "score", 60.0,
+                "differenceWithClassAvg", -12.6), "提示"));
+        assertNotEquals(key, LlmReasonCache.keyOf(Map.of("course", "数学", "trend", "下降", "score", 60.0,
+                "differenceWithClassAvg", -12.6), "另一个提示"));
+    }
+
+    @Test
+    void testPersistedReasonSurvivesRestart() {
+        new LlmReasonCache(repository, new SimpleMeterRegistry(), 100, 60, true, 1000).put("k1", "持久化的原因");
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        LlmReasonCache restarted = new LlmReasonCache(repository, meterRegistry, 100, 60, true, 1000);
+        assertEquals(Map.of("k1", "持久化的原因"), restarted.getAll(List.of("k1", "k2")));
+        assertEquals(1.0, meterRegistry.get("llm.reason.cache.requests").tag("result", "store").counter().count());
+        assertEquals(1.0, meterRegistry.get("llm.reason.cache.requests").tag("result", "miss").counter().count());
+
+        // 回填后由内存命中
+        restarted.getAll(List.of("k1"));
+        assertEquals(1.0, meterRegistry.get("llm.reason.cache.requests").tag("result", "hit").counter().count());
+
+        LlmReasonCache memoryOnly = new LlmReasonCache(repository, new SimpleMeterRegistry(), 100, 60, false, 1000);
+        assertTrue(memoryOnly.getAll(List.of("k1")).isEmpty());
+    }
+
+    @Test
+    void testReasonNotStoredWhenRequested() {
+        LlmReasonCache cache = new LlmReasonCache(repository, new SimpleMeterRegistry(), 100, 60, true, 1000);
+        cache.put("custom", "自定义提示词的原因", false);
+
+        assertEquals(Map.of("custom", "自定义提示词的原因"), cache.getAll(List.of("custom")));
+        assertTrue(repository.findByCacheKey("custom").isEmpty());
+    }
+
+    @Test
+    void testPurgeRemovesExpiredAndOverflowRows() {
+        LocalDateTime now = LocalDateTime.now();
+        store("expired", now.minusHours(2));
+        store("oldest", now.minusMinutes(30));
+        store("older", now.minusMinutes(20));
+        store("newer", now.minusMinutes(10));
+        store("newest", now.minusMinutes(5));
+
+        new LlmReasonCache(repository, new SimpleMeterRegistry(), 100, 60, true, 3).purge();
+
+        List<String> kept = repository.findAll().stream().map(LlmReasonEntry::getCacheKey).sorted().toList();
+        assertEquals(List.of("newer", "newest", "older"), kept);
+    }
+
+    private void store(String key, LocalDateTime createdAt) {
+        LlmReasonEntry entry = new LlmReasonEntry(key, "原因");
+        entry.setCreatedAt(createdAt);
+        repository.save(entry);
+    }
+}
@@ -0,0 +1,150 @@
+package com.scrapy.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 推荐原因生成测试
+ * 用本地 HTTP 服务模拟 LLM 代理：课程名含“慢”时延迟响应，测试批量并发调用、并发上限、整批截止时间与按量化上下文缓存
+ */
+class LlmReasonServiceTest {
+
+    private static final long SLOW_RESPONSE_MS = 3000;
+    private static final long BUSY_RESPONSE_MS = 100;
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private HttpServer server;
+    private LlmReasonService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/reason", exchange -> {
+            requests.incrementAndGet();
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            try {
+                Thread.sleep(body.contains("慢") ? SLOW_RESPONSE_MS : BUSY_RESPONSE_MS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            byte[] response = "{\"reason\":\"代理生成\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+
+        service = newService(8);
+    }
+
+    private LlmReasonService newService(int maxConcurrency) {
+        LlmReasonService service = new LlmReasonService(new ObjectMapper(),
+                new LlmReasonCache(null, meterRegistry, 100, 60, false, 1000), maxConcurrency);
+        ReflectionTestUtils.setField(service, "llmEnabled", true);
+        ReflectionTestUtils.setField(service, "llmProxyUrl",
+                "http://localhost:" + server.getAddress().getPort() + "/reason");
+        ReflectionTestUtils.setField(service, "llmPrompt", "测试");
+        ReflectionTestUtils.setField(service, "requestTimeoutMs", 8000L);
+        ReflectionTestUtils.setField(service, "batchDeadlineMs", 1000L);
+        return service;
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void testBatchRunsConcurrently() {
+        List<Map<String, Object>> contexts = List.of(context("数学"), context("语文"), context("英语"), context("物理"));
+
+        List<String> reasons = service.buildRecommendationReasons(contexts);
+
+        assertEquals(List.of("代理生成", "代理生成", "代理生成", "代理生成"), reasons);
+    }
+
+    @Test
+    void testProxyCallsCappedByMaxConcurrency() {
+        service.shutdown();
+        service = newService(2);
+        List<Map<String, Object>> contexts = List.of(context("数学"), context("语文"), context("英语"),
+                context("物理"), context("化学"), context("生物"));
+
+        List<String> reasons = service.buildRecommendationReasons(contexts);
+
+        assertEquals(6, requests.get());
+        assertTrue(reasons.stream().allMatch("代理生成"::equals), reasons.toString());
+        assertTrue(maxInFlight.get() <= 2, "max in flight " + maxInFlight.get());
+    }
+
+    @Test
+    void testFallbackWhenDeadlineMissed() {
+        List<Map<String, Object>> contexts = List.of(context("数学"), context("慢速课程"));
+
+        long start = System.nanoTime();
+        List<String> reasons = service.buildRecommendationReasons(contexts);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals("代理生成", reasons.get(0));
+        assertTrue(reasons.get(1).contains("慢速课程"), reasons.get(1));
+        assertTrue(elapsedMs < SLOW_RESPONSE_MS, "elapsed " + elapsedMs + "ms");
+    }
+
+    @Test
+    void testSameBandServedFromCache() {
+        Map<String, Object> first = Map.of("course", "数学", "trend", "上升", "score", 81.0, "differenceWithClassAvg", 1.5);
+        Map<String, Object> sameBand = Map.of("course", " 数学 ", "trend", "上升", "score", 84.5, "differenceWithClassAvg", -2.0);
+        Map<String, Object> otherBand = Map.of("course", "数学", "trend", "上升", "score", 86.0, "differenceWithClassAvg", 1.5);
+
+        assertEquals(List.of("代理生成", "代理生成"), service.buildRecommendationReasons(List.of(first, sameBand)));
+        assertEquals(1, requests.get());
+
+        service.buildRecommendationReason(sameBand);
+        assertEquals(1, requests.get());
+        service.buildRecommendationReason(otherBand);
+        assertEquals(2, requests.get());
+
+        assertEquals(1.0, meterRegistry.get("llm.reason.cache.requests").tag("result", "hit").counter().count());
+        assertEquals(2.0, meterRegistry.get("llm.reason.cache.requests").tag("result", "miss").counter().count());
+        assertEquals(2L, meterRegistry.get("llm.reason.proxy").timer().count());
+    }
+
+    @Test
+    void testDisabledUsesFallback() {
+        ReflectionTestUtils.setField(service, "llmEnabled", false);
+
+        String reason = service.buildRecommendationReason(Map.of("course", "数学", "trend", "上升"));
+
+        assertEquals("该生在数学表现持续提升，可安排进阶训练巩固优势。", reason);
+    }
+
+    private static Map<String, Object> context(String course) {
+        return Map.of("course", course, "trend", "稳定", "differenceWithClassAvg", 0.0);
+    }
+}
@@ -0,0 +1,98 @@
+package com.scrapy.demo.service;
+
+import com.scrapy.demo.domain.Course;
+import com.scrapy.demo.domain.Score;
+import com.scrapy.demo.domain.ScoreAggregate;
+import com.scrapy.demo.domain.ScoreAggregate.Scope;
+import com.scrapy.demo.domain.Student;
+import com.scrapy.demo.repository.CourseRepository;
+import com.scrapy.demo.repository.StudentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 成绩聚合并发写入测试
+ * 多个事务同时写入同一课程（聚合行由并发事务首次创建）与全校聚合，提交后计数与总和不丢失；
+ * 各事务独立提交，测试结束时通过服务删除写入的数据
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ScoreAggregateConcurrencyTest {
+
+    private static final int WRITERS = 8;
+    private static final int SCORES_PER_WRITER = 10;
+
+    @Autowired
+    private ScoreService scoreService;
+
+    @Autowired
+    private ScoreAggregateService aggregateService;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    private final List<Student> students = new ArrayList<>();
+    private final List<Long> scoreIds = new CopyOnWriteArrayList<>();
+    private Course course;
+
+    @BeforeEach
+    void setUp() {
+        course = courseRepository.save(new Course("并发聚合测试课程", 2.0, "并发老师"));
+        for (int i = 0; i < WRITERS; i++) {
+            students.add(studentRepository.save(new Student("CC" + i, "并发" + i, "并发测试" + i + "班", "软件工程")));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        scoreIds.forEach(scoreService::delete);
+        studentRepository.deleteAll(students);
+        courseRepository.delete(course);
+    }
+
+    @Test
+    void testConcurrentWritesKeepCounts() throws Exception {
+        long allBefore = aggregateService.find(Scope.ALL, ScoreAggregate.ALL_KEY).map(ScoreAggregate::getCount).orElse(0L);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (Student student : students) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < SCORES_PER_WRITER; i++) {
+                    scoreIds.add(scoreService.saveScore(new Score(student, course, 55.0 + i)).getId());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        int total = WRITERS * SCORES_PER_WRITER;
+        ScoreAggregate courseRow = aggregateService.find(Scope.COURSE, String.valueOf(course.getId())).orElseThrow();
+        assertEquals(total, courseRow.getCount());
+        assertEquals(WRITERS * (55.0 * SCORES_PER_WRITER + 45.0), courseRow.getSum(), 1e-6);
+        assertEquals(WRITERS * 5L, courseRow.getPassCount());
+        assertEquals(allBefore + total, aggregateService.find(Scope.ALL, ScoreAggregate.ALL_KEY).orElseThrow().getCount());
+        for (Student student : students) {
+            assertEquals(SCORES_PER_WRITER,
+                    aggregateService.find(Scope.CLASS, student.getClazz()).orElseThrow().getCount());
+        }
+    }
+}
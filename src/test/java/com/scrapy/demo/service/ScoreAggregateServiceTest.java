@@ -0,0 +1,170 @@
+package com.scrapy.demo.service;
+
+import com.scrapy.demo.domain.Course;
+import com.scrapy.demo.domain.Exam;
+import com.scrapy.demo.domain.Score;
+import com.scrapy.demo.domain.ScoreAggregate;
+import com.scrapy.demo.domain.ScoreAggregate.Scope;
+import com.scrapy.demo.domain.Student;
+import com.scrapy.demo.repository.CourseRepository;
+import com.scrapy.demo.repository.ExamRepository;
+import com.scrapy.demo.repository.ScoreRepository;
+import com.scrapy.demo.repository.StudentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 成绩聚合服务测试
+ * 验证增量维护的聚合与全量重建结果一致，考试删除后其成绩并入无考试的班级课程聚合
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class ScoreAggregateServiceTest {
+
+    @Autowired
+    private ScoreAggregateService aggregateService;
+
+    @Autowired
+    private ScoreService scoreService;
+
+    @Autowired
+    private StudentService studentService;
+
+    @Autowired
+    private ScoreRepository scoreRepository;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private ExamRepository examRepository;
+
+    private Student student1;
+    private Student student2;
+    private Course course;
+    private Exam exam;
+
+    @BeforeEach
+    void setUp() {
+        scoreRepository.deleteAll();
+        aggregateService.rebuild();
+
+        student1 = studentRepository.save(new Student("A001", "张三", "一班", "数学"));
+        student2 = studentRepository.save(new Student("A002", "李四", "二班", "数学"));
+        course = new Course();
+        course.setName("聚合测试课程");
+        course.setCredit(2.0);
+        course.setTeacherName("测试老师");
+        course = courseRepository.save(course);
+        exam = examRepository.save(new Exam("聚合测试考试", LocalDate.of(2026, 1, 10)));
+    }
+
+    @Test
+    void testIncrementalMatchesRebuild() {
+        Score first = scoreService.saveScore(newScore(student1, 95.0));
+        Score second = scoreService.saveScore(newScore(student2, 55.0));
+        scoreService.saveScore(newScore(student2, 72.0));
+
+        scoreService.updateScoreValue(first.getId(), 65.0);
+        scoreService.delete(second.getId());
+
+        Map<String, ScoreAggregate> incremental = assertMatchesRebuild();
+
+        ScoreAggregate all = incremental.get("ALL:*");
+        assertEquals(2, all.getCount());
+        assertEquals(72.0, all.getHighest());
+        assertEquals(65.0, all.getLowest());
+    }
+
+    @Test
+    void testExamDeletionMovesClassCourseAggregateToNoExamKey() {
+        Score withExam = scoreService.saveScore(newScore(student1, 90.0));
+        Score examless = new Score(student1, course, 60.0);
+        scoreService.saveScore(examless);
+        String examKey = ScoreAggregateService.classCourseKey("一班", course.getId(), exam.getId());
+        String noExamKey = ScoreAggregateService.classCourseKey("一班", course.getId(), null);
+        assertEquals(1, aggregateService.find(Scope.CLASS_COURSE, noExamKey).orElseThrow().getCount());
+
+        // 库表外键为 ON DELETE SET NULL，删除考试时成绩的考试关联由数据库置空
+        withExam.setExam(null);
+        scoreRepository.saveAndFlush(withExam);
+        aggregateService.discardExam(exam.getId());
+
+        assertTrue(aggregateService.find(Scope.CLASS_COURSE, examKey).isEmpty());
+        ScoreAggregate merged = aggregateService.find(Scope.CLASS_COURSE, noExamKey).orElseThrow();
+        assertEquals(2, merged.getCount());
+        assertEquals(150.0, merged.getSum(), 1e-6);
+        assertEquals(90.0, merged.getHighest());
+        assertEquals(60.0, merged.getLowest());
+        assertMatchesRebuild();
+    }
+
+    @Test
+    void testStudentClassChangeMovesClassAggregate() {
+        scoreService.saveScore(newScore(student1, 80.0));
+
+        Student payload = new Student(student1.getStudentNumber(), student1.getName(), "二班", student1.getMajor());
+        studentService.update(student1.getId(), payload);
+
+        assertTrue(aggregateService.find(Scope.CLASS, "一班").isEmpty());
+        ScoreAggregate moved = aggregateService.find(Scope.CLASS, "二班").orElseThrow();
+        assertEquals(1, moved.getCount());
+        assertEquals(80.0, moved.getHighest());
+    }
+
+    private Score newScore(Student student, double value) {
+        Score score = new Score(student, course, value);
+        score.setExam(exam);
+        return score;
+    }
+
+    /**
+     * 增量维护的聚合与全量重建结果逐项一致，返回增量结果
+     */
+    private Map<String, ScoreAggregate> assertMatchesRebuild() {
+        Map<String, ScoreAggregate> incremental = snapshot();
+        aggregateService.rebuild();
+        Map<String, ScoreAggregate> rebuilt = snapshot();
+
+        assertEquals(rebuilt.keySet(), incremental.keySet());
+        rebuilt.forEach((key, expected) -> {
+            ScoreAggregate actual = incremental.get(key);
+            assertEquals(expected.getCount(), actual.getCount(), key);
+            assertEquals(expected.getSum(), actual.getSum(), 1e-6, key);
+            assertEquals(expected.getSumOfSquares(), actual.getSumOfSquares(), 1e-6, key);
+            assertEquals(expected.getPassCount(), actual.getPassCount(), key);
+            assertEquals(expected.getHighest(), actual.getHighest(), key);
+            assertEquals(expected.getLowest(), actual.getLowest(), key);
+            assertArrayEquals(expected.buckets(), actual.buckets(), key);
+        });
+        return incremental;
+    }
+
+    private Map<String, ScoreAggregate> snapshot() {
+        return java.util.Arrays.stream(Scope.values())
+                .flatMap(scope -> aggregateService.findAll(scope).stream())
+                .map(this::copy)
+                .collect(Collectors.toMap(row -> row.getScope() + ":" + row.getScopeKey(), Function.identity()));
+    }
+
+    private ScoreAggregate copy(ScoreAggregate row) {
+        ScoreAggregate copy = new ScoreAggregate(row.getScope(), row.getScopeKey());
+        copy.merge(row, 1);
+        return copy;
+    }
+}
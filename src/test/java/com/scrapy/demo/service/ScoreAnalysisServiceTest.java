@@ -30,6 +30,9 @@ class ScoreAnalysisServiceTest {
     @Autowired
     private ScoreAnalysisService scoreAnalysisService;
 
+    @Autowired
+    private ScoreService scoreService;
+
     @Autowired
     private ScoreRepository scoreRepository;
 
@@ -78,16 +81,16 @@ class ScoreAnalysisServiceTest {
         course2.setTeacherName("李老师");
         courseRepository.save(course2);
 
-        // 创建测试成绩
+        // 创建测试成绩（经 ScoreService 写入以维护统计聚合）
         Score score1 = new Score(student1, course1, 85.5);
         Score score2 = new Score(student1, course2, 78.0);
         Score score3 = new Score(student2, course1, 72.5);
         Score score4 = new Score(student2, course2, 85.0);
 
-        scoreRepository.save(score1);
-        scoreRepository.save(score2);
-        scoreRepository.save(score3);
-        scoreRepository.save(score4);
+        scoreService.saveScore(score1);
+        scoreService.saveScore(score2);
+        scoreService.saveScore(score3);
+        scoreService.saveScore(score4);
     }
 
     @Test
@@ -135,6 +138,16 @@ class ScoreAnalysisServiceTest {
         assertTrue((Integer) analysis.get("totalCount") >= 2);
     }
 
+    @Test
+    void testAnalyzeClassesScores() {
+        Map<String, Map<String, Object>> analyses = scoreAnalysisService.analyzeClassesScores(
+                List.of("计算机1班", "不存在的班级", "计算机1班"));
+
+        assertEquals(List.of("计算机1班", "不存在的班级"), List.copyOf(analyses.keySet()));
+        assertEquals(4, analyses.get("计算机1班").get("totalCount"));
+        assertEquals(0, analyses.get("不存在的班级").get("totalCount"));
+    }
+
     @Test
     void testGetPassRateByScore() {
         Map<String, Double> passRates = scoreAnalysisService.getPassRateByScore();
@@ -196,7 +209,7 @@ class ScoreAnalysisServiceTest {
 
     @Test
     void testEmptyScoresAnalysis() {
-        scoreRepository.deleteAll();
+        scoreRepository.findAll().forEach(score -> scoreService.delete(score.getId()));
 
         Map<String, Object> analysis = scoreAnalysisService.analyzeAllScores();
 
@@ -0,0 +1,175 @@
+package com.scrapy.demo.service;
+
+import com.scrapy.demo.domain.Course;
+import com.scrapy.demo.domain.Score;
+import com.scrapy.demo.domain.ScoreChange;
+import com.scrapy.demo.domain.Student;
+import com.scrapy.demo.repository.CourseRepository;
+import com.scrapy.demo.repository.ScoreChangeRepository;
+import com.scrapy.demo.repository.StudentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 成绩变更日志测试
+ * 测试新增/修改/删除的变更记录、按序号增量读取、乱序提交时的安全水位与长轮询唤醒
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class ScoreChangeServiceTest {
+
+    @Autowired
+    private ScoreChangeService changeService;
+
+    @Autowired
+    private ScoreChangeRepository changeRepository;
+
+    @Autowired
+    private ScoreService scoreService;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void testRecordsInsertUpdateDeleteInOrder() {
+        long since = changeService.latestSequence();
+        Student student = studentRepository.save(new Student("CF001", "变更测试", "变更测试班", "软件工程"));
+        Course course = courseRepository.save(new Course("变更测试课程", 2.0, "赵老师"));
+
+        Course other = courseRepository.save(new Course("变更测试课程二", 2.0, "赵老师"));
+        Score updated = scoreService.saveScore(new Score(student, course, 70.0));
+        Score removed = scoreService.saveScore(new Score(student, other, 50.0));
+        scoreService.updateScoreValue(updated.getId(), 70.0);
+        scoreService.updateScoreValue(updated.getId(), 85.0);
+        scoreService.delete(removed.getId());
+
+        ScoreChangeFeed feed = changeService.fetch(since, 3);
+        assertTrue(feed.hasMore());
+        List<ScoreChange> changes = feed.changes();
+        assertEquals(3, changes.size());
+        assertEquals(ScoreChange.Type.INSERT, changes.get(0).getType());
+        assertEquals(updated.getId(), changes.get(0).getScoreId());
+        assertEquals(70.0, changes.get(0).getAfterValue());
+        assertEquals(ScoreChange.Type.INSERT, changes.get(1).getType());
+        // 分数未变的修改不记录
+        assertEquals(ScoreChange.Type.UPDATE, changes.get(2).getType());
+        assertEquals(70.0, changes.get(2).getBeforeValue());
+        assertEquals(85.0, changes.get(2).getAfterValue());
+
+        ScoreChangeFeed rest = changeService.fetch(feed.next(), 3);
+        assertFalse(rest.hasMore());
+        assertEquals(1, rest.changes().size());
+        ScoreChange deleted = rest.changes().get(0);
+        assertEquals(ScoreChange.Type.DELETE, deleted.getType());
+        assertEquals(removed.getId(), deleted.getScoreId());
+        assertEquals(other.getId(), deleted.getCourseId());
+        assertEquals(50.0, deleted.getBeforeValue());
+        assertNull(deleted.getAfterValue());
+        assertEquals(deleted.getId(), rest.next());
+    }
+
+    @Test
+    void testPollReturnsImmediatelyWhenChangesExist() {
+        long since = changeService.latestSequence();
+        Student student = studentRepository.save(new Student("CF002", "变更测试", "变更测试班", "软件工程"));
+        Course course = courseRepository.save(new Course("变更测试课程", 2.0, "赵老师"));
+        scoreService.saveScore(new Score(student, course, 66.0));
+
+        DeferredResult<ScoreChangeFeed> result = changeService.poll(since, 100, 30);
+
+        assertTrue(result.hasResult());
+        assertEquals(1, ((ScoreChangeFeed) result.getResult()).changes().size());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testPollWakesOnCommit() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        long since = changeService.latestSequence();
+        DeferredResult<ScoreChangeFeed> result = changeService.poll(since, 100, 30);
+        assertFalse(result.hasResult());
+
+        ScoreChange change = new ScoreChange(1L, ScoreChange.Type.INSERT, 1L, 1L, null, null, 88.0);
+        tx.executeWithoutResult(status -> changeService.record(change));
+        try {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!result.hasResult() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertTrue(result.hasResult());
+            ScoreChangeFeed feed = (ScoreChangeFeed) result.getResult();
+            assertEquals(1, feed.changes().size());
+            assertEquals(change.getId(), feed.next());
+        } finally {
+            tx.executeWithoutResult(status -> changeRepository.deleteById(change.getId()));
+        }
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testOutOfOrderCommitHeldBackUntilEarlierCommits() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        long since = changeService.latestSequence();
+        ScoreChange early = new ScoreChange(1L, ScoreChange.Type.INSERT, 1L, 1L, null, null, 60.0);
+        ScoreChange late = new ScoreChange(2L, ScoreChange.Type.INSERT, 1L, 1L, null, null, 70.0);
+        CountDownLatch recorded = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            // 先插入的事务持有较小序号但挂起不提交
+            Future<?> slow = pool.submit(() -> tx.executeWithoutResult(status -> {
+                changeService.record(early);
+                recorded.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertTrue(recorded.await(10, TimeUnit.SECONDS));
+            tx.executeWithoutResult(status -> changeService.record(late));
+            assertTrue(late.getId() > early.getId());
+
+            // 较大序号先提交，但较小序号仍未提交，不能越过它提供
+            assertTrue(changeService.fetch(since, 100).changes().isEmpty());
+            assertEquals(since, changeService.latestSequence());
+
+            release.countDown();
+            slow.get(10, TimeUnit.SECONDS);
+            ScoreChangeFeed feed = changeService.fetch(since, 100);
+            assertEquals(List.of(early.getId(), late.getId()),
+                    feed.changes().stream().map(ScoreChange::getId).toList());
+            assertEquals(late.getId(), changeService.latestSequence());
+        } finally {
+            release.countDown();
+            pool.shutdown();
+            tx.executeWithoutResult(status -> changeRepository.deleteAllById(
+                    Stream.of(early.getId(), late.getId()).filter(Objects::nonNull).toList()));
+        }
+    }
+}
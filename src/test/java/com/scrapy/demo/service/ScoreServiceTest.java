@@ -1,5 +1,7 @@
 package com.scrapy.demo.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.scrapy.demo.domain.Course;
 import com.scrapy.demo.domain.Score;
 import com.scrapy.demo.domain.Student;
@@ -13,6 +15,8 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -30,6 +34,9 @@ class ScoreServiceTest {
     @Autowired
     private ScoreService scoreService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Autowired
     private ScoreRepository scoreRepository;
 
@@ -169,6 +176,35 @@ class ScoreServiceTest {
         });
     }
 
+    @Test
+    void testWriteViewsNdjson() throws Exception {
+        Score first = scoreService.saveScore(testScore);
+        Course other = new Course();
+        other.setName("线性代数");
+        other.setCredit(3.0);
+        other.setTeacherName("王教授");
+        courseRepository.save(other);
+        Score second = new Score();
+        second.setStudent(testStudent);
+        second.setCourse(other);
+        second.setValue(90.0);
+        scoreService.saveScore(second);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        scoreService.writeViewsNdjson(out);
+
+        String body = out.toString(StandardCharsets.UTF_8);
+        assertTrue(body.endsWith("\n"));
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        JsonNode row = objectMapper.readTree(lines[0]);
+        assertEquals(first.getId().longValue(), row.get("id").asLong());
+        assertEquals("张三", row.get("studentName").asText());
+        assertEquals("高等数学", row.get("courseName").asText());
+        assertEquals(85.5, row.get("value").asDouble());
+        assertEquals("线性代数", objectMapper.readTree(lines[1]).get("courseName").asText());
+    }
+
     @Test
     void testScoreWithRecordedAtTimestamp() {
         Score saved = scoreService.saveScore(testScore);
@@ -0,0 +1,87 @@
+package com.scrapy.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 单遍统计累加器测试
+ */
+class ScoreStatsTest {
+
+    private static final double[] VALUES = {45.0, 58.5, 60.0, 72.0, 85.5, 90.0, 100.0};
+
+    @Test
+    void testSinglePassMatchesDefinition() {
+        ScoreStats stats = ScoreStats.of(VALUES);
+
+        double mean = 0;
+        for (double value : VALUES) {
+            mean += value;
+        }
+        mean /= VALUES.length;
+        double variance = 0;
+        for (double value : VALUES) {
+            variance += (value - mean) * (value - mean);
+        }
+        variance /= VALUES.length;
+
+        assertEquals(7, stats.count());
+        assertEquals(mean, stats.mean(), 1e-9);
+        assertEquals(variance, stats.variance(), 1e-9);
+        assertEquals(45.0, stats.min());
+        assertEquals(100.0, stats.max());
+        assertEquals(5, stats.passCount());
+        assertEquals(2, stats.failCount());
+        assertEquals(5 * 100.0 / 7, stats.passRate(), 1e-9);
+        assertArrayEquals(new int[]{2, 1, 1, 1, 2}, stats.histogram());
+
+        Map<String, Integer> distribution = stats.distribution();
+        assertEquals(2, distribution.get("0-59"));
+        assertEquals(2, distribution.get("90-100"));
+    }
+
+    @Test
+    void testEmptyStats() {
+        ScoreStats stats = new ScoreStats();
+
+        assertTrue(stats.isEmpty());
+        assertEquals(0.0, stats.mean());
+        assertEquals(75.0, stats.mean(75.0));
+        assertEquals(0.0, stats.min());
+        assertEquals(0.0, stats.max());
+        assertEquals(0.0, stats.variance());
+        assertEquals(0.0, stats.passRate());
+    }
+
+    @Test
+    void testCombineEqualsSinglePass() {
+        ScoreStats left = ScoreStats.of(VALUES, 0, 3);
+        ScoreStats right = ScoreStats.of(VALUES, 3, VALUES.length);
+        ScoreStats whole = ScoreStats.of(VALUES);
+
+        left.combine(right);
+
+        assertEquals(whole.count(), left.count());
+        assertEquals(whole.mean(), left.mean(), 1e-9);
+        assertEquals(whole.variance(), left.variance(), 1e-9);
+        assertEquals(whole.min(), left.min());
+        assertEquals(whole.max(), left.max());
+        assertArrayEquals(whole.histogram(), left.histogram());
+    }
+
+    @Test
+    void testPercentiles() {
+        ScoreStats stats = new ScoreStats(true);
+        for (double value : VALUES) {
+            stats.accept(value);
+        }
+
+        assertEquals(45.0, stats.percentile(0));
+        assertEquals(72.0, stats.percentile(50));
+        assertEquals(100.0, stats.percentile(100));
+        assertThrows(IllegalStateException.class, () -> new ScoreStats().percentile(50));
+    }
+}
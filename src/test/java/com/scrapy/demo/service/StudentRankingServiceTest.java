@@ -0,0 +1,146 @@
+package com.scrapy.demo.service;
+
+import com.scrapy.demo.domain.Course;
+import com.scrapy.demo.domain.Score;
+import com.scrapy.demo.domain.Student;
+import com.scrapy.demo.repository.CourseRepository;
+import com.scrapy.demo.repository.ScoreRepository;
+import com.scrapy.demo.repository.StudentRepository;
+import com.scrapy.demo.service.StudentRankingService.RankMode;
+import com.scrapy.demo.service.StudentRankingService.RankingPage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 学生排名服务测试
+ * 验证分页、同分名次、班级/课程筛选以及成绩写入后排名索引失效
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class StudentRankingServiceTest {
+
+    @Autowired
+    private StudentRankingService rankingService;
+
+    @Autowired
+    private ScoreService scoreService;
+
+    @Autowired
+    private ScoreRepository scoreRepository;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    private Student alice;
+    private Student bob;
+    private Student carol;
+    private Student dave;
+    private Course math;
+    private Course english;
+
+    @BeforeEach
+    void setUp() {
+        scoreRepository.deleteAll();
+        studentRepository.deleteAll();
+        courseRepository.deleteAll();
+
+        alice = studentRepository.save(new Student("R001", "Alice", "一班", "数学"));
+        bob = studentRepository.save(new Student("R002", "Bob", "一班", "数学"));
+        carol = studentRepository.save(new Student("R003", "Carol", "二班", "数学"));
+        dave = studentRepository.save(new Student("R004", "Dave", "二班", "数学"));
+
+        math = createCourse("高等数学");
+        english = createCourse("大学英语");
+
+        // 平均分：Alice 90，Bob 80，Carol 80，Dave 70
+        scoreService.saveScore(new Score(alice, math, 95.0));
+        scoreService.saveScore(new Score(alice, english, 85.0));
+        scoreService.saveScore(new Score(bob, math, 70.0));
+        scoreService.saveScore(new Score(bob, english, 90.0));
+        scoreService.saveScore(new Score(carol, math, 80.0));
+        scoreService.saveScore(new Score(carol, english, 80.0));
+        scoreService.saveScore(new Score(dave, math, 60.0));
+        scoreService.saveScore(new Score(dave, english, 80.0));
+    }
+
+    @Test
+    void testCompetitionAndDenseRanks() {
+        RankingPage competition = rankingService.getRankings(null, null, 0, 10, RankMode.COMPETITION);
+        RankingPage dense = rankingService.getRankings(null, null, 0, 10, RankMode.DENSE);
+
+        assertEquals(4, competition.total());
+        assertEquals(List.of(1, 2, 2, 4), ranks(competition.items()));
+        assertEquals(List.of(1, 2, 2, 3), ranks(dense.items()));
+        assertEquals(alice.getId(), competition.items().get(0).get("studentId"));
+        assertEquals(dave.getId(), competition.items().get(3).get("studentId"));
+    }
+
+    @Test
+    void testPagination() {
+        RankingPage firstPage = rankingService.getRankings(null, null, 0, 1, RankMode.COMPETITION);
+        RankingPage secondPage = rankingService.getRankings(null, null, 1, 2, RankMode.COMPETITION);
+        RankingPage beyond = rankingService.getRankings(null, null, 10, 5, RankMode.COMPETITION);
+
+        assertEquals(1, firstPage.items().size());
+        assertEquals(alice.getId(), firstPage.items().get(0).get("studentId"));
+        assertEquals(List.of(2, 2), ranks(secondPage.items()));
+        assertEquals(4, secondPage.total());
+        assertTrue(beyond.items().isEmpty());
+    }
+
+    @Test
+    void testFilterByClassAndCourse() {
+        RankingPage classTwo = rankingService.getRankings("二班", null, 0, 10, RankMode.COMPETITION);
+        assertEquals(2, classTwo.total());
+        assertEquals(carol.getId(), classTwo.items().get(0).get("studentId"));
+
+        RankingPage mathRanking = rankingService.getRankings(null, math.getId(), 0, 10, RankMode.COMPETITION);
+        assertEquals(4, mathRanking.total());
+        assertEquals(alice.getId(), mathRanking.items().get(0).get("studentId"));
+        assertEquals(95.0, mathRanking.items().get(0).get("averageScore"));
+
+        RankingPage classOneEnglish = rankingService.getRankings("一班", english.getId(), 0, 10, RankMode.COMPETITION);
+        assertEquals(2, classOneEnglish.total());
+        assertEquals(bob.getId(), classOneEnglish.items().get(0).get("studentId"));
+    }
+
+    @Test
+    void testScoreWriteInvalidatesIndex() {
+        assertEquals(alice.getId(), rankingService.getRankings(null, null, 0, 1, RankMode.COMPETITION)
+                .items().get(0).get("studentId"));
+
+        Course algebra = createCourse("线性代数");
+        scoreService.saveScore(new Score(alice, algebra, 40.0));
+        scoreService.saveScore(new Score(dave, algebra, 100.0));
+        scoreService.saveScore(new Score(dave, createCourse("大学物理"), 100.0));
+
+        Map<String, Object> top = rankingService.getRankings(null, null, 0, 1, RankMode.COMPETITION).items().get(0);
+        assertEquals(dave.getId(), top.get("studentId"));
+        assertEquals(85.0, top.get("averageScore"));
+    }
+
+    private Course createCourse(String name) {
+        Course course = new Course();
+        course.setName(name);
+        course.setCredit(3.0);
+        course.setTeacherName("教师");
+        return courseRepository.save(course);
+    }
+
+    private List<Integer> ranks(List<Map<String, Object>> items) {
+        return items.stream().map(item -> (Integer) item.get("rank")).toList();
+    }
+}
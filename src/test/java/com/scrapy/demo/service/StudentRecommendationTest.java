@@ -0,0 +1,135 @@
+package com.scrapy.demo.service;
+
+import com.scrapy.demo.domain.Course;
+import com.scrapy.demo.domain.Exam;
+import com.scrapy.demo.domain.LearningMaterial;
+import com.scrapy.demo.domain.Score;
+import com.scrapy.demo.domain.Student;
+import com.scrapy.demo.repository.CourseRepository;
+import com.scrapy.demo.repository.ExamRepository;
+import com.scrapy.demo.repository.StudentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 学习资料推荐测试
+ * 测试班级平均分取自班级课程聚合（含未关联考试的成绩）、按班级批量推荐与逐个学生推荐一致、资料变更后索引刷新
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class StudentRecommendationTest {
+
+    private static final String CLAZZ = "推荐测试班";
+
+    @Autowired
+    private TeachingInsightService teachingInsightService;
+
+    @Autowired
+    private LearningMaterialService learningMaterialService;
+
+    @Autowired
+    private ScoreService scoreService;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private ExamRepository examRepository;
+
+    private Student alice;
+    private Student bob;
+    private Course course;
+    private Exam march;
+    private Exam april;
+
+    @BeforeEach
+    void setUp() {
+        alice = studentRepository.save(new Student("RC001", "推荐甲", CLAZZ, "软件工程"));
+        bob = studentRepository.save(new Student("RC002", "推荐乙", CLAZZ, "软件工程"));
+        course = courseRepository.save(new Course("推荐测试物理", 3.0, "孙老师"));
+        march = examRepository.save(new Exam("推荐测试三月考", LocalDate.of(2026, 3, 1)));
+        april = examRepository.save(new Exam("推荐测试四月考", LocalDate.of(2026, 4, 1)));
+    }
+
+    @Test
+    void testClassAverageFromSameExam() {
+        save(alice, march, 70.0);
+        save(alice, april, 80.0);
+        save(bob, april, 60.0);
+
+        Map<String, Object> item = firstRecommendation(teachingInsightService.getStudentRecommendations(alice.getId()));
+        assertEquals(80.0, item.get("currentScore"));
+        assertEquals(70.0, item.get("classAverage"));
+        assertEquals(10.0, item.get("differenceWithClassAvg"));
+        assertEquals("上升", item.get("trend"));
+    }
+
+    @Test
+    void testClassAverageWithoutExam() {
+        save(alice, null, 85.0);
+        save(bob, null, 65.0);
+
+        Map<String, Object> item = firstRecommendation(teachingInsightService.getStudentRecommendations(alice.getId()));
+        assertEquals(85.0, item.get("currentScore"));
+        assertEquals(75.0, item.get("classAverage"));
+        assertEquals(10.0, item.get("differenceWithClassAvg"));
+    }
+
+    @Test
+    void testBatchMatchesSingleStudent() {
+        save(alice, march, 90.0);
+        save(alice, april, 65.0);
+        save(bob, march, 55.0);
+        save(bob, april, 75.0);
+
+        List<Map<String, Object>> batch = teachingInsightService.getClassRecommendations(CLAZZ);
+        assertEquals(2, batch.size());
+        for (Map<String, Object> row : batch) {
+            Long studentId = (Long) row.get("studentId");
+            assertEquals(teachingInsightService.getStudentRecommendations(studentId), row);
+        }
+        assertTrue(teachingInsightService.getClassRecommendations("不存在的班级").isEmpty());
+    }
+
+    @Test
+    void testMaterialIndexRefreshedOnChange() {
+        save(alice, april, 80.0);
+        LearningMaterial material = learningMaterialService.save(new LearningMaterial(
+                "推荐测试物理", "推荐测试物理讲义", "https://example.com/physics", "文档", "基础"));
+        assertEquals("推荐测试物理讲义", materialTitles(alice).get(0));
+
+        learningMaterialService.delete(material.getId());
+        assertFalse(materialTitles(alice).contains("推荐测试物理讲义"));
+    }
+
+    private Score save(Student student, Exam exam, double value) {
+        Score score = new Score(student, course, value);
+        score.setExam(exam);
+        return scoreService.saveScore(score);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> firstRecommendation(Map<String, Object> result) {
+        return ((List<Map<String, Object>>) result.get("recommendations")).get(0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object> materialTitles(Student student) {
+        Map<String, Object> item = firstRecommendation(teachingInsightService.getStudentRecommendations(student.getId()));
+        return ((List<Map<String, Object>>) item.get("materials")).stream().map(m -> m.get("title")).toList();
+    }
+}
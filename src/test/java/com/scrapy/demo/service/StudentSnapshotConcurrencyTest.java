@@ -0,0 +1,100 @@
+package com.scrapy.demo.service;
+
+import com.scrapy.demo.domain.Course;
+import com.scrapy.demo.domain.Exam;
+import com.scrapy.demo.domain.Score;
+import com.scrapy.demo.domain.Student;
+import com.scrapy.demo.domain.StudentSnapshot;
+import com.scrapy.demo.repository.CourseRepository;
+import com.scrapy.demo.repository.ExamRepository;
+import com.scrapy.demo.repository.StudentRepository;
+import com.scrapy.demo.repository.StudentSnapshotRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 学生快照并发写入测试
+ * 同一学生的多门首次成绩由并发事务同时写入（快照行由并发事务首次创建），提交后只有一行快照且统计完整；
+ * 各事务独立提交，测试结束时通过服务删除写入的数据
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class StudentSnapshotConcurrencyTest {
+
+    private static final int WRITERS = 6;
+
+    @Autowired
+    private ScoreService scoreService;
+
+    @Autowired
+    private StudentSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private ExamRepository examRepository;
+
+    private final List<Course> courses = new ArrayList<>();
+    private final List<Long> scoreIds = new CopyOnWriteArrayList<>();
+    private Student student;
+    private Exam exam;
+
+    @BeforeEach
+    void setUp() {
+        student = studentRepository.save(new Student("SC001", "并发快照", "并发快照测试班", "软件工程"));
+        exam = examRepository.save(new Exam("并发快照测试考试", LocalDate.of(2026, 5, 1)));
+        for (int i = 0; i < WRITERS; i++) {
+            courses.add(courseRepository.save(new Course("并发快照测试课程" + i, 2.0, "并发老师")));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        scoreIds.forEach(scoreService::delete);
+        studentRepository.delete(student);
+        courseRepository.deleteAll(courses);
+        examRepository.delete(exam);
+    }
+
+    @Test
+    void testConcurrentFirstScoresShareOneSnapshot() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (Course course : courses) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                Score score = new Score(student, course, 50.0);
+                score.setExam(exam);
+                scoreIds.add(scoreService.saveScore(score).getId());
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        StudentSnapshot snapshot = snapshotRepository.findByStudentId(student.getId()).orElseThrow();
+        assertEquals(WRITERS, snapshot.getCurrentCount());
+        assertEquals(WRITERS, snapshot.getFailedCount());
+        assertEquals(50.0, snapshot.getCurrentAverage(), 1e-9);
+        assertTrue(snapshot.isRisk());
+    }
+}
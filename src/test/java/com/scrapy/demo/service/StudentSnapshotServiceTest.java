@@ -0,0 +1,174 @@
+package com.scrapy.demo.service;
+
+import com.scrapy.demo.domain.Course;
+import com.scrapy.demo.domain.Exam;
+import com.scrapy.demo.domain.Score;
+import com.scrapy.demo.domain.Student;
+import com.scrapy.demo.domain.StudentSnapshot;
+import com.scrapy.demo.repository.CourseRepository;
+import com.scrapy.demo.repository.ExamRepository;
+import com.scrapy.demo.repository.StudentRepository;
+import com.scrapy.demo.repository.StudentSnapshotRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 学生考试快照测试
+ * 测试成绩写入时的增量刷新、读取时的班内排名、调班与全量重建
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class StudentSnapshotServiceTest {
+
+    private static final String CLAZZ = "快照测试班";
+
+    @Autowired
+    private StudentSnapshotService snapshotService;
+
+    @Autowired
+    private StudentSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private ScoreService scoreService;
+
+    @Autowired
+    private StudentService studentService;
+
+    @Autowired
+    private TeachingInsightService teachingInsightService;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private ExamRepository examRepository;
+
+    private Student alice;
+    private Student bob;
+    private Course math;
+    private Course chinese;
+    private Exam march;
+    private Exam april;
+
+    @BeforeEach
+    void setUp() {
+        alice = studentRepository.save(new Student("SS001", "快照甲", CLAZZ, "软件工程"));
+        bob = studentRepository.save(new Student("SS002", "快照乙", CLAZZ, "软件工程"));
+        math = courseRepository.save(new Course("快照测试数学", 3.0, "赵老师"));
+        chinese = courseRepository.save(new Course("快照测试语文", 3.0, "钱老师"));
+        march = examRepository.save(new Exam("快照测试三月考", LocalDate.of(2026, 3, 1)));
+        april = examRepository.save(new Exam("快照测试四月考", LocalDate.of(2026, 4, 1)));
+    }
+
+    @Test
+    void testRefreshedOnScoreWrites() {
+        save(alice, math, march, 90.0);
+        save(alice, chinese, march, 60.0);
+        Score aliceMath = save(alice, math, april, 55.0);
+        save(alice, chinese, april, 50.0);
+        save(bob, math, march, 60.0);
+        save(bob, math, april, 70.0);
+
+        StudentSnapshot a = snapshot(alice);
+        assertEquals(CLAZZ, a.getClazz());
+        assertEquals(april.getExamDate(), a.getCurrentExamDate());
+        assertEquals(march.getExamDate(), a.getPreviousExamDate());
+        assertEquals(52.5, a.getCurrentAverage(), 1e-9);
+        assertEquals(75.0, a.getPreviousAverage(), 1e-9);
+        assertEquals(2, a.getFailedCount());
+        assertTrue(a.isRisk());
+        assertEquals(2, a.getCurrentRank());
+        assertEquals(1, a.getPreviousRank());
+
+        StudentSnapshot b = snapshot(bob);
+        assertFalse(b.isRisk());
+        assertEquals(1, b.getCurrentRank());
+        assertEquals(2, b.getPreviousRank());
+
+        List<Map<String, Object>> flags = teachingInsightService.getClassStudentFlags(CLAZZ);
+        assertEquals(alice.getId(), flags.get(0).get("studentId"));
+        assertEquals("快照甲", flags.get(0).get("studentName"));
+        assertEquals("风险", flags.get(0).get("tag"));
+        assertEquals(-1, flags.get(0).get("rankDelta"));
+        assertEquals(1L, teachingInsightService.getClassOverview(CLAZZ).get("riskStudentCount"));
+
+        // 修改分数后该学生快照与全班名次随之刷新
+        scoreService.updateScoreValue(aliceMath.getId(), 100.0);
+        a = snapshot(alice);
+        assertEquals(75.0, a.getCurrentAverage(), 1e-9);
+        assertEquals(1, a.getFailedCount());
+        assertFalse(a.isRisk());
+        assertEquals(1, a.getCurrentRank());
+        assertEquals(2, snapshot(bob).getCurrentRank());
+        assertEquals(0L, teachingInsightService.getClassOverview(CLAZZ).get("riskStudentCount"));
+    }
+
+    @Test
+    void testClassMoveAndDelete() {
+        save(alice, math, april, 90.0);
+        Score bobMath = save(bob, math, april, 80.0);
+        assertEquals(2, snapshot(bob).getCurrentRank());
+
+        Student moved = new Student(bob.getStudentNumber(), bob.getName(), "快照测试二班", bob.getMajor());
+        studentService.update(bob.getId(), moved);
+        assertEquals("快照测试二班", snapshot(bob).getClazz());
+        assertEquals(1, snapshot(bob).getCurrentRank());
+        assertEquals(1, snapshotService.findByClazz(CLAZZ).size());
+
+        scoreService.delete(bobMath.getId());
+        assertTrue(snapshotRepository.findByStudentId(bob.getId()).isEmpty());
+    }
+
+    @Test
+    void testRebuildMatchesIncrementalRefresh() {
+        save(alice, math, march, 40.0);
+        save(alice, math, april, 75.0);
+        save(bob, chinese, march, 88.0);
+        save(bob, chinese, april, 61.0);
+        StudentSnapshot a = snapshot(alice);
+        StudentSnapshot b = snapshot(bob);
+        String before = describe(a) + describe(b);
+
+        snapshotService.rebuild();
+
+        assertEquals(before, describe(snapshot(alice)) + describe(snapshot(bob)));
+    }
+
+    private Score save(Student student, Course course, Exam exam, double value) {
+        Score score = new Score(student, course, value);
+        score.setExam(exam);
+        return scoreService.saveScore(score);
+    }
+
+    /**
+     * 学生的快照，名次随班级快照一起在读取时计算
+     */
+    private StudentSnapshot snapshot(Student student) {
+        String clazz = snapshotRepository.findByStudentId(student.getId()).orElseThrow().getClazz();
+        return snapshotService.findByClazz(clazz).stream()
+                .filter(row -> row.getStudentId().equals(student.getId()))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private String describe(StudentSnapshot s) {
+        return String.join("|", s.getClazz(), String.valueOf(s.getCurrentExamDate()),
+                String.valueOf(s.getPreviousExamDate()), String.valueOf(s.getCurrentAverage()),
+                String.valueOf(s.getPreviousAverage()), String.valueOf(s.getFailedCount()),
+                String.valueOf(s.isRisk()), String.valueOf(s.getCurrentRank()), String.valueOf(s.getPreviousRank())) + ";";
+    }
+}
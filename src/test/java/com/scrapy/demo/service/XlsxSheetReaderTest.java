@@ -0,0 +1,104 @@
+package com.scrapy.demo.service;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * XLSX 流式读取测试
+ * 验证共享字符串、内联字符串、数值及空单元格的还原与 DOM 读取一致
+ */
+class XlsxSheetReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testReadSharedStringsAndNumbers() throws Exception {
+        List<SheetRow> rows = readBack(new XSSFWorkbook());
+
+        assertEquals(3, rows.size());
+        assertEquals(1, rows.get(0).rowNum());
+        assertEquals("学号", rows.get(0).getString(0));
+
+        SheetRow data = rows.get(1);
+        assertEquals("2024001", data.getString(0));
+        assertEquals("高等数学", data.getString(1));
+        assertNull(data.getString(2));
+        assertEquals(85.5, data.getNumber(3));
+        assertNull(data.getNumber(1));
+        assertNull(data.getString(10));
+
+        // 文本形式的成绩不按数值处理，与 DOM 读取一致
+        assertNull(rows.get(2).getNumber(3));
+        assertEquals("90", rows.get(2).getString(3));
+    }
+
+    @Test
+    void testReadInlineStrings() throws Exception {
+        List<SheetRow> rows = readBack(new SXSSFWorkbook());
+
+        assertEquals(3, rows.size());
+        assertEquals("高等数学", rows.get(1).getString(1));
+        assertEquals(85.5, rows.get(1).getNumber(3));
+        assertEquals(3, rows.get(2).rowNum());
+    }
+
+    @Test
+    void testOpenSheetsSkipsHiddenSheets() throws Exception {
+        Path file = tempDir.resolve("sheets.xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(file)) {
+            workbook.createSheet("计算机1班").createRow(0).createCell(0).setCellValue("一班");
+            workbook.createSheet("选项").createRow(0).createCell(0).setCellValue("隐藏");
+            workbook.createSheet("计算机2班").createRow(0).createCell(0).setCellValue("二班");
+            workbook.setSheetHidden(1, true);
+            workbook.write(out);
+        }
+
+        XlsxSheetReader.Sheets sheets = XlsxSheetReader.openSheets(file);
+
+        assertEquals(2, sheets.size());
+        assertEquals("计算机1班", sheets.name(0));
+        assertEquals("计算机2班", sheets.name(1));
+        List<SheetRow> rows = new ArrayList<>();
+        sheets.read(1, rows::add);
+        assertEquals("二班", rows.get(0).getString(0));
+    }
+
+    private List<SheetRow> readBack(Workbook workbook) throws Exception {
+        Sheet sheet = workbook.createSheet("成绩信息");
+        Row header = sheet.createRow(0);
+        header.createCell(0).setCellValue("学号");
+        header.createCell(3).setCellValue("成绩");
+        Row data = sheet.createRow(1);
+        data.createCell(0).setCellValue(2024001);
+        data.createCell(1).setCellValue("高等数学");
+        data.createCell(3).setCellValue(85.5);
+        // 中间空一行，行序号按已出现的行计数
+        Row text = sheet.createRow(5);
+        text.createCell(0).setCellValue("2024002");
+        text.createCell(3).setCellValue("90");
+
+        Path file = tempDir.resolve("sheet.xlsx");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            workbook.write(out);
+        }
+        workbook.close();
+
+        List<SheetRow> rows = new ArrayList<>();
+        XlsxSheetReader.readFirstSheet(file, rows::add);
+        return rows;
+    }
+}